@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.benchmarks;
+
+/**
+ * What synthetic documents contain.
+ */
+public enum AttributeMix {
+    /**
+     * Tokens, with one analysis each, and nothing else.
+     */
+    TOKENS,
+    /**
+     * Tokens with one analysis each, sentences, entities and a language detection.
+     */
+    STANDARD,
+    /**
+     * As {@link #STANDARD}, with three analyses for each token, extended properties on tokens and entities,
+     * coreferent mentions, relationships and dependencies.
+     */
+    RICH
+}
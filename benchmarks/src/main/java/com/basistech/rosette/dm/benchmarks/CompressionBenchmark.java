@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.benchmarks;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.jackson.AdmCodec;
+import com.google.common.io.ByteStreams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xerial.snappy.Snappy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serializing and deserializing Json documents framed with compression, as they are stored or sent.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+    /**
+     * The framings under test.
+     */
+    public enum Compression {
+        NONE {
+            @Override
+            byte[] compress(byte[] data) {
+                return data;
+            }
+
+            @Override
+            byte[] decompress(byte[] data) {
+                return data;
+            }
+        },
+        GZIP {
+            @Override
+            byte[] compress(byte[] data) throws IOException {
+                ByteArrayOutputStream sink = new ByteArrayOutputStream(data.length / 4 + 64);
+                try (GZIPOutputStream compressedStream = new GZIPOutputStream(sink, 8192)) {
+                    compressedStream.write(data);
+                }
+                return sink.toByteArray();
+            }
+
+            @Override
+            byte[] decompress(byte[] data) throws IOException {
+                try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data), 8192)) {
+                    return ByteStreams.toByteArray(in);
+                }
+            }
+        },
+        SNAPPY {
+            @Override
+            byte[] compress(byte[] data) throws IOException {
+                return Snappy.compress(data);
+            }
+
+            @Override
+            byte[] decompress(byte[] data) throws IOException {
+                return Snappy.uncompress(data);
+            }
+        };
+
+        abstract byte[] compress(byte[] data) throws IOException;
+
+        abstract byte[] decompress(byte[] data) throws IOException;
+    }
+
+    //CHECKSTYLE:OFF
+    @Param({"NONE", "GZIP", "SNAPPY"})
+    public Compression compression;
+
+    @Param({"PLAIN", "ARRAY"})
+    public AdmCodec.Shape shape;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    public DocumentSize size;
+    //CHECKSTYLE:ON
+
+    private AdmCodec codec;
+    private AnnotatedText text;
+    private byte[] compressed;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        codec = Format.JSON.newCodec(shape);
+        text = Documents.create(size);
+        compressed = compression.compress(codec.writeValueAsBytes(text));
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return compression.compress(codec.writeValueAsBytes(text));
+    }
+
+    @Benchmark
+    public AnnotatedText deserialize() throws IOException {
+        return codec.read(compression.decompress(compressed));
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.benchmarks;
+
+/**
+ * Sizes of synthetic documents, in tokens.
+ */
+public enum DocumentSize {
+    SMALL(100),
+    MEDIUM(2000),
+    LARGE(50000);
+
+    private final int tokenCount;
+
+    DocumentSize(int tokenCount) {
+        this.tokenCount = tokenCount;
+    }
+
+    public int getTokenCount() {
+        return tokenCount;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.benchmarks;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.test.corpus.CorpusGenerator;
+import com.basistech.rosette.dm.test.corpus.CorpusSpec;
+
+/**
+ * Synthetic documents for the benchmarks, from a {@link CorpusGenerator}. The same size and mix always make
+ * the same document; see {@link AttributeMix}.
+ */
+final class Documents {
+    private static final long SEED = 0x5eed;
+
+    private Documents() {
+        //
+    }
+
+    static AnnotatedText create(DocumentSize size) {
+        return create(size, AttributeMix.STANDARD);
+    }
+
+    static AnnotatedText create(DocumentSize size, AttributeMix mix) {
+        return new CorpusGenerator(spec(size, mix).build()).document(0);
+    }
+
+    static CorpusSpec.Builder spec(DocumentSize size, AttributeMix mix) {
+        CorpusSpec.Builder spec = new CorpusSpec.Builder()
+            .seed(SEED)
+            .documentCount(1)
+            .tokens(size.getTokenCount(), 0, size.getTokenCount())
+            .coreference(0)
+            .relationshipDensity(0);
+        switch (mix) {
+        case TOKENS:
+            spec.entityDensity(0).sentenceLength(0).languageDetection(false);
+            break;
+        case RICH:
+            spec.analysesPerToken(3).extendedProperties(2).coreference(0.3).relationshipDensity(1).dependencies(true);
+            break;
+        default:
+            break;
+        }
+        return spec;
+    }
+}
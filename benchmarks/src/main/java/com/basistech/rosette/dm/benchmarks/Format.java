@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.benchmarks;
+
+import com.basistech.rosette.dm.jackson.AdmCodec;
+import com.basistech.rosette.dm.jackson.CborMappers;
+import com.basistech.rosette.dm.jackson.SmileMappers;
+import com.fasterxml.jackson.core.JsonFactory;
+
+/**
+ * The serialization formats under test.
+ */
+public enum Format {
+    JSON {
+        @Override
+        JsonFactory newFactory() {
+            return new JsonFactory();
+        }
+    },
+    SMILE {
+        @Override
+        JsonFactory newFactory() {
+            return SmileMappers.newSmileFactory();
+        }
+    },
+    CBOR {
+        @Override
+        JsonFactory newFactory() {
+            return CborMappers.newCborFactory();
+        }
+    };
+
+    abstract JsonFactory newFactory();
+
+    AdmCodec newCodec(AdmCodec.Shape shape) {
+        return new AdmCodec(shape, newFactory()).warmUp();
+    }
+}
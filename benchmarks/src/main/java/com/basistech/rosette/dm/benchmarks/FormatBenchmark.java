@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.benchmarks;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.jackson.AdmCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing and deserializing whole documents, for each format, shape and size.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class FormatBenchmark {
+    //CHECKSTYLE:OFF
+    @Param({"JSON", "SMILE", "CBOR"})
+    public Format format;
+
+    @Param({"PLAIN", "ARRAY"})
+    public AdmCodec.Shape shape;
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    public DocumentSize size;
+    //CHECKSTYLE:ON
+
+    private AdmCodec codec;
+    private AnnotatedText text;
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        codec = format.newCodec(shape);
+        text = Documents.create(size);
+        bytes = codec.writeValueAsBytes(text);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return codec.writeValueAsBytes(text);
+    }
+
+    @Benchmark
+    public AnnotatedText deserialize() throws IOException {
+        return codec.read(bytes);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.benchmarks;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.EntityMention;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.MorphoAnalysis;
+import com.basistech.rosette.dm.Token;
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-memory model: building, copying, traversing and comparing documents, for each size and mix of
+ * attributes. {@link #entityMentions()} has to copy the document first, since the result is cached; compare it
+ * with {@link #copy()}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+@SuppressWarnings("deprecation")
+public class ModelBenchmark {
+    //CHECKSTYLE:OFF
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    public DocumentSize size;
+
+    @Param({"TOKENS", "STANDARD", "RICH"})
+    public AttributeMix mix;
+    //CHECKSTYLE:ON
+
+    private AnnotatedText text;
+    // an equal document that shares no objects with the first.
+    private AnnotatedText twin;
+    private List<Token> tokenItems;
+    private int[] startOffsets;
+    private int[] endOffsets;
+    private String[] tokenTexts;
+    private MorphoAnalysis[][] analyses;
+    private ListAttribute<EntityMention> legacyMentions;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        text = Documents.create(size, mix);
+        twin = Documents.create(size, mix);
+        ListAttribute<Token> tokens = text.getTokens();
+        tokenItems = Lists.newArrayList(tokens);
+        startOffsets = new int[tokens.size()];
+        endOffsets = new int[tokens.size()];
+        tokenTexts = new String[tokens.size()];
+        analyses = new MorphoAnalysis[tokens.size()][];
+        for (int x = 0; x < tokens.size(); x++) {
+            Token token = tokens.get(x);
+            startOffsets[x] = token.getStartOffset();
+            endOffsets[x] = token.getEndOffset();
+            tokenTexts[x] = token.getText();
+            analyses[x] = token.getAnalyses().toArray(new MorphoAnalysis[token.getAnalyses().size()]);
+        }
+        legacyMentions = new AnnotatedText.Builder(text).build().getEntityMentions();
+    }
+
+    /**
+     * Build every token, as an analyzer does.
+     */
+    @Benchmark
+    public ListAttribute<Token> buildTokens() {
+        ListAttribute.Builder<Token> builder = new ListAttribute.Builder<>(Token.class);
+        for (int x = 0; x < startOffsets.length; x++) {
+            Token.Builder token = new Token.Builder(startOffsets[x], endOffsets[x], tokenTexts[x]);
+            for (MorphoAnalysis analysis : analyses[x]) {
+                token.addAnalysis(analysis);
+            }
+            builder.add(token.build());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Build a list from items that already exist.
+     */
+    @Benchmark
+    public ListAttribute<Token> buildList() {
+        return new ListAttribute.Builder<Token>(Token.class).setItems(tokenItems).build();
+    }
+
+    /**
+     * Copy a document through a builder, as each stage of a pipeline does.
+     */
+    @Benchmark
+    public AnnotatedText copy() {
+        return new AnnotatedText.Builder(text).build();
+    }
+
+    /**
+     * Build a document from the pre-1.1 entity mentions, which are converted to entities.
+     */
+    @Benchmark
+    public AnnotatedText absorbLegacy() {
+        AnnotatedText.Builder builder = new AnnotatedText.Builder().data(text.getData()).tokens(text.getTokens());
+        if (legacyMentions != null) {
+            builder.entityMentions(legacyMentions);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Convert entities to the pre-1.1 entity mentions.
+     */
+    @Benchmark
+    public ListAttribute<EntityMention> entityMentions() {
+        return new AnnotatedText.Builder(text).build().getEntityMentions();
+    }
+
+    /**
+     * Visit every token and its analyses.
+     */
+    @Benchmark
+    public long traverse() {
+        long sum = 0;
+        for (Token token : text.getTokens()) {
+            sum += token.getEndOffset() - token.getStartOffset();
+            for (MorphoAnalysis analysis : token.getAnalyses()) {
+                sum += analysis.getLemma().length();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public boolean equalsTokens() {
+        return text.getTokens().equals(twin.getTokens());
+    }
+
+    @Benchmark
+    public int hashCodeTokens() {
+        return text.getTokens().hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsDocument() {
+        return text.getAttributes().equals(twin.getAttributes());
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.benchmarks;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.Annotator;
+import com.basistech.rosette.dm.Entity;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.Sentence;
+import com.basistech.rosette.dm.Token;
+import com.basistech.rosette.dm.util.ComposingAnnotator;
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link ComposingAnnotator} shared by every thread, running mock annotators that rebuild the tokens,
+ * sentences and entities of a synthetic document, so that the time goes to the model and the pipeline
+ * rather than to any analysis. Run it with {@link ScalingRunner} to see how it scales with threads.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineScalingBenchmark {
+    //CHECKSTYLE:OFF
+    @Param({"SMALL", "MEDIUM"})
+    public DocumentSize size;
+    //CHECKSTYLE:ON
+
+    private ComposingAnnotator pipeline;
+    private CharSequence data;
+
+    /* builds new tokens with the offsets and text of the reference tokens. */
+    private static final class MockTokenizer implements Annotator {
+        private final List<Token> reference;
+
+        MockTokenizer(List<Token> reference) {
+            this.reference = reference;
+        }
+
+        @Override
+        public AnnotatedText annotate(CharSequence input) {
+            ListAttribute.Builder<Token> tokens = new ListAttribute.Builder<>(Token.class);
+            for (Token token : reference) {
+                Token.Builder builder = new Token.Builder(token.getStartOffset(), token.getEndOffset(), token.getText());
+                builder.analyses(token.getAnalyses());
+                tokens.add(builder.build());
+            }
+            return new AnnotatedText.Builder().data(input).tokens(tokens.build()).build();
+        }
+
+        @Override
+        public AnnotatedText annotate(AnnotatedText input) {
+            return annotate(input.getData());
+        }
+    }
+
+    /* adds a copy of the reference sentences. */
+    private static final class MockSentenceBreaker implements Annotator {
+        private final List<Sentence> reference;
+
+        MockSentenceBreaker(List<Sentence> reference) {
+            this.reference = reference;
+        }
+
+        @Override
+        public AnnotatedText annotate(CharSequence input) {
+            return annotate(new AnnotatedText.Builder().data(input).build());
+        }
+
+        @Override
+        public AnnotatedText annotate(AnnotatedText input) {
+            ListAttribute.Builder<Sentence> sentences = new ListAttribute.Builder<>(Sentence.class);
+            for (Sentence sentence : reference) {
+                sentences.add(new Sentence.Builder(sentence.getStartOffset(), sentence.getEndOffset()).build());
+            }
+            return new AnnotatedText.Builder(input).sentences(sentences.build()).build();
+        }
+    }
+
+    /* adds the reference entities. */
+    private static final class MockEntityExtractor implements Annotator {
+        private final List<Entity> reference;
+
+        MockEntityExtractor(List<Entity> reference) {
+            this.reference = reference;
+        }
+
+        @Override
+        public AnnotatedText annotate(CharSequence input) {
+            return annotate(new AnnotatedText.Builder().data(input).build());
+        }
+
+        @Override
+        public AnnotatedText annotate(AnnotatedText input) {
+            ListAttribute.Builder<Entity> entities = new ListAttribute.Builder<>(Entity.class);
+            for (Entity entity : reference) {
+                entities.add(new Entity.Builder(entity).build());
+            }
+            return new AnnotatedText.Builder(input).entities(entities.build()).build();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        AnnotatedText text = Documents.create(size);
+        data = text.getData();
+        pipeline = new ComposingAnnotator(ImmutableList.<Annotator>of(
+            new MockTokenizer(text.getTokens()),
+            new MockSentenceBreaker(text.getSentences()),
+            new MockEntityExtractor(text.getEntities())));
+    }
+
+    @Benchmark
+    public AnnotatedText annotate() {
+        return pipeline.annotate(data);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.benchmarks;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.util.Statistics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Runs the scaling benchmarks, {@link SerializationScalingBenchmark} and {@link PipelineScalingBenchmark},
+ * once for each of a list of thread counts, and reports how throughput and latency change as threads are added.
+ * For each benchmark and parameters, it prints a row per thread count with the throughput of all threads
+ * together, the 50th, 99th and 99.9th percentile latency, the speedup over the smallest thread count, and the
+ * scaling efficiency: the speedup divided by the increase in threads. Efficiency near 1 means the library
+ * scales; where it falls off while threads are still below the number of cores, something is contended.
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.basistech.rosette.dm.benchmarks.ScalingRunner -threads 1,2,4,8,16
+ * </pre>
+ * The default is powers of two up to twice the number of cores. Other arguments are JMH options, for example
+ * a benchmark pattern such as {@code SerializationScalingBenchmark.serializeWriter} or {@code -p size=MEDIUM}.
+ * Throughput is derived from the mean latency and the thread count, since the benchmarks sample latency.
+ */
+public final class ScalingRunner {
+    private static final String THREADS = "-threads";
+
+    private ScalingRunner() {
+        //
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        List<String> jmhArgs = Lists.newArrayList(args);
+        int[] threadCounts = defaultThreadCounts(Runtime.getRuntime().availableProcessors());
+        int index = jmhArgs.indexOf(THREADS);
+        if (index >= 0) {
+            List<Integer> counts = Lists.newArrayList();
+            for (String count : jmhArgs.get(index + 1).split(",")) {
+                counts.add(Integer.valueOf(count.trim()));
+            }
+            threadCounts = Ints.toArray(counts);
+            jmhArgs.remove(index + 1);
+            jmhArgs.remove(index);
+        }
+        CommandLineOptions commandLine = new CommandLineOptions(jmhArgs.toArray(new String[jmhArgs.size()]));
+
+        // benchmark and parameters -> thread count -> result.
+        Map<String, Map<Integer, RunResult>> results = Maps.newTreeMap();
+        for (int threads : threadCounts) {
+            ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine).threads(threads);
+            if (commandLine.getIncludes().isEmpty()) {
+                options.include(".*ScalingBenchmark.*");
+            }
+            for (RunResult result : new Runner(options.build()).run()) {
+                Map<Integer, RunResult> byThreads = results.get(label(result.getParams()));
+                if (byThreads == null) {
+                    byThreads = Maps.newTreeMap();
+                    results.put(label(result.getParams()), byThreads);
+                }
+                byThreads.put(threads, result);
+            }
+        }
+        System.out.println();
+        System.out.printf("Scaling with %d cores%n", Runtime.getRuntime().availableProcessors());
+        for (Map.Entry<String, Map<Integer, RunResult>> entry : results.entrySet()) {
+            report(entry.getKey(), entry.getValue());
+        }
+    }
+
+    static int[] defaultThreadCounts(int cores) {
+        TreeSet<Integer> counts = new TreeSet<>();
+        for (int threads = 1; threads <= 2 * cores; threads *= 2) {
+            counts.add(threads);
+        }
+        counts.add(cores);
+        return Ints.toArray(counts);
+    }
+
+    private static String label(BenchmarkParams params) {
+        String benchmark = params.getBenchmark();
+        List<String> parts = Lists.newArrayList(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+        for (String key : params.getParamsKeys()) {
+            parts.add(key + "=" + params.getParam(key));
+        }
+        return Joiner.on(' ').join(parts);
+    }
+
+    private static void report(String label, Map<Integer, RunResult> byThreads) {
+        System.out.println();
+        System.out.println(label);
+        System.out.printf("%8s %14s %10s %10s %10s %8s %10s%n", "threads", "ops/s", "p50 us", "p99 us", "p99.9 us", "speedup", "efficiency");
+        double baseThroughput = 0;
+        int baseThreads = 0;
+        for (Map.Entry<Integer, RunResult> entry : byThreads.entrySet()) {
+            int threads = entry.getKey();
+            Statistics statistics = entry.getValue().getPrimaryResult().getStatistics();
+            // mean microseconds per operation on each thread.
+            double throughput = threads * 1e6 / statistics.getMean();
+            if (baseThreads == 0) {
+                baseThroughput = throughput;
+                baseThreads = threads;
+            }
+            double speedup = throughput / baseThroughput;
+            double efficiency = speedup / ((double) threads / baseThreads);
+            System.out.printf("%8d %,14.0f %10.1f %10.1f %10.1f %8.2f %10.2f%n", threads, throughput,
+                statistics.getPercentile(50), statistics.getPercentile(99), statistics.getPercentile(99.9), speedup, efficiency);
+        }
+    }
+}
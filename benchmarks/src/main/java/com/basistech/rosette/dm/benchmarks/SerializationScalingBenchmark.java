@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.benchmarks;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.jackson.AdmCodec;
+import com.basistech.rosette.dm.jackson.AnnotatedDataModelModule;
+import com.basistech.rosette.dm.jackson.array.AnnotatedDataModelArrayModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Json serialization with one mapper shared by every thread, as a service shares the mapper from
+ * {@code setupObjectMapper}. Run it with {@link ScalingRunner} to see how it scales with threads.
+ * The mapper methods look up the root serializer or deserializer on every call; the writer and
+ * reader methods use an {@link ObjectWriter} and {@link ObjectReader} that have it already, as
+ * {@link AdmCodec} does, so the difference between them is the cost of the lookups.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationScalingBenchmark {
+    //CHECKSTYLE:OFF
+    @Param({"PLAIN", "ARRAY"})
+    public AdmCodec.Shape shape;
+
+    @Param({"SMALL", "MEDIUM"})
+    public DocumentSize size;
+    //CHECKSTYLE:ON
+
+    private ObjectMapper mapper;
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private AnnotatedText text;
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        if (shape == AdmCodec.Shape.ARRAY) {
+            mapper = AnnotatedDataModelArrayModule.setupObjectMapper(new ObjectMapper());
+        } else {
+            mapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper());
+        }
+        writer = mapper.writerFor(AnnotatedText.class);
+        reader = mapper.readerFor(AnnotatedText.class);
+        text = Documents.create(size, AttributeMix.RICH);
+        bytes = mapper.writeValueAsBytes(text);
+    }
+
+    @Benchmark
+    public byte[] serializeMapper() throws IOException {
+        return mapper.writeValueAsBytes(text);
+    }
+
+    @Benchmark
+    public byte[] serializeWriter() throws IOException {
+        return writer.writeValueAsBytes(text);
+    }
+
+    @Benchmark
+    public AnnotatedText deserializeMapper() throws IOException {
+        return mapper.readValue(bytes, AnnotatedText.class);
+    }
+
+    @Benchmark
+    public AnnotatedText deserializeReader() throws IOException {
+        return reader.readValue(bytes);
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+/**
+ * JMH benchmarks for the model and its serialized forms. Build with {@code mvn package} and run
+ * {@code java -jar benchmarks/target/benchmarks.jar}; see {@link com.basistech.rosette.dm.benchmarks.BenchmarkRunner}.
+ * These are not part of any released artifact.
+ */
+package com.basistech.rosette.dm.benchmarks;
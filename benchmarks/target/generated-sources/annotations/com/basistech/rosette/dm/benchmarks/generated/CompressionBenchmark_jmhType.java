@@ -0,0 +1,4 @@
+package com.basistech.rosette.dm.benchmarks.generated;
+public class CompressionBenchmark_jmhType extends CompressionBenchmark_jmhType_B3 {
+}
+
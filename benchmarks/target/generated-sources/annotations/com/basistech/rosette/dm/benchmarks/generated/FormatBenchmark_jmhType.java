@@ -0,0 +1,4 @@
+package com.basistech.rosette.dm.benchmarks.generated;
+public class FormatBenchmark_jmhType extends FormatBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.basistech.rosette.dm.benchmarks.generated;
+public class ModelBenchmark_jmhType extends ModelBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.basistech.rosette.dm.benchmarks.generated;
+public class PipelineScalingBenchmark_jmhType extends PipelineScalingBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.basistech.rosette.dm.benchmarks.generated;
+public class SerializationScalingBenchmark_jmhType extends SerializationScalingBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,141 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.jackson.AnnotatedDataModelModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Compact binary serialization for {@link AnnotatedText}.
+ * Offsets are delta- and varint-encoded, repeated strings such as parts of speech, lemmas,
+ * entity types and sources are stored once per document in a string table, each
+ * {@link com.basistech.rosette.dm.MorphoAnalysis} subclass has its own typed encoding, and embeddings
+ * are packed floats. Tokens, sentences, base noun phrases, entities and embeddings are encoded natively;
+ * other attributes are carried as embedded JSON. Doubles in native attributes round-trip bit for bit;
+ * doubles in embedded JSON get the rounding of the JSON format.
+ *
+ * Instances are thread-safe and may be shared.
+ * <pre>
+ * AdmBinaryCodec codec = new AdmBinaryCodec();
+ * byte[] bytes = codec.encode(text);
+ * AnnotatedText copy = codec.decode(bytes);
+ * </pre>
+ */
+public final class AdmBinaryCodec {
+    private final ObjectMapper jsonMapper;
+
+    /**
+     * Constructs a codec.
+     */
+    public AdmBinaryCodec() {
+        this(AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper()));
+    }
+
+    /**
+     * Constructs a codec that uses a particular mapper for the attributes carried as JSON.
+     * @param jsonMapper a mapper set up with {@link AnnotatedDataModelModule#setupObjectMapper(ObjectMapper)}.
+     */
+    public AdmBinaryCodec(ObjectMapper jsonMapper) {
+        this.jsonMapper = jsonMapper;
+    }
+
+    ObjectMapper jsonMapper() {
+        return jsonMapper;
+    }
+
+    /**
+     * Encode a document.
+     * @param text the document.
+     * @return the encoded bytes.
+     * @throws IOException if an attribute carried as JSON cannot be serialized.
+     */
+    public byte[] encode(AnnotatedText text) throws IOException {
+        BinaryOutput out = new BinaryOutput(8192);
+        new DocumentWriter(jsonMapper).write(text, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Encode a document to a stream.
+     * @param text the document.
+     * @param stream the destination. It is not closed.
+     * @throws IOException on error writing the stream.
+     */
+    public void encode(AnnotatedText text, OutputStream stream) throws IOException {
+        BinaryOutput out = new BinaryOutput(8192);
+        new DocumentWriter(jsonMapper).write(text, out);
+        out.writeTo(stream);
+    }
+
+    /**
+     * Decode a document.
+     * @param bytes the encoded bytes.
+     * @return the document.
+     * @throws IOException if the bytes are not a valid encoding.
+     */
+    public AnnotatedText decode(byte[] bytes) throws IOException {
+        return decode(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Decode a document from a region of an array.
+     * @param bytes the buffer.
+     * @param offset the start of the encoding.
+     * @param length the length of the encoding.
+     * @return the document.
+     * @throws IOException if the bytes are not a valid encoding.
+     */
+    public AnnotatedText decode(byte[] bytes, int offset, int length) throws IOException {
+        return new DocumentReader(jsonMapper, new BinaryInput(bytes, offset, length)).read();
+    }
+
+    /**
+     * Decode a document from the remaining contents of a buffer. The buffer's position is not changed.
+     * @param buffer the buffer, which may be direct or memory-mapped.
+     * @return the document.
+     * @throws IOException if the bytes are not a valid encoding.
+     */
+    public AnnotatedText decode(ByteBuffer buffer) throws IOException {
+        return new DocumentReader(jsonMapper, new BinaryInput(buffer, buffer.position(), buffer.remaining())).read();
+    }
+
+    /**
+     * Make a lazy view of an encoded document. Nothing is decoded until it is asked for.
+     * @param buffer the buffer, which may be direct or memory-mapped. The view reads the
+     *               buffer's current position to its limit, and does not modify the buffer.
+     * @return the view.
+     */
+    public AnnotatedTextView view(ByteBuffer buffer) {
+        return new AnnotatedTextView(jsonMapper, buffer, buffer.position(), buffer.remaining());
+    }
+
+    /**
+     * Decode a document from the entire remaining contents of a stream.
+     * @param stream the stream. It is not closed.
+     * @return the document.
+     * @throws IOException on error reading the stream, or if the contents are not a valid encoding.
+     */
+    public AnnotatedText decode(InputStream stream) throws IOException {
+        return decode(ByteStreams.toByteArray(stream));
+    }
+}
@@ -0,0 +1,174 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.BaseAttribute;
+import com.basistech.rosette.dm.jackson.KnownAttribute;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A lazy view of one encoded document. Opening a view costs nothing; the string table,
+ * the data, the metadata and each attribute are decoded the first time they are asked for, and
+ * then kept. Attributes that are not asked for are never decoded. The tokens can also be walked
+ * with a {@link TokenCursor}, which decodes offsets straight from the buffer without building
+ * {@link com.basistech.rosette.dm.Token} objects.
+ *
+ * Views are not thread-safe. The underlying buffer may be shared between views.
+ */
+public final class AnnotatedTextView {
+    private final ObjectMapper jsonMapper;
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+    private DocumentReader reader;
+    private int metadataPosition;
+    private Map<String, List<String>> metadata;
+    private Map<String, Section> sections;
+    private Map<String, BaseAttribute> attributes;
+
+    /* Where one attribute lives in the buffer. */
+    private static final class Section {
+        final int kind;
+        final int offset;
+        final int length;
+
+        Section(int kind, int offset, int length) {
+            this.kind = kind;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    AnnotatedTextView(ObjectMapper jsonMapper, ByteBuffer buffer, int offset, int length) {
+        this.jsonMapper = jsonMapper;
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    private DocumentReader reader() throws IOException {
+        if (reader == null) {
+            DocumentReader newReader = new DocumentReader(jsonMapper, new BinaryInput(buffer, offset, length));
+            newReader.readHeader();
+            metadataPosition = newReader.input().position();
+            reader = newReader;
+        }
+        return reader;
+    }
+
+    private Map<String, Section> sections() throws IOException {
+        if (sections == null) {
+            DocumentReader documentReader = reader();
+            BinaryInput in = documentReader.input();
+            in.position(metadataPosition);
+            documentReader.skipMetadata();
+            int count = in.readVarint();
+            Map<String, Section> newSections = Maps.newLinkedHashMap();
+            for (int x = 0; x < count; x++) {
+                String key = documentReader.readString(in);
+                int kind = in.readByte();
+                int sectionLength = in.readVarint();
+                newSections.put(key, new Section(kind, in.position(), sectionLength));
+                in.skip(sectionLength);
+            }
+            sections = newSections;
+            attributes = Maps.newHashMap();
+        }
+        return sections;
+    }
+
+    /**
+     * Returns the character data.
+     * @return the data.
+     * @throws IOException if the encoding is invalid.
+     */
+    public String getData() throws IOException {
+        return reader().data();
+    }
+
+    /**
+     * Returns the document metadata.
+     * @return the metadata.
+     * @throws IOException if the encoding is invalid.
+     */
+    public Map<String, List<String>> getDocumentMetadata() throws IOException {
+        if (metadata == null) {
+            DocumentReader documentReader = reader();
+            documentReader.input().position(metadataPosition);
+            metadata = Collections.unmodifiableMap(documentReader.readMetadata());
+        }
+        return metadata;
+    }
+
+    /**
+     * Returns the keys of the attributes present, without decoding any of them.
+     * @return the keys.
+     * @throws IOException if the encoding is invalid.
+     */
+    public Set<String> getAttributeKeys() throws IOException {
+        return Collections.unmodifiableSet(sections().keySet());
+    }
+
+    /**
+     * Returns one attribute, decoding it if this is the first request for it.
+     * @param key the attribute key; see {@link KnownAttribute}.
+     * @return the attribute, or null if there is no attribute for the key.
+     * @throws IOException if the encoding is invalid.
+     */
+    public BaseAttribute getAttribute(String key) throws IOException {
+        Section section = sections().get(key);
+        if (section == null) {
+            return null;
+        }
+        BaseAttribute attribute = attributes.get(key);
+        if (attribute == null) {
+            attribute = reader.readAttribute(new BinaryInput(buffer, section.offset, section.length), key, section.kind);
+            attributes.put(key, attribute);
+        }
+        return attribute;
+    }
+
+    /**
+     * Returns a cursor over the tokens.
+     * @return the cursor, or null if there are no tokens in the native encoding.
+     * @throws IOException if the encoding is invalid.
+     */
+    public TokenCursor tokens() throws IOException {
+        Section section = sections().get(KnownAttribute.TOKEN.key());
+        if (section == null || section.kind != BinaryFormat.KIND_TOKENS) {
+            return null;
+        }
+        return new TokenCursor(reader, new BinaryInput(buffer, section.offset, section.length));
+    }
+
+    /**
+     * Decode the entire document. This does not use or fill in the parts already decoded by this view.
+     * @return the document.
+     * @throws IOException if the encoding is invalid.
+     */
+    public AnnotatedText toAnnotatedText() throws IOException {
+        return new DocumentReader(jsonMapper, new BinaryInput(buffer, offset, length)).read();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+/**
+ * Constants that define the binary layout.
+ *
+ * <pre>
+ * document   := magic 'ADMB', version byte, string table, body
+ * strings    := varint count, varint byte length, count * utf8
+ * body       := utf8 data, metadata, varint attribute count, attribute*
+ * attribute  := string-ref key, kind byte, varint payload length, payload
+ * </pre>
+ *
+ * A string reference is a varint; zero is null, and n is entry n-1 of the string table.
+ * The string table and every attribute payload are length-prefixed, so that a reader can skip what it does not need.
+ * Attributes without a native encoding are carried as the JSON of a document holding just that attribute.
+ */
+final class BinaryFormat {
+    static final byte[] MAGIC = {'A', 'D', 'M', 'B'};
+    static final int VERSION = 1;
+
+    /*
+     * A corpus file is the corpus magic and version, the documents one after another,
+     * an offset table with the 8-byte start of each document, and a trailer:
+     * the 8-byte start of the table, the 8-byte document count, the magic and the 4-byte version.
+     */
+    static final byte[] CORPUS_MAGIC = {'A', 'D', 'M', 'C'};
+    static final int CORPUS_VERSION = 1;
+    static final int CORPUS_HEADER_LENGTH = 8;
+    static final int CORPUS_TRAILER_LENGTH = 24;
+
+    /*
+     * A block container is the container magic, version byte and compression byte; the compressed blocks;
+     * the index; and a trailer: the 8-byte start of the index, the 4-byte length of the index, and the magic.
+     * The index is a varint block count; for each block, the varint compressed length, uncompressed length and
+     * document count; and for each document, the varint offset in its uncompressed block and its id as utf8.
+     * Blocks are stored in order from the end of the header, and documents are stored in order in the blocks.
+     */
+    static final byte[] CONTAINER_MAGIC = {'A', 'D', 'M', 'Z'};
+    static final int CONTAINER_VERSION = 1;
+    static final int CONTAINER_HEADER_LENGTH = 6;
+    static final int CONTAINER_TRAILER_LENGTH = 16;
+
+    /* attribute kinds */
+    static final int KIND_JSON = 0;
+    static final int KIND_TOKENS = 1;
+    static final int KIND_SENTENCES = 2;
+    static final int KIND_BASE_NOUN_PHRASES = 3;
+    static final int KIND_ENTITIES = 4;
+    static final int KIND_EMBEDDINGS = 5;
+
+    /* morpho analysis types; the same ordering as the array format. */
+    static final int ANALYSIS_PLAIN = 0;
+    static final int ANALYSIS_HAN = 1;
+    static final int ANALYSIS_KOREAN = 2;
+    static final int ANALYSIS_ARABIC = 3;
+
+    /* token flags */
+    static final int TOKEN_TEXT_FROM_DATA = 1;
+    static final int TOKEN_NORMALIZED = 1 << 1;
+    static final int TOKEN_SOURCE = 1 << 2;
+    static final int TOKEN_ANALYSES = 1 << 3;
+    static final int TOKEN_EXTENDED = 1 << 4;
+
+    /* arabic analysis flags */
+    static final int ARABIC_DEFINITE_ARTICLE = 1;
+    static final int ARABIC_STRIPPABLE_PREFIX = 1 << 1;
+
+    /* entity flags */
+    static final int ENTITY_HEAD_MENTION = 1;
+    static final int ENTITY_CONFIDENCE = 1 << 1;
+    static final int ENTITY_SALIENCE = 1 << 2;
+
+    /* mention flags */
+    static final int MENTION_CONFIDENCE = 1;
+    static final int MENTION_LINKING_CONFIDENCE = 1 << 1;
+
+    /* categorizer result flags */
+    static final int CATEGORIZER_SCORE = 1;
+    static final int CATEGORIZER_CONFIDENCE = 1 << 1;
+    static final int CATEGORIZER_EXPLANATION_SET = 1 << 2;
+    static final int CATEGORIZER_PER_FEATURE_SCORES = 1 << 3;
+
+    /* extended property value tags */
+    static final int VALUE_NULL = 0;
+    static final int VALUE_STRING = 1;
+    static final int VALUE_INT = 2;
+    static final int VALUE_LONG = 3;
+    static final int VALUE_DOUBLE = 4;
+    static final int VALUE_TRUE = 5;
+    static final int VALUE_FALSE = 6;
+    static final int VALUE_LIST = 7;
+    static final int VALUE_MAP = 8;
+    static final int VALUE_JSON = 9;
+
+    private BinaryFormat() {
+        //
+    }
+}
@@ -0,0 +1,188 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the primitive encodings written by {@link BinaryOutput} from a region of a buffer.
+ * Reads use absolute positions, so the buffer, which may be memory-mapped, is never modified and
+ * may be shared with other inputs.
+ */
+final class BinaryInput {
+    private final ByteBuffer buffer;
+    private int position;
+    private final int limit;
+
+    BinaryInput(byte[] buffer, int offset, int length) {
+        this(ByteBuffer.wrap(buffer), offset, length);
+    }
+
+    BinaryInput(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    int position() {
+        return position;
+    }
+
+    void position(int newPosition) {
+        position = newPosition;
+    }
+
+    int remaining() {
+        return limit - position;
+    }
+
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /**
+     * A new input over the next {@code length} bytes; this input skips past them.
+     */
+    BinaryInput slice(int length) throws IOException {
+        require(length);
+        BinaryInput slice = new BinaryInput(buffer, position, length);
+        position += length;
+        return slice;
+    }
+
+    private void require(int count) throws IOException {
+        if (count < 0 || limit - position < count) {
+            throw new EOFException("Truncated binary ADM data at offset " + position);
+        }
+    }
+
+    void skip(int count) throws IOException {
+        require(count);
+        position += count;
+    }
+
+    int readByte() throws IOException {
+        require(1);
+        return buffer.get(position++) & 0xFF;
+    }
+
+    int readVarint() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint at offset " + position);
+    }
+
+    long readVarlong() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint at offset " + position);
+    }
+
+    /* Skip a varint without assembling its value. */
+    void skipVarint() throws IOException {
+        while ((readByte() & 0x80) != 0) {
+            // keep going
+        }
+    }
+
+    int readSignedVarint() throws IOException {
+        int raw = readVarint();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    long readSignedVarlong() throws IOException {
+        long raw = readVarlong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    int readInt() throws IOException {
+        require(4);
+        int value = (buffer.get(position) & 0xFF)
+            | (buffer.get(position + 1) & 0xFF) << 8
+            | (buffer.get(position + 2) & 0xFF) << 16
+            | (buffer.get(position + 3) & 0xFF) << 24;
+        position += 4;
+        return value;
+    }
+
+    long readLong() throws IOException {
+        long low = readInt() & 0xFFFFFFFFL;
+        long high = readInt() & 0xFFFFFFFFL;
+        return low | (high << 32);
+    }
+
+    float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    String readUtf8() throws IOException {
+        int length = readVarint() - 1;
+        if (length == -1) {
+            return null;
+        }
+        String value = utf8(position, length);
+        position += length;
+        return value;
+    }
+
+    void skipUtf8() throws IOException {
+        int length = readVarint() - 1;
+        if (length > 0) {
+            skip(length);
+        }
+    }
+
+    /* Decode a range without moving. */
+    String utf8(int offset, int length) throws IOException {
+        if (length < 0 || offset + length > limit) {
+            throw new EOFException("Truncated binary ADM data at offset " + offset);
+        }
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + offset, length, StandardCharsets.UTF_8);
+        }
+        return new String(bytes(offset, length), StandardCharsets.UTF_8);
+    }
+
+    /* A copy of a range of the buffer. */
+    byte[] bytes(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        // through Buffer, so that classes compiled on Java 9 or later still run on Java 8.
+        ((Buffer) view).position(offset);
+        view.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A growable byte buffer with the primitive encodings of the binary format.
+ * Integers are written as little-endian base-128 varints; signed values that are
+ * likely to be small in magnitude are zig-zag encoded first. Fixed-width values are little-endian.
+ */
+final class BinaryOutput {
+    private byte[] buffer;
+    private int size;
+
+    BinaryOutput(int capacity) {
+        buffer = new byte[Math.max(capacity, 16)];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Discard everything written after the given position.
+     * @param position a value previously returned by {@link #size()}.
+     */
+    void truncate(int position) {
+        size = position;
+    }
+
+    private void ensure(int more) {
+        if (size + more > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + more));
+        }
+    }
+
+    void writeByte(int b) {
+        ensure(1);
+        buffer[size++] = (byte) b;
+    }
+
+    void writeBytes(byte[] bytes, int offset, int length) {
+        ensure(length);
+        System.arraycopy(bytes, offset, buffer, size, length);
+        size += length;
+    }
+
+    void write(BinaryOutput other) {
+        writeBytes(other.buffer, 0, other.size);
+    }
+
+    /* The value is treated as unsigned; negative values take five bytes. */
+    void writeVarint(int value) {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    void writeVarlong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    void writeSignedVarint(int value) {
+        writeVarint((value << 1) ^ (value >> 31));
+    }
+
+    void writeSignedVarlong(long value) {
+        writeVarlong((value << 1) ^ (value >> 63));
+    }
+
+    void writeInt(int value) {
+        ensure(4);
+        buffer[size++] = (byte) value;
+        buffer[size++] = (byte) (value >>> 8);
+        buffer[size++] = (byte) (value >>> 16);
+        buffer[size++] = (byte) (value >>> 24);
+    }
+
+    void writeLong(long value) {
+        writeInt((int) value);
+        writeInt((int) (value >>> 32));
+    }
+
+    void writeFloat(float value) {
+        writeInt(Float.floatToRawIntBits(value));
+    }
+
+    void writeDouble(double value) {
+        writeLong(Double.doubleToRawLongBits(value));
+    }
+
+    /* Length-prefixed UTF-8; the prefix is the byte length plus one, with zero for null. */
+    void writeUtf8(CharSequence value) {
+        if (value == null) {
+            writeVarint(0);
+            return;
+        }
+        byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length + 1);
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+}
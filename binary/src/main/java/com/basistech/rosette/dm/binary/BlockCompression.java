@@ -0,0 +1,122 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+import org.xerial.snappy.Snappy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * How the blocks of a {@link BlockContainerWriter} container are compressed.
+ * Snappy needs {@code org.xerial.snappy:snappy-java}, which is an optional dependency of this module.
+ */
+public enum BlockCompression {
+    /**
+     * No compression.
+     */
+    NONE(0) {
+        @Override
+        byte[] compress(byte[] data, int length) {
+            return Arrays.copyOf(data, length);
+        }
+
+        @Override
+        void decompress(byte[] compressed, int length, byte[] result) throws IOException {
+            if (length != result.length) {
+                throw new IOException("Block length " + length + " does not match index " + result.length);
+            }
+            System.arraycopy(compressed, 0, result, 0, length);
+        }
+    },
+
+    /**
+     * GZIP, slower and smaller.
+     */
+    GZIP(1) {
+        @Override
+        byte[] compress(byte[] data, int length) throws IOException {
+            ByteArrayOutputStream sink = new ByteArrayOutputStream(length / 4 + 64);
+            try (GZIPOutputStream compressedStream = new GZIPOutputStream(sink, 8192)) {
+                compressedStream.write(data, 0, length);
+            }
+            return sink.toByteArray();
+        }
+
+        @Override
+        void decompress(byte[] compressed, int length, byte[] result) throws IOException {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed, 0, length), 8192)) {
+                int position = 0;
+                while (position < result.length) {
+                    int read = in.read(result, position, result.length - position);
+                    if (read < 0) {
+                        throw new IOException("Compressed block is shorter than its index entry");
+                    }
+                    position += read;
+                }
+            }
+        }
+    },
+
+    /**
+     * Snappy, faster and larger.
+     */
+    SNAPPY(2) {
+        @Override
+        byte[] compress(byte[] data, int length) throws IOException {
+            byte[] compressed = new byte[Snappy.maxCompressedLength(length)];
+            int compressedLength = Snappy.compress(data, 0, length, compressed, 0);
+            return Arrays.copyOf(compressed, compressedLength);
+        }
+
+        @Override
+        void decompress(byte[] compressed, int length, byte[] result) throws IOException {
+            int uncompressedLength = Snappy.uncompress(compressed, 0, length, result, 0);
+            if (uncompressedLength != result.length) {
+                throw new IOException("Block length " + uncompressedLength + " does not match index " + result.length);
+            }
+        }
+    };
+
+    private final int id;
+
+    BlockCompression(int id) {
+        this.id = id;
+    }
+
+    int id() {
+        return id;
+    }
+
+    static BlockCompression forId(int id) throws IOException {
+        for (BlockCompression compression : values()) {
+            if (compression.id == id) {
+                return compression;
+            }
+        }
+        throw new IOException("Unknown block compression " + id);
+    }
+
+    abstract byte[] compress(byte[] data, int length) throws IOException;
+
+    /* Fill all of 'result', whose length is the uncompressed length from the index. */
+    abstract void decompress(byte[] compressed, int length, byte[] result) throws IOException;
+}
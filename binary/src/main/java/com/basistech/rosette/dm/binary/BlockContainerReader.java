@@ -0,0 +1,313 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a container written by {@link BlockContainerWriter}. The index is read when the container is opened;
+ * reading a document then reads and decompresses just the block that holds it. The most recently
+ * decompressed block is kept, so reading neighboring documents in order decompresses each block once.
+ * {@link #readAll(ExecutorService)} decodes the blocks in parallel.
+ *
+ * Instances are thread-safe.
+ */
+public final class BlockContainerReader implements Closeable {
+    private final AdmBinaryCodec codec;
+    private final FileChannel channel;
+    private final BlockCompression compression;
+    private final long[] blockOffsets;
+    private final int[] compressedLengths;
+    private final int[] uncompressedLengths;
+    /* the ordinal of the first document in each block, and then the document count. */
+    private final int[] firstOrdinals;
+    private final int[] documentOffsets;
+    private final String[] ids;
+    private Map<String, Integer> ordinalsById;
+    private volatile DecompressedBlock lastBlock;
+
+    private static final class DecompressedBlock {
+        final int block;
+        final byte[] bytes;
+
+        DecompressedBlock(int block, byte[] bytes) {
+            this.block = block;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Open a container.
+     * @param file the file.
+     * @throws IOException on error reading the file, or if it is not a container.
+     */
+    public BlockContainerReader(Path file) throws IOException {
+        this(file, new AdmBinaryCodec());
+    }
+
+    /**
+     * Open a container with a particular codec.
+     * @param file the file.
+     * @param codec the codec.
+     * @throws IOException on error reading the file, or if it is not a container.
+     */
+    public BlockContainerReader(Path file, AdmBinaryCodec codec) throws IOException {
+        this.codec = codec;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < BinaryFormat.CONTAINER_HEADER_LENGTH + BinaryFormat.CONTAINER_TRAILER_LENGTH) {
+                throw new IOException("Not an ADM block container: " + file);
+            }
+            byte[] header = read(0, BinaryFormat.CONTAINER_HEADER_LENGTH);
+            ByteBuffer trailer = ByteBuffer.wrap(read(size - BinaryFormat.CONTAINER_TRAILER_LENGTH,
+                BinaryFormat.CONTAINER_TRAILER_LENGTH)).order(ByteOrder.LITTLE_ENDIAN);
+            byte[] magic = Arrays.copyOfRange(trailer.array(), 12, 16);
+            if (!Arrays.equals(magic, BinaryFormat.CONTAINER_MAGIC)
+                || !Arrays.equals(Arrays.copyOf(header, 4), BinaryFormat.CONTAINER_MAGIC)) {
+                throw new IOException("Not an ADM block container, or not closed after writing: " + file);
+            }
+            if (header[4] != BinaryFormat.CONTAINER_VERSION) {
+                throw new IOException("Unsupported ADM block container version " + header[4]);
+            }
+            compression = BlockCompression.forId(header[5]);
+            long indexOffset = trailer.getLong(0);
+            int indexLength = trailer.getInt(8);
+            if (indexOffset < BinaryFormat.CONTAINER_HEADER_LENGTH || indexLength < 0
+                || indexOffset + indexLength != size - BinaryFormat.CONTAINER_TRAILER_LENGTH) {
+                throw new IOException("Corrupt ADM block container trailer: " + file);
+            }
+
+            byte[] index = read(indexOffset, indexLength);
+            BinaryInput in = new BinaryInput(index, 0, index.length);
+            int blockCount = in.readVarint();
+            blockOffsets = new long[blockCount];
+            compressedLengths = new int[blockCount];
+            uncompressedLengths = new int[blockCount];
+            firstOrdinals = new int[blockCount + 1];
+            long blockOffset = BinaryFormat.CONTAINER_HEADER_LENGTH;
+            for (int x = 0; x < blockCount; x++) {
+                blockOffsets[x] = blockOffset;
+                compressedLengths[x] = in.readVarint();
+                uncompressedLengths[x] = in.readVarint();
+                firstOrdinals[x + 1] = firstOrdinals[x] + in.readVarint();
+                blockOffset += compressedLengths[x];
+            }
+            if (blockOffset != indexOffset) {
+                throw new IOException("Corrupt ADM block container index: " + file);
+            }
+            int documentCount = firstOrdinals[blockCount];
+            documentOffsets = new int[documentCount];
+            ids = new String[documentCount];
+            for (int x = 0; x < documentCount; x++) {
+                documentOffsets[x] = in.readVarint();
+                ids[x] = in.readUtf8();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private byte[] read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of block container");
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Returns the number of documents.
+     * @return the number of documents.
+     */
+    public int size() {
+        return documentOffsets.length;
+    }
+
+    /**
+     * Returns the number of blocks.
+     * @return the number of blocks.
+     */
+    public int blockCount() {
+        return blockOffsets.length;
+    }
+
+    /**
+     * Returns the id given to a document when it was written.
+     * @param ordinal the ordinal of the document.
+     * @return the id, or null if it was added without one.
+     */
+    public String id(int ordinal) {
+        return ids[ordinal];
+    }
+
+    /**
+     * Returns the ordinal of the document with an id. The first call builds a map of all the ids.
+     * @param id the id.
+     * @return the ordinal, or -1 if there is no such document. If more than one document has the id,
+     *     this is the first one.
+     */
+    public synchronized int ordinal(String id) {
+        if (ordinalsById == null) {
+            Map<String, Integer> map = Maps.newHashMapWithExpectedSize(ids.length);
+            for (int x = ids.length - 1; x >= 0; x--) {
+                if (ids[x] != null) {
+                    map.put(ids[x], x);
+                }
+            }
+            ordinalsById = map;
+        }
+        Integer ordinal = ordinalsById.get(id);
+        return ordinal == null ? -1 : ordinal;
+    }
+
+    /**
+     * Read one document.
+     * @param ordinal the ordinal of the document.
+     * @return the document.
+     * @throws IOException on error reading the file, or if the data is not valid.
+     */
+    public AnnotatedText read(int ordinal) throws IOException {
+        if (ordinal < 0 || ordinal >= documentOffsets.length) {
+            throw new IndexOutOfBoundsException("Document " + ordinal + " of " + documentOffsets.length);
+        }
+        int block = blockOf(ordinal);
+        DecompressedBlock decompressed = lastBlock;
+        if (decompressed == null || decompressed.block != block) {
+            decompressed = new DecompressedBlock(block, decompress(block));
+            lastBlock = decompressed;
+        }
+        return decode(decompressed.bytes, block, ordinal);
+    }
+
+    /**
+     * Read the document with an id.
+     * @param id the id.
+     * @return the document, or null if there is no document with the id.
+     * @throws IOException on error reading the file, or if the data is not valid.
+     */
+    public AnnotatedText read(String id) throws IOException {
+        int ordinal = ordinal(id);
+        return ordinal == -1 ? null : read(ordinal);
+    }
+
+    /**
+     * Read all the documents in one block.
+     * @param block the block number.
+     * @return the documents, in order.
+     * @throws IOException on error reading the file, or if the data is not valid.
+     */
+    public List<AnnotatedText> readBlock(int block) throws IOException {
+        byte[] bytes = decompress(block);
+        List<AnnotatedText> texts = Lists.newArrayListWithCapacity(firstOrdinals[block + 1] - firstOrdinals[block]);
+        for (int ordinal = firstOrdinals[block]; ordinal < firstOrdinals[block + 1]; ordinal++) {
+            texts.add(decode(bytes, block, ordinal));
+        }
+        return texts;
+    }
+
+    /**
+     * Read all the documents, decompressing and decoding the blocks in parallel.
+     * @param executor the executor for the blocks.
+     * @return the documents, in order.
+     * @throws IOException on error reading the file, or if the data is not valid.
+     */
+    public List<AnnotatedText> readAll(ExecutorService executor) throws IOException {
+        List<Future<List<AnnotatedText>>> futures = Lists.newArrayListWithCapacity(blockOffsets.length);
+        for (int x = 0; x < blockOffsets.length; x++) {
+            final int block = x;
+            futures.add(executor.submit(new Callable<List<AnnotatedText>>() {
+                @Override
+                public List<AnnotatedText> call() throws Exception {
+                    return readBlock(block);
+                }
+            }));
+        }
+        List<AnnotatedText> texts = Lists.newArrayListWithCapacity(documentOffsets.length);
+        try {
+            for (Future<List<AnnotatedText>> future : futures) {
+                texts.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted reading blocks");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to read a block", e.getCause());
+        } finally {
+            for (Future<List<AnnotatedText>> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return texts;
+    }
+
+    private int blockOf(int ordinal) {
+        int block = Arrays.binarySearch(firstOrdinals, ordinal);
+        if (block < 0) {
+            return -block - 2;
+        }
+        // skip past empty blocks; there are none from the writer, but be safe.
+        while (firstOrdinals[block + 1] == ordinal) {
+            block++;
+        }
+        return block;
+    }
+
+    private byte[] decompress(int block) throws IOException {
+        byte[] compressed = read(blockOffsets[block], compressedLengths[block]);
+        byte[] bytes = new byte[uncompressedLengths[block]];
+        compression.decompress(compressed, compressed.length, bytes);
+        return bytes;
+    }
+
+    private AnnotatedText decode(byte[] bytes, int block, int ordinal) throws IOException {
+        int start = documentOffsets[ordinal];
+        int end = ordinal + 1 < firstOrdinals[block + 1] ? documentOffsets[ordinal + 1] : bytes.length;
+        if (start < 0 || end < start || end > bytes.length) {
+            throw new IOException("Corrupt ADM block container index");
+        }
+        return codec.decode(bytes, start, end - start);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,248 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.google.common.collect.Lists;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes a container of documents in independently compressed blocks, for {@link BlockContainerReader}.
+ * Documents are grouped into blocks of a fixed number of documents; each block is encoded and compressed
+ * on a background thread while the caller goes on adding documents. Blocks are written to the file in order,
+ * followed by an index from document ordinal (and optional id) to block and offset. The index is written
+ * by {@link #close()}; a file that was not closed cannot be read.
+ *
+ * Instances are not thread-safe; add documents from one thread.
+ */
+public final class BlockContainerWriter implements Closeable {
+    /**
+     * The default number of documents in a block.
+     */
+    public static final int DEFAULT_DOCUMENTS_PER_BLOCK = 64;
+
+    private final AdmBinaryCodec codec;
+    private final BlockCompression compression;
+    private final int documentsPerBlock;
+    private final int maxPendingBlocks;
+    private final ExecutorService executor;
+    private final OutputStream out;
+    private final Deque<Future<Block>> pending = new ArrayDeque<>();
+    private final BinaryOutput index = new BinaryOutput(1 << 16);
+    private final BinaryOutput blockIndex = new BinaryOutput(1024);
+    /* ids of the documents in pending blocks, in order. */
+    private final List<String> pendingIds = Lists.newArrayList();
+    private List<AnnotatedText> texts;
+    private List<String> ids;
+    private long position;
+    private int blockCount;
+    private int documentCount;
+    private boolean closed;
+
+    /* A finished block. */
+    private static final class Block {
+        final byte[] compressed;
+        final int uncompressedLength;
+        final int[] offsets;
+
+        Block(byte[] compressed, int uncompressedLength, int[] offsets) {
+            this.compressed = compressed;
+            this.uncompressedLength = uncompressedLength;
+            this.offsets = offsets;
+        }
+    }
+
+    /**
+     * Create a container file with the default block size, using a background thread per processor.
+     * @param file the file. Any existing file is replaced.
+     * @param compression the compression for the blocks.
+     * @throws IOException on error creating the file.
+     */
+    public BlockContainerWriter(Path file, BlockCompression compression) throws IOException {
+        this(file, compression, DEFAULT_DOCUMENTS_PER_BLOCK, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a container file.
+     * @param file the file. Any existing file is replaced.
+     * @param compression the compression for the blocks.
+     * @param documentsPerBlock the number of documents in each block. Larger blocks compress better;
+     *                          smaller blocks are faster to read one document from.
+     * @param threads the number of background threads building blocks.
+     * @throws IOException on error creating the file.
+     */
+    public BlockContainerWriter(Path file, BlockCompression compression, int documentsPerBlock, int threads) throws IOException {
+        if (documentsPerBlock < 1 || threads < 1) {
+            throw new IllegalArgumentException("documentsPerBlock and threads must be positive");
+        }
+        this.codec = new AdmBinaryCodec();
+        this.compression = compression;
+        this.documentsPerBlock = documentsPerBlock;
+        this.maxPendingBlocks = threads * 2;
+        this.out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+        try {
+            out.write(BinaryFormat.CONTAINER_MAGIC);
+            out.write(BinaryFormat.CONTAINER_VERSION);
+            out.write(compression.id());
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            throw e;
+        }
+        this.executor = Executors.newFixedThreadPool(threads);
+        position = BinaryFormat.CONTAINER_HEADER_LENGTH;
+        startBlock();
+    }
+
+    private void startBlock() {
+        texts = Lists.newArrayListWithCapacity(documentsPerBlock);
+        ids = Lists.newArrayListWithCapacity(documentsPerBlock);
+    }
+
+    /**
+     * Add a document without an id.
+     * @param text the document.
+     * @return the ordinal of the document in the container.
+     * @throws IOException on error writing the file, or from building an earlier block.
+     * @throws IllegalStateException if the writer is closed.
+     */
+    public int add(AnnotatedText text) throws IOException {
+        return add(null, text);
+    }
+
+    /**
+     * Add a document.
+     * @param id an id for looking up the document with {@link BlockContainerReader#read(String)}, or null.
+     * @param text the document.
+     * @return the ordinal of the document in the container.
+     * @throws IOException on error writing the file, or from building an earlier block.
+     * @throws IllegalStateException if the writer is closed.
+     */
+    public int add(String id, AnnotatedText text) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("The container writer is closed");
+        }
+        texts.add(text);
+        ids.add(id);
+        if (texts.size() == documentsPerBlock) {
+            submitBlock();
+        }
+        return documentCount++;
+    }
+
+    private void submitBlock() throws IOException {
+        final List<AnnotatedText> blockTexts = texts;
+        final List<String> blockIds = ids;
+        startBlock();
+        pending.addLast(executor.submit(new Callable<Block>() {
+            @Override
+            public Block call() throws Exception {
+                return buildBlock(blockTexts);
+            }
+        }));
+        pendingIds.addAll(blockIds);
+        while (pending.size() > maxPendingBlocks) {
+            writeBlock(pending.removeFirst());
+        }
+    }
+
+    private Block buildBlock(List<AnnotatedText> blockTexts) throws IOException {
+        BinaryOutput block = new BinaryOutput(1 << 16);
+        int[] offsets = new int[blockTexts.size()];
+        for (int x = 0; x < blockTexts.size(); x++) {
+            offsets[x] = block.size();
+            new DocumentWriter(codec.jsonMapper()).write(blockTexts.get(x), block);
+        }
+        byte[] bytes = block.toByteArray();
+        return new Block(compression.compress(bytes, bytes.length), bytes.length, offsets);
+    }
+
+    private void writeBlock(Future<Block> future) throws IOException {
+        Block block;
+        try {
+            block = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a block");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to build a block", e.getCause());
+        }
+        out.write(block.compressed);
+        position += block.compressed.length;
+        blockIndex.writeVarint(block.compressed.length);
+        blockIndex.writeVarint(block.uncompressedLength);
+        blockIndex.writeVarint(block.offsets.length);
+        for (int x = 0; x < block.offsets.length; x++) {
+            index.writeVarint(block.offsets[x]);
+            index.writeUtf8(pendingIds.get(x));
+        }
+        pendingIds.subList(0, block.offsets.length).clear();
+        blockCount++;
+    }
+
+    /**
+     * Finish the last block, wait for the background threads, and write the index. Closing again does nothing.
+     * @throws IOException on error writing the file, or from building a block.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (!texts.isEmpty()) {
+                submitBlock();
+            }
+            while (!pending.isEmpty()) {
+                writeBlock(pending.removeFirst());
+            }
+            BinaryOutput wholeIndex = new BinaryOutput(blockIndex.size() + index.size() + 5);
+            wholeIndex.writeVarint(blockCount);
+            wholeIndex.write(blockIndex);
+            wholeIndex.write(index);
+            wholeIndex.writeTo(out);
+
+            ByteBuffer trailer = ByteBuffer.allocate(BinaryFormat.CONTAINER_TRAILER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putLong(position);
+            trailer.putInt(wholeIndex.size());
+            trailer.put(BinaryFormat.CONTAINER_MAGIC);
+            out.write(trailer.array());
+        } finally {
+            executor.shutdownNow();
+            out.close();
+        }
+    }
+}
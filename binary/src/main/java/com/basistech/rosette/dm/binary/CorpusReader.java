@@ -0,0 +1,204 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+import com.basistech.rosette.dm.AnnotatedText;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a corpus file written by {@link CorpusWriter} through memory mapping. Opening the file reads only the
+ * trailer, and fetching a document reads its offsets from the table and maps the segment
+ * of the file that holds it; neither depends on the size of the corpus. {@link #view(int)} returns a lazy
+ * {@link AnnotatedTextView} over the mapped bytes, so that only the parts of a document that are used are decoded.
+ *
+ * The file is mapped in segments of up to 1GB, as a {@link MappedByteBuffer} is limited to 2GB. A document
+ * that crosses a segment boundary is mapped on its own. Instances are thread-safe. As usual for mapped
+ * files, the mappings are released by the garbage collector rather than by {@link #close()}.
+ */
+public final class CorpusReader implements Closeable {
+    static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+    private final AdmBinaryCodec codec;
+    private final FileChannel channel;
+    private final int segmentSize;
+    private final long tableOffset;
+    private final int count;
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Open a corpus file.
+     * @param file the file.
+     * @throws IOException on error reading the file, or if it is not a corpus file.
+     */
+    public CorpusReader(Path file) throws IOException {
+        this(file, new AdmBinaryCodec(), DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Open a corpus file with a particular codec.
+     * @param file the file.
+     * @param codec the codec.
+     * @throws IOException on error reading the file, or if it is not a corpus file.
+     */
+    public CorpusReader(Path file, AdmBinaryCodec codec) throws IOException {
+        this(file, codec, DEFAULT_SEGMENT_SIZE);
+    }
+
+    CorpusReader(Path file, AdmBinaryCodec codec, int segmentSize) throws IOException {
+        this.codec = codec;
+        this.segmentSize = segmentSize;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < BinaryFormat.CORPUS_HEADER_LENGTH + BinaryFormat.CORPUS_TRAILER_LENGTH) {
+                throw new IOException("Not an ADM corpus file: " + file);
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(BinaryFormat.CORPUS_TRAILER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(trailer, size - BinaryFormat.CORPUS_TRAILER_LENGTH);
+            byte[] magic = new byte[BinaryFormat.CORPUS_MAGIC.length];
+            // through Buffer: Java 9 added ByteBuffer overrides that do not exist on Java 8.
+            ((Buffer) trailer).position(16);
+            trailer.get(magic);
+            if (!Arrays.equals(magic, BinaryFormat.CORPUS_MAGIC)) {
+                throw new IOException("Not an ADM corpus file, or not closed after writing: " + file);
+            }
+            int version = trailer.getInt(20);
+            if (version != BinaryFormat.CORPUS_VERSION) {
+                throw new IOException("Unsupported ADM corpus version " + version);
+            }
+            tableOffset = trailer.getLong(0);
+            long documentCount = trailer.getLong(8);
+            if (documentCount < 0 || documentCount > Integer.MAX_VALUE
+                || tableOffset + documentCount * 8 != size - BinaryFormat.CORPUS_TRAILER_LENGTH) {
+                throw new IOException("Corrupt ADM corpus file trailer: " + file);
+            }
+            count = (int) documentCount;
+            segments = new MappedByteBuffer[(int) ((size + segmentSize - 1) / segmentSize)];
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of corpus file");
+            }
+        }
+    }
+
+    /**
+     * Returns the number of documents.
+     * @return the number of documents.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Decode one document entirely.
+     * @param index the index of the document.
+     * @return the document.
+     * @throws IOException on error reading the file, or if the document is not a valid encoding.
+     */
+    public AnnotatedText read(int index) throws IOException {
+        return codec.decode(buffer(index));
+    }
+
+    /**
+     * Returns a lazy view of one document.
+     * @param index the index of the document.
+     * @return the view.
+     * @throws IOException on error reading the file.
+     */
+    public AnnotatedTextView view(int index) throws IOException {
+        return codec.view(buffer(index));
+    }
+
+    /**
+     * Returns the encoded bytes of one document, as a read-only buffer over the mapped file.
+     * @param index the index of the document.
+     * @return the buffer, positioned at the start of the document and limited at its end.
+     * @throws IOException on error reading the file.
+     */
+    public ByteBuffer buffer(int index) throws IOException {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Document " + index + " of " + count);
+        }
+        long start = readOffset(index);
+        long end = index + 1 < count ? readOffset(index + 1) : tableOffset;
+        return slice(start, end);
+    }
+
+    private long readOffset(int index) throws IOException {
+        long position = tableOffset + (long) index * 8;
+        ByteBuffer segment = segment((int) (position / segmentSize));
+        int local = (int) (position % segmentSize);
+        if (local + 8 > segment.limit()) {
+            segment = slice(position, position + 8);
+            local = 0;
+        }
+        long value = 0;
+        for (int x = 7; x >= 0; x--) {
+            value = (value << 8) | (segment.get(local + x) & 0xFF);
+        }
+        return value;
+    }
+
+    private ByteBuffer slice(long start, long end) throws IOException {
+        if (start < BinaryFormat.CORPUS_HEADER_LENGTH || end < start || end > tableOffset + (long) count * 8) {
+            throw new IOException("Corrupt ADM corpus offset table");
+        }
+        int first = (int) (start / segmentSize);
+        int last = (int) ((end - 1) / segmentSize);
+        if (first == last) {
+            ByteBuffer view = segment(first).duplicate();
+            int local = (int) (start % segmentSize);
+            ((Buffer) view).limit(local + (int) (end - start));
+            ((Buffer) view).position(local);
+            return view.slice();
+        }
+        // straddles a boundary.
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    }
+
+    private synchronized MappedByteBuffer segment(int index) throws IOException {
+        MappedByteBuffer segment = segments[index];
+        if (segment == null) {
+            long start = (long) index * segmentSize;
+            long length = Math.min(segmentSize, channel.size() - start);
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            segments[index] = segment;
+        }
+        return segment;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
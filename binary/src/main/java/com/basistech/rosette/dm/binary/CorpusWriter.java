@@ -0,0 +1,131 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+import com.basistech.rosette.dm.AnnotatedText;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Writes a corpus file for {@link CorpusReader}: binary-encoded documents followed by a table of
+ * their offsets. The table is written by {@link #close()}; a file that was not closed cannot be read.
+ * Instances are not thread-safe.
+ */
+public final class CorpusWriter implements Closeable {
+    private final AdmBinaryCodec codec;
+    private final OutputStream out;
+    private final ByteBuffer scratch = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+    private long position;
+    private long[] offsets = new long[1024];
+    private int count;
+    private boolean closed;
+
+    /**
+     * Create a corpus file, replacing any existing file.
+     * @param file the file.
+     * @throws IOException on error creating the file.
+     */
+    public CorpusWriter(Path file) throws IOException {
+        this(file, new AdmBinaryCodec());
+    }
+
+    /**
+     * Create a corpus file with a particular codec.
+     * @param file the file.
+     * @param codec the codec.
+     * @throws IOException on error creating the file.
+     */
+    public CorpusWriter(Path file, AdmBinaryCodec codec) throws IOException {
+        this.codec = codec;
+        this.out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+        try {
+            out.write(BinaryFormat.CORPUS_MAGIC);
+            writeInt(BinaryFormat.CORPUS_VERSION);
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            throw e;
+        }
+        position = BinaryFormat.CORPUS_HEADER_LENGTH;
+    }
+
+    /**
+     * Append a document.
+     * @param text the document.
+     * @return the index of the document in the corpus.
+     * @throws IOException on error writing the file.
+     * @throws IllegalStateException if the writer is closed.
+     */
+    public int add(AnnotatedText text) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("The corpus writer is closed");
+        }
+        byte[] bytes = codec.encode(text);
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count] = position;
+        out.write(bytes);
+        position += bytes.length;
+        return count++;
+    }
+
+    /**
+     * Write the offset table and close the file. The file is closed even if writing the table fails.
+     * Closing again does nothing.
+     * @throws IOException on error writing the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            long tableOffset = position;
+            for (int x = 0; x < count; x++) {
+                writeLong(offsets[x]);
+            }
+            writeLong(tableOffset);
+            writeLong(count);
+            out.write(BinaryFormat.CORPUS_MAGIC);
+            writeInt(BinaryFormat.CORPUS_VERSION);
+        } finally {
+            out.close();
+        }
+    }
+
+    /* clear() through Buffer, so that classes compiled on Java 9 or later still run on Java 8. */
+    private void writeLong(long value) throws IOException {
+        ((Buffer) scratch).clear();
+        scratch.putLong(value);
+        out.write(scratch.array(), 0, 8);
+    }
+
+    private void writeInt(int value) throws IOException {
+        ((Buffer) scratch).clear();
+        scratch.putInt(value);
+        out.write(scratch.array(), 0, 4);
+    }
+}
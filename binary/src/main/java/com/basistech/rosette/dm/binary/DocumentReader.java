@@ -0,0 +1,568 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.ArabicMorphoAnalysis;
+import com.basistech.rosette.dm.BaseAttribute;
+import com.basistech.rosette.dm.BaseNounPhrase;
+import com.basistech.rosette.dm.CategorizerResult;
+import com.basistech.rosette.dm.EmbeddingCollection;
+import com.basistech.rosette.dm.Embeddings;
+import com.basistech.rosette.dm.Entity;
+import com.basistech.rosette.dm.HanMorphoAnalysis;
+import com.basistech.rosette.dm.KoreanMorphoAnalysis;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.Mention;
+import com.basistech.rosette.dm.MorphoAnalysis;
+import com.basistech.rosette.dm.Sentence;
+import com.basistech.rosette.dm.Token;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads one document written by {@link DocumentWriter}. The steps are exposed separately so that
+ * {@link AnnotatedTextView} can decode just the parts that are used. Instances are not thread-safe.
+ */
+final class DocumentReader {
+    private static final Embeddings.Name[] EMBEDDING_NAMES = Embeddings.Name.values();
+
+    private final ObjectMapper jsonMapper;
+    private final BinaryInput in;
+    private StringTable strings;
+    private int dataOffset;
+    private int dataLength;
+    private String data;
+
+    DocumentReader(ObjectMapper jsonMapper, BinaryInput in) {
+        this.jsonMapper = jsonMapper;
+        this.in = in;
+    }
+
+    AnnotatedText read() throws IOException {
+        readHeader();
+        AnnotatedText.Builder builder = new AnnotatedText.Builder();
+        builder.data(data());
+        builder.documentMetadata(readMetadata());
+        int attributeCount = in.readVarint();
+        for (int x = 0; x < attributeCount; x++) {
+            String key = readString(in);
+            int kind = in.readByte();
+            BinaryInput payload = in.slice(in.readVarint());
+            builder.attributes().put(key, readAttribute(payload, key, kind));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Read the magic number, version and string table, and locate the data.
+     * Leaves the input at the document metadata.
+     */
+    void readHeader() throws IOException {
+        for (byte b : BinaryFormat.MAGIC) {
+            if (in.readByte() != b) {
+                throw new IOException("Not binary ADM data");
+            }
+        }
+        int version = in.readByte();
+        if (version != BinaryFormat.VERSION) {
+            throw new IOException("Unsupported binary ADM version " + version);
+        }
+        int count = in.readVarint();
+        strings = new StringTable(in.slice(in.readVarint()), count);
+        dataLength = in.readVarint() - 1;
+        dataOffset = in.position();
+        in.skip(Math.max(dataLength, 0));
+    }
+
+    BinaryInput input() {
+        return in;
+    }
+
+    StringTable strings() {
+        return strings;
+    }
+
+    String data() throws IOException {
+        if (data == null && dataLength >= 0) {
+            data = in.utf8(dataOffset, dataLength);
+        }
+        return data;
+    }
+
+    Map<String, List<String>> readMetadata() throws IOException {
+        int metadataCount = in.readVarint();
+        Map<String, List<String>> metadata = Maps.newHashMap();
+        for (int x = 0; x < metadataCount; x++) {
+            String key = readString(in);
+            metadata.put(key, readStrings(in));
+        }
+        return metadata;
+    }
+
+    void skipMetadata() throws IOException {
+        int metadataCount = in.readVarint();
+        for (int x = 0; x < metadataCount; x++) {
+            in.skipVarint();
+            skipStrings(in);
+        }
+    }
+
+    BaseAttribute readAttribute(BinaryInput payload, String key, int kind) throws IOException {
+        switch (kind) {
+        case BinaryFormat.KIND_TOKENS:
+            return readTokens(payload);
+        case BinaryFormat.KIND_SENTENCES:
+            return readSpans(payload, Sentence.class);
+        case BinaryFormat.KIND_BASE_NOUN_PHRASES:
+            return readSpans(payload, BaseNounPhrase.class);
+        case BinaryFormat.KIND_ENTITIES:
+            return readEntities(payload);
+        case BinaryFormat.KIND_EMBEDDINGS:
+            return readEmbeddings(payload);
+        case BinaryFormat.KIND_JSON:
+            AnnotatedText holder = readJson(payload, payload.remaining(), AnnotatedText.class);
+            return holder.getAttributes().get(key);
+        default:
+            throw new IOException("Unknown attribute kind " + kind + " for " + key);
+        }
+    }
+
+    private <T> T readJson(BinaryInput in, int length, Class<T> valueClass) throws IOException {
+        int offset = in.position();
+        in.skip(length);
+        ByteBuffer buffer = in.buffer();
+        if (buffer.hasArray()) {
+            return jsonMapper.readValue(buffer.array(), buffer.arrayOffset() + offset, length, valueClass);
+        }
+        return jsonMapper.readValue(in.bytes(offset, length), valueClass);
+    }
+
+    private ListAttribute<Token> readTokens(BinaryInput in) throws IOException {
+        int count = in.readVarint();
+        List<Token> tokens = Lists.newArrayListWithCapacity(count);
+        int previousEnd = 0;
+        for (int x = 0; x < count; x++) {
+            Token token = readToken(in, previousEnd);
+            tokens.add(token);
+            previousEnd = token.getEndOffset();
+        }
+        ListAttribute.Builder<Token> builder = new ListAttribute.Builder<>(Token.class);
+        builder.setItems(tokens);
+        readExtended(in, builder);
+        return builder.build();
+    }
+
+    Token readToken(BinaryInput in, int base) throws IOException {
+        int flags = in.readByte();
+        int start = base + in.readSignedVarint();
+        int end = start + in.readVarint();
+        String text;
+        if ((flags & BinaryFormat.TOKEN_TEXT_FROM_DATA) != 0) {
+            text = data().substring(start, end);
+        } else {
+            text = readString(in);
+        }
+        Token.Builder builder = new Token.Builder(start, end, text);
+        if ((flags & BinaryFormat.TOKEN_NORMALIZED) != 0) {
+            builder.normalized(readStrings(in));
+        }
+        if ((flags & BinaryFormat.TOKEN_SOURCE) != 0) {
+            builder.source(readString(in));
+        }
+        if ((flags & BinaryFormat.TOKEN_ANALYSES) != 0) {
+            int count = in.readVarint();
+            List<MorphoAnalysis> analyses = Lists.newArrayListWithCapacity(count);
+            for (int x = 0; x < count; x++) {
+                analyses.add(readAnalysis(in, start));
+            }
+            builder.analyses(analyses);
+        }
+        if ((flags & BinaryFormat.TOKEN_EXTENDED) != 0) {
+            readExtended(in, builder);
+        }
+        return builder.build();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private MorphoAnalysis readAnalysis(BinaryInput in, int tokenStart) throws IOException {
+        int type = in.readByte();
+        String partOfSpeech = readString(in);
+        String lemma = readString(in);
+        String raw = readString(in);
+        int componentCount = in.readVarint();
+        List<Token> components = null;
+        if (componentCount > 0) {
+            components = Lists.newArrayListWithCapacity(componentCount);
+            for (int x = 0; x < componentCount; x++) {
+                components.add(readToken(in, tokenStart));
+            }
+        }
+        MorphoAnalysis.Builder builder;
+        switch (type) {
+        case BinaryFormat.ANALYSIS_PLAIN:
+            builder = new MorphoAnalysis.Builder();
+            break;
+        case BinaryFormat.ANALYSIS_HAN:
+            builder = new HanMorphoAnalysis.Builder().readings(readStrings(in));
+            break;
+        case BinaryFormat.ANALYSIS_KOREAN:
+            List<String> morphemes = readStrings(in);
+            builder = new KoreanMorphoAnalysis.Builder().morphemes(morphemes, readStrings(in));
+            break;
+        case BinaryFormat.ANALYSIS_ARABIC:
+            ArabicMorphoAnalysis.Builder arabic = new ArabicMorphoAnalysis.Builder();
+            int prefixLength = in.readVarint();
+            arabic.lengths(prefixLength, in.readVarint());
+            arabic.root(readString(in));
+            int arabicFlags = in.readByte();
+            arabic.definiteArticle((arabicFlags & BinaryFormat.ARABIC_DEFINITE_ARTICLE) != 0);
+            arabic.strippablePrefix((arabicFlags & BinaryFormat.ARABIC_STRIPPABLE_PREFIX) != 0);
+            List<String> prefixes = readStrings(in);
+            arabic.prefixes(prefixes, readStrings(in));
+            List<String> stems = readStrings(in);
+            arabic.stems(stems, readStrings(in));
+            List<String> suffixes = readStrings(in);
+            arabic.suffixes(suffixes, readStrings(in));
+            builder = arabic;
+            break;
+        default:
+            throw new IOException("Unknown morpho analysis type " + type);
+        }
+        builder.partOfSpeech(partOfSpeech);
+        builder.lemma(lemma);
+        builder.raw(raw);
+        builder.components(components);
+        readExtended(in, builder);
+        return builder.build();
+    }
+
+    private <T extends BaseAttribute> ListAttribute<T> readSpans(BinaryInput in, Class<T> spanClass) throws IOException {
+        int count = in.readVarint();
+        ListAttribute.Builder<T> listBuilder = new ListAttribute.Builder<>(spanClass);
+        int previousEnd = 0;
+        for (int x = 0; x < count; x++) {
+            int start = previousEnd + in.readSignedVarint();
+            int end = start + in.readVarint();
+            T span;
+            if (spanClass == Sentence.class) {
+                Sentence.Builder builder = new Sentence.Builder(start, end);
+                readExtended(in, builder);
+                span = spanClass.cast(builder.build());
+            } else {
+                BaseNounPhrase.Builder builder = new BaseNounPhrase.Builder(start, end);
+                readExtended(in, builder);
+                span = spanClass.cast(builder.build());
+            }
+            listBuilder.add(span);
+            previousEnd = end;
+        }
+        readExtended(in, listBuilder);
+        return listBuilder.build();
+    }
+
+    private ListAttribute<Entity> readEntities(BinaryInput in) throws IOException {
+        int count = in.readVarint();
+        ListAttribute.Builder<Entity> listBuilder = new ListAttribute.Builder<>(Entity.class);
+        for (int x = 0; x < count; x++) {
+            int flags = in.readByte();
+            Entity.Builder builder = new Entity.Builder();
+            builder.type(readString(in));
+            builder.entityId(readString(in));
+            if ((flags & BinaryFormat.ENTITY_HEAD_MENTION) != 0) {
+                builder.headMentionIndex(in.readSignedVarint());
+            }
+            if ((flags & BinaryFormat.ENTITY_CONFIDENCE) != 0) {
+                builder.confidence(in.readDouble());
+            }
+            if ((flags & BinaryFormat.ENTITY_SALIENCE) != 0) {
+                builder.salience(in.readDouble());
+            }
+            int mentionCount = in.readVarint();
+            int previousEnd = 0;
+            for (int m = 0; m < mentionCount; m++) {
+                Mention mention = readMention(in, previousEnd);
+                builder.mention(mention);
+                previousEnd = mention.getEndOffset();
+            }
+            int sentimentCount = in.readVarint();
+            for (int s = 0; s < sentimentCount; s++) {
+                builder.sentiment(readCategorizerResult(in));
+            }
+            readExtended(in, builder);
+            listBuilder.add(builder.build());
+        }
+        readExtended(in, listBuilder);
+        return listBuilder.build();
+    }
+
+    private Mention readMention(BinaryInput in, int base) throws IOException {
+        int flags = in.readByte();
+        int start = base + in.readSignedVarint();
+        int end = start + in.readVarint();
+        Mention.Builder builder = new Mention.Builder(start, end);
+        if ((flags & BinaryFormat.MENTION_CONFIDENCE) != 0) {
+            builder.confidence(in.readDouble());
+        }
+        if ((flags & BinaryFormat.MENTION_LINKING_CONFIDENCE) != 0) {
+            builder.linkingConfidence(in.readDouble());
+        }
+        builder.source(readString(in));
+        builder.subsource(readString(in));
+        builder.normalized(readString(in));
+        readExtended(in, builder);
+        return builder.build();
+    }
+
+    private CategorizerResult readCategorizerResult(BinaryInput in) throws IOException {
+        int flags = in.readByte();
+        String label = readString(in);
+        Double score = null;
+        if ((flags & BinaryFormat.CATEGORIZER_SCORE) != 0) {
+            score = in.readDouble();
+        }
+        CategorizerResult.Builder builder = new CategorizerResult.Builder(label, score);
+        if ((flags & BinaryFormat.CATEGORIZER_CONFIDENCE) != 0) {
+            builder.confidence(in.readDouble());
+        }
+        if ((flags & BinaryFormat.CATEGORIZER_EXPLANATION_SET) != 0) {
+            builder.explanationSet(readStrings(in));
+        }
+        if ((flags & BinaryFormat.CATEGORIZER_PER_FEATURE_SCORES) != 0) {
+            int count = in.readVarint();
+            Map<String, Double> scores = Maps.newLinkedHashMap();
+            for (int x = 0; x < count; x++) {
+                String feature = readString(in);
+                scores.put(feature, in.readDouble());
+            }
+            builder.perFeatureScores(scores);
+        }
+        readExtended(in, builder);
+        return builder.build();
+    }
+
+    private Embeddings readEmbeddings(BinaryInput in) throws IOException {
+        Embeddings.Builder builder = new Embeddings.Builder();
+        int collectionCount = in.readVarint();
+        for (int x = 0; x < collectionCount; x++) {
+            int ordinal = in.readByte();
+            if (ordinal >= EMBEDDING_NAMES.length) {
+                throw new IOException("Unknown embedding collection " + ordinal);
+            }
+            EmbeddingCollection.Builder collection = new EmbeddingCollection.Builder();
+            int vectorCount = in.readVarint();
+            for (int v = 0; v < vectorCount; v++) {
+                int index = in.readSignedVarint();
+                float[] values = new float[in.readVarint()];
+                for (int f = 0; f < values.length; f++) {
+                    values[f] = in.readFloat();
+                }
+                collection.put(index, values);
+            }
+            builder.put(EMBEDDING_NAMES[ordinal], collection.build());
+        }
+        readExtended(in, builder);
+        return builder.build();
+    }
+
+    private void readExtended(BinaryInput in, BaseAttribute.Builder<?, ?> builder) throws IOException {
+        int count = in.readVarint();
+        if (count == 0) {
+            return;
+        }
+        Map<String, Object> properties = Maps.newLinkedHashMap();
+        for (int x = 0; x < count; x++) {
+            String key = readString(in);
+            properties.put(key, readValue(in));
+        }
+        builder.extendedProperties(properties);
+    }
+
+    private Object readValue(BinaryInput in) throws IOException {
+        int tag = in.readByte();
+        switch (tag) {
+        case BinaryFormat.VALUE_NULL:
+            return null;
+        case BinaryFormat.VALUE_STRING:
+            return readString(in);
+        case BinaryFormat.VALUE_INT:
+            return in.readSignedVarint();
+        case BinaryFormat.VALUE_LONG:
+            return in.readSignedVarlong();
+        case BinaryFormat.VALUE_DOUBLE:
+            return in.readDouble();
+        case BinaryFormat.VALUE_TRUE:
+            return Boolean.TRUE;
+        case BinaryFormat.VALUE_FALSE:
+            return Boolean.FALSE;
+        case BinaryFormat.VALUE_LIST:
+            int size = in.readVarint();
+            List<Object> list = Lists.newArrayListWithCapacity(size);
+            for (int x = 0; x < size; x++) {
+                list.add(readValue(in));
+            }
+            return list;
+        case BinaryFormat.VALUE_MAP:
+            int entries = in.readVarint();
+            Map<String, Object> map = Maps.newLinkedHashMap();
+            for (int x = 0; x < entries; x++) {
+                String key = readString(in);
+                map.put(key, readValue(in));
+            }
+            return map;
+        case BinaryFormat.VALUE_JSON:
+            return readJson(in, in.readVarint(), Object.class);
+        default:
+            throw new IOException("Unknown extended property value tag " + tag);
+        }
+    }
+
+    private List<String> readStrings(BinaryInput in) throws IOException {
+        int count = in.readVarint() - 1;
+        if (count == -1) {
+            return null;
+        }
+        List<String> values = Lists.newArrayListWithCapacity(count);
+        for (int x = 0; x < count; x++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    String readString(BinaryInput in) throws IOException {
+        return strings.get(in.readVarint());
+    }
+
+    /* Skipping, for cursors that only look at some of the fields. */
+
+    void skipToken(BinaryInput in) throws IOException {
+        int flags = in.readByte();
+        in.skipVarint();
+        in.skipVarint();
+        if ((flags & BinaryFormat.TOKEN_TEXT_FROM_DATA) == 0) {
+            in.skipVarint();
+        }
+        skipTokenRest(in, flags);
+    }
+
+    /* Skip what follows the text of a token. */
+    void skipTokenRest(BinaryInput in, int flags) throws IOException {
+        if ((flags & BinaryFormat.TOKEN_NORMALIZED) != 0) {
+            skipStrings(in);
+        }
+        if ((flags & BinaryFormat.TOKEN_SOURCE) != 0) {
+            in.skipVarint();
+        }
+        if ((flags & BinaryFormat.TOKEN_ANALYSES) != 0) {
+            int count = in.readVarint();
+            for (int x = 0; x < count; x++) {
+                skipAnalysis(in);
+            }
+        }
+        if ((flags & BinaryFormat.TOKEN_EXTENDED) != 0) {
+            skipExtended(in);
+        }
+    }
+
+    private void skipAnalysis(BinaryInput in) throws IOException {
+        int type = in.readByte();
+        in.skipVarint();
+        in.skipVarint();
+        in.skipVarint();
+        int componentCount = in.readVarint();
+        for (int x = 0; x < componentCount; x++) {
+            skipToken(in);
+        }
+        switch (type) {
+        case BinaryFormat.ANALYSIS_HAN:
+            skipStrings(in);
+            break;
+        case BinaryFormat.ANALYSIS_KOREAN:
+            skipStrings(in);
+            skipStrings(in);
+            break;
+        case BinaryFormat.ANALYSIS_ARABIC:
+            in.skipVarint();
+            in.skipVarint();
+            in.skipVarint();
+            in.skip(1);
+            for (int x = 0; x < 6; x++) {
+                skipStrings(in);
+            }
+            break;
+        default:
+            break;
+        }
+        skipExtended(in);
+    }
+
+    private void skipExtended(BinaryInput in) throws IOException {
+        int count = in.readVarint();
+        for (int x = 0; x < count; x++) {
+            in.skipVarint();
+            skipValue(in);
+        }
+    }
+
+    private void skipValue(BinaryInput in) throws IOException {
+        int tag = in.readByte();
+        switch (tag) {
+        case BinaryFormat.VALUE_STRING:
+        case BinaryFormat.VALUE_INT:
+        case BinaryFormat.VALUE_LONG:
+            in.skipVarint();
+            break;
+        case BinaryFormat.VALUE_DOUBLE:
+            in.skip(8);
+            break;
+        case BinaryFormat.VALUE_LIST:
+            int size = in.readVarint();
+            for (int x = 0; x < size; x++) {
+                skipValue(in);
+            }
+            break;
+        case BinaryFormat.VALUE_MAP:
+            int entries = in.readVarint();
+            for (int x = 0; x < entries; x++) {
+                in.skipVarint();
+                skipValue(in);
+            }
+            break;
+        case BinaryFormat.VALUE_JSON:
+            in.skip(in.readVarint());
+            break;
+        case BinaryFormat.VALUE_NULL:
+        case BinaryFormat.VALUE_TRUE:
+        case BinaryFormat.VALUE_FALSE:
+            break;
+        default:
+            throw new IOException("Unknown extended property value tag " + tag);
+        }
+    }
+
+    private static void skipStrings(BinaryInput in) throws IOException {
+        int count = in.readVarint() - 1;
+        for (int x = 0; x < count; x++) {
+            in.skipVarint();
+        }
+    }
+}
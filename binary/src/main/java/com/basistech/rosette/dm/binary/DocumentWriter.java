@@ -0,0 +1,522 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.ArabicMorphoAnalysis;
+import com.basistech.rosette.dm.Attribute;
+import com.basistech.rosette.dm.BaseAttribute;
+import com.basistech.rosette.dm.BaseNounPhrase;
+import com.basistech.rosette.dm.CategorizerResult;
+import com.basistech.rosette.dm.EmbeddingCollection;
+import com.basistech.rosette.dm.Embeddings;
+import com.basistech.rosette.dm.Entity;
+import com.basistech.rosette.dm.HanMorphoAnalysis;
+import com.basistech.rosette.dm.KoreanMorphoAnalysis;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.Mention;
+import com.basistech.rosette.dm.MorphoAnalysis;
+import com.basistech.rosette.dm.Sentence;
+import com.basistech.rosette.dm.Token;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes one document. The string table is only complete once the body has been written,
+ * so the body goes to a buffer first. Instances are not thread-safe; make one per document.
+ */
+final class DocumentWriter {
+    private final ObjectMapper jsonMapper;
+    private final Map<String, Integer> stringIndex = Maps.newHashMap();
+    private final List<String> strings = Lists.newArrayList();
+    private final BinaryOutput body = new BinaryOutput(4096);
+    private final BinaryOutput payload = new BinaryOutput(4096);
+    private CharSequence data;
+
+    DocumentWriter(ObjectMapper jsonMapper) {
+        this.jsonMapper = jsonMapper;
+    }
+
+    void write(AnnotatedText text, BinaryOutput out) throws IOException {
+        data = text.getData();
+        body.writeUtf8(data);
+
+        Map<String, List<String>> metadata = text.getDocumentMetadata();
+        body.writeVarint(metadata.size());
+        for (Map.Entry<String, List<String>> me : metadata.entrySet()) {
+            writeString(body, me.getKey());
+            writeStrings(body, me.getValue());
+        }
+
+        Map<String, BaseAttribute> attributes = text.getAttributes();
+        body.writeVarint(attributes.size());
+        for (Map.Entry<String, BaseAttribute> me : attributes.entrySet()) {
+            payload.truncate(0);
+            int kind = writeAttribute(payload, me.getKey(), me.getValue());
+            writeString(body, me.getKey());
+            body.writeByte(kind);
+            body.writeVarint(payload.size());
+            body.write(payload);
+        }
+
+        out.writeBytes(BinaryFormat.MAGIC, 0, BinaryFormat.MAGIC.length);
+        out.writeByte(BinaryFormat.VERSION);
+        BinaryOutput table = new BinaryOutput(strings.size() * 8);
+        for (String string : strings) {
+            table.writeUtf8(string);
+        }
+        out.writeVarint(strings.size());
+        out.writeVarint(table.size());
+        out.write(table);
+        out.write(body);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int writeAttribute(BinaryOutput out, String key, BaseAttribute attribute) throws IOException {
+        if (attribute instanceof ListAttribute) {
+            ListAttribute<? extends BaseAttribute> list = (ListAttribute<? extends BaseAttribute>) attribute;
+            Class<? extends BaseAttribute> itemClass = list.getItemClass();
+            if (itemClass == Token.class && nativeTokens((List<Token>) list)) {
+                writeTokens(out, (List<Token>) list);
+                writeExtended(out, list.getExtendedProperties());
+                return BinaryFormat.KIND_TOKENS;
+            } else if (itemClass == Sentence.class && allOfClass(list, Sentence.class)) {
+                writeSpans(out, list);
+                writeExtended(out, list.getExtendedProperties());
+                return BinaryFormat.KIND_SENTENCES;
+            } else if (itemClass == BaseNounPhrase.class && allOfClass(list, BaseNounPhrase.class)) {
+                writeSpans(out, list);
+                writeExtended(out, list.getExtendedProperties());
+                return BinaryFormat.KIND_BASE_NOUN_PHRASES;
+            } else if (itemClass == Entity.class && nativeEntities((List<Entity>) list)) {
+                writeEntities(out, (List<Entity>) list);
+                writeExtended(out, list.getExtendedProperties());
+                return BinaryFormat.KIND_ENTITIES;
+            }
+        } else if (attribute != null && attribute.getClass() == Embeddings.class) {
+            writeEmbeddings(out, (Embeddings) attribute);
+            return BinaryFormat.KIND_EMBEDDINGS;
+        }
+        AnnotatedText.Builder holder = new AnnotatedText.Builder();
+        holder.attributes().put(key, attribute);
+        byte[] json = jsonMapper.writeValueAsBytes(holder.build());
+        out.writeBytes(json, 0, json.length);
+        return BinaryFormat.KIND_JSON;
+    }
+
+    private static boolean allOfClass(List<? extends BaseAttribute> items, Class<?> itemClass) {
+        for (BaseAttribute item : items) {
+            if (item == null || item.getClass() != itemClass) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Subclasses of the model classes that we don't know about go to JSON. */
+    private static boolean nativeTokens(List<Token> tokens) {
+        if (!allOfClass(tokens, Token.class)) {
+            return false;
+        }
+        for (Token token : tokens) {
+            if (token.getAnalyses() != null) {
+                for (MorphoAnalysis analysis : token.getAnalyses()) {
+                    if (analysisType(analysis) == -1
+                        || (analysis.getComponents() != null && !nativeTokens(analysis.getComponents()))) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean nativeEntities(List<Entity> entities) {
+        if (!allOfClass(entities, Entity.class)) {
+            return false;
+        }
+        for (Entity entity : entities) {
+            if ((entity.getMentions() != null && !allOfClass(entity.getMentions(), Mention.class))
+                || (entity.getSentiment() != null && !allOfClass(entity.getSentiment(), CategorizerResult.class))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int analysisType(MorphoAnalysis analysis) {
+        if (analysis == null) {
+            return -1;
+        }
+        Class<?> analysisClass = analysis.getClass();
+        if (analysisClass == MorphoAnalysis.class) {
+            return BinaryFormat.ANALYSIS_PLAIN;
+        } else if (analysisClass == HanMorphoAnalysis.class) {
+            return BinaryFormat.ANALYSIS_HAN;
+        } else if (analysisClass == KoreanMorphoAnalysis.class) {
+            return BinaryFormat.ANALYSIS_KOREAN;
+        } else if (analysisClass == ArabicMorphoAnalysis.class) {
+            return BinaryFormat.ANALYSIS_ARABIC;
+        }
+        return -1;
+    }
+
+    private void writeTokens(BinaryOutput out, List<Token> tokens) throws IOException {
+        out.writeVarint(tokens.size());
+        int previousEnd = 0;
+        for (Token token : tokens) {
+            writeToken(out, token, previousEnd);
+            previousEnd = token.getEndOffset();
+        }
+    }
+
+    /* Offsets are relative to 'base': the end of the previous token, or the start of the token owning a component. */
+    private void writeToken(BinaryOutput out, Token token, int base) throws IOException {
+        int start = token.getStartOffset();
+        int end = token.getEndOffset();
+        int flags = 0;
+        if (textFromData(token.getText(), start, end)) {
+            flags |= BinaryFormat.TOKEN_TEXT_FROM_DATA;
+        }
+        if (token.getNormalized() != null) {
+            flags |= BinaryFormat.TOKEN_NORMALIZED;
+        }
+        if (token.getSource() != null) {
+            flags |= BinaryFormat.TOKEN_SOURCE;
+        }
+        if (token.getAnalyses() != null) {
+            flags |= BinaryFormat.TOKEN_ANALYSES;
+        }
+        if (!token.getExtendedProperties().isEmpty()) {
+            flags |= BinaryFormat.TOKEN_EXTENDED;
+        }
+        out.writeByte(flags);
+        out.writeSignedVarint(start - base);
+        out.writeVarint(end - start);
+        if ((flags & BinaryFormat.TOKEN_TEXT_FROM_DATA) == 0) {
+            writeString(out, token.getText());
+        }
+        if ((flags & BinaryFormat.TOKEN_NORMALIZED) != 0) {
+            writeStrings(out, token.getNormalized());
+        }
+        if ((flags & BinaryFormat.TOKEN_SOURCE) != 0) {
+            writeString(out, token.getSource());
+        }
+        if ((flags & BinaryFormat.TOKEN_ANALYSES) != 0) {
+            out.writeVarint(token.getAnalyses().size());
+            for (MorphoAnalysis analysis : token.getAnalyses()) {
+                writeAnalysis(out, analysis, start);
+            }
+        }
+        if ((flags & BinaryFormat.TOKEN_EXTENDED) != 0) {
+            writeExtended(out, token.getExtendedProperties());
+        }
+    }
+
+    private boolean textFromData(String text, int start, int end) {
+        if (text == null || data == null || start < 0 || end > data.length() || end - start != text.length()) {
+            return false;
+        }
+        for (int x = 0; x < text.length(); x++) {
+            if (text.charAt(x) != data.charAt(start + x)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeAnalysis(BinaryOutput out, MorphoAnalysis analysis, int tokenStart) throws IOException {
+        int type = analysisType(analysis);
+        out.writeByte(type);
+        writeString(out, analysis.getPartOfSpeech());
+        writeString(out, analysis.getLemma());
+        writeString(out, analysis.getRaw());
+        List<Token> components = analysis.getComponents();
+        if (components == null) {
+            out.writeVarint(0);
+        } else {
+            out.writeVarint(components.size());
+            for (Token component : components) {
+                writeToken(out, component, tokenStart);
+            }
+        }
+        switch (type) {
+        case BinaryFormat.ANALYSIS_HAN:
+            writeStrings(out, ((HanMorphoAnalysis) analysis).getReadings());
+            break;
+        case BinaryFormat.ANALYSIS_KOREAN:
+            KoreanMorphoAnalysis korean = (KoreanMorphoAnalysis) analysis;
+            writeStrings(out, korean.getMorphemes());
+            writeStrings(out, korean.getMorphemeTags());
+            break;
+        case BinaryFormat.ANALYSIS_ARABIC:
+            ArabicMorphoAnalysis arabic = (ArabicMorphoAnalysis) analysis;
+            out.writeVarint(arabic.getPrefixLength());
+            out.writeVarint(arabic.getStemLength());
+            writeString(out, arabic.getRoot());
+            out.writeByte((arabic.isDefiniteArticle() ? BinaryFormat.ARABIC_DEFINITE_ARTICLE : 0)
+                | (arabic.isStrippablePrefix() ? BinaryFormat.ARABIC_STRIPPABLE_PREFIX : 0));
+            writeStrings(out, arabic.getPrefixes());
+            writeStrings(out, arabic.getPrefixTags());
+            writeStrings(out, arabic.getStems());
+            writeStrings(out, arabic.getStemTags());
+            writeStrings(out, arabic.getSuffixes());
+            writeStrings(out, arabic.getSuffixTags());
+            break;
+        default:
+            break;
+        }
+        writeExtended(out, analysis.getExtendedProperties());
+    }
+
+    /* Sentences and base noun phrases: just offsets and extended properties. */
+    private void writeSpans(BinaryOutput out, List<? extends BaseAttribute> spans) throws IOException {
+        out.writeVarint(spans.size());
+        int previousEnd = 0;
+        for (BaseAttribute item : spans) {
+            Attribute span = (Attribute) item;
+            out.writeSignedVarint(span.getStartOffset() - previousEnd);
+            out.writeVarint(span.getEndOffset() - span.getStartOffset());
+            writeExtended(out, span.getExtendedProperties());
+            previousEnd = span.getEndOffset();
+        }
+    }
+
+    private void writeEntities(BinaryOutput out, List<Entity> entities) throws IOException {
+        out.writeVarint(entities.size());
+        for (Entity entity : entities) {
+            int flags = 0;
+            if (entity.getHeadMentionIndex() != null) {
+                flags |= BinaryFormat.ENTITY_HEAD_MENTION;
+            }
+            if (entity.getConfidence() != null) {
+                flags |= BinaryFormat.ENTITY_CONFIDENCE;
+            }
+            if (entity.getSalience() != null) {
+                flags |= BinaryFormat.ENTITY_SALIENCE;
+            }
+            out.writeByte(flags);
+            writeString(out, entity.getType());
+            writeString(out, entity.getEntityId());
+            if (entity.getHeadMentionIndex() != null) {
+                out.writeSignedVarint(entity.getHeadMentionIndex());
+            }
+            if (entity.getConfidence() != null) {
+                out.writeDouble(entity.getConfidence());
+            }
+            if (entity.getSalience() != null) {
+                out.writeDouble(entity.getSalience());
+            }
+            List<Mention> mentions = entity.getMentions();
+            if (mentions == null) {
+                out.writeVarint(0);
+            } else {
+                out.writeVarint(mentions.size());
+                int previousEnd = 0;
+                for (Mention mention : mentions) {
+                    writeMention(out, mention, previousEnd);
+                    previousEnd = mention.getEndOffset();
+                }
+            }
+            List<CategorizerResult> sentiment = entity.getSentiment();
+            if (sentiment == null) {
+                out.writeVarint(0);
+            } else {
+                out.writeVarint(sentiment.size());
+                for (CategorizerResult result : sentiment) {
+                    writeCategorizerResult(out, result);
+                }
+            }
+            writeExtended(out, entity.getExtendedProperties());
+        }
+    }
+
+    private void writeMention(BinaryOutput out, Mention mention, int base) throws IOException {
+        int flags = 0;
+        if (mention.getConfidence() != null) {
+            flags |= BinaryFormat.MENTION_CONFIDENCE;
+        }
+        if (mention.getLinkingConfidence() != null) {
+            flags |= BinaryFormat.MENTION_LINKING_CONFIDENCE;
+        }
+        out.writeByte(flags);
+        out.writeSignedVarint(mention.getStartOffset() - base);
+        out.writeVarint(mention.getEndOffset() - mention.getStartOffset());
+        if (mention.getConfidence() != null) {
+            out.writeDouble(mention.getConfidence());
+        }
+        if (mention.getLinkingConfidence() != null) {
+            out.writeDouble(mention.getLinkingConfidence());
+        }
+        writeString(out, mention.getSource());
+        writeString(out, mention.getSubsource());
+        writeString(out, mention.getNormalized());
+        writeExtended(out, mention.getExtendedProperties());
+    }
+
+    private void writeCategorizerResult(BinaryOutput out, CategorizerResult result) throws IOException {
+        int flags = 0;
+        if (result.getScore() != null) {
+            flags |= BinaryFormat.CATEGORIZER_SCORE;
+        }
+        if (result.getConfidence() != null) {
+            flags |= BinaryFormat.CATEGORIZER_CONFIDENCE;
+        }
+        if (result.getExplanationSet() != null) {
+            flags |= BinaryFormat.CATEGORIZER_EXPLANATION_SET;
+        }
+        if (result.getPerFeatureScores() != null) {
+            flags |= BinaryFormat.CATEGORIZER_PER_FEATURE_SCORES;
+        }
+        out.writeByte(flags);
+        writeString(out, result.getLabel());
+        if (result.getScore() != null) {
+            out.writeDouble(result.getScore());
+        }
+        if (result.getConfidence() != null) {
+            out.writeDouble(result.getConfidence());
+        }
+        if (result.getExplanationSet() != null) {
+            writeStrings(out, result.getExplanationSet());
+        }
+        if (result.getPerFeatureScores() != null) {
+            out.writeVarint(result.getPerFeatureScores().size());
+            for (Map.Entry<String, Double> me : result.getPerFeatureScores().entrySet()) {
+                writeString(out, me.getKey());
+                out.writeDouble(me.getValue());
+            }
+        }
+        writeExtended(out, result.getExtendedProperties());
+    }
+
+    /* Embedding vectors are packed little-endian float32, with no per-value framing. */
+    private void writeEmbeddings(BinaryOutput out, Embeddings embeddings) throws IOException {
+        Map<Embeddings.Name, EmbeddingCollection> collections = embeddings.getCollections();
+        if (collections == null) {
+            out.writeVarint(0);
+        } else {
+            out.writeVarint(collections.size());
+            for (Map.Entry<Embeddings.Name, EmbeddingCollection> me : collections.entrySet()) {
+                out.writeByte(me.getKey().ordinal());
+                Map<Integer, float[]> vectors = me.getValue().getEmbeddings();
+                if (vectors == null) {
+                    out.writeVarint(0);
+                    continue;
+                }
+                out.writeVarint(vectors.size());
+                for (Map.Entry<Integer, float[]> vector : vectors.entrySet()) {
+                    float[] values = vector.getValue();
+                    out.writeSignedVarint(vector.getKey());
+                    out.writeVarint(values.length);
+                    for (float value : values) {
+                        out.writeFloat(value);
+                    }
+                }
+            }
+        }
+        writeExtended(out, embeddings.getExtendedProperties());
+    }
+
+    private void writeExtended(BinaryOutput out, Map<String, Object> properties) throws IOException {
+        out.writeVarint(properties.size());
+        for (Map.Entry<String, Object> me : properties.entrySet()) {
+            writeString(out, me.getKey());
+            writeValue(out, me.getValue());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeValue(BinaryOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(BinaryFormat.VALUE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(BinaryFormat.VALUE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(BinaryFormat.VALUE_INT);
+            out.writeSignedVarint((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(BinaryFormat.VALUE_LONG);
+            out.writeSignedVarlong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(BinaryFormat.VALUE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? BinaryFormat.VALUE_TRUE : BinaryFormat.VALUE_FALSE);
+        } else if (value instanceof List) {
+            List<Object> list = (List<Object>) value;
+            out.writeByte(BinaryFormat.VALUE_LIST);
+            out.writeVarint(list.size());
+            for (Object item : list) {
+                writeValue(out, item);
+            }
+        } else if (value instanceof Map && stringKeys((Map<?, ?>) value)) {
+            Map<String, Object> map = (Map<String, Object>) value;
+            out.writeByte(BinaryFormat.VALUE_MAP);
+            out.writeVarint(map.size());
+            for (Map.Entry<String, Object> me : map.entrySet()) {
+                writeString(out, me.getKey());
+                writeValue(out, me.getValue());
+            }
+        } else {
+            // anything else reads back just as it would from JSON.
+            byte[] json = jsonMapper.writeValueAsBytes(value);
+            out.writeByte(BinaryFormat.VALUE_JSON);
+            out.writeVarint(json.length);
+            out.writeBytes(json, 0, json.length);
+        }
+    }
+
+    private static boolean stringKeys(Map<?, ?> map) {
+        for (Object key : map.keySet()) {
+            if (!(key instanceof String)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* A list of strings; zero for null, otherwise the size plus one. */
+    private void writeStrings(BinaryOutput out, List<String> values) {
+        if (values == null) {
+            out.writeVarint(0);
+            return;
+        }
+        out.writeVarint(values.size() + 1);
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private void writeString(BinaryOutput out, String value) {
+        if (value == null) {
+            out.writeVarint(0);
+            return;
+        }
+        Integer index = stringIndex.get(value);
+        if (index == null) {
+            index = strings.size();
+            strings.add(value);
+            stringIndex.put(value, index);
+        }
+        out.writeVarint(index + 1);
+    }
+}
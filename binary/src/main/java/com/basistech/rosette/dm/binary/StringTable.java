@@ -0,0 +1,77 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+import java.io.IOException;
+
+/**
+ * The string table of one document, decoded on demand. The first lookup scans the table to find
+ * where each entry starts; each entry is decoded the first time it is referenced.
+ */
+final class StringTable {
+    private final BinaryInput table;
+    private final int count;
+    private int[] offsets;
+    private int[] lengths;
+    private String[] values;
+
+    StringTable(BinaryInput table, int count) {
+        this.table = table;
+        this.count = count;
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Look up a string reference.
+     * @param ref zero for null, otherwise one more than the index in the table.
+     * @return the string.
+     */
+    String get(int ref) throws IOException {
+        if (ref == 0) {
+            return null;
+        }
+        int index = ref - 1;
+        if (index < 0 || index >= count) {
+            throw new IOException("String reference " + ref + " out of range");
+        }
+        if (offsets == null) {
+            index();
+        }
+        String value = values[index];
+        if (value == null) {
+            value = table.utf8(offsets[index], lengths[index]);
+            values[index] = value;
+        }
+        return value;
+    }
+
+    private void index() throws IOException {
+        int[] newOffsets = new int[count];
+        int[] newLengths = new int[count];
+        for (int x = 0; x < count; x++) {
+            int length = table.readVarint() - 1;
+            newOffsets[x] = table.position();
+            newLengths[x] = length;
+            table.skip(Math.max(length, 0));
+        }
+        values = new String[count];
+        lengths = newLengths;
+        offsets = newOffsets;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+import com.basistech.rosette.dm.Token;
+
+import java.io.IOException;
+
+/**
+ * Walks the tokens of an encoded document. Offsets and text are decoded from the buffer
+ * as the cursor moves; the rest of each token is skipped unless {@link #getToken()} is called.
+ * <pre>
+ * TokenCursor cursor = view.tokens();
+ * while (cursor.next()) {
+ *     int start = cursor.getStartOffset();
+ *     ...
+ * }
+ * </pre>
+ * Cursors are not thread-safe.
+ */
+public final class TokenCursor {
+    private final DocumentReader reader;
+    private final BinaryInput in;
+    private final int count;
+    private int index = -1;
+    private int previousEnd;
+    private int base;
+    private int tokenPosition;
+    private int tokenLength;
+    private int flags;
+    private int startOffset;
+    private int endOffset;
+    private int textRef;
+
+    TokenCursor(DocumentReader reader, BinaryInput in) throws IOException {
+        this.reader = reader;
+        this.in = in;
+        this.count = in.readVarint();
+    }
+
+    /**
+     * Returns the number of tokens.
+     * @return the number of tokens.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the index of the current token.
+     * @return the index, or -1 before the first call to {@link #next()}.
+     */
+    public int index() {
+        return index;
+    }
+
+    /**
+     * Move to the next token.
+     * @return false if there are no more tokens.
+     * @throws IOException if the encoding is invalid.
+     */
+    public boolean next() throws IOException {
+        if (index + 1 >= count) {
+            return false;
+        }
+        base = previousEnd;
+        tokenPosition = in.position();
+        flags = in.readByte();
+        startOffset = base + in.readSignedVarint();
+        endOffset = startOffset + in.readVarint();
+        textRef = (flags & BinaryFormat.TOKEN_TEXT_FROM_DATA) != 0 ? -1 : in.readVarint();
+        reader.skipTokenRest(in, flags);
+        tokenLength = in.position() - tokenPosition;
+        previousEnd = endOffset;
+        index++;
+        return true;
+    }
+
+    /**
+     * Returns the start offset of the current token.
+     * @return the start offset.
+     */
+    public int getStartOffset() {
+        return startOffset;
+    }
+
+    /**
+     * Returns the end offset of the current token.
+     * @return the end offset.
+     */
+    public int getEndOffset() {
+        return endOffset;
+    }
+
+    /**
+     * Returns the text of the current token.
+     * @return the text.
+     * @throws IOException if the encoding is invalid.
+     */
+    public String getText() throws IOException {
+        if (textRef == -1) {
+            return reader.data().substring(startOffset, endOffset);
+        }
+        return reader.strings().get(textRef);
+    }
+
+    /**
+     * Returns whether the current token has any morphological analyses.
+     * @return whether there are analyses.
+     */
+    public boolean hasAnalyses() {
+        return (flags & BinaryFormat.TOKEN_ANALYSES) != 0;
+    }
+
+    /**
+     * Decode all of the current token.
+     * @return the token.
+     * @throws IOException if the encoding is invalid.
+     */
+    public Token getToken() throws IOException {
+        return reader.readToken(new BinaryInput(in.buffer(), tokenPosition, tokenLength), base);
+    }
+}
@@ -0,0 +1,26 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+/**
+ * A compact binary serialization of the annotated data model, as an alternative to the
+ * JSON formats in {@code com.basistech.rosette.dm.jackson}. {@link com.basistech.rosette.dm.binary.AdmBinaryCodec}
+ * encodes and decodes single documents. {@link com.basistech.rosette.dm.binary.CorpusWriter} and
+ * {@link com.basistech.rosette.dm.binary.CorpusReader} store many documents in one memory-mapped file with
+ * constant-time access to each, and {@link com.basistech.rosette.dm.binary.AnnotatedTextView} decodes
+ * only the parts of a document that are used. {@link com.basistech.rosette.dm.binary.BlockContainerWriter} and
+ * {@link com.basistech.rosette.dm.binary.BlockContainerReader} store documents in compressed blocks, for archives
+ * where size matters more than the cost of decompressing a block to read one document.
+ */
+package com.basistech.rosette.dm.binary;
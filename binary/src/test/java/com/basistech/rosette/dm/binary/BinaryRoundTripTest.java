@@ -0,0 +1,273 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.ArabicMorphoAnalysis;
+import com.basistech.rosette.dm.BaseAttribute;
+import com.basistech.rosette.dm.BaseNounPhrase;
+import com.basistech.rosette.dm.CategorizerResult;
+import com.basistech.rosette.dm.Dependency;
+import com.basistech.rosette.dm.EmbeddingCollection;
+import com.basistech.rosette.dm.Embeddings;
+import com.basistech.rosette.dm.Entity;
+import com.basistech.rosette.dm.HanMorphoAnalysis;
+import com.basistech.rosette.dm.KoreanMorphoAnalysis;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.Mention;
+import com.basistech.rosette.dm.MorphoAnalysis;
+import com.basistech.rosette.dm.Sentence;
+import com.basistech.rosette.dm.Token;
+import com.basistech.rosette.dm.jackson.AnnotatedDataModelModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryRoundTripTest {
+    private static final String TEXT = "This is the terrier shot to Boston.";
+
+    private AnnotatedText referenceText;
+
+    @Before
+    public void oneWithEverything() {
+        AnnotatedText.Builder builder = new AnnotatedText.Builder();
+        builder.data(TEXT);
+        builder.documentMetadata("lang", "eng");
+        builder.documentMetadata("empty", Lists.<String>newArrayList());
+
+        ListAttribute.Builder<Token> tokenListBuilder = new ListAttribute.Builder<>(Token.class);
+        Token.Builder tokenBuilder = new Token.Builder(0, 4, "This");
+        tokenBuilder.source("test");
+        tokenBuilder.addNormalized("this");
+        tokenBuilder.extendedProperty("tok-ex", "tok-ex-val");
+
+        MorphoAnalysis.Builder maBuilder = new MorphoAnalysis.Builder();
+        maBuilder.raw("cooked");
+        maBuilder.partOfSpeech("DET");
+        maBuilder.addComponent(new Token.Builder(0, 2, "Th").build());
+        maBuilder.addComponent(new Token.Builder(2, 4, "is").build());
+        tokenBuilder.addAnalysis(maBuilder.build());
+
+        ArabicMorphoAnalysis.Builder araMaBuilder = new ArabicMorphoAnalysis.Builder();
+        araMaBuilder.addPrefix("pre", "PRE");
+        araMaBuilder.addStem("stem", "STEM");
+        araMaBuilder.addSuffix("suff", "SUFF");
+        araMaBuilder.definiteArticle(true);
+        araMaBuilder.root("root");
+        araMaBuilder.lengths(2, 3);
+        araMaBuilder.lemma("lemma");
+        araMaBuilder.partOfSpeech("DET");
+        tokenBuilder.addAnalysis(araMaBuilder.build());
+
+        HanMorphoAnalysis.Builder hanMaBuilder = new HanMorphoAnalysis.Builder();
+        hanMaBuilder.addReading("proust");
+        hanMaBuilder.lemma("lemma");
+        hanMaBuilder.extendedProperty("han-ex", 3);
+        tokenBuilder.addAnalysis(hanMaBuilder.build());
+
+        KoreanMorphoAnalysis.Builder korMaBuilder = new KoreanMorphoAnalysis.Builder();
+        korMaBuilder.addMorpheme("m1", "t1");
+        korMaBuilder.addMorpheme("m2", "t2");
+        korMaBuilder.partOfSpeech("korean");
+        tokenBuilder.addAnalysis(korMaBuilder.build());
+        tokenListBuilder.add(tokenBuilder.build());
+
+        // text that is not the same as the data.
+        tokenListBuilder.add(new Token.Builder(5, 7, "IS").build());
+        tokenListBuilder.add(new Token.Builder(8, 11, "the").build());
+        // out of order, and past the end of the data.
+        tokenListBuilder.add(new Token.Builder(2, 40, null).build());
+        tokenListBuilder.extendedProperty("list-ex", "list-ex-val");
+        builder.tokens(tokenListBuilder.build());
+
+        ListAttribute.Builder<Sentence> sentListBuilder = new ListAttribute.Builder<>(Sentence.class);
+        Sentence.Builder sentBuilder = new Sentence.Builder(0, 8);
+        sentBuilder.extendedProperty("sb-ex", "sb-ex-val");
+        sentListBuilder.add(sentBuilder.build());
+        sentListBuilder.add(new Sentence.Builder(8, TEXT.length()).build());
+        builder.sentences(sentListBuilder.build());
+
+        ListAttribute.Builder<BaseNounPhrase> bnpListBuilder = new ListAttribute.Builder<>(BaseNounPhrase.class);
+        bnpListBuilder.add(new BaseNounPhrase.Builder(8, 19).build());
+        builder.baseNounPhrases(bnpListBuilder.build());
+
+        ListAttribute.Builder<Entity> entityListBuilder = new ListAttribute.Builder<>(Entity.class);
+        Entity.Builder entityBuilder = new Entity.Builder();
+        entityBuilder.headMentionIndex(0);
+        entityBuilder.type("PERSON");
+        entityBuilder.entityId("Q100");
+        Map<String, Double> perFeatureScores = Maps.newHashMap();
+        perFeatureScores.put("foo", 1.2);
+        perFeatureScores.put("bar", -2.4);
+        entityBuilder.sentiment(new CategorizerResult.Builder("negative", 0.4)
+            .explanationSet(Lists.<String>newArrayList())
+            .perFeatureScores(perFeatureScores).build());
+        Mention.Builder mentionBuilder = new Mention.Builder(28, 34);
+        mentionBuilder.normalized("bahston");
+        mentionBuilder.source("testsource");
+        mentionBuilder.subsource("testsubsource");
+        mentionBuilder.confidence(1.123456789123); // more digits than JSON keeps.
+        mentionBuilder.linkingConfidence(1.123);
+        mentionBuilder.extendedProperty("em-ex", "em-ex-val");
+        entityBuilder.mention(mentionBuilder.build());
+        entityBuilder.mention(new Mention.Builder(11, 12).build());
+        entityBuilder.confidence(0.5);
+        entityBuilder.salience(0.4);
+        entityListBuilder.add(entityBuilder.build());
+        entityListBuilder.add(new Entity.Builder().type("LOCATION").build());
+        builder.entities(entityListBuilder.build());
+
+        Embeddings.Builder embeddingsBuilder = new Embeddings.Builder();
+        EmbeddingCollection.Builder embeddingCollectionBuilder = new EmbeddingCollection.Builder();
+        embeddingCollectionBuilder.put(0, new float[]{0, 1, Float.MIN_VALUE, -0.1f});
+        embeddingCollectionBuilder.put(3, new float[0]);
+        embeddingsBuilder.put(Embeddings.Name.TOKENS, embeddingCollectionBuilder.build());
+        embeddingsBuilder.extendedProperty("model", "v1");
+        builder.embeddings(embeddingsBuilder.build());
+
+        // no native encoding for these.
+        ListAttribute.Builder<Dependency> depListBuilder = new ListAttribute.Builder<>(Dependency.class);
+        depListBuilder.add(new Dependency.Builder("V", -1, 0).build());
+        builder.dependencies(depListBuilder.build());
+        ListAttribute.Builder<CategorizerResult> crListBuilder = new ListAttribute.Builder<>(CategorizerResult.class);
+        crListBuilder.add(new CategorizerResult.Builder("basketball", 0.5).confidence(0.3).build());
+        builder.topicResults(crListBuilder.build());
+
+        referenceText = builder.build();
+    }
+
+    private static void assertSameText(AnnotatedText expected, AnnotatedText actual) {
+        assertEquals(expected.getData(), actual.getData());
+        assertEquals(expected.getDocumentMetadata(), actual.getDocumentMetadata());
+        assertEquals(expected.getAttributes(), actual.getAttributes());
+        // list equality does not look at the extended properties of the list.
+        for (Map.Entry<String, BaseAttribute> me : expected.getAttributes().entrySet()) {
+            assertEquals(me.getKey(), me.getValue().getExtendedProperties(),
+                actual.getAttributes().get(me.getKey()).getExtendedProperties());
+        }
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        AdmBinaryCodec codec = new AdmBinaryCodec();
+        AnnotatedText read = codec.decode(codec.encode(referenceText));
+        assertSameText(referenceText, read);
+        assertEquals(1.123456789123, read.getEntities().get(0).getMentions().get(0).getConfidence(), 0.0);
+        assertArrayEquals(new float[]{0, 1, Float.MIN_VALUE, -0.1f},
+            read.getEmbeddings().get(Embeddings.Name.TOKENS).getEmbeddings().get(0), 0.0f);
+        assertTrue(read.getTokens().get(0).getAnalyses().get(2) instanceof HanMorphoAnalysis);
+    }
+
+    @Test
+    public void streams() throws Exception {
+        AdmBinaryCodec codec = new AdmBinaryCodec();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.encode(referenceText, out);
+        assertSameText(referenceText, codec.decode(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    public void extendedPropertyValues() throws Exception {
+        Map<String, Object> nested = Maps.newLinkedHashMap();
+        nested.put("a", Lists.newArrayList(1, "two", null, true));
+        nested.put("b", 2.5);
+        Map<Object, Object> intKeys = Maps.newHashMap();
+        intKeys.put(1, "one");
+        ListAttribute.Builder<Sentence> sentListBuilder = new ListAttribute.Builder<>(Sentence.class);
+        Sentence.Builder sentBuilder = new Sentence.Builder(0, 3);
+        sentBuilder.extendedProperties(ImmutableMap.<String, Object>builder()
+            .put("string", "s")
+            .put("int", -5)
+            .put("long", Long.MAX_VALUE)
+            .put("double", 0.1)
+            .put("true", true)
+            .put("false", false)
+            .put("nested", nested)
+            .build());
+        sentListBuilder.add(sentBuilder.build());
+        AnnotatedText.Builder builder = new AnnotatedText.Builder().data("abc");
+        builder.sentences(sentListBuilder.build());
+        AnnotatedText text = builder.build();
+
+        AdmBinaryCodec codec = new AdmBinaryCodec();
+        assertSameText(text, codec.decode(codec.encode(text)));
+
+        // values with no native tag read back as they would from JSON.
+        sentBuilder = new Sentence.Builder(0, 3);
+        sentBuilder.extendedProperty("intKeys", intKeys);
+        sentListBuilder = new ListAttribute.Builder<>(Sentence.class);
+        sentListBuilder.add(sentBuilder.build());
+        builder.sentences(sentListBuilder.build());
+        AnnotatedText read = codec.decode(codec.encode(builder.build()));
+        assertEquals(ImmutableMap.of("1", "one"), read.getSentences().get(0).getExtendedProperties().get("intKeys"));
+    }
+
+    @Test
+    public void emptyText() throws Exception {
+        AdmBinaryCodec codec = new AdmBinaryCodec();
+        AnnotatedText read = codec.decode(codec.encode(new AnnotatedText.Builder().build()));
+        assertNull(read.getData());
+        assertTrue(read.getAttributes().isEmpty());
+        assertTrue(read.getDocumentMetadata().isEmpty());
+    }
+
+    @Test
+    public void smallerThanJson() throws Exception {
+        ObjectMapper mapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper());
+        ListAttribute.Builder<Token> tokenListBuilder = new ListAttribute.Builder<>(Token.class);
+        StringBuilder data = new StringBuilder();
+        for (int x = 0; x < 1000; x++) {
+            int start = data.length();
+            data.append("word").append(x % 10).append(' ');
+            Token.Builder tokenBuilder = new Token.Builder(start, start + 5, data.substring(start, start + 5));
+            MorphoAnalysis.Builder maBuilder = new MorphoAnalysis.Builder();
+            maBuilder.partOfSpeech("NOUN");
+            maBuilder.lemma("word");
+            tokenBuilder.addAnalysis(maBuilder.build());
+            tokenListBuilder.add(tokenBuilder.build());
+        }
+        AnnotatedText text = new AnnotatedText.Builder().data(data.toString()).tokens(tokenListBuilder.build()).build();
+        byte[] binary = new AdmBinaryCodec().encode(text);
+        byte[] json = mapper.writeValueAsBytes(text);
+        // each token is a flag byte, two offset bytes, an analysis type and three string references.
+        assertTrue(binary.length + " vs " + json.length, binary.length * 4 < json.length);
+    }
+
+    @Test(expected = IOException.class)
+    public void notBinary() throws Exception {
+        new AdmBinaryCodec().decode("{\"data\": \"\"}".getBytes("UTF-8"));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncated() throws Exception {
+        AdmBinaryCodec codec = new AdmBinaryCodec();
+        byte[] bytes = codec.encode(referenceText);
+        codec.decode(bytes, 0, bytes.length - 10);
+    }
+}
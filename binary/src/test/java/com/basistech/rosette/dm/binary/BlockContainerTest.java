@@ -0,0 +1,164 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BlockContainerTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private List<AnnotatedText> texts;
+
+    @Before
+    public void documents() {
+        Random random = new Random(5678);
+        texts = Lists.newArrayList();
+        for (int x = 0; x < 200; x++) {
+            texts.add(TestDocuments.document(random, x));
+        }
+    }
+
+    private Path writeContainer(BlockCompression compression) throws IOException {
+        Path file = temporaryFolder.newFile("container-" + compression + ".admz").toPath();
+        try (BlockContainerWriter writer = new BlockContainerWriter(file, compression, 7, 3)) {
+            for (int x = 0; x < texts.size(); x++) {
+                assertEquals(x, writer.add(x % 3 == 0 ? null : "doc" + x, texts.get(x)));
+            }
+        }
+        return file;
+    }
+
+    private void randomAccess(BlockCompression compression) throws Exception {
+        Path file = writeContainer(compression);
+        try (BlockContainerReader reader = new BlockContainerReader(file)) {
+            assertEquals(texts.size(), reader.size());
+            assertEquals((texts.size() + 6) / 7, reader.blockCount());
+            Random random = new Random(99);
+            for (int x = 0; x < 500; x++) {
+                int ordinal = random.nextInt(texts.size());
+                TestDocuments.assertSameText(texts.get(ordinal), reader.read(ordinal));
+            }
+            for (int x = 0; x < texts.size(); x++) {
+                TestDocuments.assertSameText(texts.get(x), reader.read(x));
+            }
+        }
+    }
+
+    @Test
+    public void uncompressed() throws Exception {
+        randomAccess(BlockCompression.NONE);
+    }
+
+    @Test
+    public void gzip() throws Exception {
+        randomAccess(BlockCompression.GZIP);
+        long uncompressed = Files.size(writeContainer(BlockCompression.NONE));
+        assertTrue(Files.size(temporaryFolder.getRoot().toPath().resolve("container-GZIP.admz")) < uncompressed);
+    }
+
+    @Test
+    public void snappy() throws Exception {
+        randomAccess(BlockCompression.SNAPPY);
+    }
+
+    @Test
+    public void ids() throws Exception {
+        Path file = writeContainer(BlockCompression.GZIP);
+        try (BlockContainerReader reader = new BlockContainerReader(file)) {
+            assertNull(reader.id(0));
+            assertEquals("doc4", reader.id(4));
+            assertEquals(4, reader.ordinal("doc4"));
+            assertEquals(-1, reader.ordinal("doc3"));
+            TestDocuments.assertSameText(texts.get(199), reader.read("doc199"));
+            assertNull(reader.read("nothing"));
+        }
+    }
+
+    @Test
+    public void readAll() throws Exception {
+        Path file = writeContainer(BlockCompression.GZIP);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (BlockContainerReader reader = new BlockContainerReader(file)) {
+            List<AnnotatedText> read = reader.readAll(executor);
+            assertEquals(texts.size(), read.size());
+            for (int x = 0; x < texts.size(); x++) {
+                TestDocuments.assertSameText(texts.get(x), read.get(x));
+            }
+            List<AnnotatedText> block = reader.readBlock(reader.blockCount() - 1);
+            assertEquals(texts.size() % 7, block.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void empty() throws Exception {
+        Path file = temporaryFolder.newFile("empty.admz").toPath();
+        new BlockContainerWriter(file, BlockCompression.GZIP).close();
+        try (BlockContainerReader reader = new BlockContainerReader(file)) {
+            assertEquals(0, reader.size());
+            assertEquals(0, reader.blockCount());
+        }
+    }
+
+    @Test
+    public void closeTwice() throws Exception {
+        Path file = temporaryFolder.newFile("twice.admz").toPath();
+        try (BlockContainerWriter writer = new BlockContainerWriter(file, BlockCompression.GZIP)) {
+            writer.add("doc", texts.get(0));
+            writer.close();
+        }
+        try (BlockContainerReader reader = new BlockContainerReader(file)) {
+            assertEquals(1, reader.size());
+            TestDocuments.assertSameText(texts.get(0), reader.read(0));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addAfterClose() throws Exception {
+        BlockContainerWriter writer = new BlockContainerWriter(temporaryFolder.newFile("closed.admz").toPath(), BlockCompression.GZIP);
+        writer.close();
+        writer.add(texts.get(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void unclosed() throws Exception {
+        Path file = writeContainer(BlockCompression.GZIP);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(raf.length() - 4);
+        }
+        new BlockContainerReader(file).close();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.jackson.AnnotatedDataModelModule;
+import com.basistech.rosette.dm.jackson.array.AnnotatedDataModelArrayModule;
+import com.codahale.metrics.ConsoleReporter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quick command line to compare the binary codec with the JSON formats, in the style of CompareJsons.
+ * The argument is a file containing a JSON array of annotated texts.
+ */
+public final class CompareFormats {
+
+    interface Codec {
+        byte[] write(AnnotatedText text) throws IOException;
+
+        AnnotatedText read(byte[] bytes) throws IOException;
+    }
+
+    private static final class MapperCodec implements Codec {
+        private final ObjectMapper mapper;
+
+        MapperCodec(ObjectMapper mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public byte[] write(AnnotatedText text) throws IOException {
+            return mapper.writeValueAsBytes(text);
+        }
+
+        @Override
+        public AnnotatedText read(byte[] bytes) throws IOException {
+            return mapper.readValue(bytes, AnnotatedText.class);
+        }
+    }
+
+    private static final class BinaryCodec implements Codec {
+        private final AdmBinaryCodec codec = new AdmBinaryCodec();
+
+        @Override
+        public byte[] write(AnnotatedText text) throws IOException {
+            return codec.encode(text);
+        }
+
+        @Override
+        public AnnotatedText read(byte[] bytes) throws IOException {
+            return codec.decode(bytes);
+        }
+    }
+
+    private CompareFormats() {
+        //
+    }
+
+    public static void main(String[] args) throws Exception {
+        File plenty = new File(args[0]);
+        ObjectMapper inputMapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper());
+        AnnotatedText[] texts = inputMapper.readValue(plenty, AnnotatedText[].class);
+        System.out.println(String.format("%d documents, original file length %d", texts.length, plenty.length()));
+
+        MetricRegistry metrics = new MetricRegistry();
+        // a pass to warm up, then a pass to measure.
+        for (int pass = 0; pass < 2; pass++) {
+            boolean report = pass == 1;
+            runWithFormat(texts, new MapperCodec(AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper())), "json-plain", metrics, report);
+            runWithFormat(texts, new MapperCodec(AnnotatedDataModelArrayModule.setupObjectMapper(new ObjectMapper())), "json-array", metrics, report);
+            runWithFormat(texts, new MapperCodec(AnnotatedDataModelArrayModule.setupObjectMapper(new ObjectMapper(new SmileFactory()))), "smile-array", metrics, report);
+            runWithFormat(texts, new MapperCodec(AnnotatedDataModelArrayModule.setupObjectMapper(new ObjectMapper(new CBORFactory()))), "cbor-array", metrics, report);
+            runWithFormat(texts, new BinaryCodec(), "binary", metrics, report);
+        }
+        ConsoleReporter reporter = ConsoleReporter.forRegistry(metrics)
+                .convertRatesTo(TimeUnit.SECONDS)
+                .convertDurationsTo(TimeUnit.MILLISECONDS)
+                .build();
+        reporter.report();
+        reporter.stop();
+    }
+
+    private static void runWithFormat(AnnotatedText[] texts, Codec codec, String format, MetricRegistry metrics, boolean report) throws IOException {
+        Timer writeTime = metrics.timer(String.format("%s-serial", format));
+        Timer readTime = metrics.timer(String.format("%s-deserial", format));
+        long totalSize = 0;
+        for (AnnotatedText text : texts) {
+            Timer.Context ctxt = report ? writeTime.time() : null;
+            byte[] bytes = codec.write(text);
+            if (ctxt != null) {
+                ctxt.stop();
+            }
+            totalSize += bytes.length;
+
+            ctxt = report ? readTime.time() : null;
+            codec.read(bytes);
+            if (ctxt != null) {
+                ctxt.stop();
+            }
+        }
+        if (report) {
+            System.out.format("%s: total size %d, mean size %.2f%n", format, totalSize, (double) totalSize / texts.length);
+        }
+    }
+}
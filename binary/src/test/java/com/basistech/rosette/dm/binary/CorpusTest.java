@@ -0,0 +1,159 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.Token;
+import com.basistech.rosette.dm.jackson.KnownAttribute;
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CorpusTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private List<AnnotatedText> texts;
+
+    @Before
+    public void corpus() {
+        Random random = new Random(1234);
+        texts = Lists.newArrayList();
+        for (int x = 0; x < 500; x++) {
+            texts.add(TestDocuments.document(random, x));
+        }
+    }
+
+    private Path writeCorpus() throws IOException {
+        Path file = temporaryFolder.newFile("corpus.admc").toPath();
+        try (CorpusWriter writer = new CorpusWriter(file)) {
+            for (int x = 0; x < texts.size(); x++) {
+                assertEquals(x, writer.add(texts.get(x)));
+            }
+        }
+        return file;
+    }
+
+    @Test
+    public void randomAccess() throws Exception {
+        Path file = writeCorpus();
+        try (CorpusReader reader = new CorpusReader(file)) {
+            assertEquals(texts.size(), reader.size());
+            Random random = new Random(99);
+            for (int x = 0; x < 1000; x++) {
+                int index = random.nextInt(texts.size());
+                TestDocuments.assertSameText(texts.get(index), reader.read(index));
+            }
+        }
+    }
+
+    @Test
+    public void smallSegments() throws Exception {
+        // many documents, and some offsets in the table, straddle segment boundaries.
+        Path file = writeCorpus();
+        try (CorpusReader reader = new CorpusReader(file, new AdmBinaryCodec(), 1001)) {
+            for (int x = 0; x < texts.size(); x++) {
+                TestDocuments.assertSameText(texts.get(x), reader.read(x));
+            }
+        }
+    }
+
+    @Test
+    public void lazyView() throws Exception {
+        Path file = writeCorpus();
+        try (CorpusReader reader = new CorpusReader(file)) {
+            for (int x = 0; x < texts.size(); x += 7) {
+                AnnotatedText expected = texts.get(x);
+                AnnotatedTextView view = reader.view(x);
+                assertEquals(expected.getAttributes().keySet(), view.getAttributeKeys());
+                assertEquals(expected.getSentences(), view.getAttribute(KnownAttribute.SENTENCE.key()));
+                assertNull(view.getAttribute("nothing"));
+                assertEquals(expected.getData(), view.getData());
+                assertEquals(expected.getDocumentMetadata(), view.getDocumentMetadata());
+
+                TokenCursor cursor = view.tokens();
+                assertEquals(expected.getTokens().size(), cursor.size());
+                for (Token token : expected.getTokens()) {
+                    assertTrue(cursor.next());
+                    assertEquals(token.getStartOffset(), cursor.getStartOffset());
+                    assertEquals(token.getEndOffset(), cursor.getEndOffset());
+                    assertEquals(token.getText(), cursor.getText());
+                    assertEquals(token.getAnalyses() != null, cursor.hasAnalyses());
+                    assertEquals(token, cursor.getToken());
+                }
+                assertFalse(cursor.next());
+                assertEquals(expected.getTokens(), view.getAttribute(KnownAttribute.TOKEN.key()));
+                TestDocuments.assertSameText(expected, view.toAnnotatedText());
+            }
+        }
+    }
+
+    @Test
+    public void viewOfBytes() throws Exception {
+        AdmBinaryCodec codec = new AdmBinaryCodec();
+        byte[] bytes = codec.encode(texts.get(3));
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 10);
+        direct.position(10);
+        direct.put(bytes);
+        direct.position(10);
+        TestDocuments.assertSameText(texts.get(3), codec.view(direct).toAnnotatedText());
+        TestDocuments.assertSameText(texts.get(3), codec.decode(direct));
+        assertEquals(10, direct.position());
+    }
+
+    @Test
+    public void closeTwice() throws Exception {
+        Path file = temporaryFolder.newFile("twice.admc").toPath();
+        try (CorpusWriter writer = new CorpusWriter(file)) {
+            writer.add(texts.get(0));
+            writer.close();
+        }
+        try (CorpusReader reader = new CorpusReader(file)) {
+            assertEquals(1, reader.size());
+            TestDocuments.assertSameText(texts.get(0), reader.read(0));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void addAfterClose() throws Exception {
+        CorpusWriter writer = new CorpusWriter(temporaryFolder.newFile("closed.admc").toPath());
+        writer.close();
+        writer.add(texts.get(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void unclosed() throws Exception {
+        Path file = writeCorpus();
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(raf.length() - 4);
+        }
+        new CorpusReader(file).close();
+    }
+}
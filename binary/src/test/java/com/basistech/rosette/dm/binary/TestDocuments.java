@@ -0,0 +1,74 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.binary;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.Entity;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.Mention;
+import com.basistech.rosette.dm.MorphoAnalysis;
+import com.basistech.rosette.dm.Sentence;
+import com.basistech.rosette.dm.Token;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Random documents for the container tests.
+ */
+final class TestDocuments {
+    private TestDocuments() {
+        //
+    }
+
+    static AnnotatedText document(Random random, int number) {
+        StringBuilder data = new StringBuilder();
+        ListAttribute.Builder<Token> tokenListBuilder = new ListAttribute.Builder<>(Token.class);
+        int tokenCount = random.nextInt(200);
+        for (int x = 0; x < tokenCount; x++) {
+            int start = data.length();
+            data.append("w").append(random.nextInt(50));
+            Token.Builder tokenBuilder = new Token.Builder(start, data.length(), data.substring(start));
+            if (random.nextBoolean()) {
+                MorphoAnalysis.Builder maBuilder = new MorphoAnalysis.Builder();
+                maBuilder.partOfSpeech(random.nextBoolean() ? "NOUN" : "VERB");
+                maBuilder.extendedProperty("n", x);
+                tokenBuilder.addAnalysis(maBuilder.build());
+            }
+            tokenListBuilder.add(tokenBuilder.build());
+            data.append(' ');
+        }
+        ListAttribute.Builder<Sentence> sentListBuilder = new ListAttribute.Builder<>(Sentence.class);
+        sentListBuilder.add(new Sentence.Builder(0, data.length()).build());
+        ListAttribute.Builder<Entity> entityListBuilder = new ListAttribute.Builder<>(Entity.class);
+        if (data.length() > 3) {
+            entityListBuilder.add(new Entity.Builder().type("PERSON").mention(new Mention.Builder(0, 3).build()).build());
+        }
+        AnnotatedText.Builder builder = new AnnotatedText.Builder().data(data.toString());
+        builder.documentMetadata("number", Integer.toString(number));
+        builder.tokens(tokenListBuilder.build());
+        builder.sentences(sentListBuilder.build());
+        builder.entities(entityListBuilder.build());
+        return builder.build();
+    }
+
+    static void assertSameText(AnnotatedText expected, AnnotatedText actual) {
+        assertEquals(expected.getData(), actual.getData());
+        assertEquals(expected.getDocumentMetadata(), actual.getDocumentMetadata());
+        assertEquals(expected.getAttributes(), actual.getAttributes());
+    }
+}
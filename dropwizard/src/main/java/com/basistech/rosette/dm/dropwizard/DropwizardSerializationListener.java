@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.dropwizard;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.BaseAttribute;
+import com.basistech.rosette.dm.jackson.SerializationListener;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the size and time of each document read or written, and of each attribute written, in a {@link MetricRegistry}.
+ * For a prefix of {@code adm}, the metrics are:
+ * <ul>
+ *     <li>{@code adm.document.size}, a histogram of the size of documents written;</li>
+ *     <li>{@code adm.document.write}, a timer for writing documents;</li>
+ *     <li>{@code adm.document.readSize}, a histogram of the size of documents read;</li>
+ *     <li>{@code adm.document.read}, a timer for reading documents;</li>
+ *     <li>{@code adm.attribute.}<i>key</i>{@code .size} and {@code adm.attribute.}<i>key</i>{@code .write}
+ *     for each attribute key, such as {@code adm.attribute.token.size}.</li>
+ * </ul>
+ * Sizes are as in {@link SerializationListener}; unknown sizes are not recorded. The metrics registry is not
+ * serializable, so neither is a mapper set up with this listener.
+ * <pre>{@code
+ * ObjectMapper mapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper(),
+ *     new DropwizardSerializationListener(registry, "adm"));
+ * }</pre>
+ */
+public class DropwizardSerializationListener extends SerializationListener {
+    private static final long serialVersionUID = 1L;
+    private final MetricRegistry registry;
+    private final String prefix;
+    private final Histogram documentSize;
+    private final Timer documentWrite;
+    private final Histogram documentReadSize;
+    private final Timer documentRead;
+    private final ConcurrentMap<String, Histogram> attributeSizes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> attributeWrites = new ConcurrentHashMap<>();
+
+    /**
+     * Construct a listener.
+     * @param registry the registry for the metrics.
+     * @param prefix the prefix for the names of the metrics.
+     */
+    public DropwizardSerializationListener(MetricRegistry registry, String prefix) {
+        this.registry = registry;
+        this.prefix = prefix;
+        documentSize = registry.histogram(MetricRegistry.name(prefix, "document", "size"));
+        documentWrite = registry.timer(MetricRegistry.name(prefix, "document", "write"));
+        documentReadSize = registry.histogram(MetricRegistry.name(prefix, "document", "readSize"));
+        documentRead = registry.timer(MetricRegistry.name(prefix, "document", "read"));
+    }
+
+    @Override
+    public void attributeWritten(String key, BaseAttribute attribute, long size, long nanos) {
+        Timer timer = attributeWrites.get(key);
+        if (timer == null) {
+            // the registry returns the same metrics if two threads get here at once.
+            attributeSizes.put(key, registry.histogram(MetricRegistry.name(prefix, "attribute", key, "size")));
+            timer = registry.timer(MetricRegistry.name(prefix, "attribute", key, "write"));
+            attributeWrites.put(key, timer);
+        }
+        timer.update(nanos, TimeUnit.NANOSECONDS);
+        if (size >= 0) {
+            attributeSizes.get(key).update(size);
+        }
+    }
+
+    @Override
+    public void documentWritten(AnnotatedText text, Object context, long size, long nanos) {
+        documentWrite.update(nanos, TimeUnit.NANOSECONDS);
+        if (size >= 0) {
+            documentSize.update(size);
+        }
+    }
+
+    @Override
+    public void documentRead(AnnotatedText text, Object context, long size, long nanos) {
+        documentRead.update(nanos, TimeUnit.NANOSECONDS);
+        if (size >= 0) {
+            documentReadSize.update(size);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.dropwizard;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.Sentence;
+import com.basistech.rosette.dm.Token;
+import com.basistech.rosette.dm.jackson.AdmCodec;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DropwizardSerializationListenerTest {
+
+    @Test
+    public void metrics() throws Exception {
+        ListAttribute.Builder<Token> tokens = new ListAttribute.Builder<>(Token.class);
+        tokens.add(new Token.Builder(0, 5, "Hello").build());
+        ListAttribute.Builder<Sentence> sentences = new ListAttribute.Builder<>(Sentence.class);
+        sentences.add(new Sentence.Builder(0, 5).build());
+        AnnotatedText text = new AnnotatedText.Builder().data("Hello").tokens(tokens.build()).sentences(sentences.build()).build();
+
+        MetricRegistry registry = new MetricRegistry();
+        AdmCodec codec = new AdmCodec(AdmCodec.Shape.PLAIN, new JsonFactory(), new DropwizardSerializationListener(registry, "adm"));
+        byte[] bytes = codec.writeValueAsBytes(text);
+        codec.writeValueAsBytes(text);
+        codec.read(bytes);
+
+        assertEquals(2, registry.timer("adm.document.write").getCount());
+        assertEquals(2, registry.histogram("adm.document.size").getCount());
+        assertEquals(bytes.length, registry.histogram("adm.document.size").getSnapshot().getMax());
+        assertEquals(1, registry.timer("adm.document.read").getCount());
+        assertEquals(bytes.length, registry.histogram("adm.document.readSize").getSnapshot().getMax());
+        for (String key : text.getAttributes().keySet()) {
+            assertEquals(key, 2, registry.timer("adm.attribute." + key + ".write").getCount());
+            assertEquals(key, 2, registry.histogram("adm.attribute." + key + ".size").getCount());
+        }
+        assertEquals(4 + 2 * text.getAttributes().size(), registry.getMetrics().size());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jfr;
+
+import com.basistech.rosette.dm.jackson.SerializationListener;
+import com.basistech.rosette.dm.util.StageListener;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Connects the annotated data model to Java Flight Recorder. Set up mappers, codecs and composing
+ * annotators with its listeners, just as with any other {@link SerializationListener} or {@link StageListener}:
+ * <pre>
+ * AdmCodec codec = new AdmCodec(AdmCodec.Shape.PLAIN, new JsonFactory(), AdmFlightRecorder.serializationListener());
+ * Annotator pipeline = new ComposingAnnotator(annotators, AdmFlightRecorder.stageListener());
+ * </pre>
+ * They report each document that is read or written as a {@link DocumentReadEvent} or {@link DocumentWriteEvent},
+ * and each stage as an {@link AnnotatorStageEvent}. Use {@link SerializationListener#compose(SerializationListener...)}
+ * to report to other listeners as well. The events are disabled by default; enable them in a recording, for
+ * example with {@code recording.enable(DocumentReadEvent.NAME)}, in Mission Control, or in a copy
+ * of a {@code .jfc} settings file. While they are disabled, a mapper still counts the bytes that it writes,
+ * for the document sizes, and checks whether the events are enabled for each document; since the listener
+ * ignores attributes, they are written just as without a listener. Mappers and annotators set up without
+ * these listeners cost nothing at all.
+ */
+public final class AdmFlightRecorder {
+    private static final JfrSerializationListener SERIALIZATION_LISTENER = new JfrSerializationListener();
+    private static final JfrStageListener STAGE_LISTENER = new JfrStageListener();
+
+    static {
+        FlightRecorder.register(DocumentReadEvent.class);
+        FlightRecorder.register(DocumentWriteEvent.class);
+        FlightRecorder.register(AnnotatorStageEvent.class);
+    }
+
+    private AdmFlightRecorder() {
+        //
+    }
+
+    /**
+     * @return a listener that reports documents as {@link DocumentReadEvent} and {@link DocumentWriteEvent}.
+     */
+    public static SerializationListener serializationListener() {
+        return SERIALIZATION_LISTENER;
+    }
+
+    /**
+     * @return a listener that reports stages as {@link AnnotatorStageEvent}.
+     */
+    public static StageListener stageListener() {
+        return STAGE_LISTENER;
+    }
+}
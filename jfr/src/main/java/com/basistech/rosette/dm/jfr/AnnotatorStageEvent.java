@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One annotator of a {@link com.basistech.rosette.dm.util.ComposingAnnotator} annotating one document.
+ */
+@Name(AnnotatorStageEvent.NAME)
+@Label("ADM Annotator Stage")
+@Description("One annotator of a composing annotator annotating a text")
+@Category({"Rosette", "Annotated Data Model"})
+@Enabled(false)
+@StackTrace(false)
+public final class AnnotatorStageEvent extends Event {
+    public static final String NAME = "com.basistech.rosette.dm.AnnotatorStage";
+
+    @Label("Annotator")
+    Class<?> annotator;
+
+    @Label("Items Added")
+    @Description("The change in the number of attribute items; each list counts its items, and any other attribute counts one")
+    long itemsAdded;
+
+    @Label("Attributes")
+    @Description("The number of attributes of the document afterwards")
+    int attributes;
+}
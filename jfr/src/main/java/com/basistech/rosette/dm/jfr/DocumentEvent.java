@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * The fields of the events for reading and writing documents.
+ */
+@Category({"Rosette", "Annotated Data Model"})
+@Enabled(false)
+@StackTrace(false)
+abstract class DocumentEvent extends Event {
+    @Label("Format")
+    @Description("The serialized format, such as JSON, Smile or CBOR")
+    String format;
+
+    @Label("Shape")
+    @Description("PLAIN or ARRAY")
+    String shape;
+
+    @Label("Size")
+    @Description("The size of the serialized document; in characters for documents in strings, or -1 if it is unknown")
+    @DataAmount
+    long size;
+
+    @Label("Attributes")
+    @Description("The number of attributes of the document")
+    int attributes;
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Reading one document with a mapper or codec set up with {@link AdmFlightRecorder#serializationListener()}.
+ */
+@Name(DocumentReadEvent.NAME)
+@Label("ADM Document Read")
+@Description("Reading an annotated text from its serialized form")
+public final class DocumentReadEvent extends DocumentEvent {
+    public static final String NAME = "com.basistech.rosette.dm.DocumentRead";
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jfr;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.jackson.AdmCodec;
+import com.basistech.rosette.dm.jackson.SerializationListener;
+import jdk.jfr.EventType;
+
+/**
+ * Reports reading and writing as {@link DocumentReadEvent} and {@link DocumentWriteEvent}.
+ */
+final class JfrSerializationListener extends SerializationListener {
+    private static final long serialVersionUID = 1L;
+    private static final EventType READ_TYPE = EventType.getEventType(DocumentReadEvent.class);
+    private static final EventType WRITE_TYPE = EventType.getEventType(DocumentWriteEvent.class);
+
+    @Override
+    public Object beginRead(String format, AdmCodec.Shape shape) {
+        if (!READ_TYPE.isEnabled()) {
+            return null;
+        }
+        return begin(new DocumentReadEvent(), format, shape);
+    }
+
+    @Override
+    public void documentRead(AnnotatedText text, Object context, long size, long nanos) {
+        if (context != null) {
+            commit((DocumentEvent) context, text, size);
+        }
+    }
+
+    @Override
+    public Object beginWrite(AnnotatedText text, String format, AdmCodec.Shape shape) {
+        if (!WRITE_TYPE.isEnabled()) {
+            return null;
+        }
+        return begin(new DocumentWriteEvent(), format, shape);
+    }
+
+    @Override
+    public void documentWritten(AnnotatedText text, Object context, long size, long nanos) {
+        if (context != null) {
+            commit((DocumentEvent) context, text, size);
+        }
+    }
+
+    private static DocumentEvent begin(DocumentEvent event, String format, AdmCodec.Shape shape) {
+        event.format = format;
+        event.shape = shape.name();
+        event.begin();
+        return event;
+    }
+
+    private static void commit(DocumentEvent event, AnnotatedText text, long size) {
+        event.end();
+        // below the threshold, skip the work of filling in the rest of the fields.
+        if (event.shouldCommit()) {
+            event.size = size;
+            event.attributes = text.getAttributes().size();
+            event.commit();
+        }
+    }
+}
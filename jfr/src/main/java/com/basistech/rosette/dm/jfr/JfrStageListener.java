@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jfr;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.Annotator;
+import com.basistech.rosette.dm.BaseAttribute;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.util.StageListener;
+import jdk.jfr.EventType;
+
+/**
+ * Reports the stages of composing annotators as {@link AnnotatorStageEvent}.
+ */
+final class JfrStageListener extends StageListener {
+    private static final EventType TYPE = EventType.getEventType(AnnotatorStageEvent.class);
+
+    @Override
+    public Object beginStage(Annotator annotator, AnnotatedText input) {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        AnnotatorStageEvent event = new AnnotatorStageEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endStage(Annotator annotator, Object context, AnnotatedText input, AnnotatedText output, long nanos) {
+        if (context == null) {
+            return;
+        }
+        AnnotatorStageEvent event = (AnnotatorStageEvent) context;
+        event.end();
+        if (event.shouldCommit()) {
+            event.annotator = annotator.getClass();
+            event.itemsAdded = items(output) - items(input);
+            event.attributes = output.getAttributes().size();
+            event.commit();
+        }
+    }
+
+    static long items(AnnotatedText text) {
+        if (text == null) {
+            return 0;
+        }
+        long items = 0;
+        for (BaseAttribute attribute : text.getAttributes().values()) {
+            items += attribute instanceof ListAttribute ? ((ListAttribute<?>) attribute).size() : 1;
+        }
+        return items;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.jfr;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.Annotator;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.Token;
+import com.basistech.rosette.dm.jackson.AdmCodec;
+import com.basistech.rosette.dm.util.ComposingAnnotator;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdmFlightRecorderTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /* one token per character. */
+    private static class Tokenizer implements Annotator {
+        @Override
+        public AnnotatedText annotate(CharSequence input) {
+            ListAttribute.Builder<Token> tokens = new ListAttribute.Builder<>(Token.class);
+            for (int x = 0; x < input.length(); x++) {
+                tokens.add(new Token.Builder(x, x + 1, input.subSequence(x, x + 1).toString()).build());
+            }
+            return new AnnotatedText.Builder().data(input).tokens(tokens.build()).build();
+        }
+
+        @Override
+        public AnnotatedText annotate(AnnotatedText input) {
+            return annotate(input.getData());
+        }
+    }
+
+    private List<RecordedEvent> record(boolean enable) throws Exception {
+        AdmCodec codec = new AdmCodec(AdmCodec.Shape.PLAIN, new JsonFactory(), AdmFlightRecorder.serializationListener()).warmUp();
+        Annotator annotator = new ComposingAnnotator(ImmutableList.<Annotator>of(new Tokenizer()), AdmFlightRecorder.stageListener());
+        Path file = temporaryFolder.newFile().toPath();
+        try (Recording recording = new Recording()) {
+            if (enable) {
+                recording.enable(DocumentReadEvent.NAME).withoutThreshold();
+                recording.enable(DocumentWriteEvent.NAME).withoutThreshold();
+                recording.enable(AnnotatorStageEvent.NAME).withoutThreshold();
+            }
+            recording.start();
+            AnnotatedText text = annotator.annotate("Hello");
+            codec.read(codec.writeValueAsBytes(text));
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = Lists.newArrayList();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            if (event.getEventType().getName().startsWith("com.basistech.rosette.dm.")) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    @Test
+    public void events() throws Exception {
+        List<RecordedEvent> events = record(true);
+        assertEquals(3, events.size());
+        RecordedEvent stage = events.get(0);
+        assertEquals(AnnotatorStageEvent.NAME, stage.getEventType().getName());
+        assertEquals(Tokenizer.class.getName(), stage.getClass("annotator").getName());
+        assertEquals(5, stage.getLong("itemsAdded"));
+        assertEquals(1, stage.getInt("attributes"));
+        RecordedEvent write = events.get(1);
+        assertEquals(DocumentWriteEvent.NAME, write.getEventType().getName());
+        assertEquals("JSON", write.getString("format"));
+        assertEquals("PLAIN", write.getString("shape"));
+        assertTrue(write.getLong("size") > 0);
+        assertEquals(1, write.getInt("attributes"));
+        RecordedEvent read = events.get(2);
+        assertEquals(DocumentReadEvent.NAME, read.getEventType().getName());
+        assertEquals(write.getLong("size"), read.getLong("size"));
+    }
+
+    @Test
+    public void disabledByDefault() throws Exception {
+        assertEquals(0, record(false).size());
+    }
+}
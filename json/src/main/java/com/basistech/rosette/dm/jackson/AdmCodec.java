@@ -0,0 +1,370 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.Entity;
+import com.basistech.rosette.dm.LanguageDetection;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.Mention;
+import com.basistech.rosette.dm.Sentence;
+import com.basistech.rosette.dm.Token;
+import com.basistech.rosette.dm.jackson.array.AnnotatedDataModelArrayModule;
+import com.basistech.util.ISO15924;
+import com.basistech.util.LanguageCode;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A shareable reader and writer for {@link AnnotatedText} in one shape of the model. Building an
+ * {@link ObjectMapper} for the model is cheap, but the first documents through it are slow while Jackson
+ * introspects the mixins and builds serializers and deserializers. A codec owns one mapper, and the
+ * {@link ObjectReader} and {@link ObjectWriter} from it, which are immutable; {@link #warmUp()} builds
+ * everything for all of the {@link KnownAttribute} classes ahead of time, so that a service can pay for
+ * it during startup rather than on its first requests.
+ * <pre>
+ * AdmCodec codec = AdmCodec.plain().warmUp();
+ * AnnotatedText text = codec.read(bytes);
+ * </pre>
+ * Codecs are thread-safe. {@link #plain()} and {@link #array()} return codecs shared by the whole application;
+ * construct a codec to use another {@link JsonFactory}, for example from {@link SmileMappers#newSmileFactory()}.
+ */
+public final class AdmCodec {
+    /**
+     * The shapes of the serialized model.
+     */
+    public enum Shape {
+        /**
+         * Json objects, as from {@link AnnotatedDataModelModule}.
+         */
+        PLAIN,
+        /**
+         * Json arrays, as from {@link AnnotatedDataModelArrayModule}.
+         */
+        ARRAY
+    }
+
+    private final Shape shape;
+    private final ObjectMapper mapper;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+    private final ObjectReader quietReader;
+    private final ObjectWriter quietWriter;
+    private volatile boolean warm;
+    private volatile AnnotatedTextEventReader eventReader;
+
+    /**
+     * Construct a codec for Json text.
+     * @param shape the shape.
+     */
+    public AdmCodec(Shape shape) {
+        this(shape, new JsonFactory());
+    }
+
+    /**
+     * Construct a codec for another format.
+     * @param shape the shape.
+     * @param factory the factory for the format. The codec's mapper takes ownership of it.
+     */
+    public AdmCodec(Shape shape, JsonFactory factory) {
+        this(shape, factory, null);
+    }
+
+    /**
+     * Construct a codec that reports the size and time of each document that it reads and writes, and of each
+     * attribute that it writes.
+     * @param shape the shape.
+     * @param factory the factory for the format. The codec's mapper takes ownership of it.
+     * @param listener the listener, or {@code null} for none.
+     */
+    public AdmCodec(Shape shape, JsonFactory factory, SerializationListener listener) {
+        this.shape = shape;
+        if (shape == Shape.ARRAY) {
+            mapper = AnnotatedDataModelArrayModule.setupObjectMapper(new ObjectMapper(factory), listener);
+        } else {
+            mapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper(factory), listener);
+        }
+        reader = mapper.readerFor(AnnotatedText.class);
+        writer = mapper.writerFor(AnnotatedText.class);
+        quietReader = reader.withAttribute(SerializationMetrics.UNMETERED, Boolean.TRUE);
+        quietWriter = writer.withAttribute(SerializationMetrics.UNMETERED, Boolean.TRUE);
+    }
+
+    private static class PlainHolder {
+        static final AdmCodec CODEC = new AdmCodec(Shape.PLAIN);
+    }
+
+    private static class ArrayHolder {
+        static final AdmCodec CODEC = new AdmCodec(Shape.ARRAY);
+    }
+
+    /**
+     * @return the shared codec for the plain shape in Json text.
+     */
+    public static AdmCodec plain() {
+        return PlainHolder.CODEC;
+    }
+
+    /**
+     * @return the shared codec for the array shape in Json text.
+     */
+    public static AdmCodec array() {
+        return ArrayHolder.CODEC;
+    }
+
+    /**
+     * @return the shape that this codec reads and writes.
+     */
+    public Shape getShape() {
+        return shape;
+    }
+
+    /**
+     * @return the name of the format, from {@link JsonFactory#getFormatName()}, such as {@code JSON} or {@code Smile}.
+     */
+    public String getFormatName() {
+        return mapper.getFactory().getFormatName();
+    }
+
+    ObjectMapper mapper() {
+        return mapper;
+    }
+
+    /**
+     * Start writing a document piece by piece. See {@link AnnotatedTextStreamWriter}.
+     * @param output where to write.
+     * @return the writer.
+     * @throws IOException for errors creating the generator.
+     */
+    public AnnotatedTextStreamWriter streamWriter(OutputStream output) throws IOException {
+        return new AnnotatedTextStreamWriter(this, output);
+    }
+
+    /**
+     * Start reading a document from chunks of input. See {@link AnnotatedTextFeedReader}.
+     * @param maxBytes the longest document to accept.
+     * @return the reader.
+     * @throws IOException for errors creating the parser.
+     */
+    public AnnotatedTextFeedReader feedReader(long maxBytes) throws IOException {
+        return new AnnotatedTextFeedReader(this, maxBytes);
+    }
+
+    /**
+     * @return a reader that reports documents to an {@link AnnotatedTextVisitor}. See {@link AnnotatedTextEventReader}.
+     */
+    public AnnotatedTextEventReader eventReader() {
+        AnnotatedTextEventReader result = eventReader;
+        if (result == null) {
+            // a race just builds an equivalent reader.
+            result = new AnnotatedTextEventReader(this);
+            eventReader = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return a reader for {@link AnnotatedText}. Reconfigure it with its {@code with} methods.
+     */
+    public ObjectReader reader() {
+        return reader;
+    }
+
+    /**
+     * @return a writer for {@link AnnotatedText}. Reconfigure it with its {@code with} methods.
+     */
+    public ObjectWriter writer() {
+        return writer;
+    }
+
+    /**
+     * Returns a reader for some other part of the model, such as a single attribute.
+     * @param type the type to read.
+     * @return the reader.
+     */
+    public ObjectReader readerFor(Class<?> type) {
+        return mapper.readerFor(type);
+    }
+
+    /**
+     * Returns a writer for some other part of the model, such as a single attribute.
+     * @param type the type to write.
+     * @return the writer.
+     */
+    public ObjectWriter writerFor(Class<?> type) {
+        return mapper.writerFor(type);
+    }
+
+    /**
+     * Read a document.
+     * @param bytes the serialized document, all of it.
+     * @return the document.
+     * @throws IOException for malformed input, or input that is not a document in this codec's shape.
+     */
+    public AnnotatedText read(byte[] bytes) throws IOException {
+        return reader.readValue(bytes);
+    }
+
+    /**
+     * Read a document from a stream. As with an {@link ObjectReader}, the stream is closed afterwards, unless the
+     * factory disables {@link com.fasterxml.jackson.core.JsonParser.Feature#AUTO_CLOSE_SOURCE}.
+     * @param input the stream.
+     * @return the document.
+     * @throws IOException for errors reading the stream, malformed input, or input that is not a document in
+     * this codec's shape.
+     */
+    public AnnotatedText read(InputStream input) throws IOException {
+        return reader.readValue(input);
+    }
+
+    /**
+     * Read a document from text. This only makes sense for a text format such as Json.
+     * @param content the serialized document.
+     * @return the document.
+     * @throws IOException for malformed input, or input that is not a document in this codec's shape.
+     */
+    public AnnotatedText read(String content) throws IOException {
+        return reader.readValue(content);
+    }
+
+    /**
+     * Write a document.
+     * @param text the document.
+     * @return its serialized form.
+     * @throws IOException if the serializers fail.
+     */
+    public byte[] writeValueAsBytes(AnnotatedText text) throws IOException {
+        return writer.writeValueAsBytes(text);
+    }
+
+    /**
+     * Write a document as text. This only makes sense for a text format such as Json.
+     * @param text the document.
+     * @return its serialized form.
+     * @throws IOException if the serializers fail.
+     */
+    public String writeValueAsString(AnnotatedText text) throws IOException {
+        return writer.writeValueAsString(text);
+    }
+
+    /**
+     * Write a document to a stream. As with an {@link ObjectWriter}, the stream is closed afterwards, unless the
+     * factory disables {@link com.fasterxml.jackson.core.JsonGenerator.Feature#AUTO_CLOSE_TARGET}.
+     * @param output the stream.
+     * @param text the document.
+     * @throws IOException for errors writing the stream, or if the serializers fail.
+     */
+    public void write(OutputStream output, AnnotatedText text) throws IOException {
+        writer.writeValue(output, text);
+    }
+
+    /**
+     * Compute the size of a document, exactly as {@link #writeValueAsBytes(AnnotatedText)} or
+     * {@link #write(OutputStream, AnnotatedText)} would write it, without writing it, for batching
+     * documents under a size limit or sizing buffers. For Json, this goes through the serializers with a
+     * generator that only adds up how many bytes each value takes, so it allocates no output buffers and
+     * does not encode anything. For Smile and CBOR, and for factories with {@link com.fasterxml.jackson.core.io.CharacterEscapes},
+     * it writes the document to a stream that counts and discards the bytes.
+     * <br>
+     * The {@link SerializationListener}, if any, does not see the document.
+     * @param text the document.
+     * @return its size in bytes.
+     * @throws IOException if the serializers fail.
+     */
+    public long estimateSize(AnnotatedText text) throws IOException {
+        JsonFactory factory = mapper.getFactory();
+        if (JsonFactory.FORMAT_NAME_JSON.equals(factory.getFormatName())
+            && factory.getCharacterEscapes() == null
+            && SerializationMetrics.isNeutral(factory.getOutputDecorator())) {
+            SizeCountingGenerator generator = SizeCountingGenerator.create(factory);
+            quietWriter.writeValue(generator, text);
+            return generator.getSize();
+        }
+        CountingOutputStream counted = new CountingOutputStream(ByteStreams.nullOutputStream());
+        quietWriter.writeValue(counted, text);
+        return counted.getCount();
+    }
+
+    /**
+     * Build the serializers and deserializers for {@link AnnotatedText}, all of the {@link KnownAttribute}
+     * classes and lists of them, and then write and read a small document to build the ones that Jackson
+     * only finds when it sees values. Later calls do nothing.
+     * @return this, for convenience.
+     */
+    public AdmCodec warmUp() {
+        if (warm) {
+            return this;
+        }
+        synchronized (this) {
+            if (!warm) {
+                for (KnownAttribute attribute : KnownAttribute.values()) {
+                    mapper.readerFor(attribute.attributeClass());
+                    mapper.writerFor(attribute.attributeClass());
+                    JavaType listType = mapper.getTypeFactory().constructParametricType(ListAttribute.class, attribute.attributeClass());
+                    mapper.readerFor(listType);
+                    mapper.writerFor(listType);
+                }
+                try {
+                    // unmetered, so that the listener does not see it.
+                    quietReader.readValue(quietWriter.writeValueAsBytes(warmUpDocument()));
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to round-trip the warm up document", e);
+                }
+                warm = true;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return whether {@link #warmUp()} has run.
+     */
+    public boolean isWarm() {
+        return warm;
+    }
+
+    private static AnnotatedText warmUpDocument() {
+        //             01234567
+        String data = "Warm up.";
+        ListAttribute.Builder<Token> tokens = new ListAttribute.Builder<>(Token.class);
+        tokens.add(new Token.Builder(0, 4, "Warm").build());
+        tokens.add(new Token.Builder(5, 7, "up").build());
+        tokens.add(new Token.Builder(7, 8, ".").build());
+        ListAttribute.Builder<Sentence> sentences = new ListAttribute.Builder<>(Sentence.class);
+        sentences.add(new Sentence.Builder(0, 8).build());
+        ListAttribute.Builder<Entity> entities = new ListAttribute.Builder<>(Entity.class);
+        entities.add(new Entity.Builder().mention(new Mention.Builder(0, 4).build()).confidence(0.5).build());
+        LanguageDetection.DetectionResult detection = new LanguageDetection.DetectionResult.Builder(LanguageCode.ENGLISH)
+            .script(ISO15924.Latn).confidence(1.0).build();
+        return new AnnotatedText.Builder().data(data)
+            .tokens(tokens.build())
+            .sentences(sentences.build())
+            .entities(entities.build())
+            .wholeDocumentLanguageDetection(new LanguageDetection.Builder(0, 8, ImmutableList.of(detection)).build())
+            .build();
+    }
+}
@@ -55,9 +55,19 @@ import com.fasterxml.jackson.databind.module.SimpleSerializers;
  * annotated data model.
  */
 public class  AnnotatedDataModelModule extends EnumModule {
+    private final SerializationListener listener;
 
     public AnnotatedDataModelModule() {
+        this(null);
+    }
+
+    /**
+     * Construct a module that reports what it writes.
+     * @param listener the listener, or {@code null} for none.
+     */
+    public AnnotatedDataModelModule(SerializationListener listener) {
         super();
+        this.listener = listener;
     }
 
     @SuppressWarnings("deprecation")
@@ -102,6 +112,12 @@ public class  AnnotatedDataModelModule extends EnumModule {
         // All doubles are serialized by DoubleSerializer
         serializers.addSerializer(new DoubleSerializer());
         context.addSerializers(serializers);
+        // modifiers added later wrap the serializer first, so metering goes first to see copied documents too.
+        if (listener != null) {
+            SerializationMetrics.setupModule(context, listener, AdmCodec.Shape.PLAIN);
+        }
+        // documents from LazyAnnotatedTextReader are written by copying their Json.
+        context.addBeanSerializerModifier(new PassThroughSerializer.Modifier());
     }
 
     /**
@@ -110,8 +126,19 @@ public class  AnnotatedDataModelModule extends EnumModule {
      * @return the same mapper, for convenience.
      */
     public static ObjectMapper setupObjectMapper(ObjectMapper mapper) {
+        return setupObjectMapper(mapper, null);
+    }
+
+    /**
+     * Register the Annotated Data Model Jackson module on an {@link ObjectMapper},
+     * reporting the size and time of what it writes.
+     * @param mapper the mapper.
+     * @param listener the listener, or {@code null} for none.
+     * @return the same mapper, for convenience.
+     */
+    public static ObjectMapper setupObjectMapper(ObjectMapper mapper, SerializationListener listener) {
         mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-        final AnnotatedDataModelModule module = new AnnotatedDataModelModule();
+        final AnnotatedDataModelModule module = new AnnotatedDataModelModule(listener);
         module.addSerializer(Double.class, new DoubleSerializer());
         mapper.registerModule(module);
 
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.basistech.rosette.dm.BaseAttribute;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.annotation.JsonAppend;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonTypeIdResolver;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The difference between two versions of an {@link com.basistech.rosette.dm.AnnotatedText}: the
+ * attributes and document metadata that were added, replaced or removed, and the data if it changed.
+ * The base version is identified by its content hash, from {@link AnnotatedTextDeltaCodec#hash}.
+ * Deltas are created and applied by {@link AnnotatedTextDeltaCodec}, and serialized by a mapper
+ * set up by {@link AnnotatedDataModelModule}, with the attributes in the same form as in a document.
+ */
+@JsonAppend(prepend = true, props = { @JsonAppend.Prop(value = VersionProperty.class, name = "version")})
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public final class AnnotatedTextDelta {
+    private final String baseHash;
+    private final String data;
+    private final Map<String, BaseAttribute> attributes;
+    private final List<String> removedAttributes;
+    private final Map<String, List<String>> documentMetadata;
+    private final List<String> removedDocumentMetadata;
+
+    @JsonCreator
+    AnnotatedTextDelta(@JsonProperty("baseHash") String baseHash,
+                       @JsonProperty("data") String data,
+                       @JsonProperty("attributes")
+                       @JsonTypeInfo(use = JsonTypeInfo.Id.CUSTOM, include = JsonTypeInfo.As.PROPERTY, property = "type")
+                       @JsonTypeIdResolver(DmTypeIdResolver.class)
+                       Map<String, BaseAttribute> attributes,
+                       @JsonProperty("removedAttributes") List<String> removedAttributes,
+                       @JsonProperty("documentMetadata") Map<String, List<String>> documentMetadata,
+                       @JsonProperty("removedDocumentMetadata") List<String> removedDocumentMetadata,
+                       @JsonProperty("version")
+                       @JsonDeserialize(using = VersionCheckDeserializer.class)
+                       String version) {
+        if (baseHash == null) {
+            throw new IllegalArgumentException("A delta needs the hash of its base");
+        }
+        this.baseHash = baseHash;
+        this.data = data;
+        this.attributes = attributes == null ? ImmutableMap.<String, BaseAttribute>of() : ImmutableMap.copyOf(attributes);
+        this.removedAttributes = removedAttributes == null ? ImmutableList.<String>of() : ImmutableList.copyOf(removedAttributes);
+        this.documentMetadata = documentMetadata == null ? ImmutableMap.<String, List<String>>of() : ImmutableMap.copyOf(documentMetadata);
+        this.removedDocumentMetadata = removedDocumentMetadata == null ? ImmutableList.<String>of() : ImmutableList.copyOf(removedDocumentMetadata);
+    }
+
+    /**
+     * Returns the content hash of the base document.
+     * @return the hash.
+     */
+    @JsonProperty
+    public String getBaseHash() {
+        return baseHash;
+    }
+
+    /**
+     * Returns the new data, if it changed.
+     * @return the data, or null if it is the same as in the base.
+     */
+    @JsonProperty
+    public String getData() {
+        return data;
+    }
+
+    /**
+     * Returns the attributes that were added or replaced.
+     * @return the attributes.
+     */
+    @JsonProperty
+    @JsonTypeInfo(use = JsonTypeInfo.Id.CUSTOM, include = JsonTypeInfo.As.PROPERTY, property = "type")
+    @JsonTypeIdResolver(DmTypeIdResolver.class)
+    public Map<String, BaseAttribute> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Returns the keys of the attributes that were removed.
+     * @return the keys.
+     */
+    @JsonProperty
+    public List<String> getRemovedAttributes() {
+        return removedAttributes;
+    }
+
+    /**
+     * Returns the document metadata that was added or replaced.
+     * @return the metadata.
+     */
+    @JsonProperty
+    public Map<String, List<String>> getDocumentMetadata() {
+        return documentMetadata;
+    }
+
+    /**
+     * Returns the keys of the document metadata that was removed.
+     * @return the keys.
+     */
+    @JsonProperty
+    public List<String> getRemovedDocumentMetadata() {
+        return removedDocumentMetadata;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.BaseAttribute;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates, writes, reads and applies {@link AnnotatedTextDelta}s. A pipeline stage that receives a document
+ * and adds a few attributes can send just those attributes, as a delta, to a consumer that already
+ * has the document, instead of sending the whole document again.
+ * <br>
+ * The base document is identified by a SHA-256 hash of its canonical Json: the Json written by
+ * {@link AnnotatedDataModelModule} with map entries in key order. Since doubles are rounded when
+ * they are written, a document and the result of reading its Json have the same hash. Computing the hash
+ * costs about as much as serializing the document; applications that send many deltas against one base
+ * should compute it once with {@link #hash(AnnotatedText)} and pass it in.
+ * <br>
+ * Attributes are compared by identity, and then by equality, including extended properties. A stage that
+ * builds its output with {@link AnnotatedText.Builder#Builder(AnnotatedText)} keeps the base's attribute
+ * objects, so the comparison is cheap. Instances are thread-safe.
+ */
+public final class AnnotatedTextDeltaCodec {
+    private final ObjectWriter canonicalWriter;
+    private final ObjectWriter deltaWriter;
+    private final ObjectReader deltaReader;
+
+    /**
+     * Create a codec.
+     * @param mapper a mapper set up by {@link AnnotatedDataModelModule#setupObjectMapper(ObjectMapper)}.
+     */
+    public AnnotatedTextDeltaCodec(ObjectMapper mapper) {
+        this.canonicalWriter = mapper.writerFor(AnnotatedText.class)
+            .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .without(SerializationFeature.INDENT_OUTPUT);
+        this.deltaWriter = mapper.writerFor(AnnotatedTextDelta.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.deltaReader = mapper.readerFor(AnnotatedTextDelta.class);
+    }
+
+    /**
+     * Compute the content hash of a document.
+     * @param text the document.
+     * @return the hash, in hex.
+     * @throws IOException if the document cannot be serialized.
+     */
+    public String hash(AnnotatedText text) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        canonicalWriter.writeValue(new DigestOutputStream(ByteStreams.nullOutputStream(), digest), text);
+        return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    }
+
+    /**
+     * Compute the delta from one version of a document to another.
+     * @param base the base version.
+     * @param current the new version.
+     * @return the delta.
+     * @throws IOException if the base cannot be serialized to compute its hash.
+     */
+    public AnnotatedTextDelta diff(AnnotatedText base, AnnotatedText current) throws IOException {
+        return diff(hash(base), base, current);
+    }
+
+    /**
+     * Compute the delta from one version of a document to another.
+     * @param baseHash the hash of the base version, from {@link #hash(AnnotatedText)}.
+     * @param base the base version.
+     * @param current the new version.
+     * @return the delta.
+     */
+    public AnnotatedTextDelta diff(String baseHash, AnnotatedText base, AnnotatedText current) {
+        String data = null;
+        if (!contentEquals(base.getData(), current.getData())) {
+            if (current.getData() == null) {
+                throw new IllegalArgumentException("A delta cannot remove the data");
+            }
+            data = current.getData().toString();
+        }
+
+        Map<String, BaseAttribute> attributes = Maps.newLinkedHashMap();
+        for (Map.Entry<String, BaseAttribute> me : current.getAttributes().entrySet()) {
+            if (!unchanged(base.getAttributes().get(me.getKey()), me.getValue())) {
+                attributes.put(me.getKey(), me.getValue());
+            }
+        }
+        List<String> removedAttributes = Lists.newArrayList();
+        for (String key : base.getAttributes().keySet()) {
+            if (!current.getAttributes().containsKey(key)) {
+                removedAttributes.add(key);
+            }
+        }
+
+        Map<String, List<String>> documentMetadata = Maps.newLinkedHashMap();
+        for (Map.Entry<String, List<String>> me : current.getDocumentMetadata().entrySet()) {
+            if (!me.getValue().equals(base.getDocumentMetadata().get(me.getKey()))) {
+                documentMetadata.put(me.getKey(), me.getValue());
+            }
+        }
+        List<String> removedDocumentMetadata = Lists.newArrayList();
+        for (String key : base.getDocumentMetadata().keySet()) {
+            if (!current.getDocumentMetadata().containsKey(key)) {
+                removedDocumentMetadata.add(key);
+            }
+        }
+        return new AnnotatedTextDelta(baseHash, data, attributes, removedAttributes, documentMetadata, removedDocumentMetadata, null);
+    }
+
+    private static boolean contentEquals(CharSequence a, CharSequence b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        if (a.length() != b.length()) {
+            return false;
+        }
+        for (int x = 0; x < a.length(); x++) {
+            if (a.charAt(x) != b.charAt(x)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* ListAttribute.equals only compares the items, so compare the extended properties as well. */
+    private static boolean unchanged(BaseAttribute base, BaseAttribute current) {
+        return base == current
+            || (base != null && base.equals(current) && base.getExtendedProperties().equals(current.getExtendedProperties()));
+    }
+
+    /**
+     * Reconstruct the new version of a document from its base and a delta.
+     * @param base the base version.
+     * @param delta the delta.
+     * @return the new version.
+     * @throws IOException if the base cannot be serialized to compute its hash.
+     * @throws IllegalArgumentException if the delta was computed from a different base.
+     */
+    public AnnotatedText apply(AnnotatedText base, AnnotatedTextDelta delta) throws IOException {
+        return apply(hash(base), base, delta);
+    }
+
+    /**
+     * Reconstruct the new version of a document from its base and a delta.
+     * @param baseHash the hash of the base version, from {@link #hash(AnnotatedText)}.
+     * @param base the base version.
+     * @param delta the delta.
+     * @return the new version.
+     * @throws IllegalArgumentException if the delta was computed from a different base.
+     */
+    public AnnotatedText apply(String baseHash, AnnotatedText base, AnnotatedTextDelta delta) {
+        if (!baseHash.equals(delta.getBaseHash())) {
+            throw new IllegalArgumentException(String.format("The delta is for base %s, not %s", delta.getBaseHash(), baseHash));
+        }
+        AnnotatedText.Builder builder = new AnnotatedText.Builder(base);
+        if (delta.getData() != null) {
+            builder.data(delta.getData());
+        }
+        for (String key : delta.getRemovedAttributes()) {
+            builder.attributes().remove(key);
+        }
+        builder.attributes().putAll(delta.getAttributes());
+        for (String key : delta.getRemovedDocumentMetadata()) {
+            builder.documentMetadata().remove(key);
+        }
+        builder.documentMetadata(delta.getDocumentMetadata());
+        return builder.build();
+    }
+
+    /**
+     * Write a delta as Json.
+     * @param delta the delta.
+     * @param output the stream. It is not closed.
+     * @throws IOException on error writing.
+     */
+    public void write(AnnotatedTextDelta delta, OutputStream output) throws IOException {
+        deltaWriter.writeValue(output, delta);
+    }
+
+    /**
+     * Write a delta as Json.
+     * @param delta the delta.
+     * @return the Json.
+     * @throws IOException on error writing.
+     */
+    public byte[] writeValueAsBytes(AnnotatedTextDelta delta) throws IOException {
+        return deltaWriter.writeValueAsBytes(delta);
+    }
+
+    /**
+     * Read a delta.
+     * @param json the Json.
+     * @return the delta.
+     * @throws IOException on error reading, or if the Json is not a delta.
+     */
+    public AnnotatedTextDelta read(byte[] json) throws IOException {
+        return deltaReader.readValue(json);
+    }
+
+    /**
+     * Read a delta.
+     * @param input a stream of Json.
+     * @return the delta.
+     * @throws IOException on error reading, or if the Json is not a delta.
+     */
+    public AnnotatedTextDelta read(InputStream input) throws IOException {
+        return deltaReader.readValue(input);
+    }
+}
@@ -0,0 +1,574 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.basistech.rosette.dm.ArabicMorphoAnalysis;
+import com.basistech.rosette.dm.Entity;
+import com.basistech.rosette.dm.HanMorphoAnalysis;
+import com.basistech.rosette.dm.KoreanMorphoAnalysis;
+import com.basistech.rosette.dm.Mention;
+import com.basistech.rosette.dm.MorphoAnalysis;
+import com.basistech.rosette.dm.Sentence;
+import com.basistech.rosette.dm.Token;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.common.collect.Lists;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads {@link com.basistech.rosette.dm.AnnotatedText} Json, in either shape, and reports what it finds to an
+ * {@link AnnotatedTextVisitor} without building the model. Tokens, sentences and entities are reported with
+ * primitive values and reusable views, so reading a document allocates next to nothing per item. Attributes
+ * other than tokens, sentences and entities are skipped, as are the parts of those items that the visitor
+ * does not report.
+ * <pre>
+ * AdmCodec.plain().eventReader().read(input, new AnnotatedTextVisitor() {
+ *     public void onEntity(int index, EntityView entity) {
+ *         ...
+ *     }
+ * });
+ * </pre>
+ * In the array shape, the position of each property comes from the codec's own serializers, so the reader
+ * always agrees with the writer. Readers are thread-safe.
+ */
+public final class AnnotatedTextEventReader {
+    // in order of the ordinals written by the array shape for the types of analyses.
+    private static final Class<?>[] ANALYSIS_CLASSES = {
+        MorphoAnalysis.class, HanMorphoAnalysis.class, KoreanMorphoAnalysis.class, ArabicMorphoAnalysis.class
+    };
+
+    private final AdmCodec codec;
+    private final boolean array;
+    private final String[] tokenProperties;
+    private final String[] sentenceProperties;
+    private final String[] entityProperties;
+    private final String[] mentionProperties;
+    private final String[][] analysisProperties;
+
+    AnnotatedTextEventReader(AdmCodec codec) {
+        this.codec = codec;
+        this.array = codec.getShape() == AdmCodec.Shape.ARRAY;
+        if (array) {
+            SerializerProvider provider = codec.mapper().getSerializerProviderInstance();
+            tokenProperties = propertyNames(provider, Token.class);
+            sentenceProperties = propertyNames(provider, Sentence.class);
+            entityProperties = propertyNames(provider, Entity.class);
+            mentionProperties = propertyNames(provider, Mention.class);
+            analysisProperties = new String[ANALYSIS_CLASSES.length][];
+            for (int x = 0; x < ANALYSIS_CLASSES.length; x++) {
+                analysisProperties[x] = propertyNames(provider, ANALYSIS_CLASSES[x]);
+            }
+        } else {
+            tokenProperties = null;
+            sentenceProperties = null;
+            entityProperties = null;
+            mentionProperties = null;
+            analysisProperties = null;
+        }
+    }
+
+    /* The properties of a class in the order that the array shape writes them. */
+    private static String[] propertyNames(SerializerProvider provider, Class<?> type) {
+        JsonSerializer<Object> serializer;
+        try {
+            serializer = provider.findValueSerializer(type, null);
+        } catch (JsonMappingException e) {
+            throw new IllegalStateException("No serializer for " + type.getName(), e);
+        }
+        List<String> names = Lists.newArrayList();
+        Iterator<PropertyWriter> properties = serializer.properties();
+        while (properties.hasNext()) {
+            names.add(properties.next().getName());
+        }
+        return names.toArray(new String[names.size()]);
+    }
+
+    /**
+     * Read a document.
+     * @param input the input; it is not closed.
+     * @param visitor the visitor.
+     * @throws IOException for errors reading or malformed input.
+     */
+    public void read(InputStream input, AnnotatedTextVisitor visitor) throws IOException {
+        try (JsonParser parser = codec.mapper().getFactory().createParser(input)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            read(parser, visitor);
+        }
+    }
+
+    /**
+     * Read a document.
+     * @param bytes the document.
+     * @param visitor the visitor.
+     * @throws IOException for malformed input.
+     */
+    public void read(byte[] bytes, AnnotatedTextVisitor visitor) throws IOException {
+        try (JsonParser parser = codec.mapper().getFactory().createParser(bytes)) {
+            read(parser, visitor);
+        }
+    }
+
+    /**
+     * Read a document from a parser. The parser is left on the end of the document.
+     * @param parser the parser, before or at the start of the document.
+     * @param visitor the visitor.
+     * @throws IOException for errors reading or malformed input.
+     */
+    public void read(JsonParser parser, AnnotatedTextVisitor visitor) throws IOException {
+        if (parser.getCurrentToken() == null) {
+            parser.nextToken();
+        }
+        new Walk(parser, visitor).document();
+    }
+
+    /* The state of reading one document. */
+    private final class Walk {
+        private final JsonParser parser;
+        private final AnnotatedTextVisitor visitor;
+        private final TextView text = new TextView();
+        private final TextView partOfSpeech = new TextView();
+        private final TextView lemma = new TextView();
+        private final EntityView entity = new EntityView();
+        private int startOffset;
+        private int endOffset;
+        private boolean hasText;
+        private boolean hasPartOfSpeech;
+        private boolean hasLemma;
+
+        Walk(JsonParser parser, AnnotatedTextVisitor visitor) {
+            this.parser = parser;
+            this.visitor = visitor;
+        }
+
+        void document() throws IOException {
+            if (array) {
+                expect(JsonToken.START_ARRAY);
+                // [data, {attributes}, {metadata}, transliteration, version]
+                int position = 0;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    switch (position++) {
+                    case 0:
+                        data();
+                        break;
+                    case 1:
+                        attributes();
+                        break;
+                    case 2:
+                        documentMetadata();
+                        break;
+                    case 4:
+                        version();
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                    }
+                }
+            } else {
+                expect(JsonToken.START_OBJECT);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    switch (name) {
+                    case "version":
+                        version();
+                        break;
+                    case "data":
+                        data();
+                        break;
+                    case "attributes":
+                        attributes();
+                        break;
+                    case "documentMetadata":
+                        documentMetadata();
+                        break;
+                    default:
+                        parser.skipChildren();
+                        break;
+                    }
+                }
+            }
+            visitor.onEnd();
+        }
+
+        private void version() throws IOException {
+            if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+                return;
+            }
+            expect(JsonToken.VALUE_STRING);
+            String problem = VersionCheckDeserializer.checkVersion(parser.getText());
+            if (problem != null) {
+                throw new JsonParseException(parser, problem);
+            }
+        }
+
+        private void data() throws IOException {
+            if (parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+                visitor.onData(text.set(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        private void documentMetadata() throws IOException {
+            if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.getCurrentName();
+                parser.nextToken();
+                List<String> values = Lists.newArrayList();
+                if (parser.getCurrentToken() == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        values.add(parser.getValueAsString());
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+                visitor.onDocumentMetadata(key, values);
+            }
+        }
+
+        private void attributes() throws IOException {
+            if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                return;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.getCurrentName();
+                parser.nextToken();
+                if (!visitor.visitAttribute(key)) {
+                    parser.skipChildren();
+                } else if (array) {
+                    arrayAttribute(key);
+                } else {
+                    plainAttribute(key);
+                }
+            }
+        }
+
+        /* {"type": "list", "itemType": "token", "items": [...], ...} */
+        private void plainAttribute(String key) throws IOException {
+            expect(JsonToken.START_OBJECT);
+            boolean typed = false;
+            boolean list = false;
+            String itemType = null;
+            TokenBuffer earlyItems = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                if ("type".equals(name)) {
+                    typed = true;
+                    list = "list".equals(parser.getText());
+                } else if ("itemType".equals(name)) {
+                    itemType = parser.getText();
+                } else if ("items".equals(name) && list) {
+                    // the writer puts the types first; fall back on the key, which is the same for known lists.
+                    items(itemType != null ? itemType : key);
+                } else if ("items".equals(name) && !typed) {
+                    // some other writer put the items first; keep them until the type says what they are.
+                    earlyItems = new TokenBuffer(parser);
+                    earlyItems.copyCurrentStructure(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (earlyItems != null && list) {
+                try (JsonParser buffered = earlyItems.asParser()) {
+                    buffered.nextToken();
+                    new Walk(buffered, visitor).items(itemType != null ? itemType : key);
+                }
+            }
+        }
+
+        /* [typeId, value]; a list value is [itemType, [items], {extendedProperties}]. */
+        private void arrayAttribute(String key) throws IOException {
+            expect(JsonToken.START_ARRAY);
+            parser.nextToken();
+            boolean list = "list".equals(parser.getText());
+            parser.nextToken();
+            if (list && parser.getCurrentToken() == JsonToken.START_ARRAY) {
+                parser.nextToken();
+                String itemType = parser.getText();
+                int position = 0;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (position++ == 0) {
+                        items(itemType);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                parser.skipChildren();
+            }
+        }
+
+        private void items(String itemType) throws IOException {
+            if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                return;
+            }
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (itemType) {
+                case "token":
+                    token(index);
+                    break;
+                case "sentence":
+                    sentence(index);
+                    break;
+                case "entities":
+                    entity(index);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+                }
+                index++;
+            }
+        }
+
+        private void token(int index) throws IOException {
+            startOffset = 0;
+            endOffset = 0;
+            hasText = false;
+            hasPartOfSpeech = false;
+            hasLemma = false;
+            if (array) {
+                expect(JsonToken.START_ARRAY);
+                int position = 0;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    tokenProperty(name(tokenProperties, position++));
+                }
+            } else {
+                expect(JsonToken.START_OBJECT);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    tokenProperty(name);
+                }
+            }
+            visitor.onToken(index, startOffset, endOffset, hasText ? text : null,
+                hasPartOfSpeech ? partOfSpeech : null, hasLemma ? lemma : null);
+        }
+
+        private void tokenProperty(String name) throws IOException {
+            switch (name) {
+            case "startOffset":
+                startOffset = parser.getIntValue();
+                break;
+            case "endOffset":
+                endOffset = parser.getIntValue();
+                break;
+            case "text":
+                hasText = string(text);
+                break;
+            case "analyses":
+                analyses();
+                break;
+            default:
+                parser.skipChildren();
+                break;
+            }
+        }
+
+        /* Only the first analysis is reported. */
+        private void analyses() throws IOException {
+            if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                return;
+            }
+            boolean first = true;
+            int type = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (array && parser.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+                    type = parser.getIntValue();
+                    if (type < 0 || type >= analysisProperties.length) {
+                        throw new JsonParseException(parser, "Unknown analysis type " + type);
+                    }
+                    continue;
+                }
+                if (!first) {
+                    parser.skipChildren();
+                    continue;
+                }
+                first = false;
+                if (array) {
+                    expect(JsonToken.START_ARRAY);
+                    int position = 0;
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        analysisProperty(name(analysisProperties[type], position++));
+                    }
+                } else {
+                    expect(JsonToken.START_OBJECT);
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String name = parser.getCurrentName();
+                        parser.nextToken();
+                        analysisProperty(name);
+                    }
+                }
+            }
+        }
+
+        private void analysisProperty(String name) throws IOException {
+            if ("partOfSpeech".equals(name)) {
+                hasPartOfSpeech = string(partOfSpeech);
+            } else if ("lemma".equals(name)) {
+                hasLemma = string(lemma);
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        private void sentence(int index) throws IOException {
+            startOffset = 0;
+            endOffset = 0;
+            if (array) {
+                expect(JsonToken.START_ARRAY);
+                int position = 0;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    offsetProperty(name(sentenceProperties, position++));
+                }
+            } else {
+                expect(JsonToken.START_OBJECT);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    offsetProperty(name);
+                }
+            }
+            visitor.onSentence(index, startOffset, endOffset);
+        }
+
+        /* offsets of sentences and mentions. */
+        private void offsetProperty(String name) throws IOException {
+            if ("startOffset".equals(name)) {
+                startOffset = parser.getIntValue();
+            } else if ("endOffset".equals(name)) {
+                endOffset = parser.getIntValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        private void entity(int index) throws IOException {
+            entity.reset();
+            if (array) {
+                expect(JsonToken.START_ARRAY);
+                int position = 0;
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    entityProperty(name(entityProperties, position++));
+                }
+            } else {
+                expect(JsonToken.START_OBJECT);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    entityProperty(name);
+                }
+            }
+            visitor.onEntity(index, entity);
+        }
+
+        private void entityProperty(String name) throws IOException {
+            if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+                return;
+            }
+            switch (name) {
+            case "type":
+                entity.type().set(parser);
+                break;
+            case "entityId":
+                entity.entityId().set(parser);
+                break;
+            case "confidence":
+                entity.confidence(parser.getDoubleValue());
+                break;
+            case "headMentionIndex":
+                entity.headMentionIndex(parser.getIntValue());
+                break;
+            case "mentions":
+                mentions();
+                break;
+            default:
+                parser.skipChildren();
+                break;
+            }
+        }
+
+        private void mentions() throws IOException {
+            expect(JsonToken.START_ARRAY);
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                startOffset = 0;
+                endOffset = 0;
+                if (array) {
+                    expect(JsonToken.START_ARRAY);
+                    int position = 0;
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        offsetProperty(name(mentionProperties, position++));
+                    }
+                } else {
+                    expect(JsonToken.START_OBJECT);
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String name = parser.getCurrentName();
+                        parser.nextToken();
+                        offsetProperty(name);
+                    }
+                }
+                entity.addMention(startOffset, endOffset);
+            }
+        }
+
+        /* copy a string value into a view; false for null. */
+        private boolean string(TextView view) throws IOException {
+            if (parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+                view.set(parser);
+                return true;
+            }
+            parser.skipChildren();
+            return false;
+        }
+
+        /* the name of an array position; values past the known properties are skipped. */
+        private String name(String[] names, int position) {
+            return position < names.length ? names[position] : "";
+        }
+
+        private void expect(JsonToken token) throws IOException {
+            if (parser.getCurrentToken() != token) {
+                throw new JsonParseException(parser, "Expected " + token + " but found " + parser.getCurrentToken());
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads one {@link AnnotatedText}, in either shape, from chunks of input as they arrive, for servers that
+ * read from non-blocking channels and do not want to hold the whole request. Each chunk is parsed as soon as
+ * it is fed, with Jackson's non-blocking parser, and the tokens are kept in a {@link TokenBuffer}; when the
+ * last chunk completes the document, it is deserialized from the tokens.
+ * <pre>
+ * AnnotatedTextFeedReader reader = AdmCodec.plain().feedReader(maxBytes);
+ * // for each read from the channel:
+ * buffer.flip();
+ * if (reader.feed(buffer)) {
+ *     AnnotatedText text = reader.getResult();
+ * }
+ * buffer.clear();
+ * </pre>
+ * The reader never holds the raw input: a heap buffer is parsed in place, and a direct buffer is copied a
+ * piece at a time through one small array. What it does hold, the parsed tokens, is limited by the maximum
+ * size passed to {@link AdmCodec#feedReader(long)}; a document longer than that fails as soon as it passes
+ * the limit, before it has used more memory. This needs a factory that supports non-blocking parsing,
+ * such as the ones for Json and Smile. Instances are for one document and are not thread-safe.
+ */
+public final class AnnotatedTextFeedReader implements Closeable {
+    private static final int COPY_SIZE = 8 * 1024;
+
+    private final AdmCodec codec;
+    private final long maxBytes;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final TokenBuffer tokens;
+    private byte[] copyBuffer;
+    private long byteCount;
+    private int depth;
+    private boolean complete;
+    private AnnotatedText result;
+
+    AnnotatedTextFeedReader(AdmCodec codec, long maxBytes) throws IOException {
+        JsonFactory factory = codec.mapper().getFactory();
+        if (!factory.canParseAsync()) {
+            throw new IllegalStateException(factory.getFormatName() + " does not support non-blocking parsing");
+        }
+        this.codec = codec;
+        this.maxBytes = maxBytes;
+        this.parser = factory.createNonBlockingByteArrayParser();
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        this.tokens = new TokenBuffer(codec.mapper(), false);
+    }
+
+    /**
+     * Parse a chunk of input. All of the remaining bytes of the buffer are consumed.
+     * @param chunk the chunk.
+     * @return whether the document is complete.
+     * @throws IOException for malformed input, input after the document, or a document over the maximum size.
+     */
+    public boolean feed(ByteBuffer chunk) throws IOException {
+        if (chunk.hasArray()) {
+            int start = chunk.arrayOffset() + chunk.position();
+            feed(chunk.array(), start, start + chunk.remaining());
+            // through Buffer, so that classes compiled on Java 9 or later still run on Java 8.
+            ((Buffer) chunk).position(chunk.limit());
+        } else {
+            if (copyBuffer == null) {
+                copyBuffer = new byte[COPY_SIZE];
+            }
+            while (chunk.hasRemaining()) {
+                int length = Math.min(chunk.remaining(), copyBuffer.length);
+                chunk.get(copyBuffer, 0, length);
+                feed(copyBuffer, 0, length);
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * Parse a chunk of input.
+     * @param bytes the bytes.
+     * @param start the start of the chunk in the bytes.
+     * @param end the end of the chunk in the bytes.
+     * @return whether the document is complete.
+     * @throws IOException for malformed input, input after the document, or a document over the maximum size.
+     */
+    public boolean feed(byte[] bytes, int start, int end) throws IOException {
+        if (start == end) {
+            return complete;
+        }
+        byteCount += end - start;
+        if (byteCount > maxBytes) {
+            throw new JsonParseException(parser, String.format("Document is longer than %d bytes", maxBytes));
+        }
+        feeder.feedInput(bytes, start, end);
+        // the parser keeps the array until it has used all of it; this reads every token it can.
+        readTokens();
+        return complete;
+    }
+
+    /* Read tokens until the parser needs more input, or, after the end of the input, until there are none. */
+    private void readTokens() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.NOT_AVAILABLE) {
+            if (token == null) {
+                break;
+            }
+            if (complete) {
+                throw new JsonParseException(parser, "Unexpected content after the document");
+            }
+            tokens.copyCurrentEvent(parser);
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            }
+            if (depth == 0) {
+                complete = true;
+            }
+        }
+    }
+
+    /**
+     * Signal the end of the input. The parser holds back a value at the end of its input, such as a number,
+     * until it knows that the value is over; this reads it, so that content after the document fails here.
+     * @throws IOException if the document is incomplete, or followed by other content.
+     */
+    public void endOfInput() throws IOException {
+        feeder.endOfInput();
+        readTokens();
+        if (!complete) {
+            throw new JsonParseException(parser, "Input ended before the end of the document");
+        }
+    }
+
+    /**
+     * Tell whether the input so far holds a whole document.
+     * @return whether the document is complete.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Deserialize the document. This is only possible once it is complete.
+     * @return the document.
+     * @throws IOException for errors deserializing the document.
+     */
+    public AnnotatedText getResult() throws IOException {
+        if (!complete) {
+            throw new IllegalStateException("The document is not complete");
+        }
+        if (result == null) {
+            try (JsonParser tokenParser = tokens.asParser(codec.mapper())) {
+                result = codec.reader().readValue(tokenParser);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the amount of input so far, as counted against the maximum size.
+     * @return the number of bytes fed so far.
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+        tokens.close();
+    }
+}
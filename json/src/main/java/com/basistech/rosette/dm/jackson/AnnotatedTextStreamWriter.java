@@ -0,0 +1,324 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.basistech.rosette.dm.BaseAttribute;
+import com.basistech.rosette.dm.ListAttribute;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.jsontype.impl.AsPropertyTypeSerializer;
+import com.google.common.collect.Maps;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes an {@link com.basistech.rosette.dm.AnnotatedText} a piece at a time, for documents too large to
+ * build in memory. The output is the same Json that the codec's mapper writes for the equivalent document,
+ * in either shape. Lists of items are written as they arrive, from an {@link Iterator} or by pushing them
+ * into a {@link ListWriter}, so a list of millions of tokens is never held in memory.
+ * <pre>
+ * try (AnnotatedTextStreamWriter writer = AdmCodec.plain().streamWriter(output)) {
+ *     writer.start(data);
+ *     try (AnnotatedTextStreamWriter.ListWriter&lt;Token&gt; tokens = writer.startList(KnownAttribute.TOKEN)) {
+ *         for (...) {
+ *             tokens.add(token);
+ *         }
+ *     }
+ *     writer.list(KnownAttribute.SENTENCE, sentenceIterator);
+ *     writer.attribute(KnownAttribute.LANGUAGE_DETECTION.key(), languageDetection);
+ * }
+ * </pre>
+ * The data comes first, then attributes in any order, one list at a time, then optionally the document
+ * metadata. {@link #close()} finishes the document and closes the output. Instances are not thread-safe.
+ */
+public final class AnnotatedTextStreamWriter implements Closeable {
+    private enum State { NEW, ATTRIBUTES, LIST, DONE }
+
+    private final AdmCodec.Shape shape;
+    private final JsonGenerator generator;
+    private final SerializerProvider provider;
+    private final DmTypeIdResolver resolver;
+    private State state;
+
+    AnnotatedTextStreamWriter(AdmCodec codec, OutputStream output) throws IOException {
+        this.shape = codec.getShape();
+        this.generator = codec.mapper().getFactory().createGenerator(output, JsonEncoding.UTF8);
+        this.provider = codec.mapper().getSerializerProviderInstance();
+        this.resolver = new DmTypeIdResolver();
+        this.state = State.NEW;
+    }
+
+    /**
+     * Start the document.
+     * @param data the text.
+     * @throws IOException for errors writing.
+     */
+    public void start(CharSequence data) throws IOException {
+        checkState(State.NEW);
+        if (shape == AdmCodec.Shape.ARRAY) {
+            generator.writeStartArray();
+        } else {
+            generator.writeStartObject();
+            generator.writeStringField("version", VersionProperty.VERSION);
+            generator.writeFieldName("data");
+        }
+        if (data == null) {
+            generator.writeNull();
+        } else {
+            generator.writeString(data.toString());
+        }
+        if (shape == AdmCodec.Shape.PLAIN) {
+            generator.writeFieldName("attributes");
+        }
+        generator.writeStartObject();
+        state = State.ATTRIBUTES;
+    }
+
+    /**
+     * Write a complete attribute, which may also be a list that is already built.
+     * @param key the attribute key, such as {@link KnownAttribute#key()}.
+     * @param value the attribute.
+     * @throws IOException for errors writing.
+     */
+    public void attribute(String key, BaseAttribute value) throws IOException {
+        checkState(State.ATTRIBUTES);
+        generator.writeFieldName(key);
+        if (shape == AdmCodec.Shape.ARRAY) {
+            // as TempAttributeMapSerializer.
+            generator.writeStartArray();
+            generator.writeString(resolver.idFromValue(value));
+            provider.defaultSerializeValue(value, generator);
+            generator.writeEndArray();
+        } else {
+            TypeSerializer typeSerializer = new AsPropertyTypeSerializer(resolver, null, "type");
+            JsonSerializer<Object> serializer = provider.findValueSerializer(value.getClass());
+            serializer.serializeWithType(value, generator, provider, typeSerializer);
+        }
+    }
+
+    /**
+     * Start a list for one of the known attributes.
+     * @param attribute the attribute; its key is the key, and its class is the class of the items.
+     * @param <T> the type of the items.
+     * @return a writer for the items. Close it before writing anything else.
+     * @throws IOException for errors writing.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends BaseAttribute> ListWriter<T> startList(KnownAttribute attribute) throws IOException {
+        return startList(attribute.key(), (Class<T>) attribute.attributeClass());
+    }
+
+    /**
+     * Start a list.
+     * @param key the attribute key.
+     * @param itemClass the class of the items; one of the {@link KnownAttribute} classes.
+     * @param <T> the type of the items.
+     * @return a writer for the items. Close it before writing anything else.
+     * @throws IOException for errors writing.
+     */
+    public <T extends BaseAttribute> ListWriter<T> startList(String key, Class<T> itemClass) throws IOException {
+        checkState(State.ATTRIBUTES);
+        KnownAttribute itemType = KnownAttribute.getAttributeForClass(itemClass);
+        if (itemType == null) {
+            throw new IllegalArgumentException("No item type for " + itemClass.getName());
+        }
+        generator.writeFieldName(key);
+        // as ListAttributeSerializer and ListAttributeArraySerializer.
+        if (shape == AdmCodec.Shape.ARRAY) {
+            generator.writeStartArray();
+            generator.writeString(KnownAttribute.LIST.key());
+            generator.writeStartArray();
+            generator.writeString(itemType.key());
+        } else {
+            generator.writeStartObject();
+            generator.writeStringField("type", KnownAttribute.LIST.key());
+            generator.writeStringField("itemType", itemType.key());
+            generator.writeFieldName("items");
+        }
+        generator.writeStartArray();
+        state = State.LIST;
+        return new ListWriter<>();
+    }
+
+    /**
+     * Write a list of one of the known attributes from an iterator.
+     * @param attribute the attribute.
+     * @param items the items.
+     * @throws IOException for errors writing.
+     */
+    public void list(KnownAttribute attribute, Iterator<? extends BaseAttribute> items) throws IOException {
+        try (ListWriter<BaseAttribute> list = startList(attribute)) {
+            list.addAll(items);
+        }
+    }
+
+    /**
+     * Write the document metadata. This ends the attributes.
+     * @param metadata the metadata.
+     * @throws IOException for errors writing.
+     */
+    public void documentMetadata(Map<String, List<String>> metadata) throws IOException {
+        checkState(State.ATTRIBUTES);
+        generator.writeEndObject();
+        if (shape == AdmCodec.Shape.PLAIN) {
+            generator.writeFieldName("documentMetadata");
+        }
+        provider.defaultSerializeValue(metadata, generator);
+        finish();
+    }
+
+    /**
+     * Finish the document, if it was started, and close the output. The output is closed even if this throws.
+     * @throws IOException for errors writing.
+     * @throws IllegalStateException if a list is still open; the document is left incomplete.
+     */
+    @Override
+    public void close() throws IOException {
+        boolean listOpen = state == State.LIST;
+        try {
+            if (state == State.ATTRIBUTES) {
+                documentMetadata(Maps.<String, List<String>>newHashMap());
+            }
+        } finally {
+            state = State.DONE;
+            if (listOpen) {
+                // do not let the generator close the open arrays and objects, which would look like a whole document.
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            }
+            generator.close();
+        }
+        if (listOpen) {
+            throw new IllegalStateException("A list is still open");
+        }
+    }
+
+    /**
+     * Flush what has been written so far to the output.
+     * @throws IOException for errors writing.
+     */
+    public void flush() throws IOException {
+        generator.flush();
+    }
+
+    private void finish() throws IOException {
+        if (shape == AdmCodec.Shape.ARRAY) {
+            // as AnnotatedTextArrayMixin: the (empty) transliteration, then the version.
+            generator.writeNull();
+            generator.writeString(VersionProperty.VERSION);
+            generator.writeEndArray();
+        } else {
+            generator.writeEndObject();
+        }
+        state = State.DONE;
+    }
+
+    private void checkState(State expected) {
+        if (state != expected) {
+            throw new IllegalStateException("Cannot do that while the writer is in state " + state);
+        }
+    }
+
+    /**
+     * Receives the items of one list. The items are written as they are added.
+     * @param <T> the type of the items.
+     */
+    public final class ListWriter<T extends BaseAttribute> implements Closeable {
+        private final Map<String, Object> extendedProperties = Maps.newLinkedHashMap();
+        private boolean closed;
+
+        private ListWriter() {
+            //
+        }
+
+        /**
+         * Write an item.
+         * @param item the item.
+         * @return this.
+         * @throws IOException for errors writing.
+         */
+        public ListWriter<T> add(T item) throws IOException {
+            if (closed) {
+                throw new IllegalStateException("The list is closed");
+            }
+            provider.defaultSerializeValue(item, generator);
+            return this;
+        }
+
+        /**
+         * Write all of the items from an iterator.
+         * @param items the items.
+         * @return this.
+         * @throws IOException for errors writing.
+         */
+        public ListWriter<T> addAll(Iterator<? extends T> items) throws IOException {
+            while (items.hasNext()) {
+                add(items.next());
+            }
+            return this;
+        }
+
+        /**
+         * Add an extended property to the list, as {@link ListAttribute.Builder#extendedProperty(String, Object)}.
+         * These are written after the items.
+         * @param key the key.
+         * @param value the value.
+         * @return this.
+         */
+        public ListWriter<T> extendedProperty(String key, Object value) {
+            extendedProperties.put(key, value);
+            return this;
+        }
+
+        /**
+         * End the list.
+         * @throws IOException for errors writing.
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            generator.writeEndArray();
+            if (shape == AdmCodec.Shape.ARRAY) {
+                generator.writeStartObject();
+                writeExtendedProperties();
+                generator.writeEndObject();
+                generator.writeEndArray();
+                generator.writeEndArray();
+            } else {
+                writeExtendedProperties();
+                generator.writeEndObject();
+            }
+            state = State.ATTRIBUTES;
+        }
+
+        private void writeExtendedProperties() throws IOException {
+            for (Map.Entry<String, Object> me : extendedProperties.entrySet()) {
+                provider.defaultSerializeField(me.getKey(), me.getValue(), generator);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import java.util.List;
+
+/**
+ * Callbacks from {@link AnnotatedTextEventReader}. The reader walks the Json of a document and calls these
+ * methods as it comes to each part, without building any of the model's objects. The methods here do
+ * nothing; override the ones of interest.
+ * <br>
+ * The {@link CharSequence} and {@link EntityView} arguments are reused for every call; they are only valid
+ * until the callback returns. Call {@code toString()} to keep a value.
+ */
+public abstract class AnnotatedTextVisitor {
+
+    /**
+     * The text of the document.
+     * @param data the text.
+     */
+    public void onData(CharSequence data) {
+        //
+    }
+
+    /**
+     * Called for each attribute before the reader reads it. Skipping an attribute, such as the tokens when
+     * only entities are of interest, is much faster than reading it.
+     * @param key the attribute key, such as {@link KnownAttribute#key()}.
+     * @return whether to read the attribute.
+     */
+    public boolean visitAttribute(String key) {
+        return true;
+    }
+
+    /**
+     * A token.
+     * @param index the index of the token in its list.
+     * @param startOffset the start offset.
+     * @param endOffset the end offset.
+     * @param text the text, or {@code null}.
+     * @param partOfSpeech the part of speech of the first analysis, or {@code null}.
+     * @param lemma the lemma of the first analysis, or {@code null}.
+     */
+    public void onToken(int index, int startOffset, int endOffset, CharSequence text, CharSequence partOfSpeech, CharSequence lemma) {
+        //
+    }
+
+    /**
+     * A sentence.
+     * @param index the index of the sentence in its list.
+     * @param startOffset the start offset.
+     * @param endOffset the end offset.
+     */
+    public void onSentence(int index, int startOffset, int endOffset) {
+        //
+    }
+
+    /**
+     * An entity.
+     * @param index the index of the entity in its list.
+     * @param entity a view of the entity.
+     */
+    public void onEntity(int index, EntityView entity) {
+        //
+    }
+
+    /**
+     * One item of document metadata.
+     * @param key the key.
+     * @param values the values.
+     */
+    public void onDocumentMetadata(String key, List<String> values) {
+        //
+    }
+
+    /**
+     * The end of the document.
+     */
+    public void onEnd() {
+        //
+    }
+}
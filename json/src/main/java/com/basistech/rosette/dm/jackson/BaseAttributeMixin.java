@@ -18,6 +18,7 @@ package com.basistech.rosette.dm.jackson;
 import com.fasterxml.jackson.annotation.JsonAnyGetter;
 import com.fasterxml.jackson.annotation.JsonAnySetter;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
 import java.util.Map;
 
@@ -30,6 +31,7 @@ public abstract class BaseAttributeMixin {
     public abstract Map<String, Object> getExtendedProperties();
 
     @JsonAnySetter
+    @JsonDeserialize(contentUsing = ExtendedPropertyDeserializer.class)
     public abstract void setExtendedProperty(String name, Object value);
 
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.basistech.rosette.dm.jackson.array.AnnotatedDataModelArrayModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+
+/**
+ * Supported setup for reading and writing the annotated data model as CBOR.
+ * The factory writes integers, which make up most of the model, in their smallest form, and leaves out
+ * the optional self-describe tag. Jackson's CBOR support has no equivalent of Smile's shared
+ * string values; for repetitive documents, {@link SmileMappers} is usually smaller.
+ * <br>
+ * This needs {@code com.fasterxml.jackson.dataformat:jackson-dataformat-cbor}, which is an optional
+ * dependency of this module.
+ */
+public final class CborMappers {
+    private CborMappers() {
+        //
+    }
+
+    /**
+     * Create a CBOR factory tuned for the model.
+     * @return the factory.
+     */
+    public static CBORFactory newCborFactory() {
+        CBORFactory factory = new CBORFactory();
+        factory.enable(CBORGenerator.Feature.WRITE_MINIMAL_INTS);
+        factory.disable(CBORGenerator.Feature.WRITE_TYPE_HEADER);
+        return factory;
+    }
+
+    /**
+     * Create a mapper for the plain form of the model in CBOR.
+     * See {@link AnnotatedDataModelModule#setupObjectMapper(ObjectMapper)}.
+     * @return the mapper.
+     */
+    public static ObjectMapper setupCborMapper() {
+        return AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper(newCborFactory()));
+    }
+
+    /**
+     * Create a mapper for the array form of the model in CBOR.
+     * See {@link AnnotatedDataModelArrayModule#setupObjectMapper(ObjectMapper)}.
+     * @return the mapper.
+     */
+    public static ObjectMapper setupCborArrayMapper() {
+        return AnnotatedDataModelArrayModule.setupObjectMapper(new ObjectMapper(newCborFactory()));
+    }
+}
@@ -18,27 +18,44 @@
 package com.basistech.rosette.dm.jackson;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 
 import java.io.IOException;
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
-import java.util.Locale;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 
+/**
+ * Serializes Double values with at most 8 digits below the decimal point.
+ * The value is rounded (half-even, on the exact binary value, as {@link java.text.DecimalFormat} does)
+ * and then written exactly as {@link Double#toString(double)} would write the rounded value.
+ * For the range where confidence scores and the like live, this is done with integer arithmetic
+ * and written directly to the generator without creating any intermediate objects. This class
+ * has no mutable shared state, and so may be shared between threads.
+ */
 public class DoubleSerializer extends StdSerializer<Double> {
+    static final int FRACTION_DIGITS = 8;
+    private static final double SCALE = 1e8;
+    /* 5^8; 10^8 = 5^8 * 2^8. */
+    private static final long FIVE_TO_THE_EIGHTH = 390625L;
+    /* Below this, value * 10^8 has at most 15 digits, so it is exact in a double and its digits are the shortest
+     * representation of the rounded double. */
+    private static final double FAST_PATH_LIMIT = 1.0e7;
+    /* At or above this, every double is an integer. */
+    private static final double INTEGRAL_LIMIT = 4503599627370496.0; // 2^52
+    /* sign, up to 15 digits, '.', leading zeros, exponent. */
+    private static final int BUFFER_SIZE = 32;
 
-    private final NumberFormat numberFormat;
+    private static final ThreadLocal<char[]> BUFFERS = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[BUFFER_SIZE];
+        }
+    };
 
     public DoubleSerializer() {
         super(Double.class);
-
-        NumberFormat f = NumberFormat.getInstance(Locale.US);
-        if (f instanceof DecimalFormat) {
-            f.setMaximumFractionDigits(8);
-        }
-        f.setGroupingUsed(false);
-        numberFormat = f;
     }
 
     /**
@@ -51,6 +68,199 @@ public class DoubleSerializer extends StdSerializer<Double> {
     @Override
     public void serialize(Double value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
         // truncate to 8 digits below decimal for all Double fields.
-        gen.writeNumber(Double.parseDouble(numberFormat.format(value)));
+        double d = value;
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            gen.writeNumber(d);
+            return;
+        }
+        double magnitude = Math.abs(d);
+        if (magnitude >= FAST_PATH_LIMIT) {
+            gen.writeNumber(roundSlow(d));
+            return;
+        }
+        long scaled = scaleAndRound(magnitude);
+        boolean negative = d < 0 || (d == 0 && 1 / d < 0);
+        if (!(gen instanceof JsonGeneratorImpl) || gen.isEnabled(JsonGenerator.Feature.WRITE_NUMBERS_AS_STRINGS)) {
+            // binary formats and token buffers take the number itself. The division is exact-rounded.
+            double rounded = scaled / SCALE;
+            gen.writeNumber(negative ? -rounded : rounded);
+            return;
+        }
+        char[] buffer = BUFFERS.get();
+        int length = format(negative, scaled, buffer);
+        gen.writeRawValue(buffer, 0, length);
+    }
+
+    /**
+     * Round a value to 8 digits below the decimal point.
+     * @param d the value.
+     * @return the nearest double to the rounded value.
+     */
+    static double round(double d) {
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            return d;
+        }
+        double magnitude = Math.abs(d);
+        if (magnitude >= FAST_PATH_LIMIT) {
+            return roundSlow(d);
+        }
+        double rounded = scaleAndRound(magnitude) / SCALE;
+        return d < 0 || (d == 0 && 1 / d < 0) ? -rounded : rounded;
+    }
+
+    private static double roundSlow(double d) {
+        if (Math.abs(d) >= INTEGRAL_LIMIT) {
+            return d;
+        }
+        return new BigDecimal(d).setScale(FRACTION_DIGITS, RoundingMode.HALF_EVEN).doubleValue();
+    }
+
+    /**
+     * Compute round-half-even(magnitude * 10^8) exactly. The magnitude is m * 2^-k, so the result is
+     * m * 5^8 / 2^(k - 8). m * 5^8 needs up to 73 bits; we keep it as hi * 2^32 + lo.
+     */
+    private static long scaleAndRound(double magnitude) {
+        long bits = Double.doubleToRawLongBits(magnitude);
+        int biasedExponent = (int) (bits >>> 52);
+        long significand = bits & 0x000FFFFFFFFFFFFFL;
+        int k;
+        if (biasedExponent == 0) {
+            if (significand == 0) {
+                return 0;
+            }
+            k = 1074;
+        } else {
+            significand |= 0x0010000000000000L;
+            k = 1075 - biasedExponent;
+        }
+        // Below FAST_PATH_LIMIT, k is always well above 8.
+        int shift = k - 8;
+
+        long lo = (significand & 0xFFFFFFFFL) * FIVE_TO_THE_EIGHTH;
+        long hi = (significand >>> 32) * FIVE_TO_THE_EIGHTH + (lo >>> 32);
+        lo &= 0xFFFFFFFFL;
+
+        long quotient;
+        if (shift < 32) {
+            quotient = (hi << (32 - shift)) | (lo >>> shift);
+        } else if (shift - 32 < 63) {
+            quotient = hi >>> (shift - 32);
+        } else {
+            quotient = 0;
+        }
+        if (bit(hi, lo, shift - 1) && (anyBelow(hi, lo, shift - 1) || (quotient & 1) == 1)) {
+            quotient++;
+        }
+        return quotient;
+    }
+
+    private static boolean bit(long hi, long lo, int index) {
+        if (index < 32) {
+            return ((lo >>> index) & 1) == 1;
+        } else if (index - 32 < 63) {
+            return ((hi >>> (index - 32)) & 1) == 1;
+        } else {
+            return false;
+        }
+    }
+
+    private static boolean anyBelow(long hi, long lo, int index) {
+        if (index <= 32) {
+            return (lo & ((1L << index) - 1)) != 0;
+        } else if (lo != 0) {
+            return true;
+        } else if (index - 32 < 63) {
+            return (hi & ((1L << (index - 32)) - 1)) != 0;
+        } else {
+            return hi != 0;
+        }
+    }
+
+    /**
+     * Lay out scaled / 10^8 the way {@link Double#toString(double)} does. Since scaled has at most
+     * 15 digits, the digits of the decimal value are the shortest representation of the double.
+     * @return the number of characters written.
+     */
+    static int format(boolean negative, long scaled, char[] buffer) {
+        int pos = 0;
+        if (negative) {
+            buffer[pos++] = '-';
+        }
+        if (scaled == 0) {
+            buffer[pos++] = '0';
+            buffer[pos++] = '.';
+            buffer[pos++] = '0';
+            return pos;
+        }
+        // decimal exponent of the leading digit.
+        int exponent = countDigits(scaled) - 1 - FRACTION_DIGITS;
+        // strip trailing zeros; they are not significant.
+        long digits = scaled;
+        while (digits % 10 == 0) {
+            digits /= 10;
+        }
+        int significantCount = countDigits(digits);
+
+        if (exponent >= -3 && exponent < 7) {
+            if (exponent >= 0) {
+                int integerDigits = exponent + 1;
+                for (int i = 0; i < integerDigits; i++) {
+                    buffer[pos++] = i < significantCount ? digitAt(digits, significantCount, i) : '0';
+                }
+                buffer[pos++] = '.';
+                if (significantCount <= integerDigits) {
+                    buffer[pos++] = '0';
+                } else {
+                    for (int i = integerDigits; i < significantCount; i++) {
+                        buffer[pos++] = digitAt(digits, significantCount, i);
+                    }
+                }
+            } else {
+                buffer[pos++] = '0';
+                buffer[pos++] = '.';
+                for (int i = -1; i > exponent; i--) {
+                    buffer[pos++] = '0';
+                }
+                for (int i = 0; i < significantCount; i++) {
+                    buffer[pos++] = digitAt(digits, significantCount, i);
+                }
+            }
+        } else {
+            buffer[pos++] = digitAt(digits, significantCount, 0);
+            buffer[pos++] = '.';
+            if (significantCount == 1) {
+                buffer[pos++] = '0';
+            } else {
+                for (int i = 1; i < significantCount; i++) {
+                    buffer[pos++] = digitAt(digits, significantCount, i);
+                }
+            }
+            buffer[pos++] = 'E';
+            if (exponent < 0) {
+                buffer[pos++] = '-';
+                exponent = -exponent;
+            }
+            if (exponent >= 10) {
+                buffer[pos++] = (char) ('0' + exponent / 10);
+            }
+            buffer[pos++] = (char) ('0' + exponent % 10);
+        }
+        return pos;
+    }
+
+    private static int countDigits(long value) {
+        int count = 1;
+        for (long p = 10; p <= value && count < 18; p *= 10) {
+            count++;
+        }
+        return count;
+    }
+
+    /* The i'th digit, counting from the most significant, of a value with the given number of digits. */
+    private static char digitAt(long value, int digitCount, int i) {
+        for (int j = digitCount - 1; j > i; j--) {
+            value /= 10;
+        }
+        return (char) ('0' + value % 10);
     }
 }
@@ -18,12 +18,19 @@ package com.basistech.rosette.dm.jackson;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 import java.util.Map;
 
 public abstract class EmbeddingCollectionMixin {
     @JsonCreator
-    public EmbeddingCollectionMixin(@JsonProperty("embeddings") Map<Integer, float[]> embeddings) {
+    public EmbeddingCollectionMixin(@JsonProperty("embeddings")
+                                    @JsonDeserialize(using = EmbeddingMapDeserializer.class)
+                                    Map<Integer, float[]> embeddings) {
         //
     }
+
+    @JsonSerialize(using = EmbeddingMapSerializer.class)
+    public abstract Map<Integer, float[]> getEmbeddings();
 }
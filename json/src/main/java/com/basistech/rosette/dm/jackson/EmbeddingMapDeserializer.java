@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Deserializes the vectors of an {@link com.basistech.rosette.dm.EmbeddingCollection}, written either
+ * packed by {@link EmbeddingMapSerializer} or in the older layout with an array of numbers for each vector.
+ * Either way, the values go straight into primitive arrays.
+ */
+public class EmbeddingMapDeserializer extends JsonDeserializer<Map<Integer, float[]>> {
+    @Override
+    public Map<Integer, float[]> deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        JsonToken t = jp.getCurrentToken();
+        if (t == JsonToken.START_OBJECT) {
+            t = jp.nextToken();
+        } else if (t != JsonToken.FIELD_NAME && t != JsonToken.END_OBJECT) {
+            throw ctxt.wrongTokenException(jp, JsonToken.START_OBJECT, "Embeddings must be an object");
+        }
+        Map<Integer, float[]> embeddings = Maps.newLinkedHashMap();
+        for (; t == JsonToken.FIELD_NAME; t = jp.nextToken()) {
+            String name = jp.getCurrentName();
+            int index;
+            try {
+                index = Integer.parseInt(name);
+            } catch (NumberFormatException e) {
+                throw ctxt.weirdKeyException(Integer.class, name, "Embedding indexes must be integers");
+            }
+            embeddings.put(index, readVector(jp, ctxt, jp.nextToken()));
+        }
+        return embeddings;
+    }
+
+    private static float[] readVector(JsonParser jp, DeserializationContext ctxt, JsonToken t) throws IOException {
+        switch (t) {
+        case VALUE_STRING:
+        case VALUE_EMBEDDED_OBJECT:
+            return unpack(jp.getBinaryValue(), ctxt);
+        case START_ARRAY:
+            return readDecimal(jp, ctxt);
+        case VALUE_NULL:
+            return null;
+        default:
+            throw ctxt.wrongTokenException(jp, JsonToken.VALUE_STRING, "An embedding must be packed binary or an array of numbers");
+        }
+    }
+
+    private static float[] unpack(byte[] packed, DeserializationContext ctxt) throws IOException {
+        if (packed.length % 4 != 0) {
+            throw ctxt.mappingException(String.format("Packed embedding length %d is not a multiple of 4", packed.length));
+        }
+        float[] vector = new float[packed.length / 4];
+        for (int x = 0; x < vector.length; x++) {
+            int offset = x * 4;
+            int bits = (packed[offset] & 0xff)
+                | (packed[offset + 1] & 0xff) << 8
+                | (packed[offset + 2] & 0xff) << 16
+                | (packed[offset + 3] & 0xff) << 24;
+            vector[x] = Float.intBitsToFloat(bits);
+        }
+        return vector;
+    }
+
+    private static float[] readDecimal(JsonParser jp, DeserializationContext ctxt) throws IOException {
+        float[] vector = new float[64];
+        int size = 0;
+        for (JsonToken t = jp.nextToken(); t != JsonToken.END_ARRAY; t = jp.nextToken()) {
+            if (size == vector.length) {
+                vector = Arrays.copyOf(vector, vector.length * 2);
+            }
+            if (t == JsonToken.VALUE_NUMBER_FLOAT || t == JsonToken.VALUE_NUMBER_INT) {
+                vector[size++] = jp.getFloatValue();
+            } else if (t == JsonToken.VALUE_STRING) {
+                // NaN and the infinities, written as strings.
+                vector[size++] = Float.parseFloat(jp.getText());
+            } else {
+                throw ctxt.wrongTokenException(jp, JsonToken.VALUE_NUMBER_FLOAT, "Embedding values must be numbers");
+            }
+        }
+        return size == vector.length ? vector : Arrays.copyOf(vector, size);
+    }
+}
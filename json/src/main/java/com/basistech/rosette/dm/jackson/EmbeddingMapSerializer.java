@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Serializes the vectors of an {@link com.basistech.rosette.dm.EmbeddingCollection}. By default, each vector
+ * is a Json array of decimal numbers, which every reader understands. With the {@link #PACKED_EMBEDDINGS}
+ * attribute, each vector is its floats as little-endian 32-bit values, written as binary: a base64 string
+ * in Json and raw bytes in Smile or CBOR. The keys are the usual strings. {@link EmbeddingMapDeserializer}
+ * reads both layouts, but readers from before the packed layout cannot read it, so only turn it on when
+ * all of the readers are new enough, for example with
+ * {@code mapper.writer().withAttribute(EmbeddingMapSerializer.PACKED_EMBEDDINGS, Boolean.TRUE)}.
+ */
+public class EmbeddingMapSerializer extends JsonSerializer<Map<Integer, float[]>> {
+    /**
+     * Serialization attribute that selects the packed layout when it is {@link Boolean#TRUE}.
+     */
+    public static final String PACKED_EMBEDDINGS = "com.basistech.rosette.dm.packedEmbeddings";
+
+    @Override
+    public void serialize(Map<Integer, float[]> value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+        boolean decimal = !Boolean.TRUE.equals(serializers.getAttribute(PACKED_EMBEDDINGS));
+        gen.writeStartObject();
+        byte[] packed = null;
+        for (Map.Entry<Integer, float[]> me : value.entrySet()) {
+            gen.writeFieldName(Integer.toString(me.getKey()));
+            float[] vector = me.getValue();
+            if (vector == null) {
+                gen.writeNull();
+            } else if (decimal) {
+                gen.writeStartArray();
+                for (float f : vector) {
+                    gen.writeNumber(f);
+                }
+                gen.writeEndArray();
+            } else {
+                int length = vector.length * 4;
+                if (packed == null || packed.length < length) {
+                    packed = new byte[length];
+                }
+                pack(vector, packed);
+                gen.writeBinary(packed, 0, length);
+            }
+        }
+        gen.writeEndObject();
+    }
+
+    static void pack(float[] vector, byte[] packed) {
+        for (int x = 0; x < vector.length; x++) {
+            int bits = Float.floatToRawIntBits(vector[x]);
+            int offset = x * 4;
+            packed[offset] = (byte) bits;
+            packed[offset + 1] = (byte) (bits >>> 8);
+            packed[offset + 2] = (byte) (bits >>> 16);
+            packed[offset + 3] = (byte) (bits >>> 24);
+        }
+    }
+}
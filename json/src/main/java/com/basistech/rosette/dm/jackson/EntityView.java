@@ -0,0 +1,140 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import java.util.Arrays;
+
+/**
+ * A reusable view of an {@link com.basistech.rosette.dm.Entity} as it is read by
+ * {@link AnnotatedTextEventReader}. It carries the commonly used fields of the entity and the offsets of
+ * its mentions. It is only valid during {@link AnnotatedTextVisitor#onEntity(int, EntityView)}.
+ */
+public final class EntityView {
+    private final TextView type = new TextView();
+    private final TextView entityId = new TextView();
+    private boolean hasType;
+    private boolean hasEntityId;
+    private double confidence;
+    private int headMentionIndex;
+    private int mentionCount;
+    private int[] mentionOffsets = new int[8];
+
+    EntityView() {
+        reset();
+    }
+
+    void reset() {
+        hasType = false;
+        hasEntityId = false;
+        confidence = Double.NaN;
+        headMentionIndex = -1;
+        mentionCount = 0;
+    }
+
+    TextView type() {
+        hasType = true;
+        return type;
+    }
+
+    TextView entityId() {
+        hasEntityId = true;
+        return entityId;
+    }
+
+    void confidence(double confidence) {
+        this.confidence = confidence;
+    }
+
+    void headMentionIndex(int headMentionIndex) {
+        this.headMentionIndex = headMentionIndex;
+    }
+
+    void addMention(int startOffset, int endOffset) {
+        if (mentionCount * 2 == mentionOffsets.length) {
+            mentionOffsets = Arrays.copyOf(mentionOffsets, mentionOffsets.length * 2);
+        }
+        mentionOffsets[mentionCount * 2] = startOffset;
+        mentionOffsets[mentionCount * 2 + 1] = endOffset;
+        mentionCount++;
+    }
+
+    /**
+     * @return the entity type, or {@code null}.
+     */
+    public CharSequence getType() {
+        return hasType ? type : null;
+    }
+
+    /**
+     * @return the entity id, or {@code null}.
+     */
+    public CharSequence getEntityId() {
+        return hasEntityId ? entityId : null;
+    }
+
+    /**
+     * @return the confidence, or {@link Double#NaN} if there is none.
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * @return the index of the head mention, or -1 if there is none.
+     */
+    public int getHeadMentionIndex() {
+        return headMentionIndex;
+    }
+
+    /**
+     * @return the number of mentions.
+     */
+    public int getMentionCount() {
+        return mentionCount;
+    }
+
+    /**
+     * @param index the index of a mention, from 0 to {@link #getMentionCount()} - 1.
+     * @return the start offset of the mention.
+     * @throws IndexOutOfBoundsException if there is no such mention.
+     */
+    public int getMentionStartOffset(int index) {
+        checkIndex(index);
+        return mentionOffsets[index * 2];
+    }
+
+    /**
+     * @param index the index of a mention, from 0 to {@link #getMentionCount()} - 1.
+     * @return the end offset of the mention.
+     * @throws IndexOutOfBoundsException if there is no such mention.
+     */
+    public int getMentionEndOffset(int index) {
+        checkIndex(index);
+        return mentionOffsets[index * 2 + 1];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mentionCount) {
+            throw new IndexOutOfBoundsException("Mention " + index + " of " + mentionCount);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EntityView{type=" + getType() + ", entityId=" + getEntityId() + ", mentions=" + mentionCount + "}";
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Deserializes the value of an extended property. If there is an {@link ExtendedPropertySchema} in the
+ * context that declares the property's key, the value is read as the declared type; otherwise, it is read
+ * as untyped Json.
+ */
+public class ExtendedPropertyDeserializer extends JsonDeserializer<Object> implements ContextualDeserializer {
+    private final JsonDeserializer<Object> untyped;
+
+    public ExtendedPropertyDeserializer() {
+        this(null);
+    }
+
+    private ExtendedPropertyDeserializer(JsonDeserializer<Object> untyped) {
+        this.untyped = untyped;
+    }
+
+    @Override
+    public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property) throws JsonMappingException {
+        return new ExtendedPropertyDeserializer(ctxt.findRootValueDeserializer(ctxt.constructType(Object.class)));
+    }
+
+    @Override
+    public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        // positioned on the value, so the current name is the key.
+        return read(p, ctxt, p.getCurrentName(), untyped);
+    }
+
+    /**
+     * Read an extended property value, as declared in the schema, if any.
+     * @param p the parser, positioned on the value.
+     * @param ctxt the context.
+     * @param key the key.
+     * @return the value.
+     * @throws IOException for errors reading or binding the value.
+     */
+    static Object readValue(JsonParser p, DeserializationContext ctxt, String key) throws IOException {
+        return read(p, ctxt, key, null);
+    }
+
+    private static Object read(JsonParser p, DeserializationContext ctxt, String key, JsonDeserializer<Object> untyped) throws IOException {
+        Object schema = ctxt.getAttribute(ExtendedPropertySchema.ATTRIBUTE);
+        if (schema instanceof ExtendedPropertySchema) {
+            JavaType type = ((ExtendedPropertySchema) schema).getType(key);
+            if (type != null) {
+                JsonDeserializer<Object> deserializer = ctxt.findRootValueDeserializer(type);
+                if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+                    return deserializer.getNullValue(ctxt);
+                }
+                return deserializer.deserialize(p, ctxt);
+            }
+        }
+        if (untyped == null) {
+            untyped = ctxt.findRootValueDeserializer(ctxt.constructType(Object.class));
+        }
+        return untyped.deserialize(p, ctxt);
+    }
+}
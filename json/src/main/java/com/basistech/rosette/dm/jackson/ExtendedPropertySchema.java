@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.google.common.collect.ImmutableMap;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/**
+ * Declares the types of extended properties that an application knows about. Without a schema, an extended
+ * property is read as whatever Jackson makes of untyped Json: boxed numbers, {@code ArrayList}s,
+ * {@code LinkedHashMap}s. With one, the values of the declared keys are deserialized directly to the
+ * declared types, so that, for example, a {@code double[]} is read as a {@code double[]} without
+ * passing through a list of {@code Double}. Keys are matched on any attribute, including the properties
+ * of {@link com.basistech.rosette.dm.ListAttribute}s; keys that are not declared are read as before.
+ *
+ * A schema is passed to deserialization as the {@link #ATTRIBUTE} attribute. Use {@link #install(ObjectMapper)}
+ * to make it the default for a mapper, or {@code mapper.reader().withAttribute(ExtendedPropertySchema.ATTRIBUTE, schema)}
+ * for a single reader:
+ * <pre>
+ * ExtendedPropertySchema schema = new ExtendedPropertySchema.Builder()
+ *     .property("confidenceVector", double[].class)
+ *     .property("sources", new TypeReference&lt;List&lt;String&gt;&gt;() { })
+ *     .build();
+ * schema.install(AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper()));
+ * </pre>
+ * Schemas are immutable, and may be shared between threads and mappers.
+ */
+public final class ExtendedPropertySchema {
+    /**
+     * Deserialization attribute that holds the schema.
+     */
+    public static final String ATTRIBUTE = "com.basistech.rosette.dm.extendedPropertySchema";
+
+    private final Map<String, JavaType> types;
+
+    private ExtendedPropertySchema(Map<String, JavaType> types) {
+        this.types = ImmutableMap.copyOf(types);
+    }
+
+    /**
+     * Returns the declared type for a key.
+     * @param key the extended property key.
+     * @return the type, or {@code null} if the key is not declared.
+     */
+    public JavaType getType(String key) {
+        return types.get(key);
+    }
+
+    /**
+     * Returns all of the declared types.
+     * @return a map from key to type.
+     */
+    public Map<String, JavaType> getTypes() {
+        return types;
+    }
+
+    /**
+     * Make this schema the default for all of the readers of a mapper.
+     * @param mapper the mapper.
+     * @return the same mapper, for convenience.
+     */
+    public ObjectMapper install(ObjectMapper mapper) {
+        mapper.setConfig(mapper.getDeserializationConfig().withAttribute(ATTRIBUTE, this));
+        return mapper;
+    }
+
+    /**
+     * Builder for {@link ExtendedPropertySchema}.
+     */
+    public static class Builder {
+        private final TypeFactory typeFactory;
+        private final ImmutableMap.Builder<String, JavaType> types;
+
+        public Builder() {
+            typeFactory = TypeFactory.defaultInstance();
+            types = ImmutableMap.builder();
+        }
+
+        /**
+         * Declare a key. Primitive types are read as their wrappers; arrays of primitives are read directly.
+         * @param key the extended property key.
+         * @param type the type of its values.
+         * @return this.
+         */
+        public Builder property(String key, Class<?> type) {
+            return property(key, typeFactory.constructType(type));
+        }
+
+        /**
+         * Declare a key with a generic type.
+         * @param key the extended property key.
+         * @param type the type of its values.
+         * @return this.
+         */
+        public Builder property(String key, TypeReference<?> type) {
+            return property(key, typeFactory.constructType(type));
+        }
+
+        /**
+         * Declare a key with a reflected type.
+         * @param key the extended property key.
+         * @param type the type of its values.
+         * @return this.
+         */
+        public Builder property(String key, Type type) {
+            return property(key, typeFactory.constructType(type));
+        }
+
+        /**
+         * Declare a key with a Jackson type.
+         * @param key the extended property key.
+         * @param type the type of its values.
+         * @return this.
+         */
+        public Builder property(String key, JavaType type) {
+            types.put(key, type);
+            return this;
+        }
+
+        /**
+         * @return the schema.
+         */
+        public ExtendedPropertySchema build() {
+            return new ExtendedPropertySchema(types.build());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.BaseAttribute;
+import com.basistech.rosette.dm.LazyAttributeMap;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.annotation.JsonTypeIdResolver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Attributes that are still in the Json text they were read from. Each value is deserialized
+ * from its own range of the text when it is first retrieved. The text itself is kept, so that
+ * {@link PassThroughSerializer} can write the document back out without serializing it again.
+ */
+final class JsonAttributeMap extends LazyAttributeMap {
+    private static final long serialVersionUID = 222L;
+    private static final byte[] PREFIX = "{\"attribute\":".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectReader attributeReader;
+    private final byte[] json;
+    private final int documentStart;
+    private final int documentEnd;
+    private final int[] starts;
+    private final int[] ends;
+    private final boolean copyable;
+
+    /* The shape of a single attribute value, with the type information that AnnotatedTextMixin puts on the map. */
+    static final class AttributeHolder {
+        @JsonProperty
+        @JsonTypeInfo(use = JsonTypeInfo.Id.CUSTOM, include = JsonTypeInfo.As.PROPERTY, property = "type")
+        @JsonTypeIdResolver(DmTypeIdResolver.class)
+        BaseAttribute attribute;
+    }
+
+    JsonAttributeMap(ObjectReader attributeReader, byte[] json, int documentStart, int documentEnd,
+                     List<String> keys, int[] starts, int[] ends, boolean copyable) {
+        super(keys);
+        this.attributeReader = attributeReader;
+        this.json = json;
+        this.documentStart = documentStart;
+        this.documentEnd = documentEnd;
+        this.starts = starts;
+        this.ends = ends;
+        this.copyable = copyable;
+    }
+
+    AnnotatedText text(CharSequence data, Map<String, List<String>> documentMetadata) {
+        return newAnnotatedText(data, documentMetadata);
+    }
+
+    /**
+     * Returns the whole document this map was read from.
+     */
+    RawJson document() {
+        return new RawJson(json, documentStart, documentEnd - documentStart);
+    }
+
+    /**
+     * Returns whether the usual serializers would write the same document as {@link #document()}, apart from
+     * white space and the spelling of numbers and strings.
+     */
+    boolean isCopyable() {
+        return copyable;
+    }
+
+    @Override
+    protected BaseAttribute materialize(int index, String key) {
+        int length = ends[index] - starts[index];
+        byte[] holder = new byte[PREFIX.length + length + 1];
+        System.arraycopy(PREFIX, 0, holder, 0, PREFIX.length);
+        System.arraycopy(json, starts[index], holder, PREFIX.length, length);
+        holder[holder.length - 1] = '}';
+        try {
+            AttributeHolder value = attributeReader.readValue(holder);
+            return value.attribute;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the '" + key + "' attribute", e);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads {@link AnnotatedText} from Json without deserializing the attributes. The reader finds where
+ * each attribute is in the text and deserializes it the first time it is retrieved, either from
+ * {@link AnnotatedText#getAttributes()} or from one of the specific accessors such as
+ * {@link AnnotatedText#getTokens()}. An application that only needs the data, the document metadata,
+ * or a few small attributes, such as the language, reads far less.
+ * <br>
+ * A document read this way keeps the Json it came from. When it is written by a mapper set up by
+ * {@link AnnotatedDataModelModule}, the original Json is copied to the output without serializing
+ * anything, as long as the copy is what the usual serializers would write: the Json has the current
+ * version, no unknown properties, no doubles with more digits than {@link DoubleSerializer} keeps, and
+ * embeddings in the default layout, and the writer has no attributes, such as
+ * {@link EmbeddingMapSerializer#PACKED_EMBEDDINGS}, that change the output. Otherwise it is serialized as usual.
+ * A document built from it with {@link AnnotatedText.Builder#Builder(AnnotatedText)} is an ordinary document.
+ * <br>
+ * This reads the format written by {@link AnnotatedDataModelModule}, encoded as UTF-8; input in
+ * other encodings is read eagerly. Instances are thread-safe.
+ */
+public final class LazyAnnotatedTextReader {
+    private static final String EMBEDDINGS_KEY = "embeddings";
+    /* the depth of the object of vectors in the embeddings attribute: attribute, collections, collection, embeddings. */
+    private static final int VECTOR_DEPTH = 4;
+    private static final TypeReference<Map<String, List<String>>> METADATA_TYPE = new TypeReference<Map<String, List<String>>>() { };
+
+    private final ObjectMapper mapper;
+    private final ObjectReader attributeReader;
+    private final ObjectReader metadataReader;
+
+    /**
+     * Create a reader.
+     * @param mapper a mapper set up by {@link AnnotatedDataModelModule#setupObjectMapper(ObjectMapper)}.
+     */
+    public LazyAnnotatedTextReader(ObjectMapper mapper) {
+        this.mapper = mapper;
+        this.attributeReader = mapper.readerFor(JsonAttributeMap.AttributeHolder.class);
+        this.metadataReader = mapper.readerFor(METADATA_TYPE);
+    }
+
+    /**
+     * Read a document. The document refers to the array, which must not be modified afterwards.
+     * @param json the Json.
+     * @return the document.
+     * @throws IOException for invalid Json, or Json that is not a document.
+     */
+    public AnnotatedText read(byte[] json) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(json)) {
+            return read(parser, json);
+        }
+    }
+
+    /**
+     * Read a document from part of an array. The part is copied.
+     * @param json the array.
+     * @param offset the start of the Json.
+     * @param length the length of the Json.
+     * @return the document.
+     * @throws IOException for invalid Json, or Json that is not a document.
+     */
+    public AnnotatedText read(byte[] json, int offset, int length) throws IOException {
+        return read(Arrays.copyOfRange(json, offset, offset + length));
+    }
+
+    /**
+     * Read a document from the rest of a stream. The stream is not closed.
+     * @param input the stream.
+     * @return the document.
+     * @throws IOException for error reading the stream, invalid Json, or Json that is not a document.
+     */
+    public AnnotatedText read(InputStream input) throws IOException {
+        return read(ByteStreams.toByteArray(input));
+    }
+
+    private AnnotatedText read(JsonParser parser, byte[] json) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw JsonMappingException.from(parser, "An annotated text must be a Json object");
+        }
+        int documentStart = (int) parser.getTokenLocation().getByteOffset();
+        if (documentStart < 0) {
+            // not UTF-8, so there are no byte offsets.
+            return mapper.readValue(json, AnnotatedText.class);
+        }
+        CharSequence data = null;
+        Map<String, List<String>> documentMetadata = null;
+        String version = null;
+        boolean copyable = true;
+        List<String> keys = Lists.newArrayList();
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (name) {
+            case "version":
+                version = checkVersion(parser, token);
+                break;
+            case "data":
+                data = token == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                break;
+            case "documentMetadata":
+                documentMetadata = token == JsonToken.VALUE_NULL ? null : metadataReader.<Map<String, List<String>>>readValue(parser);
+                break;
+            case "attributes":
+                if (token == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        if (keys.size() == starts.length) {
+                            starts = Arrays.copyOf(starts, starts.length * 2);
+                            ends = Arrays.copyOf(ends, ends.length * 2);
+                        }
+                        String key = parser.getCurrentName();
+                        keys.add(key);
+                        parser.nextToken();
+                        starts[keys.size() - 1] = (int) parser.getTokenLocation().getByteOffset();
+                        if (copyable) {
+                            copyable = skipAttribute(parser, EMBEDDINGS_KEY.equals(key));
+                        } else {
+                            parser.skipChildren();
+                        }
+                        ends[keys.size() - 1] = (int) parser.getCurrentLocation().getByteOffset();
+                    }
+                } else if (token != JsonToken.VALUE_NULL) {
+                    throw JsonMappingException.from(parser, "The value of 'attributes' must be an object");
+                }
+                break;
+            default:
+                if (mapper.isEnabled(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)) {
+                    throw UnrecognizedPropertyException.from(parser, AnnotatedText.class, name, null);
+                }
+                // the copy would keep it.
+                copyable = false;
+                parser.skipChildren();
+                break;
+            }
+        }
+        int documentEnd = (int) parser.getCurrentLocation().getByteOffset();
+        copyable &= VersionProperty.VERSION.equals(version);
+        JsonAttributeMap attributes = new JsonAttributeMap(attributeReader, json, documentStart, documentEnd, keys, starts, ends, copyable);
+        return attributes.text(data, documentMetadata);
+    }
+
+    /**
+     * Skip an attribute, as {@link JsonParser#skipChildren()} does, checking that the usual serializers would
+     * write it the same way: doubles with no more digits below the decimal point than {@link DoubleSerializer}
+     * keeps, and embeddings in the decimal layout that {@link EmbeddingMapSerializer} writes by default.
+     * The numbers in embedding vectors are not checked.
+     * @param parser the parser, at the start of the attribute.
+     * @param embeddings whether the attribute is the embeddings.
+     * @return whether the attribute can be copied.
+     */
+    private static boolean skipAttribute(JsonParser parser, boolean embeddings) throws IOException {
+        boolean copyable = true;
+        int depth = 0;
+        JsonToken token = parser.getCurrentToken();
+        while (true) {
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            } else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+                if (!(embeddings && depth == VECTOR_DEPTH + 1) && !isRounded(parser)) {
+                    copyable = false;
+                }
+            } else if (token == JsonToken.VALUE_STRING && embeddings && depth == VECTOR_DEPTH) {
+                // a packed vector.
+                copyable = false;
+            }
+            if (depth == 0) {
+                return copyable;
+            }
+            token = parser.nextToken();
+        }
+    }
+
+    /**
+     * @param parser a parser at a floating point number.
+     * @return whether {@link DoubleSerializer} would keep all of its digits.
+     */
+    private static boolean isRounded(JsonParser parser) throws IOException {
+        char[] chars = parser.getTextCharacters();
+        int end = parser.getTextOffset() + parser.getTextLength();
+        int x = parser.getTextOffset();
+        while (x < end && chars[x] != '.' && chars[x] != 'e' && chars[x] != 'E') {
+            x++;
+        }
+        int fractionDigits = 0;
+        if (x < end && chars[x] == '.') {
+            x++;
+            while (x < end && chars[x] != 'e' && chars[x] != 'E') {
+                fractionDigits++;
+                x++;
+            }
+        }
+        if (x < end) {
+            // the exponent moves the decimal point.
+            try {
+                fractionDigits -= Integer.parseInt(new String(chars, x + 1, end - x - 1));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return fractionDigits <= DoubleSerializer.FRACTION_DIGITS;
+    }
+
+    private static String checkVersion(JsonParser parser, JsonToken token) throws IOException {
+        if (token != JsonToken.VALUE_STRING) {
+            throw JsonMappingException.from(parser, "The value of 'version' must be a string");
+        }
+        String version = parser.getText();
+        String problem = VersionCheckDeserializer.checkVersion(version);
+        if (problem != null) {
+            throw InvalidFormatException.from(parser, problem, version, String.class);
+        }
+        return version;
+    }
+}
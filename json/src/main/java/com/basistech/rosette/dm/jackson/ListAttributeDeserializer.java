@@ -103,7 +103,7 @@ public class ListAttributeDeserializer extends JsonDeserializer<ListAttribute> {
                     } else {
                         // the START_ARRAY case, which is _normal_. Read the elements.
                         while (jp.nextToken() != JsonToken.END_ARRAY) {
-                            items.add(jp.readValueAs(itemClass));
+                            items.add(ctxt.readValue(jp, itemClass));
                         }
                     }
                 } else {
@@ -112,7 +112,7 @@ public class ListAttributeDeserializer extends JsonDeserializer<ListAttribute> {
                     if (nextToken == JsonToken.VALUE_EMBEDDED_OBJECT) {
                         value = jp.getEmbeddedObject();
                     } else {
-                        value = jp.readValueAs(Object.class);
+                        value = ExtendedPropertyDeserializer.readValue(jp, ctxt, name);
                     }
                     builder.extendedProperty(name, value);
                 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.deser.std.DelegatingDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Reports the size and time of each document read to a {@link SerializationListener}.
+ */
+final class MeteredAnnotatedTextDeserializer extends DelegatingDeserializer {
+    private static final long serialVersionUID = 1L;
+    private final SerializationListener listener;
+    private final String format;
+    private final AdmCodec.Shape shape;
+
+    MeteredAnnotatedTextDeserializer(JsonDeserializer<?> delegate, SerializationListener listener, String format, AdmCodec.Shape shape) {
+        super(delegate);
+        this.listener = listener;
+        this.format = format;
+        this.shape = shape;
+    }
+
+    @Override
+    protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> newDelegatee) {
+        return new MeteredAnnotatedTextDeserializer(newDelegatee, listener, format, shape);
+    }
+
+    @Override
+    public Object deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!SerializationMetrics.isMetered(ctxt)) {
+            return _delegatee.deserialize(p, ctxt);
+        }
+        Object context = listener.beginRead(format, shape);
+        long start = SerializationMetrics.offset(p.getTokenLocation());
+        long startNanos = System.nanoTime();
+        Object value = _delegatee.deserialize(p, ctxt);
+        long nanos = System.nanoTime() - startNanos;
+        if (value instanceof AnnotatedText) {
+            long size = SerializationMetrics.size(start, SerializationMetrics.offset(p.getCurrentLocation()));
+            listener.documentRead((AnnotatedText) value, context, size, nanos);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Reports the size and time of each document written to a {@link SerializationListener}.
+ */
+final class MeteredAnnotatedTextSerializer extends StdSerializer<AnnotatedText> implements ResolvableSerializer, ContextualSerializer {
+    private final JsonSerializer<Object> delegate;
+    private final SerializationListener listener;
+    private final String format;
+    private final AdmCodec.Shape shape;
+
+    MeteredAnnotatedTextSerializer(JsonSerializer<Object> delegate, SerializationListener listener, String format, AdmCodec.Shape shape) {
+        super(AnnotatedText.class);
+        this.delegate = delegate;
+        this.listener = listener;
+        this.format = format;
+        this.shape = shape;
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        if (delegate instanceof ResolvableSerializer) {
+            ((ResolvableSerializer) delegate).resolve(provider);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property) throws JsonMappingException {
+        JsonSerializer<?> contextual = provider.handlePrimaryContextualization(delegate, property);
+        return contextual == delegate ? this : new MeteredAnnotatedTextSerializer((JsonSerializer<Object>) contextual, listener, format, shape);
+    }
+
+    @Override
+    public void serialize(AnnotatedText value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (!SerializationMetrics.isMetered(provider)) {
+            delegate.serialize(value, gen, provider);
+            return;
+        }
+        Object context = listener.beginWrite(value, format, shape);
+        long start = SerializationMetrics.position(gen);
+        long startNanos = System.nanoTime();
+        delegate.serialize(value, gen, provider);
+        long nanos = System.nanoTime() - startNanos;
+        listener.documentWritten(value, context, SerializationMetrics.size(start, SerializationMetrics.position(gen)), nanos);
+    }
+
+    @Override
+    public void serializeWithType(AnnotatedText value, JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
+        if (!SerializationMetrics.isMetered(provider)) {
+            delegate.serializeWithType(value, gen, provider, typeSer);
+            return;
+        }
+        Object context = listener.beginWrite(value, format, shape);
+        long start = SerializationMetrics.position(gen);
+        long startNanos = System.nanoTime();
+        delegate.serializeWithType(value, gen, provider, typeSer);
+        long nanos = System.nanoTime() - startNanos;
+        listener.documentWritten(value, context, SerializationMetrics.size(start, SerializationMetrics.position(gen)), nanos);
+    }
+}
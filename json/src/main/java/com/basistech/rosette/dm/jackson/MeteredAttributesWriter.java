@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.basistech.rosette.dm.BaseAttribute;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerFactory;
+import com.google.common.collect.ImmutableSortedMap;
+
+import java.util.Map;
+
+/**
+ * Writes the attributes of a document one at a time, reporting each to a {@link SerializationListener}.
+ * It writes what the usual serializers write: for the plain shape, what the map serializer writes with the type
+ * as a property; for the array shape, what {@link com.basistech.rosette.dm.jackson.array.TempAttributeMapSerializer} writes.
+ */
+final class MeteredAttributesWriter extends BeanPropertyWriter {
+    private static final long serialVersionUID = 1L;
+    private final SerializationListener listener;
+    private final AdmCodec.Shape shape;
+    /* for the plain shape; found again after Java deserialization, since it is not serializable. */
+    private transient TypeSerializer typeSerializer;
+
+    MeteredAttributesWriter(BeanPropertyWriter base, SerializationListener listener, AdmCodec.Shape shape) {
+        super(base);
+        this.listener = listener;
+        this.shape = shape;
+    }
+
+    private MeteredAttributesWriter(MeteredAttributesWriter base, PropertyName name) {
+        super(base, name);
+        this.listener = base.listener;
+        this.shape = base.shape;
+        this.typeSerializer = base.typeSerializer;
+    }
+
+    @Override
+    protected BeanPropertyWriter _new(PropertyName newName) {
+        return new MeteredAttributesWriter(this, newName);
+    }
+
+    @Override
+    public void serializeAsField(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception {
+        Map<String, BaseAttribute> attributes = attributes(bean);
+        if (attributes == null || !SerializationMetrics.isMetered(prov)) {
+            super.serializeAsField(bean, gen, prov);
+            return;
+        }
+        gen.writeFieldName(_name);
+        writeAttributes(attributes, gen, prov);
+    }
+
+    @Override
+    public void serializeAsElement(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception {
+        Map<String, BaseAttribute> attributes = attributes(bean);
+        if (attributes == null || !SerializationMetrics.isMetered(prov)) {
+            super.serializeAsElement(bean, gen, prov);
+            return;
+        }
+        writeAttributes(attributes, gen, prov);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, BaseAttribute> attributes(Object bean) throws Exception {
+        return (Map<String, BaseAttribute>) get(bean);
+    }
+
+    private void writeAttributes(Map<String, BaseAttribute> attributes, JsonGenerator gen, SerializerProvider prov) throws Exception {
+        if (shape == AdmCodec.Shape.PLAIN && typeSerializer == null) {
+            typeSerializer = BeanSerializerFactory.instance.findPropertyContentTypeSerializer(getType(), prov.getConfig(), getMember());
+        }
+        if (typeSerializer != null && prov.isEnabled(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)) {
+            attributes = ImmutableSortedMap.copyOf(attributes);
+        }
+        gen.writeStartObject();
+        for (Map.Entry<String, BaseAttribute> entry : attributes.entrySet()) {
+            gen.writeFieldName(entry.getKey());
+            long start = SerializationMetrics.position(gen);
+            long startNanos = System.nanoTime();
+            BaseAttribute value = entry.getValue();
+            if (value == null) {
+                prov.defaultSerializeNull(gen);
+            } else if (typeSerializer != null) {
+                JsonSerializer<Object> serializer = prov.findValueSerializer(value.getClass(), this);
+                serializer.serializeWithType(value, gen, prov, typeSerializer);
+            } else {
+                gen.writeStartArray();
+                gen.writeString(KnownAttribute.getAttributeForClass(value.getClass()).key());
+                prov.defaultSerializeValue(value, gen);
+                gen.writeEndArray();
+            }
+            long nanos = System.nanoTime() - startNanos;
+            listener.attributeWritten(entry.getKey(), value, SerializationMetrics.size(start, SerializationMetrics.position(gen)), nanos);
+        }
+        gen.writeEndObject();
+    }
+}
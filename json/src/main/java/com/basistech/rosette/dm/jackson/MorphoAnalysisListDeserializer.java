@@ -19,15 +19,16 @@ import com.basistech.rosette.dm.ArabicMorphoAnalysis;
 import com.basistech.rosette.dm.HanMorphoAnalysis;
 import com.basistech.rosette.dm.KoreanMorphoAnalysis;
 import com.basistech.rosette.dm.MorphoAnalysis;
-import com.basistech.rosette.dm.Token;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
 import com.fasterxml.jackson.databind.BeanProperty;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
@@ -35,12 +36,12 @@ import com.google.common.collect.Lists;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 /**
  * Jackson deserialization that handles polymorphism of MorphoAnalysis without writing
- * out the type in each one.
+ * out the type in each one. The type of each analysis is determined from its field names
+ * before it is read, so each analysis is built exactly once.
  */
 public final class MorphoAnalysisListDeserializer extends JsonDeserializer<List<MorphoAnalysis>> implements ContextualDeserializer {
     private static final Set<String> ARABIC_FIELDS;
@@ -78,25 +79,24 @@ public final class MorphoAnalysisListDeserializer extends JsonDeserializer<List<
         hanMaDeserializer = ctxt.findRootValueDeserializer(type);
         type = ctxt.constructType(ArabicMorphoAnalysis.class);
         arMaDeserializer = ctxt.findRootValueDeserializer(type);
-        ctxt.setAttribute(MorphoAnalysisListDeserializer.class, maDeserializer);
         type = ctxt.constructType(KoreanMorphoAnalysis.class);
         korMaDeserializer = ctxt.findRootValueDeserializer(type);
-        ctxt.setAttribute(KoreanMorphoAnalysis.class, korMaDeserializer);
         cached = true;
     }
 
-    private boolean anyArabicFields(Set<String> fields) {
-        for (String field : fields) {
-            if (ARABIC_FIELDS.contains(field)) {
-                return true;
-            }
+    /**
+     * Choose the deserializer implied by a field name, or null if the field does not tell us.
+     * The order of the tests matches the order in which the leftovers used to be examined.
+     */
+    private JsonDeserializer<Object> deserializerForField(String name) {
+        if ("morphemes".equals(name) || "morphemeTags".equals(name)) {
+            return korMaDeserializer;
+        } else if ("readings".equals(name)) {
+            return hanMaDeserializer;
+        } else if (ARABIC_FIELDS.contains(name)) {
+            return arMaDeserializer;
         }
-        return false;
-    }
-
-    @SuppressWarnings("unchecked")
-    private JsonDeserializer<Object> castDeserializer(Object attributeValue) {
-        return (JsonDeserializer<Object>)attributeValue;
+        return null;
     }
 
     @Override
@@ -113,138 +113,51 @@ public final class MorphoAnalysisListDeserializer extends JsonDeserializer<List<
             throw ctxt.wrongTokenException(jp, JsonToken.START_ARRAY, "Expected array of items");
         }
 
-        JsonDeserializer<Object> currentDeserializer =
-                castDeserializer(ctxt.getAttribute(MorphoAnalysisListDeserializer.class));
-        if (currentDeserializer == null) {
-            currentDeserializer = maDeserializer;
-            ctxt.setAttribute(MorphoAnalysisListDeserializer.class, maDeserializer);
-        }
+        /*
+         * The type is sticky within a list, like the ordinals in the array format: an analysis with none of the
+         * distinguishing fields is read as the same type as the one before it. This recovers, for example,
+         * Han analyses that have no readings. Each list starts over, so nothing carries over between tokens.
+         */
+        JsonDeserializer<Object> currentDeserializer = maDeserializer;
 
         List<MorphoAnalysis> result = Lists.newArrayList();
         while (jp.nextToken() != JsonToken.END_ARRAY) {
-            // if we just read it in as the wrong class, any leftovers will end up in extendedAttributes, and we can cope.
-
-            MorphoAnalysis analysis = (MorphoAnalysis) currentDeserializer.deserialize(jp, ctxt);
-            if (analysis.getExtendedProperties().size() != 0) {
-                // so, we have leftovers. Note that this will not trim han and arabic down. Tough
-
-                if (analysis.getExtendedProperties().containsKey("morphemes")) {
-                    KoreanMorphoAnalysis.Builder builder = new KoreanMorphoAnalysis.Builder();
-                    copyBasic(analysis, builder);
-
-                    List<String> morphemes = cast(analysis.getExtendedProperties().get("morphemes"));
-                    List<String> morphemeTags = cast(analysis.getExtendedProperties().get("morphemeTags"));
-                    for (int x = 0; x < morphemes.size(); x++) {
-                        builder.addMorpheme(morphemes.get(x), morphemeTags.get(x));
-                    }
-
-                    for (Map.Entry<String, Object> me : analysis.getExtendedProperties().entrySet()) {
-                        if (!"morphemes".equals(me.getKey()) && !"morphemeTags".equals(me.getKey())) {
-                            builder.extendedProperty(me.getKey(), me.getValue());
-                        }
-                    }
-
-                    analysis = builder.build();
-                    ctxt.setAttribute(MorphoAnalysisListDeserializer.class, korMaDeserializer);
-
-                } else if (analysis.getExtendedProperties().containsKey("readings")) {
-                    // convert to Han.
-                    HanMorphoAnalysis.Builder builder = new HanMorphoAnalysis.Builder();
-                    copyBasic(analysis, builder);
-
-                    for (String reading : cast(analysis.getExtendedProperties().get("readings"))) {
-                        builder.addReading(reading);
-                    }
-
-                    for (Map.Entry<String, Object> me : analysis.getExtendedProperties().entrySet()) {
-                        if (!"readings".equals(me.getKey())) {
-                            builder.extendedProperty(me.getKey(), me.getValue());
-                        }
-                    }
-
-                    analysis = builder.build();
-                    ctxt.setAttribute(MorphoAnalysisListDeserializer.class, hanMaDeserializer);
-                } else if (anyArabicFields(analysis.getExtendedProperties().keySet())) {
-                    ArabicMorphoAnalysis.Builder builder = new ArabicMorphoAnalysis.Builder();
-                    copyBasic(analysis, builder);
-
-                    Integer prefixLength = (Integer)analysis.getExtendedProperties().get("prefixLength");
-                    Integer stemLength = (Integer)analysis.getExtendedProperties().get("stemLength");
-                    if (prefixLength != null && stemLength != null) {
-                        builder.lengths(prefixLength, stemLength);
-                    }
-                    String root = (String)analysis.getExtendedProperties().get("root");
-                    if (root != null) {
-                        builder.root(root);
-                    }
-                    Boolean definiteArticle = (Boolean)analysis.getExtendedProperties().get("definiteArticle");
-                    if (definiteArticle != null) {
-                        builder.definiteArticle(definiteArticle);
-                    }
-                    Boolean strippablePrefix = (Boolean)analysis.getExtendedProperties().get("strippablePrefix");
-                    if (strippablePrefix != null) {
-                        builder.strippablePrefix(strippablePrefix);
-                    }
-
-                    List<String> prefixes = cast(analysis.getExtendedProperties().get("prefixes"));
-                    if (prefixes != null) {
-                        List<String> prefixTags = cast(analysis.getExtendedProperties().get("prefixTags"));
-                        for (int x = 0; x < prefixes.size(); x++) {
-                            builder.addPrefix(prefixes.get(x), prefixTags.get(x));
-                        }
-                    }
-
-                    List<String> stems = cast(analysis.getExtendedProperties().get("stems"));
-                    if (stems != null) {
-                        List<String> stemTags = cast(analysis.getExtendedProperties().get("stemTags"));
-                        for (int x = 0; x < stems.size(); x++) {
-                            builder.addStem(stems.get(x), stemTags.get(x));
-                        }
-                    }
-
-                    List<String> suffixes = cast(analysis.getExtendedProperties().get("suffixes"));
-                    if (suffixes != null) {
-                        List<String> suffixTags = cast(analysis.getExtendedProperties().get("suffixTags"));
-                        for (int x = 0; x < suffixes.size(); x++) {
-                            builder.addSuffix(suffixes.get(x), suffixTags.get(x));
-                        }
-                    }
-
-                    for (Map.Entry<String, Object> me : analysis.getExtendedProperties().entrySet()) {
-                        if (!ARABIC_FIELDS.contains(me.getKey())) {
-                            builder.extendedProperty(me.getKey(), me.getValue());
-                        }
-                    }
-
-                    analysis = builder.build();
-                    ctxt.setAttribute(MorphoAnalysisListDeserializer.class, arMaDeserializer);
+            if (jp.getCurrentToken() != JsonToken.START_OBJECT) {
+                result.add((MorphoAnalysis) currentDeserializer.deserialize(jp, ctxt));
+                continue;
+            }
+            /*
+             * Peek at the field names, buffering the ones we pass, until one of them tells us the type.
+             * Then read the analysis once with the right deserializer, from the buffer followed by the rest
+             * of the input.
+             */
+            TokenBuffer tb = new TokenBuffer(jp, ctxt);
+            tb.writeStartObject();
+            JsonDeserializer<Object> chosen = null;
+            JsonToken t = jp.nextToken();
+            while (t == JsonToken.FIELD_NAME) {
+                chosen = deserializerForField(jp.getCurrentName());
+                if (chosen != null) {
+                    break;
                 }
+                tb.copyCurrentStructure(jp);
+                t = jp.nextToken();
             }
-            result.add(analysis);
-        }
-        return ImmutableList.copyOf(result);
-    }
 
-    private void copyBasic(MorphoAnalysis analysis, MorphoAnalysis.Builder builder) {
-        if (analysis.getLemma() != null && !"".equals(analysis.getLemma())) {
-            builder.lemma(analysis.getLemma());
-        }
-        if (analysis.getPartOfSpeech() != null && !"".equals(analysis.getPartOfSpeech())) {
-            builder.partOfSpeech(analysis.getPartOfSpeech());
-        }
-        if (analysis.getRaw() != null && !"".equals(analysis.getRaw())) {
-            builder.raw(analysis.getRaw());
-        }
-        if (analysis.getComponents() != null) {
-            for (Token token : analysis.getComponents()) {
-                builder.addComponent(token);
+            JsonParser itemParser;
+            if (chosen != null) {
+                // the sequence delivers the buffered tokens, and then the field name at which we stopped.
+                itemParser = JsonParserSequence.createFlattened(true, tb.asParser(jp), jp);
+                currentDeserializer = chosen;
+            } else {
+                // we consumed the entire object.
+                tb.writeEndObject();
+                itemParser = tb.asParser(jp);
             }
+            itemParser.nextToken(); // START_OBJECT
+            result.add((MorphoAnalysis) currentDeserializer.deserialize(itemParser, ctxt));
         }
-    }
-
-    @SuppressWarnings("unchecked")
-    private static List<String> cast(Object object) {
-        return (List<String>)object;
+        return ImmutableList.copyOf(result);
     }
 
     @Override
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes a document read by {@link LazyAnnotatedTextReader} by copying the Json it was read from.
+ * Since {@link AnnotatedText} is immutable, that Json is still an exact description of the document.
+ * Other documents, documents whose Json differs from what the bean serializer would write (see
+ * {@link JsonAttributeMap#isCopyable()}), and documents written to anything but a plain Json generator
+ * without a pretty printer, sorted maps or attributes that change the output go to the usual bean serializer.
+ */
+final class PassThroughSerializer extends StdSerializer<AnnotatedText> implements ResolvableSerializer, ContextualSerializer {
+    private final JsonSerializer<Object> delegate;
+
+    /**
+     * Wraps the bean serializer for {@link AnnotatedText}.
+     */
+    static final class Modifier extends BeanSerializerModifier {
+        @Override
+        @SuppressWarnings("unchecked")
+        public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc, JsonSerializer<?> serializer) {
+            if (beanDesc.getBeanClass() == AnnotatedText.class) {
+                return new PassThroughSerializer((JsonSerializer<Object>) serializer);
+            }
+            return serializer;
+        }
+    }
+
+    PassThroughSerializer(JsonSerializer<Object> delegate) {
+        super(AnnotatedText.class);
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        if (delegate instanceof ResolvableSerializer) {
+            ((ResolvableSerializer) delegate).resolve(provider);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property) throws JsonMappingException {
+        JsonSerializer<?> contextual = provider.handlePrimaryContextualization(delegate, property);
+        return contextual == delegate ? this : new PassThroughSerializer((JsonSerializer<Object>) contextual);
+    }
+
+    @Override
+    public void serialize(AnnotatedText value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (value.getAttributes() instanceof JsonAttributeMap
+            && ((JsonAttributeMap) value.getAttributes()).isCopyable()
+            && gen instanceof JsonGeneratorImpl
+            && gen.getPrettyPrinter() == null
+            && !provider.isEnabled(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            && provider.getAttribute(EmbeddingMapSerializer.PACKED_EMBEDDINGS) == null) {
+            gen.writeRawValue(((JsonAttributeMap) value.getAttributes()).document());
+        } else {
+            delegate.serialize(value, gen, provider);
+        }
+    }
+
+    @Override
+    public void serializeWithType(AnnotatedText value, JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
+        delegate.serializeWithType(value, gen, provider, typeSer);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.fasterxml.jackson.core.SerializableString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A range of UTF-8 Json text, written as-is by {@link com.fasterxml.jackson.core.JsonGenerator#writeRawValue(SerializableString)}.
+ * The byte-oriented generator copies the bytes; the character-oriented one decodes them.
+ * Only the unquoted forms make sense; the quoted forms are the same.
+ */
+final class RawJson implements SerializableString {
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    RawJson(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * @return the number of bytes.
+     */
+    int length() {
+        return length;
+    }
+
+    @Override
+    public String getValue() {
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int charLength() {
+        return getValue().length();
+    }
+
+    @Override
+    public char[] asQuotedChars() {
+        return getValue().toCharArray();
+    }
+
+    @Override
+    public byte[] asUnquotedUTF8() {
+        if (offset == 0 && length == bytes.length) {
+            return bytes;
+        }
+        return Arrays.copyOfRange(bytes, offset, offset + length);
+    }
+
+    @Override
+    public byte[] asQuotedUTF8() {
+        return asUnquotedUTF8();
+    }
+
+    @Override
+    public int appendQuotedUTF8(byte[] buffer, int bufferOffset) {
+        return appendUnquotedUTF8(buffer, bufferOffset);
+    }
+
+    @Override
+    public int appendQuoted(char[] buffer, int bufferOffset) {
+        return appendUnquoted(buffer, bufferOffset);
+    }
+
+    @Override
+    public int appendUnquotedUTF8(byte[] buffer, int bufferOffset) {
+        if (bufferOffset + length > buffer.length) {
+            return -1;
+        }
+        System.arraycopy(bytes, offset, buffer, bufferOffset, length);
+        return length;
+    }
+
+    @Override
+    public int appendUnquoted(char[] buffer, int bufferOffset) {
+        String value = getValue();
+        if (bufferOffset + value.length() > buffer.length) {
+            return -1;
+        }
+        value.getChars(0, value.length(), buffer, bufferOffset);
+        return value.length();
+    }
+
+    @Override
+    public int writeQuotedUTF8(OutputStream out) throws IOException {
+        return writeUnquotedUTF8(out);
+    }
+
+    @Override
+    public int writeUnquotedUTF8(OutputStream out) throws IOException {
+        out.write(bytes, offset, length);
+        return length;
+    }
+
+    @Override
+    public int putQuotedUTF8(ByteBuffer buffer) {
+        return putUnquotedUTF8(buffer);
+    }
+
+    @Override
+    public int putUnquotedUTF8(ByteBuffer buffer) {
+        if (buffer.remaining() < length) {
+            return -1;
+        }
+        buffer.put(bytes, offset, length);
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return getValue();
+    }
+}
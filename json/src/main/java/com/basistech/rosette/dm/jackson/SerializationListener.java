@@ -0,0 +1,187 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.BaseAttribute;
+
+import java.io.Serializable;
+
+/**
+ * Receives the size and time of each document that a mapper reads or writes, and of each attribute that it
+ * writes, to find out which attributes make payloads large and slow, or to report them to monitoring such as
+ * flight recorder events. Install one with
+ * {@link AnnotatedDataModelModule#setupObjectMapper(com.fasterxml.jackson.databind.ObjectMapper, SerializationListener)},
+ * {@link com.basistech.rosette.dm.jackson.array.AnnotatedDataModelArrayModule#setupObjectMapper(com.fasterxml.jackson.databind.ObjectMapper, SerializationListener)}
+ * or {@link AdmCodec#AdmCodec(AdmCodec.Shape, com.fasterxml.jackson.core.JsonFactory, SerializationListener)};
+ * combine several with {@link #compose(SerializationListener...)}.
+ * A mapper set up without a listener reads and writes exactly as before, at no extra cost.
+ * <br>
+ * The methods do nothing; override the ones you need. Listeners are called on the threads that read and write,
+ * so they must be thread-safe, and they should be quick. See the adm-dropwizard module for a listener that
+ * records Dropwizard Metrics, and the adm-jfr module for one that records flight recorder events.
+ * <br>
+ * Listeners are {@link Serializable}, because the serializers that call them are; a listener that cannot be
+ * serialized makes the mapper fail to serialize, rather than lose its metering.
+ * <br>
+ * Sizes are in bytes, or in characters for a {@link java.io.Writer} or {@link java.io.Reader}, such as
+ * {@link com.fasterxml.jackson.databind.ObjectMapper#writeValueAsString(Object)}, and include
+ * separators and the attribute's type, but not headers that a format writes once per output, such as
+ * the Smile header. A size is -1 when it is unknown, which happens when a
+ * document is written to a {@link com.fasterxml.jackson.core.JsonGenerator} that the mapper's
+ * factory did not create, or read from a tree or a buffer rather than from its serialized form.
+ */
+public abstract class SerializationListener implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Called before a document is written.
+     * @param text the document.
+     * @param format the name of the format, from {@link com.fasterxml.jackson.core.JsonFactory#getFormatName()},
+     *               such as {@code JSON} or {@code Smile}.
+     * @param shape the shape.
+     * @return an object to pass to {@link #documentWritten}, or {@code null}.
+     */
+    public Object beginWrite(AnnotatedText text, String format, AdmCodec.Shape shape) {
+        return null;
+    }
+
+    /**
+     * Called after each attribute of a document is written.
+     * @param key the attribute key, as in {@link AnnotatedText#getAttributes()}.
+     * @param attribute the attribute.
+     * @param size the size of its serialized form, or -1.
+     * @param nanos how long it took to write it.
+     */
+    public void attributeWritten(String key, BaseAttribute attribute, long size, long nanos) {
+        //
+    }
+
+    /**
+     * Called after a document is written. It is not called if writing throws.
+     * @param text the document.
+     * @param context the object from {@link #beginWrite}.
+     * @param size the size of its serialized form, or -1.
+     * @param nanos how long it took to write it, including its attributes.
+     */
+    public void documentWritten(AnnotatedText text, Object context, long size, long nanos) {
+        //
+    }
+
+    /**
+     * Called before a document is read.
+     * @param format the name of the format.
+     * @param shape the shape.
+     * @return an object to pass to {@link #documentRead}, or {@code null}.
+     */
+    public Object beginRead(String format, AdmCodec.Shape shape) {
+        return null;
+    }
+
+    /**
+     * Called after a document is read. It is not called if reading throws.
+     * @param text the document.
+     * @param context the object from {@link #beginRead}.
+     * @param size the size of its serialized form, or -1.
+     * @param nanos how long it took to read it.
+     */
+    public void documentRead(AnnotatedText text, Object context, long size, long nanos) {
+        //
+    }
+
+    /**
+     * @return whether this listener overrides {@link #attributeWritten}; if not, the modules do not meter
+     * attributes one at a time, and write them exactly as they do without a listener.
+     */
+    boolean reportsAttributes() {
+        try {
+            return getClass().getMethod("attributeWritten", String.class, BaseAttribute.class, long.class, long.class)
+                .getDeclaringClass() != SerializationListener.class;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("attributeWritten is missing", e);
+        }
+    }
+
+    /**
+     * Combine listeners, so that one mapper can report to all of them.
+     * @param listeners the listeners, which are called in order.
+     * @return a listener that calls each of them.
+     */
+    public static SerializationListener compose(SerializationListener... listeners) {
+        return new Composite(listeners.clone());
+    }
+
+    private static final class Composite extends SerializationListener {
+        private static final long serialVersionUID = 1L;
+        private final SerializationListener[] listeners;
+
+        Composite(SerializationListener[] listeners) {
+            this.listeners = listeners;
+        }
+
+        @Override
+        public Object beginWrite(AnnotatedText text, String format, AdmCodec.Shape shape) {
+            Object[] contexts = new Object[listeners.length];
+            for (int x = 0; x < listeners.length; x++) {
+                contexts[x] = listeners[x].beginWrite(text, format, shape);
+            }
+            return contexts;
+        }
+
+        @Override
+        public void attributeWritten(String key, BaseAttribute attribute, long size, long nanos) {
+            for (SerializationListener listener : listeners) {
+                listener.attributeWritten(key, attribute, size, nanos);
+            }
+        }
+
+        @Override
+        boolean reportsAttributes() {
+            for (SerializationListener listener : listeners) {
+                if (listener.reportsAttributes()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void documentWritten(AnnotatedText text, Object context, long size, long nanos) {
+            Object[] contexts = (Object[]) context;
+            for (int x = 0; x < listeners.length; x++) {
+                listeners[x].documentWritten(text, contexts[x], size, nanos);
+            }
+        }
+
+        @Override
+        public Object beginRead(String format, AdmCodec.Shape shape) {
+            Object[] contexts = new Object[listeners.length];
+            for (int x = 0; x < listeners.length; x++) {
+                contexts[x] = listeners[x].beginRead(format, shape);
+            }
+            return contexts;
+        }
+
+        @Override
+        public void documentRead(AnnotatedText text, Object context, long size, long nanos) {
+            Object[] contexts = (Object[]) context;
+            for (int x = 0; x < listeners.length; x++) {
+                listeners[x].documentRead(text, contexts[x], size, nanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.io.IOContext;
+import com.fasterxml.jackson.core.io.OutputDecorator;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.google.common.io.CountingOutputStream;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Internal use: the machinery behind {@link SerializationListener}, shared by the plain and array modules.
+ */
+public final class SerializationMetrics {
+    /* a reader and writer attribute for documents that are not really read or written, such as those that AdmCodec only measures. */
+    static final Object UNMETERED = new Object();
+
+    private SerializationMetrics() {
+        //
+    }
+
+    /**
+     * Internal use method for the modules; installs a listener while a module is set up.
+     * @param context the module's setup context.
+     * @param listener the listener.
+     * @param shape the shape that the module reads and writes.
+     */
+    public static void setupModule(Module.SetupContext context, SerializationListener listener, AdmCodec.Shape shape) {
+        ObjectCodec owner = context.getOwner();
+        String format = null;
+        if (owner instanceof ObjectMapper) {
+            // count what the generators write, so that we can tell where attributes start and end.
+            JsonFactory factory = ((ObjectMapper) owner).getFactory();
+            if (!(factory.getOutputDecorator() instanceof CountingDecorator)) {
+                factory.setOutputDecorator(new CountingDecorator(factory.getOutputDecorator()));
+            }
+            format = factory.getFormatName();
+        }
+        context.addBeanSerializerModifier(new Modifier(listener, format, shape));
+        context.addBeanDeserializerModifier(new ReadModifier(listener, format, shape));
+    }
+
+    /**
+     * @param gen a generator.
+     * @return how much it has written, including what it has buffered, or -1 if that is unknown.
+     */
+    static long position(JsonGenerator gen) {
+        int buffered = gen.getOutputBuffered();
+        if (buffered < 0) {
+            return -1;
+        }
+        Object target = gen.getOutputTarget();
+        if (target instanceof CountingOutputStream) {
+            return ((CountingOutputStream) target).getCount() + buffered;
+        } else if (target instanceof CountingWriter) {
+            return ((CountingWriter) target).count + buffered;
+        }
+        return -1;
+    }
+
+    /**
+     * @param decorator the output decorator of a factory.
+     * @return whether it leaves the output as it is.
+     */
+    static boolean isNeutral(OutputDecorator decorator) {
+        return decorator == null || decorator instanceof CountingDecorator && ((CountingDecorator) decorator).next == null;
+    }
+
+    /**
+     * @param provider the provider for a document.
+     * @return whether to report the document.
+     */
+    static boolean isMetered(SerializerProvider provider) {
+        return provider.getAttribute(UNMETERED) == null;
+    }
+
+    /**
+     * @param ctxt the context for a document.
+     * @return whether to report the document.
+     */
+    static boolean isMetered(DeserializationContext ctxt) {
+        return ctxt.getAttribute(UNMETERED) == null;
+    }
+
+    /**
+     * @param location a location from a parser.
+     * @return its offset in bytes, or else in characters, or -1 if the parser does not know it.
+     */
+    static long offset(JsonLocation location) {
+        if (location.getByteOffset() >= 0) {
+            return location.getByteOffset();
+        }
+        return location.getCharOffset();
+    }
+
+    static long size(long start, long end) {
+        return start < 0 || end < 0 ? -1 : end - start;
+    }
+
+    /**
+     * Meters {@link AnnotatedText} and its attributes property.
+     */
+    private static final class Modifier extends BeanSerializerModifier {
+        private final SerializationListener listener;
+        private final String format;
+        private final AdmCodec.Shape shape;
+
+        Modifier(SerializationListener listener, String format, AdmCodec.Shape shape) {
+            this.listener = listener;
+            this.format = format;
+            this.shape = shape;
+        }
+
+        @Override
+        public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc, List<BeanPropertyWriter> beanProperties) {
+            if (beanDesc.getBeanClass() != AnnotatedText.class || !listener.reportsAttributes()) {
+                return beanProperties;
+            }
+            for (int x = 0; x < beanProperties.size(); x++) {
+                BeanPropertyWriter writer = beanProperties.get(x);
+                if ("attributes".equals(writer.getName())) {
+                    beanProperties.set(x, new MeteredAttributesWriter(writer, listener, shape));
+                }
+            }
+            return beanProperties;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc, JsonSerializer<?> serializer) {
+            if (beanDesc.getBeanClass() == AnnotatedText.class) {
+                return new MeteredAnnotatedTextSerializer((JsonSerializer<Object>) serializer, listener, format, shape);
+            }
+            return serializer;
+        }
+    }
+
+    /**
+     * Meters reading {@link AnnotatedText}.
+     */
+    private static final class ReadModifier extends BeanDeserializerModifier {
+        private final SerializationListener listener;
+        private final String format;
+        private final AdmCodec.Shape shape;
+
+        ReadModifier(SerializationListener listener, String format, AdmCodec.Shape shape) {
+            this.listener = listener;
+            this.format = format;
+            this.shape = shape;
+        }
+
+        @Override
+        public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config, BeanDescription beanDesc, JsonDeserializer<?> deserializer) {
+            if (beanDesc.getBeanClass() == AnnotatedText.class) {
+                return new MeteredAnnotatedTextDeserializer(deserializer, listener, format, shape);
+            }
+            return deserializer;
+        }
+    }
+
+    /**
+     * Counts what generators write, for {@link #position(JsonGenerator)}.
+     */
+    private static final class CountingDecorator extends OutputDecorator {
+        private static final long serialVersionUID = 1L;
+        private final OutputDecorator next;
+
+        CountingDecorator(OutputDecorator next) {
+            this.next = next;
+        }
+
+        @Override
+        public OutputStream decorate(IOContext ctxt, OutputStream out) throws IOException {
+            return new CountingOutputStream(next == null ? out : next.decorate(ctxt, out));
+        }
+
+        @Override
+        public Writer decorate(IOContext ctxt, Writer w) throws IOException {
+            return new CountingWriter(next == null ? w : next.decorate(ctxt, w));
+        }
+    }
+
+    private static final class CountingWriter extends FilterWriter {
+        long count;
+
+        CountingWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.write(c);
+            count++;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            out.write(cbuf, off, len);
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            out.write(str, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.CharTypes;
+import com.fasterxml.jackson.core.io.CharacterEscapes;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.core.json.JsonWriteContext;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.CharBuffer;
+
+/**
+ * A Json generator that writes nothing, but counts the bytes of UTF-8 Json that
+ * {@link com.fasterxml.jackson.core.json.UTF8JsonGenerator} would write for the same calls:
+ * the same separators, escapes, number formats and Base64. It is a {@link JsonGeneratorImpl}, so that
+ * {@link DoubleSerializer} and {@link PassThroughSerializer} take the same paths as they do for Json.
+ * Pretty printers work, since they write through {@link #writeRaw(String)}. It does not support
+ * {@link CharacterEscapes}; {@link AdmCodec#estimateSize} checks that the factory has none.
+ */
+final class SizeCountingGenerator extends JsonGeneratorImpl {
+    private static final JsonGenerator.Feature[] FEATURES = JsonGenerator.Feature.values();
+    private static final int[] OUTPUT_ESCAPES = CharTypes.get7BitOutputEscapes();
+    private long size;
+
+    private SizeCountingGenerator(int features, ObjectCodec codec) {
+        // there are no buffers, so no IOContext.
+        super(null, features, codec);
+    }
+
+    /**
+     * Create a generator with the same features and codec as the generators from a factory.
+     * @param factory the factory.
+     * @return the generator.
+     */
+    static SizeCountingGenerator create(JsonFactory factory) {
+        int features = 0;
+        for (JsonGenerator.Feature feature : FEATURES) {
+            if (factory.isEnabled(feature)) {
+                features |= feature.getMask();
+            }
+        }
+        SizeCountingGenerator generator = new SizeCountingGenerator(features, factory.getCodec());
+        String separator = factory.getRootValueSeparator();
+        if (!DefaultPrettyPrinter.DEFAULT_ROOT_VALUE_SEPARATOR.getValue().equals(separator)) {
+            generator.setRootValueSeparator(separator == null ? null : new SerializedString(separator));
+        }
+        return generator;
+    }
+
+    /**
+     * @return the number of bytes written so far.
+     */
+    long getSize() {
+        return size;
+    }
+
+    @Override
+    public Object getOutputTarget() {
+        return null;
+    }
+
+    @Override
+    public int getOutputBuffered() {
+        return -1;
+    }
+
+    @Override
+    public void flush() {
+        //
+    }
+
+    @Override
+    protected void _releaseBuffers() {
+        //
+    }
+
+    @Override
+    protected void _verifyValueWrite(String typeMsg) throws IOException {
+        int status = _writeContext.writeValue();
+        if (_cfgPrettyPrinter != null) {
+            _verifyPrettyValueWrite(typeMsg, status);
+            return;
+        }
+        switch (status) {
+        case JsonWriteContext.STATUS_OK_AFTER_COMMA:
+        case JsonWriteContext.STATUS_OK_AFTER_COLON:
+            size++;
+            break;
+        case JsonWriteContext.STATUS_OK_AFTER_SPACE:
+            if (_rootValueSeparator != null) {
+                size += _rootValueSeparator.asUnquotedUTF8().length;
+            }
+            break;
+        case JsonWriteContext.STATUS_EXPECT_NAME:
+            _reportCantWriteValueExpectName(typeMsg);
+            break;
+        default:
+            break;
+        }
+    }
+
+    @Override
+    public void writeStartArray() throws IOException {
+        _verifyValueWrite("start an array");
+        _writeContext = _writeContext.createChildArrayContext();
+        if (_cfgPrettyPrinter != null) {
+            _cfgPrettyPrinter.writeStartArray(this);
+        } else {
+            size++;
+        }
+    }
+
+    @Override
+    public void writeEndArray() throws IOException {
+        if (!_writeContext.inArray()) {
+            _reportError("Current context not Array but " + _writeContext.typeDesc());
+        }
+        if (_cfgPrettyPrinter != null) {
+            _cfgPrettyPrinter.writeEndArray(this, _writeContext.getEntryCount());
+        } else {
+            size++;
+        }
+        _writeContext = _writeContext.clearAndGetParent();
+    }
+
+    @Override
+    public void writeStartObject() throws IOException {
+        _verifyValueWrite("start an object");
+        _writeContext = _writeContext.createChildObjectContext();
+        if (_cfgPrettyPrinter != null) {
+            _cfgPrettyPrinter.writeStartObject(this);
+        } else {
+            size++;
+        }
+    }
+
+    @Override
+    public void writeEndObject() throws IOException {
+        if (!_writeContext.inObject()) {
+            _reportError("Current context not Object but " + _writeContext.typeDesc());
+        }
+        if (_cfgPrettyPrinter != null) {
+            _cfgPrettyPrinter.writeEndObject(this, _writeContext.getEntryCount());
+        } else {
+            size++;
+        }
+        _writeContext = _writeContext.clearAndGetParent();
+    }
+
+    @Override
+    public void writeFieldName(String name) throws IOException {
+        int status = _writeContext.writeFieldName(name);
+        if (status == JsonWriteContext.STATUS_EXPECT_VALUE) {
+            _reportError("Can not write a field name, expecting a value");
+        }
+        if (_cfgPrettyPrinter != null) {
+            if (status == JsonWriteContext.STATUS_OK_AFTER_COMMA) {
+                _cfgPrettyPrinter.writeObjectEntrySeparator(this);
+            } else {
+                _cfgPrettyPrinter.beforeObjectEntries(this);
+            }
+        } else if (status == JsonWriteContext.STATUS_OK_AFTER_COMMA) {
+            size++;
+        }
+        size += escaped(name, 0, name.length()) + (_cfgUnqNames ? 0 : 2);
+    }
+
+    @Override
+    public void writeString(String text) throws IOException {
+        _verifyValueWrite(WRITE_STRING);
+        if (text == null) {
+            size += 4;
+        } else {
+            size += escaped(text, 0, text.length()) + 2;
+        }
+    }
+
+    @Override
+    public void writeString(char[] text, int offset, int len) throws IOException {
+        _verifyValueWrite(WRITE_STRING);
+        size += escaped(CharBuffer.wrap(text), offset, offset + len) + 2;
+    }
+
+    @Override
+    public void writeRawUTF8String(byte[] text, int offset, int length) throws IOException {
+        _verifyValueWrite(WRITE_STRING);
+        size += length + 2;
+    }
+
+    @Override
+    public void writeUTF8String(byte[] text, int offset, int length) throws IOException {
+        _verifyValueWrite(WRITE_STRING);
+        long count = 2;
+        for (int x = offset; x < offset + length; x++) {
+            int b = text[x];
+            count += b >= 0 ? escapedAscii(b) : 1;
+        }
+        size += count;
+    }
+
+    @Override
+    public void writeRaw(String text) throws IOException {
+        size += utf8(text, 0, text.length());
+    }
+
+    @Override
+    public void writeRaw(String text, int offset, int len) throws IOException {
+        size += utf8(text, offset, offset + len);
+    }
+
+    @Override
+    public void writeRaw(char[] text, int offset, int len) throws IOException {
+        size += utf8(text, offset, offset + len);
+    }
+
+    @Override
+    public void writeRaw(char c) throws IOException {
+        size += c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+    }
+
+    @Override
+    public void writeRaw(SerializableString text) throws IOException {
+        if (text instanceof RawJson) {
+            size += ((RawJson) text).length();
+        } else {
+            size += text.asUnquotedUTF8().length;
+        }
+    }
+
+    @Override
+    public void writeBinary(Base64Variant variant, byte[] data, int offset, int len) throws IOException {
+        _verifyValueWrite(WRITE_BINARY);
+        int chunks = len / 3;
+        int remainder = len - chunks * 3;
+        long count = 2 + chunks * 4L;
+        // an escaped linefeed after each full line of chunks.
+        count += 2L * (chunks / (variant.getMaxLineLength() >> 2));
+        if (remainder > 0) {
+            count += variant.usesPadding() ? 4 : remainder + 1;
+        }
+        size += count;
+    }
+
+    @Override
+    public void writeNumber(int v) throws IOException {
+        _verifyValueWrite(WRITE_NUMBER);
+        size += digits(v) + quotes();
+    }
+
+    @Override
+    public void writeNumber(long v) throws IOException {
+        _verifyValueWrite(WRITE_NUMBER);
+        size += digits(v) + quotes();
+    }
+
+    @Override
+    public void writeNumber(BigInteger v) throws IOException {
+        _verifyValueWrite(WRITE_NUMBER);
+        size += v == null ? 4 : v.toString().length() + quotes();
+    }
+
+    @Override
+    public void writeNumber(double v) throws IOException {
+        if (Double.isNaN(v) || Double.isInfinite(v)) {
+            if (isEnabled(JsonGenerator.Feature.QUOTE_NON_NUMERIC_NUMBERS)) {
+                writeString(String.valueOf(v));
+                return;
+            }
+        }
+        _verifyValueWrite(WRITE_NUMBER);
+        size += String.valueOf(v).length() + quotes();
+    }
+
+    @Override
+    public void writeNumber(float v) throws IOException {
+        if (Float.isNaN(v) || Float.isInfinite(v)) {
+            if (isEnabled(JsonGenerator.Feature.QUOTE_NON_NUMERIC_NUMBERS)) {
+                writeString(String.valueOf(v));
+                return;
+            }
+        }
+        _verifyValueWrite(WRITE_NUMBER);
+        size += String.valueOf(v).length() + quotes();
+    }
+
+    @Override
+    public void writeNumber(BigDecimal v) throws IOException {
+        _verifyValueWrite(WRITE_NUMBER);
+        size += v == null ? 4 : _asString(v).length() + quotes();
+    }
+
+    @Override
+    public void writeNumber(String encodedValue) throws IOException {
+        _verifyValueWrite(WRITE_NUMBER);
+        size += utf8(encodedValue, 0, encodedValue.length()) + quotes();
+    }
+
+    @Override
+    public void writeBoolean(boolean state) throws IOException {
+        _verifyValueWrite(WRITE_BOOLEAN);
+        size += state ? 4 : 5;
+    }
+
+    @Override
+    public void writeNull() throws IOException {
+        _verifyValueWrite(WRITE_NULL);
+        size += 4;
+    }
+
+    private int quotes() {
+        return _cfgNumbersAsStrings ? 2 : 0;
+    }
+
+    private static int digits(long v) {
+        if (v == Long.MIN_VALUE) {
+            return 20;
+        }
+        int count = 1;
+        if (v < 0) {
+            count++;
+            v = -v;
+        }
+        while (v >= 10) {
+            v /= 10;
+            count++;
+        }
+        return count;
+    }
+
+    /* what an ASCII character takes in a string. */
+    private int escapedAscii(int c) {
+        int escape = OUTPUT_ESCAPES[c];
+        if (escape == 0) {
+            return 1;
+        }
+        // a backslash and a letter, or a Unicode escape.
+        return escape > 0 ? 2 : 6;
+    }
+
+    /*
+     * What characters take in a string. Like the generator, this escapes characters above the highest
+     * non-escaped character, and each half of a surrogate pair, as Unicode escapes.
+     */
+    private long escaped(CharSequence text, int start, int end) {
+        long count = 0;
+        int highest = _maximumNonEscapedChar;
+        for (int x = start; x < end; x++) {
+            char c = text.charAt(x);
+            if (c < 0x80) {
+                count += escapedAscii(c);
+            } else if (highest != 0 && c > highest) {
+                count += 6;
+            } else if (c < 0x800) {
+                count += 2;
+            } else if (Character.isSurrogate(c)) {
+                count += 6;
+            } else {
+                count += 3;
+            }
+        }
+        return count;
+    }
+
+    /* what characters take as raw UTF-8; surrogate pairs are combined. */
+    private static long utf8(char[] text, int start, int end) {
+        long count = 0;
+        for (int x = start; x < end; x++) {
+            char c = text[x];
+            if (c < 0x80) {
+                count++;
+            } else if (c < 0x800) {
+                count += 2;
+            } else if (Character.isHighSurrogate(c) && x + 1 < end && Character.isLowSurrogate(text[x + 1])) {
+                count += 4;
+                x++;
+            } else {
+                count += 3;
+            }
+        }
+        return count;
+    }
+
+    private static long utf8(CharSequence text, int start, int end) {
+        long count = 0;
+        for (int x = start; x < end; x++) {
+            char c = text.charAt(x);
+            if (c < 0x80) {
+                count++;
+            } else if (c < 0x800) {
+                count += 2;
+            } else if (Character.isHighSurrogate(c) && x + 1 < end && Character.isLowSurrogate(text.charAt(x + 1))) {
+                count += 4;
+                x++;
+            } else {
+                count += 3;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.basistech.rosette.dm.jackson.array.AnnotatedDataModelArrayModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+/**
+ * Supported setup for reading and writing the annotated data model as Smile, the binary form of Json.
+ * The factory shares repeated property names, which Smile does by default, and also repeated short string
+ * values, which it does not; the model repeats values such as parts of speech, entity types and language
+ * codes many times in a document. Binary data, such as packed embeddings, is written raw rather than in
+ * 7-bit form. Smile written this way carries a header that tells readers about these choices, so any Smile
+ * reader can read it.
+ * <br>
+ * This needs {@code com.fasterxml.jackson.dataformat:jackson-dataformat-smile}, which is an optional
+ * dependency of this module.
+ */
+public final class SmileMappers {
+    private SmileMappers() {
+        //
+    }
+
+    /**
+     * Create a Smile factory tuned for the model.
+     * @return the factory.
+     */
+    public static SmileFactory newSmileFactory() {
+        SmileFactory factory = new SmileFactory();
+        factory.enable(SmileGenerator.Feature.WRITE_HEADER);
+        factory.enable(SmileGenerator.Feature.CHECK_SHARED_NAMES);
+        factory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+        factory.disable(SmileGenerator.Feature.ENCODE_BINARY_AS_7BIT);
+        return factory;
+    }
+
+    /**
+     * Create a mapper for the plain form of the model in Smile.
+     * See {@link AnnotatedDataModelModule#setupObjectMapper(ObjectMapper)}.
+     * @return the mapper.
+     */
+    public static ObjectMapper setupSmileMapper() {
+        return AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper(newSmileFactory()));
+    }
+
+    /**
+     * Create a mapper for the array form of the model in Smile.
+     * See {@link AnnotatedDataModelArrayModule#setupObjectMapper(ObjectMapper)}.
+     * @return the mapper.
+     */
+    public static ObjectMapper setupSmileArrayMapper() {
+        return AnnotatedDataModelArrayModule.setupObjectMapper(new ObjectMapper(newSmileFactory()));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.jackson;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * A reusable {@link CharSequence} holding a copy of the current string value of a parser.
+ */
+final class TextView implements CharSequence {
+    private char[] chars = new char[32];
+    private int length;
+
+    /**
+     * Copy the current value.
+     * @param parser the parser, on a string value.
+     * @return this.
+     */
+    TextView set(JsonParser parser) throws IOException {
+        int valueLength = parser.getTextLength();
+        if (valueLength > chars.length) {
+            chars = new char[Math.max(valueLength, chars.length * 2)];
+        }
+        System.arraycopy(parser.getTextCharacters(), parser.getTextOffset(), chars, 0, valueLength);
+        length = valueLength;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + length);
+        }
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
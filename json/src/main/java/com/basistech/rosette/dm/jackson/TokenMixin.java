@@ -17,6 +17,7 @@ package com.basistech.rosette.dm.jackson;
 
 import com.basistech.rosette.dm.MorphoAnalysis;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
@@ -41,5 +42,6 @@ public abstract class TokenMixin {
         //
     }
 
-
+    @JsonIgnore
+    abstract boolean isTextFromData();
 }
@@ -36,6 +36,8 @@ import com.fasterxml.jackson.databind.util.Annotations;
  * </ul>
  */
 public final class VersionProperty extends VirtualBeanPropertyWriter {
+    static final String VERSION = "1.1.0";
+
     private VersionProperty() {
         super();
     }
@@ -49,7 +51,7 @@ public final class VersionProperty extends VirtualBeanPropertyWriter {
         if (_name.toString().equals("version")) {
             // We are currently doing 1.1.0. We accept older versions.
             //
-            return "1.1.0";
+            return VERSION;
         }
         return null;
     }
@@ -46,6 +46,7 @@ import com.basistech.rosette.dm.TranslatedData;
 import com.basistech.rosette.dm.TranslatedTokens;
 import com.basistech.rosette.dm.Transliteration;
 import com.basistech.rosette.dm.TransliterationResults;
+import com.basistech.rosette.dm.jackson.AdmCodec;
 import com.basistech.rosette.dm.jackson.ArabicMorphoAnalysisMixin;
 import com.basistech.rosette.dm.jackson.AttributeMixin;
 import com.basistech.rosette.dm.jackson.BaseNounPhraseMixin;
@@ -68,6 +69,8 @@ import com.basistech.rosette.dm.jackson.RelationshipMentionMixin;
 import com.basistech.rosette.dm.jackson.ResolvedEntityMixin;
 import com.basistech.rosette.dm.jackson.ScriptRegionMixin;
 import com.basistech.rosette.dm.jackson.SentenceMixin;
+import com.basistech.rosette.dm.jackson.SerializationListener;
+import com.basistech.rosette.dm.jackson.SerializationMetrics;
 import com.basistech.rosette.dm.jackson.ConceptMixin;
 import com.basistech.rosette.dm.jackson.TranslatedDataMixin;
 import com.basistech.rosette.dm.jackson.TranslatedTokensMixin;
@@ -86,9 +89,19 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  */
 @SuppressWarnings("deprecation")
 public class AnnotatedDataModelArrayModule extends EnumModule {
+    private final SerializationListener listener;
 
     public AnnotatedDataModelArrayModule() {
+        this(null);
+    }
+
+    /**
+     * Construct a module that reports what it writes.
+     * @param listener the listener, or {@code null} for none.
+     */
+    public AnnotatedDataModelArrayModule(SerializationListener listener) {
         super();
+        this.listener = listener;
     }
 
     public void setupModule(SetupContext context) {
@@ -126,6 +139,9 @@ public class AnnotatedDataModelArrayModule extends EnumModule {
         context.setMixInAnnotations(Keyphrase.class, KeyphraseMixin.class);
         context.setMixInAnnotations(Transliteration.class, TransliterationMixin.class);
         context.setMixInAnnotations(TransliterationResults.class, TransliterationResultsMixin.class);
+        if (listener != null) {
+            SerializationMetrics.setupModule(context, listener, AdmCodec.Shape.ARRAY);
+        }
     }
 
     /**
@@ -134,7 +150,18 @@ public class AnnotatedDataModelArrayModule extends EnumModule {
      * @return the same mapper, for convenience.
      */
     public static ObjectMapper setupObjectMapper(ObjectMapper mapper) {
-        final AnnotatedDataModelArrayModule module = new AnnotatedDataModelArrayModule();
+        return setupObjectMapper(mapper, null);
+    }
+
+    /**
+     * Register the Annotated Data Model Jackson module on an {@link ObjectMapper},
+     * reporting the size and time of what it writes.
+     * @param mapper the mapper.
+     * @param listener the listener, or {@code null} for none.
+     * @return the same mapper, for convenience.
+     */
+    public static ObjectMapper setupObjectMapper(ObjectMapper mapper, SerializationListener listener) {
+        final AnnotatedDataModelArrayModule module = new AnnotatedDataModelArrayModule(listener);
         mapper.registerModule(module);
         return mapper;
     }
@@ -20,6 +20,7 @@ import com.basistech.rosette.dm.BaseAttribute;
 import com.basistech.rosette.dm.BaseNounPhrase;
 import com.basistech.rosette.dm.CategorizerResult;
 import com.basistech.rosette.dm.Dependency;
+import com.basistech.rosette.dm.Embeddings;
 import com.basistech.rosette.dm.Entity;
 import com.basistech.rosette.dm.Keyphrase;
 import com.basistech.rosette.dm.LanguageDetection;
@@ -125,6 +126,9 @@ public abstract class AnnotatedTextArrayMixin {
     @JsonIgnore
     public abstract ListAttribute<Dependency> getDependencies();
 
+    @JsonIgnore
+    public abstract Embeddings getEmbeddings();
+
     @JsonIgnore
     public abstract ListAttribute<Concept> getConcepts();
 
@@ -18,6 +18,7 @@ package com.basistech.rosette.dm.jackson.array;
 
 import com.basistech.rosette.dm.MorphoAnalysis;
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
@@ -44,5 +45,6 @@ public abstract class TokenArrayMixin {
         //
     }
 
-
+    @JsonIgnore
+    abstract boolean isTextFromData();
 }
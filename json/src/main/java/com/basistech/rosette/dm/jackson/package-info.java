@@ -27,5 +27,23 @@
  * <pre>
  * ObjectMapper mapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper());
  * </pre>
+ *
+ * Services that care about the latency of their first documents can use a shared, warmed
+ * {@link com.basistech.rosette.dm.jackson.AdmCodec} instead of setting up their own mapper.
+ *
+ * Documents too large to build in memory can be written a piece at a time with an
+ * {@link com.basistech.rosette.dm.jackson.AnnotatedTextStreamWriter}, and read without building the model
+ * with an {@link com.basistech.rosette.dm.jackson.AnnotatedTextEventReader}. Servers on non-blocking
+ * channels can parse documents as the bytes arrive with an
+ * {@link com.basistech.rosette.dm.jackson.AnnotatedTextFeedReader}.
+ *
+ * Applications that only need part of each document, or that pass documents along unchanged,
+ * can read them with {@link com.basistech.rosette.dm.jackson.LazyAnnotatedTextReader}, which
+ * deserializes attributes when they are first used. Services that pass a document along a
+ * pipeline can send just what each stage changed with
+ * {@link com.basistech.rosette.dm.jackson.AnnotatedTextDeltaCodec}. For binary Json, use the mappers from
+ * {@link com.basistech.rosette.dm.jackson.SmileMappers} or {@link com.basistech.rosette.dm.jackson.CborMappers}.
+ * Applications that put their own extended properties on attributes can declare their types with an
+ * {@link com.basistech.rosette.dm.jackson.ExtendedPropertySchema}.
  */
 package com.basistech.rosette.dm.jackson;
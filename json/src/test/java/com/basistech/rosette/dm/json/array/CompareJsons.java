@@ -17,6 +17,8 @@ package com.basistech.rosette.dm.json.array;
 
 import com.basistech.rosette.dm.AnnotatedText;
 import com.basistech.rosette.dm.jackson.AnnotatedDataModelModule;
+import com.basistech.rosette.dm.jackson.CborMappers;
+import com.basistech.rosette.dm.jackson.SmileMappers;
 import com.basistech.rosette.dm.jackson.array.AnnotatedDataModelArrayModule;
 import com.codahale.metrics.ConsoleReporter;
 import com.codahale.metrics.MetricRegistry;
@@ -127,6 +129,23 @@ public final class CompareJsons {
                 }
             },
             "CBOR");
+
+        // the supported setups, with shared string values for Smile.
+        runWithFormat(texts, new FactoryFactory() {
+                @Override
+                public JsonFactory newFactory() {
+                    return SmileMappers.newSmileFactory();
+                }
+            },
+            "SMILE-tuned");
+
+        runWithFormat(texts, new FactoryFactory() {
+                @Override
+                public JsonFactory newFactory() {
+                    return CborMappers.newCborFactory();
+                }
+            },
+            "CBOR-tuned");
     }
 
     //CHECKSTYLE:OFF
@@ -0,0 +1,130 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package com.basistech.rosette.dm.json.plain;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.Token;
+import com.basistech.rosette.dm.jackson.AdmCodec;
+import com.basistech.rosette.dm.jackson.AnnotatedDataModelModule;
+import com.basistech.rosette.dm.jackson.SerializationListener;
+import com.basistech.rosette.dm.jackson.SmileMappers;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AdmCodecTest {
+    private final ObjectMapper jsonMapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper());
+
+    private void roundTrip(AdmCodec codec) throws Exception {
+        AnnotatedText text = jsonMapper.readValue(new File("test-data/comn-130-adm.json"), AnnotatedText.class);
+        AnnotatedText read = codec.read(codec.writeValueAsBytes(text));
+        assertEquals(jsonMapper.valueToTree(text), jsonMapper.valueToTree(read));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.write(out, text);
+        assertEquals(jsonMapper.valueToTree(text), jsonMapper.valueToTree(codec.read(out.toByteArray())));
+    }
+
+    @Test
+    public void shapes() throws Exception {
+        assertSame(AdmCodec.plain(), AdmCodec.plain());
+        assertSame(AdmCodec.Shape.ARRAY, AdmCodec.array().getShape());
+        roundTrip(AdmCodec.plain().warmUp());
+        roundTrip(AdmCodec.array().warmUp());
+        roundTrip(new AdmCodec(AdmCodec.Shape.PLAIN, SmileMappers.newSmileFactory()).warmUp());
+        // same output as a mapper set up in the usual way.
+        AnnotatedText text = jsonMapper.readValue(new File("test-data/comn-130-adm.json"), AnnotatedText.class);
+        assertEquals(jsonMapper.writeValueAsString(text), AdmCodec.plain().writeValueAsString(text));
+    }
+
+    @Test
+    public void warmUp() throws Exception {
+        AdmCodec codec = new AdmCodec(AdmCodec.Shape.PLAIN);
+        assertFalse(codec.isWarm());
+        assertSame(codec, codec.warmUp());
+        assertTrue(codec.isWarm());
+        codec.warmUp();
+        Token token = codec.readerFor(Token.class).readValue("{\"startOffset\":0,\"endOffset\":1,\"text\":\"a\"}");
+        assertEquals("a", token.getText());
+        assertEquals(token, codec.readerFor(Token.class).readValue(codec.writerFor(Token.class).writeValueAsString(token)));
+    }
+
+    private static class RecordingListener extends SerializationListener {
+        final List<String> events = Lists.newArrayList();
+
+        @Override
+        public Object beginRead(String format, AdmCodec.Shape shape) {
+            return "read " + format + " " + shape;
+        }
+
+        @Override
+        public void documentRead(AnnotatedText text, Object context, long size, long nanos) {
+            events.add(context + " " + size);
+        }
+
+        @Override
+        public Object beginWrite(AnnotatedText text, String format, AdmCodec.Shape shape) {
+            return "write " + format + " " + shape;
+        }
+
+        @Override
+        public void documentWritten(AnnotatedText text, Object context, long size, long nanos) {
+            events.add(context + " " + size);
+        }
+    }
+
+    @Test
+    public void listener() throws Exception {
+        AnnotatedText text = jsonMapper.readValue(new File("test-data/comn-130-adm.json"), AnnotatedText.class);
+        RecordingListener listener = new RecordingListener();
+        AdmCodec codec = new AdmCodec(AdmCodec.Shape.ARRAY, new JsonFactory(), listener);
+        // the warm up document is not reported.
+        codec.warmUp();
+        byte[] bytes = codec.writeValueAsBytes(text);
+        codec.read(bytes);
+        codec.read(new ByteArrayInputStream(bytes));
+        String content = codec.writeValueAsString(text);
+        codec.read(content);
+        codec.write(new ByteArrayOutputStream(), text);
+        int length = bytes.length;
+        assertEquals(Lists.newArrayList("write JSON ARRAY " + length, "read JSON ARRAY " + length, "read JSON ARRAY " + length,
+            "write JSON ARRAY " + length, "read JSON ARRAY " + length, "write JSON ARRAY " + length), listener.events);
+    }
+
+    /* a token that derives its text from the data is written like one that holds it, in both shapes. */
+    @Test
+    public void tokenTextFromData() throws Exception {
+        String data = "Hello world";
+        Token held = new Token.Builder(6, 11, "world").build();
+        Token derived = new Token.Builder(6, 11, null).textFromData(data).build();
+        for (AdmCodec codec : Lists.newArrayList(AdmCodec.plain(), AdmCodec.array())) {
+            String json = codec.writerFor(Token.class).writeValueAsString(derived);
+            assertEquals(codec.writerFor(Token.class).writeValueAsString(held), json);
+            assertEquals(held, codec.readerFor(Token.class).readValue(json));
+        }
+    }
+}
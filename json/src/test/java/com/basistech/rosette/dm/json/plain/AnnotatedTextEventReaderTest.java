@@ -0,0 +1,227 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package com.basistech.rosette.dm.json.plain;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.Entity;
+import com.basistech.rosette.dm.HanMorphoAnalysis;
+import com.basistech.rosette.dm.LanguageDetection;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.Mention;
+import com.basistech.rosette.dm.MorphoAnalysis;
+import com.basistech.rosette.dm.Sentence;
+import com.basistech.rosette.dm.Token;
+import com.basistech.rosette.dm.jackson.AdmCodec;
+import com.basistech.rosette.dm.jackson.AnnotatedDataModelModule;
+import com.basistech.rosette.dm.jackson.AnnotatedTextVisitor;
+import com.basistech.rosette.dm.jackson.EntityView;
+import com.basistech.rosette.dm.jackson.KnownAttribute;
+import com.basistech.rosette.dm.jackson.SmileMappers;
+import com.basistech.util.LanguageCode;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class AnnotatedTextEventReaderTest {
+
+    /* Records every callback as a string. */
+    private static class Recorder extends AnnotatedTextVisitor {
+        final List<String> events = Lists.newArrayList();
+        private final boolean tokens;
+
+        Recorder(boolean tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public void onData(CharSequence data) {
+            events.add("data " + data);
+        }
+
+        @Override
+        public boolean visitAttribute(String key) {
+            return tokens || !KnownAttribute.TOKEN.key().equals(key);
+        }
+
+        @Override
+        public void onToken(int index, int startOffset, int endOffset, CharSequence text, CharSequence partOfSpeech, CharSequence lemma) {
+            events.add(String.format("token %d %d %d %s %s %s", index, startOffset, endOffset, text, partOfSpeech, lemma));
+        }
+
+        @Override
+        public void onSentence(int index, int startOffset, int endOffset) {
+            events.add(String.format("sentence %d %d %d", index, startOffset, endOffset));
+        }
+
+        @Override
+        public void onEntity(int index, EntityView entity) {
+            StringBuilder event = new StringBuilder(String.format("entity %d %s %s %s %d", index, entity.getType(),
+                entity.getEntityId(), entity.getConfidence(), entity.getHeadMentionIndex()));
+            for (int x = 0; x < entity.getMentionCount(); x++) {
+                event.append(String.format(" %d-%d", entity.getMentionStartOffset(x), entity.getMentionEndOffset(x)));
+            }
+            events.add(event.toString());
+        }
+
+        @Override
+        public void onDocumentMetadata(String key, List<String> values) {
+            events.add("metadata " + key + " " + values);
+        }
+
+        @Override
+        public void onEnd() {
+            events.add("end");
+        }
+    }
+
+    private static AnnotatedText document() {
+        String data = "Bob saw 北京 today";
+        ListAttribute.Builder<Token> tokens = new ListAttribute.Builder<>(Token.class);
+        Token.Builder bob = new Token.Builder(0, 3, "Bob");
+        bob.addAnalysis(new MorphoAnalysis.Builder().partOfSpeech("PROP").lemma("bob").build());
+        tokens.add(bob.build());
+        tokens.add(new Token.Builder(4, 7, "saw").build());
+        Token.Builder beijing = new Token.Builder(8, 10, "北京");
+        beijing.addAnalysis(new HanMorphoAnalysis.Builder().partOfSpeech("NOUN").lemma("北京").addReading("bei3jing1").build());
+        beijing.addAnalysis(new MorphoAnalysis.Builder().partOfSpeech("X").build());
+        tokens.add(beijing.build());
+        Token.Builder today = new Token.Builder(11, 16, "today");
+        today.addAnalysis(new MorphoAnalysis.Builder().lemma("today").build());
+        tokens.add(today.build());
+
+        ListAttribute.Builder<Sentence> sentences = new ListAttribute.Builder<>(Sentence.class);
+        sentences.add(new Sentence.Builder(0, 16).build());
+
+        ListAttribute.Builder<Entity> entities = new ListAttribute.Builder<>(Entity.class);
+        entities.add(new Entity.Builder().type("PERSON").entityId("Q1").confidence(0.5).headMentionIndex(0)
+            .mention(new Mention.Builder(0, 3).build()).build());
+        entities.add(new Entity.Builder().type("LOCATION")
+            .mention(new Mention.Builder(8, 10).normalized("Beijing").build())
+            .mention(new Mention.Builder(8, 10).build()).build());
+
+        LanguageDetection.DetectionResult result = new LanguageDetection.DetectionResult.Builder(LanguageCode.ENGLISH).build();
+        return new AnnotatedText.Builder().data(data)
+            .tokens(tokens.build())
+            .sentences(sentences.build())
+            .entities(entities.build())
+            .wholeDocumentLanguageDetection(new LanguageDetection.Builder(0, 16, ImmutableList.of(result)).build())
+            .documentMetadata(ImmutableMap.<String, List<String>>of("source", ImmutableList.of("a", "b")))
+            .build();
+    }
+
+    /* What the callbacks should be, from the materialized document, in the order of the attributes as written. */
+    private static List<String> expected(AnnotatedText text, List<String> attributeOrder, boolean withTokens) {
+        List<String> events = Lists.newArrayList();
+        events.add("data " + text.getData());
+        for (String key : attributeOrder) {
+            if (key.equals(KnownAttribute.TOKEN.key()) && withTokens) {
+                int index = 0;
+                for (Token token : text.getTokens()) {
+                    MorphoAnalysis first = token.getAnalyses() == null || token.getAnalyses().isEmpty()
+                        ? null : token.getAnalyses().get(0);
+                    events.add(String.format("token %d %d %d %s %s %s", index++, token.getStartOffset(), token.getEndOffset(),
+                        token.getText(), first == null ? null : first.getPartOfSpeech(), first == null ? null : first.getLemma()));
+                }
+            } else if (key.equals(KnownAttribute.SENTENCE.key())) {
+                int index = 0;
+                for (Sentence sentence : text.getSentences()) {
+                    events.add(String.format("sentence %d %d %d", index++, sentence.getStartOffset(), sentence.getEndOffset()));
+                }
+            } else if (key.equals(KnownAttribute.ENTITY.key())) {
+                int index = 0;
+                for (Entity entity : text.getEntities()) {
+                    StringBuilder event = new StringBuilder(String.format("entity %d %s %s %s %d", index++, entity.getType(),
+                        entity.getEntityId(), entity.getConfidence() == null ? Double.NaN : entity.getConfidence(),
+                        entity.getHeadMentionIndex() == null ? -1 : entity.getHeadMentionIndex()));
+                    for (Mention mention : entity.getMentions()) {
+                        event.append(String.format(" %d-%d", mention.getStartOffset(), mention.getEndOffset()));
+                    }
+                    events.add(event.toString());
+                }
+            }
+        }
+        events.add("metadata source [a, b]");
+        events.add("end");
+        return events;
+    }
+
+    private static void check(AdmCodec codec, boolean withTokens) throws Exception {
+        AnnotatedText text = document();
+        byte[] bytes = codec.writeValueAsBytes(text);
+        Recorder recorder = new Recorder(withTokens);
+        codec.eventReader().read(bytes, recorder);
+        List<String> order = Lists.newArrayList(codec.read(bytes).getAttributes().keySet());
+        assertEquals(expected(text, order, withTokens), recorder.events);
+    }
+
+    @Test
+    public void plain() throws Exception {
+        check(AdmCodec.plain(), true);
+    }
+
+    @Test
+    public void array() throws Exception {
+        check(AdmCodec.array(), true);
+    }
+
+    @Test
+    public void skipTokens() throws Exception {
+        check(AdmCodec.plain(), false);
+        check(AdmCodec.array(), false);
+    }
+
+    @Test
+    public void smile() throws Exception {
+        check(new AdmCodec(AdmCodec.Shape.PLAIN, SmileMappers.newSmileFactory()), true);
+        check(new AdmCodec(AdmCodec.Shape.ARRAY, SmileMappers.newSmileFactory()), true);
+    }
+
+    /* a writer other than ours might put the items before the type. */
+    @Test
+    public void itemsFirst() throws Exception {
+        AnnotatedText text = document();
+        ObjectMapper mapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper());
+        ObjectNode tree = mapper.valueToTree(text);
+        ObjectNode attributes = (ObjectNode) tree.get("attributes");
+        Iterator<Map.Entry<String, JsonNode>> fields = attributes.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            ObjectNode attribute = (ObjectNode) field.getValue();
+            if (attribute.has("items")) {
+                ObjectNode reordered = mapper.createObjectNode();
+                reordered.set("items", attribute.get("items"));
+                attribute.remove("items");
+                reordered.setAll(attribute);
+                field.setValue(reordered);
+            }
+        }
+        byte[] bytes = mapper.writeValueAsBytes(tree);
+        Recorder recorder = new Recorder(true);
+        AdmCodec.plain().eventReader().read(bytes, recorder);
+        assertEquals(expected(text, Lists.newArrayList(text.getAttributes().keySet()), true), recorder.events);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package com.basistech.rosette.dm.json.plain;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.jackson.AdmCodec;
+import com.basistech.rosette.dm.jackson.AnnotatedDataModelModule;
+import com.basistech.rosette.dm.jackson.AnnotatedTextFeedReader;
+import com.basistech.rosette.dm.jackson.CborMappers;
+import com.basistech.rosette.dm.jackson.SmileMappers;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AnnotatedTextFeedReaderTest {
+    private final ObjectMapper jsonMapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper());
+
+    private AnnotatedText document() throws Exception {
+        return jsonMapper.readValue(new File("test-data/comn-130-adm.json"), AnnotatedText.class);
+    }
+
+    /* Feed the bytes in random small chunks through one reused buffer, as a channel read loop would. */
+    private AnnotatedText feed(AdmCodec codec, byte[] bytes, boolean direct) throws Exception {
+        Random random = new Random(bytes.length);
+        ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(64) : ByteBuffer.allocate(64);
+        try (AnnotatedTextFeedReader reader = codec.feedReader(bytes.length)) {
+            int position = 0;
+            boolean complete = false;
+            while (position < bytes.length) {
+                int length = Math.min(1 + random.nextInt(buffer.capacity()), bytes.length - position);
+                buffer.clear();
+                buffer.put(bytes, position, length);
+                buffer.flip();
+                assertFalse(complete);
+                complete = reader.feed(buffer);
+                assertFalse(buffer.hasRemaining());
+                position += length;
+            }
+            assertTrue(complete);
+            reader.endOfInput();
+            assertEquals(bytes.length, reader.getByteCount());
+            return reader.getResult();
+        }
+    }
+
+    private void check(AdmCodec codec) throws Exception {
+        AnnotatedText text = document();
+        byte[] bytes = codec.writeValueAsBytes(text);
+        assertEquals(jsonMapper.valueToTree(text), jsonMapper.valueToTree(feed(codec, bytes, false)));
+        assertEquals(jsonMapper.valueToTree(text), jsonMapper.valueToTree(feed(codec, bytes, true)));
+    }
+
+    @Test
+    public void plain() throws Exception {
+        check(AdmCodec.plain());
+    }
+
+    @Test
+    public void array() throws Exception {
+        check(AdmCodec.array());
+    }
+
+    @Test
+    public void smile() throws Exception {
+        check(new AdmCodec(AdmCodec.Shape.PLAIN, SmileMappers.newSmileFactory()));
+        check(new AdmCodec(AdmCodec.Shape.ARRAY, SmileMappers.newSmileFactory()));
+    }
+
+    @Test
+    public void tooLong() throws Exception {
+        byte[] bytes = AdmCodec.plain().writeValueAsBytes(document());
+        try (AnnotatedTextFeedReader reader = AdmCodec.plain().feedReader(bytes.length / 2)) {
+            reader.feed(ByteBuffer.wrap(bytes, 0, bytes.length / 4));
+            reader.feed(ByteBuffer.wrap(bytes, bytes.length / 4, bytes.length / 2));
+            fail("Accepted a document over the limit");
+        } catch (JsonParseException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void incomplete() throws Exception {
+        byte[] bytes = AdmCodec.plain().writeValueAsBytes(document());
+        try (AnnotatedTextFeedReader reader = AdmCodec.plain().feedReader(bytes.length)) {
+            assertFalse(reader.feed(ByteBuffer.wrap(bytes, 0, bytes.length - 1)));
+            reader.endOfInput();
+            fail("Accepted an incomplete document");
+        } catch (JsonParseException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void trailingContent() throws Exception {
+        byte[] bytes = AdmCodec.plain().writeValueAsBytes(document());
+        try (AnnotatedTextFeedReader reader = AdmCodec.plain().feedReader(bytes.length * 2)) {
+            assertTrue(reader.feed(ByteBuffer.wrap(bytes)));
+            // whitespace after the document is fine.
+            assertTrue(reader.feed(ByteBuffer.wrap(new byte[] {' ', '\n'})));
+            reader.feed(ByteBuffer.wrap(new byte[] {'{', '}'}));
+            fail("Accepted content after the document");
+        } catch (JsonParseException e) {
+            // expected
+        }
+    }
+
+    /* content that the parser only reports at the end of the input. */
+    @Test
+    public void trailingContentAtEnd() throws Exception {
+        byte[] bytes = AdmCodec.plain().writeValueAsBytes(document());
+        for (String trailing : new String[] {"x", "1", " 1"}) {
+            try (AnnotatedTextFeedReader reader = AdmCodec.plain().feedReader(bytes.length * 2)) {
+                reader.feed(ByteBuffer.wrap(bytes));
+                reader.feed(ByteBuffer.wrap(trailing.getBytes(StandardCharsets.UTF_8)));
+                reader.endOfInput();
+                fail("Accepted " + trailing + " after the document");
+            } catch (JsonParseException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void blockingOnlyFormat() throws Exception {
+        new AdmCodec(AdmCodec.Shape.PLAIN, CborMappers.newCborFactory()).feedReader(1000);
+    }
+}
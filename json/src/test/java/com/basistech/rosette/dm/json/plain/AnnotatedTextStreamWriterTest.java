@@ -0,0 +1,193 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package com.basistech.rosette.dm.json.plain;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.BaseAttribute;
+import com.basistech.rosette.dm.LanguageDetection;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.Sentence;
+import com.basistech.rosette.dm.Token;
+import com.basistech.rosette.dm.jackson.AdmCodec;
+import com.basistech.rosette.dm.jackson.AnnotatedTextStreamWriter;
+import com.basistech.rosette.dm.jackson.KnownAttribute;
+import com.basistech.util.ISO15924;
+import com.basistech.util.LanguageCode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AnnotatedTextStreamWriterTest {
+    private static final int TOKEN_COUNT = 1000;
+
+    private static String data() {
+        StringBuilder data = new StringBuilder();
+        for (int x = 0; x < TOKEN_COUNT; x++) {
+            data.append("w").append(x % 10).append(' ');
+        }
+        return data.toString();
+    }
+
+    // tokens made on demand, as a large pipeline would.
+    private static Iterator<Token> tokens() {
+        return new Iterator<Token>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < TOKEN_COUNT;
+            }
+
+            @Override
+            public Token next() {
+                int start = index * 3;
+                Token token = new Token.Builder(start, start + 2, "w" + index % 10).build();
+                index++;
+                return token;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private static LanguageDetection languageDetection() {
+        LanguageDetection.DetectionResult result = new LanguageDetection.DetectionResult.Builder(LanguageCode.ENGLISH)
+            .script(ISO15924.Latn).confidence(0.5).build();
+        return new LanguageDetection.Builder(0, TOKEN_COUNT * 3, ImmutableList.of(result)).build();
+    }
+
+    private static Map<String, List<String>> metadata() {
+        return ImmutableMap.<String, List<String>>of("source", ImmutableList.of("scanner"));
+    }
+
+    private static AnnotatedText inMemory() {
+        ListAttribute.Builder<Token> tokens = new ListAttribute.Builder<>(Token.class);
+        Iterator<Token> it = tokens();
+        while (it.hasNext()) {
+            tokens.add(it.next());
+        }
+        tokens.extendedProperty("ocr", "engine");
+        ListAttribute.Builder<Sentence> sentences = new ListAttribute.Builder<>(Sentence.class);
+        sentences.add(new Sentence.Builder(0, TOKEN_COUNT * 3).build());
+        return new AnnotatedText.Builder().data(data())
+            .tokens(tokens.build())
+            .sentences(sentences.build())
+            .wholeDocumentLanguageDetection(languageDetection())
+            .documentMetadata(metadata())
+            .build();
+    }
+
+    private static String streamed(AdmCodec codec) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (AnnotatedTextStreamWriter writer = codec.streamWriter(output)) {
+            writer.start(data());
+            writer.attribute(KnownAttribute.LANGUAGE_DETECTION.key(), languageDetection());
+            writer.list(KnownAttribute.SENTENCE, ImmutableList.<BaseAttribute>of(new Sentence.Builder(0, TOKEN_COUNT * 3).build()).iterator());
+            try (AnnotatedTextStreamWriter.ListWriter<Token> tokens = writer.startList(KnownAttribute.TOKEN)) {
+                Iterator<Token> it = tokens();
+                while (it.hasNext()) {
+                    tokens.add(it.next());
+                }
+                tokens.extendedProperty("ocr", "engine");
+            }
+            writer.documentMetadata(metadata());
+        }
+        return output.toString("UTF-8");
+    }
+
+    private static void check(AdmCodec codec) throws Exception {
+        AnnotatedText expected = inMemory();
+        String json = streamed(codec);
+        AnnotatedText read = codec.read(json);
+        assertEquals(expected.getData().toString(), read.getData().toString());
+        assertEquals(expected.getAttributes(), read.getAttributes());
+        assertEquals("engine", read.getTokens().getExtendedProperties().get("ocr"));
+        assertEquals(expected.getDocumentMetadata(), read.getDocumentMetadata());
+        // same as writing the whole document, apart from the order of the attributes.
+        ObjectMapper treeMapper = new ObjectMapper();
+        assertEquals(treeMapper.readTree(codec.writeValueAsString(expected)), treeMapper.readTree(json));
+    }
+
+    @Test
+    public void plain() throws Exception {
+        check(AdmCodec.plain());
+    }
+
+    @Test
+    public void array() throws Exception {
+        check(AdmCodec.array());
+    }
+
+    @Test
+    public void sameBytes() throws Exception {
+        for (AdmCodec codec : new AdmCodec[] {AdmCodec.plain(), AdmCodec.array()}) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try (AnnotatedTextStreamWriter writer = codec.streamWriter(output)) {
+                writer.start("ab");
+                writer.list(KnownAttribute.TOKEN, ImmutableList.of(new Token.Builder(0, 2, "ab").build()).iterator());
+            }
+            ListAttribute.Builder<Token> tokens = new ListAttribute.Builder<>(Token.class);
+            tokens.add(new Token.Builder(0, 2, "ab").build());
+            AnnotatedText text = new AnnotatedText.Builder().data("ab").tokens(tokens.build()).build();
+            assertEquals(codec.writeValueAsString(text), output.toString("UTF-8"));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void oneListAtATime() throws Exception {
+        try (AnnotatedTextStreamWriter writer = AdmCodec.plain().streamWriter(new ByteArrayOutputStream())) {
+            writer.start("ab");
+            writer.startList(KnownAttribute.TOKEN);
+            writer.startList(KnownAttribute.SENTENCE);
+        }
+    }
+
+    /* closing with a list open reports it, but still closes the output. */
+    @Test
+    public void closeWithListOpen() throws Exception {
+        final boolean[] closed = new boolean[1];
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        AnnotatedTextStreamWriter writer = AdmCodec.plain().streamWriter(out);
+        writer.start("ab");
+        writer.startList(KnownAttribute.TOKEN);
+        try {
+            writer.close();
+            fail("closed with a list open");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertTrue(closed[0]);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+* Copyright 2014 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package com.basistech.rosette.dm.json.plain;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.Sentence;
+import com.basistech.rosette.dm.Token;
+import com.basistech.rosette.dm.jackson.AdmCodec;
+import com.basistech.rosette.dm.jackson.AnnotatedDataModelModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.ByteStreams;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Command line to compare the time to the first document with a freshly set up mapper and with a warmed
+ * {@link AdmCodec}. Each measurement runs in a new JVM, since the point is what a starting service sees.
+ * The document is a synthetic one with tokens and sentences.
+ */
+public final class CodecStartup {
+    private static final int RUNS = 7;
+
+    private CodecStartup() {
+        //
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "--child".equals(args[0])) {
+            child(args[1]);
+            return;
+        }
+        for (String mode : new String[] {"mapper", "codec"}) {
+            List<Long> setup = new ArrayList<>();
+            List<Long> first = new ArrayList<>();
+            for (int x = 0; x < RUNS; x++) {
+                long[] times = runChild(mode);
+                setup.add(times[0]);
+                first.add(times[1]);
+            }
+            System.out.format("%s: setup median %.2f ms, first document median %.2f ms%n", mode,
+                median(setup) / 1e6, median(first) / 1e6);
+        }
+    }
+
+    private static long[] runChild(String mode) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(CodecStartup.class.getName());
+        command.add("--child");
+        command.add(mode);
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output;
+        try (InputStream in = process.getInputStream()) {
+            output = new String(ByteStreams.toByteArray(in), "UTF-8").trim();
+        }
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException(output);
+        }
+        String[] fields = output.split(" ");
+        return new long[] {Long.parseLong(fields[0]), Long.parseLong(fields[1])};
+    }
+
+    private static void child(String mode) throws Exception {
+        // the document, and the model classes, are ready before either measurement starts.
+        AnnotatedText text = syntheticDocument();
+        long start = System.nanoTime();
+        long ready;
+        AnnotatedText read;
+        if ("codec".equals(mode)) {
+            AdmCodec codec = AdmCodec.plain().warmUp();
+            ready = System.nanoTime();
+            read = codec.read(codec.writeValueAsBytes(text));
+        } else {
+            ObjectMapper mapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper());
+            ready = System.nanoTime();
+            read = mapper.readValue(mapper.writeValueAsBytes(text), AnnotatedText.class);
+        }
+        long done = System.nanoTime();
+        if (read.getData().length() != text.getData().length()) {
+            throw new IllegalStateException("Round trip changed the document");
+        }
+        System.out.println((ready - start) + " " + (done - ready));
+    }
+
+    private static AnnotatedText syntheticDocument() {
+        StringBuilder data = new StringBuilder();
+        ListAttribute.Builder<Token> tokens = new ListAttribute.Builder<>(Token.class);
+        ListAttribute.Builder<Sentence> sentences = new ListAttribute.Builder<>(Sentence.class);
+        for (int s = 0; s < 20; s++) {
+            int sentenceStart = data.length();
+            for (int t = 0; t < 15; t++) {
+                int start = data.length();
+                data.append("word").append(t).append(' ');
+                tokens.add(new Token.Builder(start, data.length() - 1, "word" + t).build());
+            }
+            sentences.add(new Sentence.Builder(sentenceStart, data.length()).build());
+        }
+        return new AnnotatedText.Builder().data(data.toString()).tokens(tokens.build()).sentences(sentences.build()).build();
+    }
+
+    private static double median(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package com.basistech.rosette.dm.json.plain;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.Entity;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.Mention;
+import com.basistech.rosette.dm.Sentence;
+import com.basistech.rosette.dm.Token;
+import com.basistech.rosette.dm.jackson.AnnotatedDataModelModule;
+import com.basistech.rosette.dm.jackson.AnnotatedTextDelta;
+import com.basistech.rosette.dm.jackson.AnnotatedTextDeltaCodec;
+import com.basistech.rosette.dm.jackson.KnownAttribute;
+import com.basistech.rosette.dm.jackson.LazyAnnotatedTextReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DeltaTest {
+    private final ObjectMapper mapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper());
+    private final AnnotatedTextDeltaCodec codec = new AnnotatedTextDeltaCodec(mapper);
+    private AnnotatedText base;
+    private AnnotatedText current;
+
+    @Before
+    public void documents() {
+        String data = "Bill Clinton was here. He left.";
+        AnnotatedText.Builder builder = new AnnotatedText.Builder().data(data);
+        ListAttribute.Builder<Token> tokens = new ListAttribute.Builder<>(Token.class);
+        tokens.add(new Token.Builder(0, 4, "Bill").build());
+        tokens.add(new Token.Builder(5, 12, "Clinton").build());
+        builder.tokens(tokens.build());
+        ListAttribute.Builder<Sentence> sentences = new ListAttribute.Builder<>(Sentence.class);
+        sentences.add(new Sentence.Builder(0, data.length()).build());
+        builder.sentences(sentences.build());
+        builder.documentMetadata("source", "test");
+        builder.documentMetadata("stage", "tokenizer");
+        base = builder.build();
+
+        // a later stage splits the sentences, finds an entity, and updates the metadata.
+        builder = new AnnotatedText.Builder(base);
+        sentences = new ListAttribute.Builder<>(Sentence.class);
+        sentences.add(new Sentence.Builder(0, 22).build());
+        sentences.add(new Sentence.Builder(23, data.length()).build());
+        builder.sentences(sentences.build());
+        ListAttribute.Builder<Entity> entities = new ListAttribute.Builder<>(Entity.class);
+        entities.add(new Entity.Builder().type("PERSON").mention(new Mention.Builder(0, 12).build()).confidence(0.123456789).build());
+        builder.entities(entities.build());
+        builder.documentMetadata("stage", "entities");
+        builder.documentMetadata().remove("source");
+        current = builder.build();
+    }
+
+    private AnnotatedText roundTrip(AnnotatedText text) throws Exception {
+        return mapper.readValue(mapper.writeValueAsBytes(text), AnnotatedText.class);
+    }
+
+    @Test
+    public void onlyChanges() throws Exception {
+        AnnotatedTextDelta delta = codec.diff(base, current);
+        assertEquals(codec.hash(base), delta.getBaseHash());
+        assertNull(delta.getData());
+        assertEquals(ImmutableSet.of(KnownAttribute.SENTENCE.key(), KnownAttribute.ENTITY.key()), delta.getAttributes().keySet());
+        assertTrue(delta.getRemovedAttributes().isEmpty());
+        assertEquals(Collections.singletonMap("stage", Collections.singletonList("entities")), delta.getDocumentMetadata());
+        assertEquals(Collections.singletonList("source"), delta.getRemovedDocumentMetadata());
+
+        String json = new String(codec.writeValueAsBytes(delta), StandardCharsets.UTF_8);
+        assertFalse(json.contains("Clinton was here"));
+        assertFalse(json.contains("\"token\""));
+    }
+
+    @Test
+    public void hashSurvivesJson() throws Exception {
+        String hash = codec.hash(base);
+        assertEquals(hash, codec.hash(roundTrip(base)));
+        assertEquals(hash, codec.hash(new LazyAnnotatedTextReader(mapper).read(mapper.writeValueAsBytes(base))));
+        assertFalse(hash.equals(codec.hash(current)));
+    }
+
+    @Test
+    public void apply() throws Exception {
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        codec.write(codec.diff(base, current), sent);
+        // the receiver has its own copy of the base, from Json.
+        AnnotatedText receivedBase = roundTrip(base);
+        AnnotatedTextDelta delta = codec.read(new ByteArrayInputStream(sent.toByteArray()));
+        AnnotatedText applied = codec.apply(receivedBase, delta);
+
+        AnnotatedText expected = roundTrip(current);
+        assertEquals(expected.getData().toString(), applied.getData().toString());
+        assertEquals(expected.getDocumentMetadata(), applied.getDocumentMetadata());
+        assertEquals(expected.getAttributes(), applied.getAttributes());
+        assertEquals(codec.hash(current), codec.hash(applied));
+    }
+
+    @Test
+    public void removedAndReplacedData() throws Exception {
+        AnnotatedText.Builder builder = new AnnotatedText.Builder(current);
+        builder.data("Bill Clinton was here. He left!");
+        builder.attributes().remove(KnownAttribute.TOKEN.key());
+        AnnotatedText changed = builder.build();
+        String hash = codec.hash(current);
+        AnnotatedTextDelta delta = codec.read(codec.writeValueAsBytes(codec.diff(hash, current, changed)));
+        assertEquals("Bill Clinton was here. He left!", delta.getData());
+        assertEquals(Collections.singletonList(KnownAttribute.TOKEN.key()), delta.getRemovedAttributes());
+        assertTrue(delta.getAttributes().isEmpty());
+
+        AnnotatedText applied = codec.apply(hash, current, delta);
+        assertEquals("Bill Clinton was here. He left!", applied.getData().toString());
+        assertNull(applied.getTokens());
+        assertEquals(current.getEntities(), applied.getEntities());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongBase() throws Exception {
+        AnnotatedTextDelta delta = codec.diff(base, current);
+        codec.apply(current, delta);
+    }
+}
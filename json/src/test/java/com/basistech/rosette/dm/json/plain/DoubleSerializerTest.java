@@ -0,0 +1,73 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package com.basistech.rosette.dm.json.plain;
+
+import com.basistech.rosette.dm.jackson.AnnotatedDataModelModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The serializer must write exactly what the original format-and-reparse implementation wrote.
+ */
+public class DoubleSerializerTest {
+
+    private static String reference(double value) {
+        NumberFormat f = NumberFormat.getInstance(Locale.US);
+        f.setMaximumFractionDigits(8);
+        f.setGroupingUsed(false);
+        return Double.toString(Double.parseDouble(f.format(value)));
+    }
+
+    private static void check(ObjectMapper mapper, double value) throws Exception {
+        assertEquals("value " + value, reference(value), mapper.writeValueAsString(value));
+    }
+
+    @Test
+    public void specialValues() throws Exception {
+        ObjectMapper mapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper());
+        double[] values = {0.0, -0.0, 1.0, -1.0, 0.3, 0.5, 1.123456789, 1.123, 0.001, 0.0001, 1e-8, 4e-9, 6e-9, -1e-9,
+            1.0 / 512, 3.0 / 512, 0.00000015, 123456.123456789, 9999999.999999999, 1e7, 1e7 + 0.1, 123456789.123456789,
+            1e15, 1e20, Double.MIN_VALUE, Double.MIN_NORMAL, 1e-300, Double.MAX_VALUE};
+        for (double value : values) {
+            check(mapper, value);
+        }
+    }
+
+    @Test
+    public void randomValues() throws Exception {
+        ObjectMapper mapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper());
+        Random random = new Random(42);
+        for (int x = 0; x < 100000; x++) {
+            check(mapper, random.nextDouble());
+            check(mapper, -random.nextDouble() * 1000);
+            check(mapper, Math.pow(10, random.nextInt(20) - 12) * random.nextDouble());
+            check(mapper, random.nextInt(1000000) / 1e8);
+        }
+    }
+
+    @Test
+    public void inContainers() throws Exception {
+        ObjectMapper mapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper());
+        assertEquals("[0.12345679,2.0E-4,1.0]", mapper.writeValueAsString(new Double[] {0.123456789, 0.0002, 1.0}));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package com.basistech.rosette.dm.json.plain;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.EmbeddingCollection;
+import com.basistech.rosette.dm.Embeddings;
+import com.basistech.rosette.dm.jackson.AnnotatedDataModelModule;
+import com.basistech.rosette.dm.jackson.EmbeddingMapSerializer;
+import com.basistech.rosette.dm.jackson.SmileMappers;
+import com.basistech.rosette.dm.jackson.array.AnnotatedDataModelArrayModule;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EmbeddingsTest {
+    private final ObjectMapper mapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper());
+    private final ObjectWriter packedWriter = packed(mapper);
+    private AnnotatedText text;
+    private float[] tokenVector;
+
+    @Before
+    public void text() {
+        Random random = new Random(7);
+        tokenVector = new float[300];
+        for (int x = 0; x < tokenVector.length; x++) {
+            tokenVector[x] = random.nextFloat() * 2 - 1;
+        }
+        tokenVector[1] = Float.NaN;
+        tokenVector[2] = Float.NEGATIVE_INFINITY;
+        tokenVector[3] = -0.0f;
+        Embeddings.Builder embeddingsBuilder = new Embeddings.Builder();
+        embeddingsBuilder.put(Embeddings.Name.TEXT, new EmbeddingCollection.Builder().put(0, new float[] {0.25f, -1.5f}).build());
+        embeddingsBuilder.put(Embeddings.Name.TOKENS, new EmbeddingCollection.Builder().put(0, tokenVector).put(7, new float[0]).build());
+        text = new AnnotatedText.Builder().data("hello").embeddings(embeddingsBuilder.build()).build();
+    }
+
+    private static ObjectWriter packed(ObjectMapper mapper) {
+        return mapper.writer().withAttribute(EmbeddingMapSerializer.PACKED_EMBEDDINGS, Boolean.TRUE);
+    }
+
+    private void assertSameEmbeddings(AnnotatedText read) {
+        EmbeddingCollection tokens = read.getEmbeddings().get(Embeddings.Name.TOKENS);
+        assertArrayEquals(tokenVector, tokens.getEmbeddings().get(0), 0);
+        assertEquals(Float.floatToRawIntBits(-0.0f), Float.floatToRawIntBits(tokens.getEmbeddings().get(0)[3]));
+        assertEquals(0, tokens.getEmbeddings().get(7).length);
+        assertArrayEquals(new float[] {0.25f, -1.5f},
+            read.getEmbeddings().get(Embeddings.Name.TEXT).getEmbeddings().get(0), 0);
+    }
+
+    @Test
+    public void packed() throws Exception {
+        JsonNode tree = mapper.readTree(packedWriter.writeValueAsBytes(text));
+        JsonNode vector = tree.get("attributes").get("embeddings").get("collections").get("TEXT").get("embeddings").get("0");
+        // 0.25f and -1.5f, little-endian.
+        assertEquals("AACAPgAAwL8=", vector.asText());
+        assertSameEmbeddings(mapper.readValue(packedWriter.writeValueAsBytes(text), AnnotatedText.class));
+    }
+
+    @Test
+    public void decimal() throws Exception {
+        // the default, which older readers understand.
+        String json = mapper.writeValueAsString(text);
+        assertTrue(json.contains("\"embeddings\":{\"0\":[0.25,-1.5]}"));
+        assertSameEmbeddings(mapper.readValue(json, AnnotatedText.class));
+    }
+
+    @Test
+    public void oldLayout() throws Exception {
+        String json = "{\"version\":\"1.1.0\",\"data\":\"hello\",\"attributes\":{\"embeddings\":{\"type\":\"embedding\","
+            + "\"collections\":{\"TEXT\":{\"embeddings\":{\"0\":[0.25,-1.5,3,\"NaN\"]}}}}}}";
+        AnnotatedText read = mapper.readValue(json, AnnotatedText.class);
+        assertArrayEquals(new float[] {0.25f, -1.5f, 3f, Float.NaN},
+            read.getEmbeddings().get(Embeddings.Name.TEXT).getEmbeddings().get(0), 0);
+    }
+
+    @Test
+    public void otherShapesAndFormats() throws Exception {
+        ObjectMapper arrayMapper = AnnotatedDataModelArrayModule.setupObjectMapper(new ObjectMapper());
+        assertSameEmbeddings(arrayMapper.readValue(packed(arrayMapper).writeValueAsBytes(text), AnnotatedText.class));
+        assertSameEmbeddings(arrayMapper.readValue(arrayMapper.writeValueAsBytes(text), AnnotatedText.class));
+        ObjectMapper smileMapper = SmileMappers.setupSmileMapper();
+        byte[] smile = packed(smileMapper).writeValueAsBytes(text);
+        assertSameEmbeddings(smileMapper.readValue(smile, AnnotatedText.class));
+        // raw, not base64 or 7-bit.
+        assertTrue(smile.length < tokenVector.length * 4 + 200);
+        assertSameEmbeddings(smileMapper.readValue(smileMapper.writeValueAsBytes(text), AnnotatedText.class));
+        ObjectMapper smileArrayMapper = SmileMappers.setupSmileArrayMapper();
+        assertSameEmbeddings(smileArrayMapper.readValue(packed(smileArrayMapper).writeValueAsBytes(text), AnnotatedText.class));
+    }
+}
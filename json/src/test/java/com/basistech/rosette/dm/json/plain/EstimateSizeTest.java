@@ -0,0 +1,144 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.json.plain;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.BaseAttribute;
+import com.basistech.rosette.dm.EmbeddingCollection;
+import com.basistech.rosette.dm.Embeddings;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.Token;
+import com.basistech.rosette.dm.jackson.AdmCodec;
+import com.basistech.rosette.dm.jackson.AnnotatedDataModelModule;
+import com.basistech.rosette.dm.jackson.CborMappers;
+import com.basistech.rosette.dm.jackson.LazyAnnotatedTextReader;
+import com.basistech.rosette.dm.jackson.SerializationListener;
+import com.basistech.rosette.dm.jackson.SmileMappers;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class EstimateSizeTest {
+    private final ObjectMapper jsonMapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper());
+
+    /* escapes, two and three byte characters, a surrogate pair, doubles and Base64. */
+    private static AnnotatedText awkward() {
+        String data = "tab\tquote\"slash\\ctl\u0001 caf\u00e9 \u4e2d\u6587 \ud83d\ude00 end";
+        ListAttribute.Builder<Token> tokens = new ListAttribute.Builder<>(Token.class);
+        int start = 0;
+        for (String word : data.split(" ")) {
+            Token.Builder token = new Token.Builder(start, start + word.length(), word);
+            token.extendedProperty(word, -0.123456789);
+            tokens.add(token.build());
+            start += word.length() + 1;
+        }
+        Embeddings.Builder embeddings = new Embeddings.Builder();
+        embeddings.put(Embeddings.Name.TOKENS, new EmbeddingCollection.Builder().put(0, new float[] {0.25f, -1.5f, 3.0e-7f, 1.0f, 2.0f}).build());
+        return new AnnotatedText.Builder().data(data)
+            .tokens(tokens.build())
+            .embeddings(embeddings.build())
+            .documentMetadata("title", "\u00e9t\u00e9 \ud83d\ude00")
+            .build();
+    }
+
+    private AnnotatedText comn130() throws Exception {
+        return jsonMapper.readValue(new File("test-data/comn-130-adm.json"), AnnotatedText.class);
+    }
+
+    private static void assertExact(AdmCodec codec, AnnotatedText text) throws Exception {
+        assertEquals(codec.writeValueAsBytes(text).length, codec.estimateSize(text));
+    }
+
+    @Test
+    public void json() throws Exception {
+        for (AnnotatedText text : new AnnotatedText[] {comn130(), awkward(), new AnnotatedText.Builder().build()}) {
+            assertExact(AdmCodec.plain(), text);
+            assertExact(AdmCodec.array(), text);
+        }
+    }
+
+    @Test
+    public void binaryFormats() throws Exception {
+        for (AnnotatedText text : new AnnotatedText[] {comn130(), awkward()}) {
+            assertExact(new AdmCodec(AdmCodec.Shape.PLAIN, SmileMappers.newSmileFactory()), text);
+            assertExact(new AdmCodec(AdmCodec.Shape.ARRAY, SmileMappers.newSmileFactory()), text);
+            assertExact(new AdmCodec(AdmCodec.Shape.PLAIN, CborMappers.newCborFactory()), text);
+        }
+    }
+
+    private static JsonFactory unusualFactory() {
+        JsonFactory factory = new JsonFactory();
+        factory.enable(JsonGenerator.Feature.ESCAPE_NON_ASCII);
+        factory.enable(JsonGenerator.Feature.WRITE_NUMBERS_AS_STRINGS);
+        factory.disable(JsonGenerator.Feature.QUOTE_FIELD_NAMES);
+        return factory;
+    }
+
+    @Test
+    public void generatorFeatures() throws Exception {
+        for (AnnotatedText text : new AnnotatedText[] {comn130(), awkward()}) {
+            assertExact(new AdmCodec(AdmCodec.Shape.PLAIN, unusualFactory()), text);
+            assertExact(new AdmCodec(AdmCodec.Shape.ARRAY, unusualFactory()), text);
+        }
+    }
+
+    @Test
+    public void prettyPrinted() throws Exception {
+        JsonFactory factory = new JsonFactory();
+        AdmCodec codec = new AdmCodec(AdmCodec.Shape.PLAIN, factory);
+        // the mapper that owns the factory.
+        ((ObjectMapper) factory.getCodec()).enable(SerializationFeature.INDENT_OUTPUT);
+        assertExact(codec, comn130());
+        assertExact(codec, awkward());
+    }
+
+    /* documents from the lazy reader are written as their original Json. */
+    @Test
+    public void passThrough() throws Exception {
+        byte[] json = AdmCodec.plain().writeValueAsBytes(awkward());
+        AnnotatedText lazy = new LazyAnnotatedTextReader(jsonMapper).read(json);
+        assertEquals(json.length, AdmCodec.plain().estimateSize(lazy));
+    }
+
+    @Test
+    public void notReported() throws Exception {
+        SerializationListener serializationListener = new SerializationListener() {
+            @Override
+            public void attributeWritten(String key, BaseAttribute attribute, long size, long nanos) {
+                fail(key);
+            }
+
+            @Override
+            public void documentWritten(AnnotatedText text, Object context, long size, long nanos) {
+                fail();
+            }
+        };
+        AnnotatedText text = comn130();
+        int jsonSize = AdmCodec.plain().writeValueAsBytes(text).length;
+        int smileSize = new AdmCodec(AdmCodec.Shape.PLAIN, SmileMappers.newSmileFactory()).writeValueAsBytes(text).length;
+        AdmCodec jsonCodec = new AdmCodec(AdmCodec.Shape.PLAIN, new JsonFactory(), serializationListener);
+        AdmCodec smileCodec = new AdmCodec(AdmCodec.Shape.PLAIN, SmileMappers.newSmileFactory(), serializationListener);
+        assertEquals(jsonSize, jsonCodec.estimateSize(text));
+        assertEquals(smileSize, smileCodec.estimateSize(text));
+    }
+}
@@ -22,14 +22,23 @@ import com.basistech.rosette.dm.HanMorphoAnalysis;
 import com.basistech.rosette.dm.ListAttribute;
 import com.basistech.rosette.dm.Token;
 import com.basistech.rosette.dm.jackson.AnnotatedDataModelModule;
+import com.basistech.rosette.dm.jackson.ExtendedPropertySchema;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 /**
  * See if the extension mechanism works round-trip.
@@ -120,4 +129,70 @@ public class ExtendedPropertyTest extends AdmAssert {
         ArabicMorphoAnalysis ma2 = (ArabicMorphoAnalysis)deserialized.getAnalyses().get(1);
         assertEquals("apples", ma2.getExtendedProperties().get("some"));
     }
+
+    @Test
+    public void schemaTypes() throws Exception {
+        ListAttribute.Builder<Token> tokenListBuilder = new ListAttribute.Builder<>(Token.class);
+        tokenListBuilder.extendedProperty("weights", Arrays.asList(0.5, 0.25));
+        Token.Builder tokenBuilder = new Token.Builder(0, 5, "abcde");
+        tokenBuilder.extendedProperty("vector", new double[] {1.5, -2.0});
+        tokenBuilder.extendedProperty("count", 3);
+        tokenBuilder.extendedProperty("sources", Arrays.asList("a", "b"));
+        tokenBuilder.extendedProperty("other", Arrays.asList(1, 2));
+        tokenListBuilder.add(tokenBuilder.build());
+        AnnotatedText text = new AnnotatedText.Builder().data("abcde").tokens(tokenListBuilder.build()).build();
+
+        ExtendedPropertySchema schema = new ExtendedPropertySchema.Builder()
+            .property("vector", double[].class)
+            .property("count", long.class)
+            .property("sources", new TypeReference<List<String>>() { })
+            .property("weights", float[].class)
+            .build();
+        ObjectMapper mapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper());
+        String json = mapper.writeValueAsString(text);
+
+        AnnotatedText untyped = mapper.readValue(json, AnnotatedText.class);
+        assertEquals(Arrays.asList(1.5, -2.0), untyped.getTokens().get(0).getExtendedProperties().get("vector"));
+        assertEquals(3, untyped.getTokens().get(0).getExtendedProperties().get("count"));
+
+        for (ObjectReader reader : Arrays.asList(mapper.readerFor(AnnotatedText.class).withAttribute(ExtendedPropertySchema.ATTRIBUTE, schema),
+            schema.install(AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper())).readerFor(AnnotatedText.class))) {
+            AnnotatedText typed = reader.readValue(json);
+            Map<String, Object> properties = typed.getTokens().get(0).getExtendedProperties();
+            assertArrayEquals(new double[] {1.5, -2.0}, (double[]) properties.get("vector"), 0);
+            assertEquals(3L, properties.get("count"));
+            assertEquals(Arrays.asList("a", "b"), properties.get("sources"));
+            // not declared.
+            assertEquals(Arrays.asList(1, 2), properties.get("other"));
+            assertArrayEquals(new float[] {0.5f, 0.25f}, (float[]) typed.getTokens().getExtendedProperties().get("weights"), 0);
+        }
+    }
+
+    @Test
+    public void manyProperties() throws Exception {
+        Token.Builder builder = new Token.Builder(0, 5, "abcde");
+        for (int x = 0; x < 20000; x++) {
+            builder.extendedProperty("p" + x, x);
+        }
+        Token token = builder.build();
+        ObjectMapper mapper = objectMapper();
+        Token read = mapper.readValue(mapper.writeValueAsBytes(token), Token.class);
+        assertEquals(token, read);
+        assertEquals(19999, read.getExtendedProperties().get("p19999"));
+
+        // Java serialization sees properties that came from Json.
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(mapper.readValue(mapper.writeValueAsBytes(token), Token.class));
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(token, in.readObject());
+        }
+    }
+
+    /* a null extended property fails the read, rather than every later use of the attribute. */
+    @Test(expected = JsonMappingException.class)
+    public void nullExtendedProperty() throws Exception {
+        objectMapper().readValue("{\"startOffset\":0,\"endOffset\":1,\"text\":\"a\",\"foo\":null}", Token.class);
+    }
 }
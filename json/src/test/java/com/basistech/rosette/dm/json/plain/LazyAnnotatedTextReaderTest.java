@@ -0,0 +1,207 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package com.basistech.rosette.dm.json.plain;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.BaseAttribute;
+import com.basistech.rosette.dm.LazyAttributeMap;
+import com.basistech.rosette.dm.jackson.AnnotatedDataModelModule;
+import com.basistech.rosette.dm.jackson.EmbeddingMapSerializer;
+import com.basistech.rosette.dm.jackson.KnownAttribute;
+import com.basistech.rosette.dm.jackson.LazyAnnotatedTextReader;
+import com.basistech.rosette.dm.jackson.SerializationListener;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class LazyAnnotatedTextReaderTest {
+    private static final String[] DOCUMENTS = {
+        "test-data/comn-130-adm.json",
+        "test-data/ordered-list-in-annotated-text.json",
+        "test-data/disordered-list-in-annotated-text.json",
+        "test-data/simple_doc0_no_chains_adm_v100.json",
+        "test-data/simple_doc0_resolved_adm_v100.json",
+        "test-data/simple_doc0_with_chains_adm_v100.json"
+    };
+
+    private final ObjectMapper mapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper());
+    private final LazyAnnotatedTextReader lazyReader = new LazyAnnotatedTextReader(mapper);
+
+    private static byte[] bytes(String file) throws Exception {
+        return Files.readAllBytes(new File(file).toPath());
+    }
+
+    /* a document with the current version, which is needed to copy it. */
+    private static String versioned(String file) throws Exception {
+        String json = new String(bytes(file), StandardCharsets.UTF_8).trim();
+        return "{\"version\":\"1.1.0\"," + json.substring(1);
+    }
+
+    @Test
+    public void sameAsEager() throws Exception {
+        for (String file : DOCUMENTS) {
+            byte[] json = bytes(file);
+            AnnotatedText eager = mapper.readValue(json, AnnotatedText.class);
+            AnnotatedText lazy = lazyReader.read(json);
+            assertEquals(file, String.valueOf(eager.getData()), String.valueOf(lazy.getData()));
+            assertEquals(file, eager.getDocumentMetadata(), lazy.getDocumentMetadata());
+            assertEquals(file, eager.getAttributes(), lazy.getAttributes());
+            assertEquals(file, eager.getEntities(), lazy.getEntities());
+            assertEquals(file, mapper.valueToTree(eager), mapper.valueToTree(new AnnotatedText.Builder(lazy).build()));
+        }
+    }
+
+    @Test
+    public void deferred() throws Exception {
+        AnnotatedText text = lazyReader.read(bytes("test-data/comn-130-adm.json"));
+        assertTrue(text.getAttributes() instanceof LazyAttributeMap);
+        LazyAttributeMap attributes = (LazyAttributeMap) text.getAttributes();
+        assertTrue(attributes.containsKey(KnownAttribute.TOKEN.key()));
+        assertFalse(attributes.isMaterialized(KnownAttribute.TOKEN.key()));
+
+        assertNotNull(text.getLanguageDetectionRegions());
+        assertTrue(attributes.isMaterialized("languageDetectionRegions"));
+        assertFalse(attributes.isMaterialized(KnownAttribute.TOKEN.key()));
+        assertFalse(attributes.isMaterialized(KnownAttribute.ENTITY.key()));
+
+        assertNotNull(text.getTokens());
+        assertTrue(attributes.isMaterialized(KnownAttribute.TOKEN.key()));
+    }
+
+    @Test
+    public void passThrough() throws Exception {
+        // comn-130 is pretty-printed, so a copy is easy to tell from a reserialization.
+        String document = versioned("test-data/comn-130-adm.json");
+        byte[] json = document.getBytes(StandardCharsets.UTF_8);
+        AnnotatedText text = lazyReader.read(json);
+        text.getTokens();
+        assertArrayEquals(document.getBytes(StandardCharsets.UTF_8), mapper.writeValueAsBytes(text));
+        assertEquals(document, mapper.writeValueAsString(text));
+
+        List<AnnotatedText> texts = Lists.newArrayList(text, text);
+        assertEquals("[" + document + "," + document + "]", mapper.writeValueAsString(texts));
+
+        // anything else is serialized as usual; in particular, the attributes may come out in another order.
+        AnnotatedText copy = new AnnotatedText.Builder(text).build();
+        String written = mapper.writeValueAsString(copy);
+        assertFalse(document.equals(written));
+        assertEquals(mapper.valueToTree(mapper.readValue(json, AnnotatedText.class)), mapper.readTree(written));
+    }
+
+    @Test
+    public void partOfArray() throws Exception {
+        byte[] json = versioned("test-data/ordered-list-in-annotated-text.json").getBytes(StandardCharsets.UTF_8);
+        byte[] padded = new byte[json.length + 20];
+        System.arraycopy(json, 0, padded, 10, json.length);
+        AnnotatedText text = lazyReader.read(padded, 10, json.length);
+        assertEquals(mapper.readValue(json, AnnotatedText.class).getTokens(), text.getTokens());
+        assertEquals(new String(json, StandardCharsets.UTF_8).trim(), mapper.writeValueAsString(text));
+    }
+
+    /* what the copy would get wrong is serialized as usual, which is not pretty-printed. */
+    @Test
+    public void notCopied() throws Exception {
+        String document = versioned("test-data/comn-130-adm.json");
+        AnnotatedText text = lazyReader.read(document.getBytes(StandardCharsets.UTF_8));
+        assertEquals(document, mapper.writeValueAsString(text));
+        JsonNode expected = mapper.valueToTree(new AnnotatedText.Builder(text).build());
+
+        // no version, so the copy would not have one.
+        AnnotatedText unversioned = lazyReader.read(bytes("test-data/comn-130-adm.json"));
+        assertSerialized(expected, mapper.writeValueAsString(unversioned));
+
+        // the writer asks for another layout.
+        ObjectWriter packed = mapper.writer().withAttribute(EmbeddingMapSerializer.PACKED_EMBEDDINGS, Boolean.TRUE);
+        assertSerialized(expected, packed.writeValueAsString(text));
+
+        // doubles that the serializer rounds.
+        String confidence = "{\"version\":\"1.1.0\",\"data\":\"x\",\"attributes\":{\"languageDetection\":{\"type\":\"languageDetection\","
+            + "\"startOffset\":0,\"endOffset\":1,\"detectionResults\":[ {\"language\":\"eng\",\"confidence\":%s} ]}}}";
+        String rounded = String.format(confidence, "0.12345678");
+        assertEquals(rounded, mapper.writeValueAsString(lazyReader.read(rounded.getBytes(StandardCharsets.UTF_8))));
+        for (String number : new String[] {"0.123456789", "1.5E-9"}) {
+            AnnotatedText read = lazyReader.read(String.format(confidence, number).getBytes(StandardCharsets.UTF_8));
+            assertSerialized(mapper.valueToTree(new AnnotatedText.Builder(read).build()), mapper.writeValueAsString(read));
+        }
+    }
+
+    private void assertSerialized(JsonNode expected, String written) throws Exception {
+        assertFalse(written, written.contains(" : ") || written.contains("[ "));
+        assertEquals(expected, mapper.readTree(written));
+    }
+
+    /* metering reports a copied document without reading its attributes. */
+    @Test
+    public void meteredCopy() throws Exception {
+        final List<String> events = Lists.newArrayList();
+        ObjectMapper meteredMapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper(), new SerializationListener() {
+            @Override
+            public void attributeWritten(String key, BaseAttribute attribute, long size, long nanos) {
+                events.add(key);
+            }
+
+            @Override
+            public void documentWritten(AnnotatedText text, Object context, long size, long nanos) {
+                events.add(Long.toString(size));
+            }
+        });
+        String document = versioned("test-data/comn-130-adm.json");
+        byte[] json = document.getBytes(StandardCharsets.UTF_8);
+        AnnotatedText text = new LazyAnnotatedTextReader(meteredMapper).read(json);
+        assertArrayEquals(json, meteredMapper.writeValueAsBytes(text));
+        assertEquals(Lists.newArrayList(Integer.toString(json.length)), events);
+        assertFalse(((LazyAttributeMap) text.getAttributes()).isMaterialized(KnownAttribute.TOKEN.key()));
+    }
+
+    @Test
+    public void javaSerialization() throws Exception {
+        AnnotatedText text = lazyReader.read(bytes("test-data/comn-130-adm.json"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(text);
+        }
+        AnnotatedText read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (AnnotatedText) in.readObject();
+        }
+        assertFalse(read.getAttributes() instanceof LazyAttributeMap);
+        assertEquals(text.getAttributes(), read.getAttributes());
+    }
+
+    @Test(expected = InvalidFormatException.class)
+    public void futureVersion() throws Exception {
+        lazyReader.read("{\"version\":\"2.0.0\",\"data\":\"x\"}".getBytes(StandardCharsets.UTF_8));
+    }
+}
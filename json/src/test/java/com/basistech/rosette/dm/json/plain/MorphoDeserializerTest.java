@@ -16,6 +16,12 @@
 package com.basistech.rosette.dm.json.plain;
 
 import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.ArabicMorphoAnalysis;
+import com.basistech.rosette.dm.HanMorphoAnalysis;
+import com.basistech.rosette.dm.KoreanMorphoAnalysis;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.MorphoAnalysis;
+import com.basistech.rosette.dm.Token;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import org.junit.Test;
@@ -34,4 +40,49 @@ public class MorphoDeserializerTest extends AdmAssert {
         // threw
         reader.readValue(new File("test-data/comn-130-adm.json"));
     }
+
+    @Test
+    public void mixedAnalyses() throws Exception {
+        Token.Builder tokenBuilder = new Token.Builder(0, 5, "Hello");
+        MorphoAnalysis.Builder plainBuilder = new MorphoAnalysis.Builder().lemma("plain");
+        plainBuilder.extendedProperty("plain", "simple");
+        tokenBuilder.addAnalysis(plainBuilder.build());
+        // the distinguishing field comes after fields that must be buffered.
+        tokenBuilder.addAnalysis(new HanMorphoAnalysis.Builder().lemma("han").partOfSpeech("NOUN").addReading("r").build());
+        // no readings; the type carries over from the previous analysis.
+        HanMorphoAnalysis.Builder hanBuilder = new HanMorphoAnalysis.Builder();
+        hanBuilder.lemma("han2");
+        hanBuilder.extendedProperty("x", 1);
+        tokenBuilder.addAnalysis(hanBuilder.build());
+        tokenBuilder.addAnalysis(new KoreanMorphoAnalysis.Builder().addMorpheme("mor", "pheme").lemma("korean").build());
+        ArabicMorphoAnalysis.Builder arabicBuilder = new ArabicMorphoAnalysis.Builder();
+        arabicBuilder.lengths(1, 2).root("r").addPrefix("p", "pt").lemma("arabic");
+        arabicBuilder.extendedProperty("ar", "ext");
+        tokenBuilder.addAnalysis(arabicBuilder.build());
+        Token token = tokenBuilder.build();
+
+        ObjectMapper mapper = objectMapper();
+        String json = mapper.writeValueAsString(token);
+        Token readBack = mapper.readValue(json, Token.class);
+        assertEquals(token, readBack);
+        assertEquals(HanMorphoAnalysis.class, readBack.getAnalyses().get(2).getClass());
+        assertEquals(1, readBack.getAnalyses().get(2).getExtendedProperties().get("x"));
+    }
+
+    /* the type picked for one token's analyses must not carry over to the next token. */
+    @Test
+    public void mixedAnalysesAcrossTokens() throws Exception {
+        ListAttribute.Builder<Token> tokens = new ListAttribute.Builder<>(Token.class);
+        tokens.add(new Token.Builder(0, 1, "\u4e2d").addAnalysis(new HanMorphoAnalysis.Builder().lemma("\u4e2d")
+            .partOfSpeech("NOUN").addReading("zhong1").build()).build());
+        tokens.add(new Token.Builder(1, 2, ".").addAnalysis(new MorphoAnalysis.Builder().partOfSpeech("PUNCT").build())
+            .build());
+        AnnotatedText text = new AnnotatedText.Builder().data("\u4e2d.").tokens(tokens.build()).build();
+
+        ObjectMapper mapper = objectMapper();
+        AnnotatedText readBack = mapper.readValue(mapper.writeValueAsString(text), AnnotatedText.class);
+        assertEquals(text.getTokens(), readBack.getTokens());
+        assertEquals(HanMorphoAnalysis.class, readBack.getTokens().get(0).getAnalyses().get(0).getClass());
+        assertEquals(MorphoAnalysis.class, readBack.getTokens().get(1).getAnalyses().get(0).getClass());
+    }
 }
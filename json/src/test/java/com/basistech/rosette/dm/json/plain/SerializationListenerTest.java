@@ -0,0 +1,215 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.json.plain;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.BaseAttribute;
+import com.basistech.rosette.dm.jackson.AdmCodec;
+import com.basistech.rosette.dm.jackson.AnnotatedDataModelModule;
+import com.basistech.rosette.dm.jackson.SerializationListener;
+import com.basistech.rosette.dm.jackson.SmileMappers;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SerializationListenerTest {
+    private final ObjectMapper jsonMapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper());
+
+    private static class RecordingListener extends SerializationListener {
+        final Map<String, Long> attributes = Maps.newLinkedHashMap();
+        final List<Long> documents = Lists.newArrayList();
+        final List<Long> reads = Lists.newArrayList();
+
+        @Override
+        public void attributeWritten(String key, BaseAttribute attribute, long size, long nanos) {
+            assertTrue(nanos >= 0);
+            assertEquals(null, attributes.put(key, size));
+        }
+
+        @Override
+        public void documentWritten(AnnotatedText text, Object context, long size, long nanos) {
+            assertTrue(nanos >= 0);
+            documents.add(size);
+        }
+
+        @Override
+        public void documentRead(AnnotatedText text, Object context, long size, long nanos) {
+            assertTrue(nanos >= 0);
+            reads.add(size);
+        }
+    }
+
+    private AnnotatedText document() throws Exception {
+        return jsonMapper.readValue(new File("test-data/comn-130-adm.json"), AnnotatedText.class);
+    }
+
+    /* header is the size of what the generator writes before any document, which does not count. */
+    private void check(AdmCodec.Shape shape, JsonFactory plainFactory, JsonFactory meteredFactory, int header) throws Exception {
+        AnnotatedText text = document();
+        RecordingListener listener = new RecordingListener();
+        AdmCodec plain = new AdmCodec(shape, plainFactory);
+        AdmCodec metered = new AdmCodec(shape, meteredFactory, listener);
+        byte[] bytes = metered.writeValueAsBytes(text);
+        // the same output as without a listener.
+        assertArrayEquals(plain.writeValueAsBytes(text), bytes);
+        assertEquals(Lists.newArrayList((long) bytes.length - header), listener.documents);
+        assertEquals(text.getAttributes().keySet(), listener.attributes.keySet());
+        long total = 0;
+        for (Map.Entry<String, Long> entry : listener.attributes.entrySet()) {
+            assertTrue(entry.getKey(), entry.getValue() > 0);
+            total += entry.getValue();
+        }
+        assertTrue(total < bytes.length);
+
+        // streams, and what gets written to them before.
+        listener.attributes.clear();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[100]);
+        metered.write(out, text);
+        assertEquals(bytes.length, out.size() - 100);
+        assertEquals((long) bytes.length - header, (long) listener.documents.get(1));
+
+        // reading, from bytes and from a stream.
+        assertEquals(text.getAttributes().keySet(), metered.read(bytes).getAttributes().keySet());
+        metered.read(new ByteArrayInputStream(out.toByteArray(), 100, bytes.length));
+        assertEquals(Lists.newArrayList((long) bytes.length - header, (long) bytes.length - header), listener.reads);
+    }
+
+    @Test
+    public void plain() throws Exception {
+        check(AdmCodec.Shape.PLAIN, new JsonFactory(), new JsonFactory(), 0);
+    }
+
+    @Test
+    public void array() throws Exception {
+        check(AdmCodec.Shape.ARRAY, new JsonFactory(), new JsonFactory(), 0);
+    }
+
+    @Test
+    public void smile() throws Exception {
+        check(AdmCodec.Shape.PLAIN, SmileMappers.newSmileFactory(), SmileMappers.newSmileFactory(), 4);
+        check(AdmCodec.Shape.ARRAY, SmileMappers.newSmileFactory(), SmileMappers.newSmileFactory(), 4);
+    }
+
+    @Test
+    public void characters() throws Exception {
+        AnnotatedText text = document();
+        RecordingListener listener = new RecordingListener();
+        ObjectMapper mapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper(), listener);
+        String json = mapper.writeValueAsString(text);
+        assertEquals(jsonMapper.writeValueAsString(text), json);
+        assertEquals(Lists.newArrayList((long) json.length()), listener.documents);
+        mapper.readValue(json, AnnotatedText.class);
+        assertEquals(Lists.newArrayList((long) json.length()), listener.reads);
+    }
+
+    @Test
+    public void orderedKeys() throws Exception {
+        AnnotatedText text = document();
+        RecordingListener listener = new RecordingListener();
+        ObjectMapper mapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper(), listener);
+        mapper.enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        jsonMapper.enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        assertEquals(jsonMapper.writeValueAsString(text), mapper.writeValueAsString(text));
+        assertEquals(Lists.newArrayList(text.getAttributes().keySet()).size(), listener.attributes.size());
+    }
+
+    /* a generator that the mapper's factory did not create, so the sizes are unknown. */
+    @Test
+    public void unknownSize() throws Exception {
+        AnnotatedText text = document();
+        RecordingListener listener = new RecordingListener();
+        ObjectMapper mapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper(), listener);
+        JsonGenerator gen = new JsonFactory().createGenerator(new ByteArrayOutputStream());
+        gen.setCodec(mapper);
+        mapper.writeValue(gen, text);
+        assertEquals(Lists.newArrayList(-1L), listener.documents);
+        for (long size : listener.attributes.values()) {
+            assertEquals(-1L, size);
+        }
+        // likewise a tree.
+        listener.attributes.clear();
+        mapper.treeToValue(mapper.valueToTree(text), AnnotatedText.class);
+        assertEquals(Lists.newArrayList(-1L), listener.reads);
+    }
+
+    private static class ContextListener extends SerializationListener {
+        final String name;
+        final List<String> events = Lists.newArrayList();
+
+        ContextListener(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object beginWrite(AnnotatedText text, String format, AdmCodec.Shape shape) {
+            return name + " write " + format + " " + shape;
+        }
+
+        @Override
+        public void documentWritten(AnnotatedText text, Object context, long size, long nanos) {
+            events.add((String) context);
+        }
+
+        @Override
+        public Object beginRead(String format, AdmCodec.Shape shape) {
+            return name + " read " + format + " " + shape;
+        }
+
+        @Override
+        public void documentRead(AnnotatedText text, Object context, long size, long nanos) {
+            events.add((String) context);
+        }
+    }
+
+    @Test
+    public void compose() throws Exception {
+        AnnotatedText text = document();
+        ContextListener first = new ContextListener("first");
+        ContextListener second = new ContextListener("second");
+        RecordingListener sizes = new RecordingListener();
+        AdmCodec codec = new AdmCodec(AdmCodec.Shape.ARRAY, SmileMappers.newSmileFactory(), SerializationListener.compose(first, second, sizes));
+        codec.read(codec.writeValueAsBytes(text));
+        assertEquals(Lists.newArrayList("first write Smile ARRAY", "first read Smile ARRAY"), first.events);
+        assertEquals(Lists.newArrayList("second write Smile ARRAY", "second read Smile ARRAY"), second.events);
+        assertEquals(text.getAttributes().keySet(), sizes.attributes.keySet());
+        assertEquals(sizes.documents, sizes.reads);
+    }
+
+    /* listeners that ignore attributes get the documents, and the attributes are written as usual. */
+    @Test
+    public void documentsOnly() throws Exception {
+        AnnotatedText text = document();
+        ContextListener listener = new ContextListener("only");
+        AdmCodec codec = new AdmCodec(AdmCodec.Shape.PLAIN, new JsonFactory(), SerializationListener.compose(listener));
+        assertEquals(jsonMapper.writeValueAsString(text), codec.writeValueAsString(text));
+        assertEquals(Lists.newArrayList("only write JSON PLAIN"), listener.events);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package com.basistech.rosette.dm.json.plain;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.jackson.AnnotatedDataModelModule;
+import com.basistech.rosette.dm.jackson.CborMappers;
+import com.basistech.rosette.dm.jackson.SmileMappers;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SmileCborTest {
+    private static final String[] DOCUMENTS = {
+        "test-data/comn-130-adm.json",
+        "test-data/ordered-list-in-annotated-text.json",
+        "test-data/simple_doc0_with_chains_adm_v100.json"
+    };
+
+    private final ObjectMapper jsonMapper = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper());
+
+    private void roundTrip(ObjectMapper mapper, String description) throws Exception {
+        for (String file : DOCUMENTS) {
+            AnnotatedText text = jsonMapper.readValue(new File(file), AnnotatedText.class);
+            byte[] bytes = mapper.writeValueAsBytes(text);
+            AnnotatedText read = mapper.readValue(bytes, AnnotatedText.class);
+            String message = description + " " + file;
+            assertEquals(message, String.valueOf(text.getData()), String.valueOf(read.getData()));
+            assertEquals(message, text.getDocumentMetadata(), read.getDocumentMetadata());
+            assertEquals(message, text.getAttributes(), read.getAttributes());
+            assertEquals(message, jsonMapper.valueToTree(text), jsonMapper.valueToTree(read));
+        }
+    }
+
+    @Test
+    public void smile() throws Exception {
+        roundTrip(SmileMappers.setupSmileMapper(), "smile");
+        roundTrip(SmileMappers.setupSmileArrayMapper(), "smile array");
+    }
+
+    @Test
+    public void cbor() throws Exception {
+        roundTrip(CborMappers.setupCborMapper(), "cbor");
+        roundTrip(CborMappers.setupCborArrayMapper(), "cbor array");
+    }
+
+    @Test
+    public void sharedValues() throws Exception {
+        AnnotatedText text = jsonMapper.readValue(new File("test-data/comn-130-adm.json"), AnnotatedText.class);
+        ObjectMapper untuned = AnnotatedDataModelModule.setupObjectMapper(new ObjectMapper(new SmileFactory()));
+        int tuned = SmileMappers.setupSmileMapper().writeValueAsBytes(text).length;
+        assertTrue(tuned < untuned.writeValueAsBytes(text).length);
+        assertTrue(tuned < jsonMapper.writeValueAsBytes(text).length);
+    }
+}
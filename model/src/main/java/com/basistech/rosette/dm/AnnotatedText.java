@@ -46,6 +46,10 @@ import java.util.Map;
  * that make up the model, we do not recommend that applications serialize this to
  * Json (or XML or other representations) by applying a reflection-based toolkit 'as-is'.
  * For Json, and Java, the 'adm-json' module provides the supported serialization.
+ * <br>
+ * Java serialization writes the default form unless the system property
+ * {@code com.basistech.rosette.dm.compactSerialization} is {@code true}. Then it writes a compact form,
+ * about a third of the size, which only readers of this version or later can read.
  */
 @SuppressWarnings("deprecation")
 public class AnnotatedText implements Serializable {
@@ -91,6 +95,12 @@ public class AnnotatedText implements Serializable {
         if (attributes == null) {
             return ImmutableMap.of();
         }
+        if (attributes instanceof LazyAttributeMap
+            && !attributes.containsKey(AttributeKey.RESOLVED_ENTITY.key())
+            && !attributes.containsKey(AttributeKey.ENTITY_MENTION.key())) {
+            // already immutable, and there is nothing to convert; keep it lazy.
+            return attributes;
+        }
 
         ListAttribute<Entity> sourceEntityList = (ListAttribute<Entity>) attributes.get(AttributeKey.ENTITY.key());
 
@@ -135,6 +145,32 @@ public class AnnotatedText implements Serializable {
         return data;
     }
 
+    /**
+     * Returns the text of an attribute, such as a token, sentence or mention, as a view of the
+     * character data that does not copy it.
+     *
+     * @param attribute the attribute
+     * @return the text of the attribute
+     * @throws IndexOutOfBoundsException if the attribute is not within the data
+     * @adm.ignore
+     */
+    public SpanText span(Attribute attribute) {
+        return SpanText.of(data, attribute);
+    }
+
+    /**
+     * Returns the text of a range of the character data, as a view that does not copy it.
+     *
+     * @param startOffset the start offset, inclusive
+     * @param endOffset the end offset, exclusive
+     * @return the text of the range
+     * @throws IndexOutOfBoundsException if the range is not within the data
+     * @adm.ignore
+     */
+    public SpanText span(int startOffset, int endOffset) {
+        return SpanText.of(data, startOffset, endOffset);
+    }
+
     /**
      * Returns document-level metadata.  Metadata keys are simple strings;
      * values are lists of strings.
@@ -165,6 +201,11 @@ public class AnnotatedText implements Serializable {
         return attributes;
     }
 
+    /* Java serialization uses the compact form only when it is turned on. */
+    private Object writeReplace() {
+        return CompactAnnotatedText.enabled ? new CompactAnnotatedText(this) : this;
+    }
+
     /**
      * Returns the list of tokens.
      *
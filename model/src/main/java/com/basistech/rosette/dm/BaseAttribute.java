@@ -21,7 +21,10 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -37,6 +40,8 @@ public abstract class BaseAttribute implements Serializable {
     private static final long serialVersionUID = 222L;
 
     protected Map<String, Object> extendedProperties;
+    /* properties arriving from deserialization, not yet copied into extendedProperties. */
+    private transient volatile Map<String, Object> pendingExtendedProperties;
 
     protected BaseAttribute() {
         this.extendedProperties = ImmutableMap.of();
@@ -62,6 +67,11 @@ public abstract class BaseAttribute implements Serializable {
      * @return the map of extended properties
      */
     public Map<String, Object> getExtendedProperties() {
+        Map<String, Object> pending = pendingExtendedProperties;
+        if (pending != null) {
+            extendedProperties = ImmutableMap.copyOf(pending);
+            pendingExtendedProperties = null;
+        }
         return extendedProperties;
     }
 
@@ -71,13 +81,18 @@ public abstract class BaseAttribute implements Serializable {
      * @param value property value
      */
     protected void setExtendedProperty(String name, Object value) {
-        /* This is only called in deserialization. So we do something
-        * to work around the read-only collection. */
-        if (extendedProperties.size() > 0) {
-            extendedProperties = ImmutableMap.<String, Object>builder().putAll(extendedProperties).put(name, value).build();
-        } else {
-            extendedProperties = ImmutableMap.of(name, value);
+        /* This is only called in deserialization. Rebuilding the immutable map for each
+         * property is quadratic, so collect into a mutable map and freeze it on first read.
+         * Reject nulls here, as the immutable map would, so that reading fails rather than the first use. */
+        if (name == null || value == null) {
+            throw new NullPointerException(String.format("null value in entry: %s=%s", name, value));
+        }
+        Map<String, Object> pending = pendingExtendedProperties;
+        if (pending == null) {
+            pending = new LinkedHashMap<>(extendedProperties);
         }
+        pending.put(name, value);
+        pendingExtendedProperties = pending;
     }
 
     @Override
@@ -91,13 +106,13 @@ public abstract class BaseAttribute implements Serializable {
 
         BaseAttribute that = (BaseAttribute) o;
 
-        return extendedProperties.equals(that.extendedProperties);
+        return getExtendedProperties().equals(that.getExtendedProperties());
 
     }
 
     protected MoreObjects.ToStringHelper toStringHelper() {
         return MoreObjects.toStringHelper(this).omitNullValues()
-                .add("extendedProperties", extendedProperties);
+                .add("extendedProperties", getExtendedProperties());
     }
 
     @Override
@@ -107,7 +122,12 @@ public abstract class BaseAttribute implements Serializable {
 
     @Override
     public int hashCode() {
-        return extendedProperties.hashCode();
+        return getExtendedProperties().hashCode();
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getExtendedProperties();
+        out.defaultWriteObject();
     }
 
     /**
@@ -176,7 +196,7 @@ public abstract class BaseAttribute implements Serializable {
          */
         protected Builder(BaseAttribute toCopy) {
             /* Just treat the copy as an immutable item until the caller asks us to change it. */
-            this.extendedPropertiesToCopy = (ImmutableMap<String, Object>) toCopy.extendedProperties;
+            this.extendedPropertiesToCopy = (ImmutableMap<String, Object>) toCopy.getExtendedProperties();
         }
 
         protected abstract B getThis();
@@ -0,0 +1,106 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package com.basistech.rosette.dm;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.List;
+import java.util.Map;
+
+import static com.basistech.rosette.dm.CompactListAttribute.readVarInt;
+import static com.basistech.rosette.dm.CompactListAttribute.writeVarInt;
+
+/**
+ * Serialized form of {@link AnnotatedText}: the data as a string, then the attributes and the document
+ * metadata as counted entries rather than as serialized maps. {@link ListAttribute}s in the attributes
+ * are written with {@link CompactListAttribute}.
+ * <br>
+ * This form is only written when the system property {@link #PROPERTY} is {@code true}, since readers built
+ * before it existed cannot read it; the default form stays the default so that, for example, a cluster can run
+ * mixed versions during an upgrade. Streams written with the default form can always be read.
+ */
+final class CompactAnnotatedText implements Externalizable {
+    static final String PROPERTY = "com.basistech.rosette.dm.compactSerialization";
+    private static final long serialVersionUID = 222L;
+    // read once, rather than for every document and list; tests change it.
+    static volatile boolean enabled = Boolean.getBoolean(PROPERTY);
+
+    private AnnotatedText text;
+
+    /**
+     * For deserialization.
+     */
+    public CompactAnnotatedText() {
+        //
+    }
+
+    CompactAnnotatedText(AnnotatedText text) {
+        this.text = text;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeObject(text.getData() == null ? null : text.getData().toString());
+        Map<String, BaseAttribute> attributes = text.getAttributes();
+        writeVarInt(out, attributes.size());
+        for (Map.Entry<String, BaseAttribute> me : attributes.entrySet()) {
+            out.writeObject(me.getKey());
+            out.writeObject(me.getValue());
+        }
+        Map<String, List<String>> metadata = text.getDocumentMetadata();
+        writeVarInt(out, metadata.size());
+        for (Map.Entry<String, List<String>> me : metadata.entrySet()) {
+            out.writeObject(me.getKey());
+            writeVarInt(out, me.getValue().size());
+            for (String value : me.getValue()) {
+                out.writeObject(value);
+            }
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        String data = (String) in.readObject();
+        int count = readVarInt(in);
+        Map<String, BaseAttribute> attributes = Maps.newLinkedHashMap();
+        for (int x = 0; x < count; x++) {
+            String key = (String) in.readObject();
+            attributes.put(key, (BaseAttribute) in.readObject());
+        }
+        count = readVarInt(in);
+        Map<String, List<String>> metadata = Maps.newLinkedHashMap();
+        for (int x = 0; x < count; x++) {
+            String key = (String) in.readObject();
+            int size = readVarInt(in);
+            List<String> values = Lists.newArrayListWithCapacity(size);
+            for (int y = 0; y < size; y++) {
+                values.add((String) in.readObject());
+            }
+            metadata.put(key, values);
+        }
+        text = new AnnotatedText(data, attributes, metadata, null);
+    }
+
+    private Object readResolve() {
+        return text;
+    }
+}
@@ -0,0 +1,334 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package com.basistech.rosette.dm;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serialized form of {@link ListAttribute}. The default form writes every item as a full object graph,
+ * including a separate serialized map for the extended properties of each item. Lists of {@link Token},
+ * usually by far the largest part of a document, are instead written as a table: offsets as variable-length
+ * deltas, and strings, including those of plain {@link MorphoAnalysis} objects, as indexes into a table of the
+ * distinct strings in the list. Lists of {@link Sentence} are just offsets. Other items are written as objects.
+ * <br>
+ * Like {@link CompactAnnotatedText}, this is only written when the system property
+ * {@link CompactAnnotatedText#PROPERTY} is {@code true}. Streams written with the default form can always be read.
+ */
+final class CompactListAttribute implements Externalizable {
+    private static final long serialVersionUID = 222L;
+    private static final int FORMAT_OBJECTS = 0;
+    private static final int FORMAT_TOKENS = 1;
+    private static final int FORMAT_SENTENCES = 2;
+    private static final int ANALYSIS_OBJECT = 0;
+    private static final int ANALYSIS_TABLE = 1;
+
+    private ListAttribute<?> list;
+
+    /**
+     * For deserialization.
+     */
+    public CompactListAttribute() {
+        //
+    }
+
+    CompactListAttribute(ListAttribute<?> list) {
+        this.list = list;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeObject(list.getItemClass());
+        writeProperties(out, list.getExtendedProperties(), null);
+        writeVarInt(out, list.size());
+        if (list.getItemClass() == Token.class && allOfClass(list, Token.class)) {
+            out.write(FORMAT_TOKENS);
+            writeTokens(out, list);
+        } else if (list.getItemClass() == Sentence.class && allOfClass(list, Sentence.class)) {
+            out.write(FORMAT_SENTENCES);
+            writeSentences(out, list);
+        } else {
+            out.write(FORMAT_OBJECTS);
+            for (BaseAttribute item : list) {
+                out.writeObject(item);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        Class<? extends BaseAttribute> itemClass = (Class<? extends BaseAttribute>) in.readObject();
+        Map<String, Object> properties = readProperties(in, null);
+        int size = readVarInt(in);
+        List<BaseAttribute> items = Lists.newArrayListWithCapacity(size);
+        int format = in.read();
+        if (format == FORMAT_TOKENS) {
+            readTokens(in, size, items);
+        } else if (format == FORMAT_SENTENCES) {
+            readSentences(in, size, items);
+        } else if (format == FORMAT_OBJECTS) {
+            for (int x = 0; x < size; x++) {
+                items.add((BaseAttribute) in.readObject());
+            }
+        } else {
+            throw new InvalidObjectException("Unknown list format " + format);
+        }
+        ListAttribute.Builder<BaseAttribute> builder = new ListAttribute.Builder<>(itemClass);
+        builder.setItems(items);
+        if (properties != null) {
+            builder.extendedProperties(properties);
+        }
+        list = builder.build();
+    }
+
+    private Object readResolve() {
+        return list;
+    }
+
+    private static boolean allOfClass(List<?> items, Class<?> itemClass) {
+        for (Object item : items) {
+            if (item.getClass() != itemClass) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeTokens(ObjectOutput out, List<?> tokens) throws IOException {
+        StringTable strings = new StringTable();
+        int previousStart = 0;
+        for (Object item : tokens) {
+            Token token = (Token) item;
+            writeVarInt(out, zigzag(token.getStartOffset() - previousStart));
+            writeVarInt(out, zigzag(token.getEndOffset() - token.getStartOffset()));
+            previousStart = token.getStartOffset();
+            strings.write(out, token.getText());
+            strings.write(out, token.getSource());
+            List<String> normalized = token.getNormalized();
+            if (normalized == null) {
+                writeVarInt(out, 0);
+            } else {
+                writeVarInt(out, normalized.size() + 1);
+                for (String value : normalized) {
+                    strings.write(out, value);
+                }
+            }
+            writeAnalyses(out, token.getAnalyses(), strings);
+            writeProperties(out, token.getExtendedProperties(), strings);
+        }
+    }
+
+    private static void readTokens(ObjectInput in, int size, List<BaseAttribute> items) throws IOException, ClassNotFoundException {
+        List<String> strings = Lists.newArrayList();
+        int previousStart = 0;
+        for (int x = 0; x < size; x++) {
+            int start = previousStart + unzigzag(readVarInt(in));
+            int end = start + unzigzag(readVarInt(in));
+            previousStart = start;
+            String text = readString(in, strings);
+            String source = readString(in, strings);
+            int normalizedCount = readVarInt(in) - 1;
+            List<String> normalized = null;
+            if (normalizedCount >= 0) {
+                normalized = Lists.newArrayListWithCapacity(normalizedCount);
+                for (int y = 0; y < normalizedCount; y++) {
+                    normalized.add(readString(in, strings));
+                }
+            }
+            List<MorphoAnalysis> analyses = readAnalyses(in, strings);
+            Map<String, Object> properties = readProperties(in, strings);
+            items.add(new Token(start, end, text, normalized, source, analyses, properties));
+        }
+    }
+
+    /*
+     * Plain analyses go in the table; the language-specific subclasses are written as objects.
+     */
+    private static void writeAnalyses(ObjectOutput out, List<MorphoAnalysis> analyses, StringTable strings) throws IOException {
+        if (analyses == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, analyses.size() + 1);
+        for (MorphoAnalysis analysis : analyses) {
+            if (analysis.getClass() == MorphoAnalysis.class) {
+                out.write(ANALYSIS_TABLE);
+                strings.write(out, analysis.getPartOfSpeech());
+                strings.write(out, analysis.getLemma());
+                strings.write(out, analysis.getRaw());
+                out.writeObject(analysis.getComponents());
+                writeProperties(out, analysis.getExtendedProperties(), strings);
+            } else {
+                out.write(ANALYSIS_OBJECT);
+                out.writeObject(analysis);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<MorphoAnalysis> readAnalyses(ObjectInput in, List<String> strings) throws IOException, ClassNotFoundException {
+        int count = readVarInt(in) - 1;
+        if (count < 0) {
+            return null;
+        }
+        List<MorphoAnalysis> analyses = Lists.newArrayListWithCapacity(count);
+        for (int x = 0; x < count; x++) {
+            int kind = in.read();
+            if (kind == ANALYSIS_TABLE) {
+                String partOfSpeech = readString(in, strings);
+                String lemma = readString(in, strings);
+                String raw = readString(in, strings);
+                List<Token> components = (List<Token>) in.readObject();
+                analyses.add(new MorphoAnalysis(partOfSpeech, lemma, components, raw, readProperties(in, strings)));
+            } else if (kind == ANALYSIS_OBJECT) {
+                analyses.add((MorphoAnalysis) in.readObject());
+            } else {
+                throw new InvalidObjectException("Unknown analysis format " + kind);
+            }
+        }
+        return analyses;
+    }
+
+    private static void writeSentences(ObjectOutput out, List<?> sentences) throws IOException {
+        int previousEnd = 0;
+        for (Object item : sentences) {
+            Sentence sentence = (Sentence) item;
+            writeVarInt(out, zigzag(sentence.getStartOffset() - previousEnd));
+            writeVarInt(out, zigzag(sentence.getEndOffset() - sentence.getStartOffset()));
+            previousEnd = sentence.getEndOffset();
+            writeProperties(out, sentence.getExtendedProperties(), null);
+        }
+    }
+
+    private static void readSentences(ObjectInput in, int size, List<BaseAttribute> items) throws IOException, ClassNotFoundException {
+        int previousEnd = 0;
+        for (int x = 0; x < size; x++) {
+            int start = previousEnd + unzigzag(readVarInt(in));
+            int end = start + unzigzag(readVarInt(in));
+            previousEnd = end;
+            items.add(new Sentence(start, end, readProperties(in, null)));
+        }
+    }
+
+    /*
+     * Extended properties: a count, then keys and values. Keys go through the string table when there is one.
+     */
+    private static void writeProperties(ObjectOutput out, Map<String, Object> properties, StringTable strings) throws IOException {
+        writeVarInt(out, properties.size());
+        for (Map.Entry<String, Object> me : properties.entrySet()) {
+            if (strings == null) {
+                out.writeObject(me.getKey());
+            } else {
+                strings.write(out, me.getKey());
+            }
+            out.writeObject(me.getValue());
+        }
+    }
+
+    private static Map<String, Object> readProperties(ObjectInput in, List<String> strings) throws IOException, ClassNotFoundException {
+        int count = readVarInt(in);
+        if (count == 0) {
+            return null;
+        }
+        Map<String, Object> properties = Maps.newLinkedHashMap();
+        for (int x = 0; x < count; x++) {
+            String key = strings == null ? (String) in.readObject() : readString(in, strings);
+            properties.put(key, in.readObject());
+        }
+        return properties;
+    }
+
+    /*
+     * Strings are written as 0 for null, or one more than their index in the table. The first time a string
+     * appears, its index is the size of the table, and the string itself follows.
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        void write(ObjectOutput out, String value) throws IOException {
+            if (value == null) {
+                writeVarInt(out, 0);
+                return;
+            }
+            Integer index = indexes.get(value);
+            if (index != null) {
+                writeVarInt(out, index + 1);
+            } else {
+                index = indexes.size();
+                indexes.put(value, index);
+                writeVarInt(out, index + 1);
+                out.writeObject(value);
+            }
+        }
+    }
+
+    private static String readString(ObjectInput in, List<String> strings) throws IOException, ClassNotFoundException {
+        int index = readVarInt(in) - 1;
+        if (index < 0) {
+            return null;
+        } else if (index < strings.size()) {
+            return strings.get(index);
+        } else if (index == strings.size()) {
+            String value = (String) in.readObject();
+            strings.add(value);
+            return value;
+        } else {
+            throw new InvalidObjectException("String index " + index + " out of sequence");
+        }
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static void writeVarInt(ObjectOutput out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int readVarInt(ObjectInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new InvalidObjectException("Truncated list");
+            }
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new InvalidObjectException("Malformed variable-length integer");
+    }
+}
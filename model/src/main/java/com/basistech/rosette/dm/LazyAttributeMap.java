@@ -0,0 +1,158 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package com.basistech.rosette.dm;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable map of attributes whose keys are known up front, but whose values are only
+ * built when they are first retrieved. A deserializer that can find the extent of each attribute
+ * cheaply can create an {@link AnnotatedText} over one of these with
+ * {@link #newAnnotatedText(CharSequence, Map)}; an application that only looks at some of the
+ * attributes then pays only for those.
+ * Values are built at most once; instances are thread-safe as long as {@link #materialize(int, String)} is.
+ */
+public abstract class LazyAttributeMap extends AbstractMap<String, BaseAttribute> implements Serializable {
+    private static final long serialVersionUID = 222L;
+    private final ImmutableMap<String, Integer> indexes;
+    private final String[] keys;
+    private final BaseAttribute[] values;
+
+    /**
+     * Create a map.
+     * @param keys the attribute keys, in order. Each may appear only once.
+     */
+    protected LazyAttributeMap(Collection<String> keys) {
+        this.keys = keys.toArray(new String[keys.size()]);
+        this.values = new BaseAttribute[this.keys.length];
+        ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
+        for (int x = 0; x < this.keys.length; x++) {
+            builder.put(this.keys[x], x);
+        }
+        this.indexes = builder.build();
+    }
+
+    /**
+     * Build the value for a key. This is called at most once per key.
+     * @param index the position of the key in the collection passed to the constructor.
+     * @param key the key.
+     * @return the value.
+     */
+    protected abstract BaseAttribute materialize(int index, String key);
+
+    /**
+     * Create a text whose attributes are this map. Unless the map holds attributes from before version 1.1
+     * of the model, which have to be converted, the text keeps this map as it is.
+     * @param data the character data.
+     * @param documentMetadata the document metadata, or null.
+     * @return the text.
+     */
+    protected final AnnotatedText newAnnotatedText(CharSequence data, Map<String, List<String>> documentMetadata) {
+        return new AnnotatedText(data, this, documentMetadata, null);
+    }
+
+    /**
+     * Returns whether the value for a key has been built.
+     * @param key the key.
+     * @return true if the value has been built, false if it has not or if there is no such key.
+     */
+    public synchronized boolean isMaterialized(String key) {
+        Integer index = indexes.get(key);
+        return index != null && values[index] != null;
+    }
+
+    private synchronized BaseAttribute value(int index) {
+        BaseAttribute value = values[index];
+        if (value == null) {
+            value = materialize(index, keys[index]);
+            values[index] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public BaseAttribute get(Object key) {
+        Integer index = indexes.get(key);
+        return index == null ? null : value(index);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexes.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return indexes.keySet();
+    }
+
+    @Override
+    public Set<Map.Entry<String, BaseAttribute>> entrySet() {
+        return new AbstractSet<Map.Entry<String, BaseAttribute>>() {
+            @Override
+            public Iterator<Map.Entry<String, BaseAttribute>> iterator() {
+                return new Iterator<Map.Entry<String, BaseAttribute>>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < keys.length;
+                    }
+
+                    @Override
+                    public Map.Entry<String, BaseAttribute> next() {
+                        if (next >= keys.length) {
+                            throw new NoSuchElementException();
+                        }
+                        int index = next++;
+                        return new SimpleImmutableEntry<>(keys[index], value(index));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+
+    /**
+     * Java serialization writes an ordinary immutable map, so it does not need the subclass.
+     * @return an immutable copy of this map.
+     * @throws ObjectStreamException never.
+     */
+    protected final Object writeReplace() throws ObjectStreamException {
+        return ImmutableMap.copyOf(this);
+    }
+}
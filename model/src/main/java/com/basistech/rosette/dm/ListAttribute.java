@@ -71,6 +71,11 @@ public class ListAttribute<Item extends BaseAttribute> extends BaseAttribute imp
         return items.hashCode();
     }
 
+    /* Java serialization uses the compact form only when it is turned on. */
+    private Object writeReplace() {
+        return CompactAnnotatedText.enabled ? new CompactListAttribute(this) : this;
+    }
+
     // this is only used by the serializer, never let it get processed automatically.
 
     /**
@@ -0,0 +1,178 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm;
+
+/**
+ * The text of a span of the character data of a document, as a view that does not copy the characters.
+ * Get one with {@link AnnotatedText#span(Attribute)} for a token, sentence, mention or other
+ * {@link Attribute}, or {@link AnnotatedText#span(int, int)} for any range, such as the {@link Extent}s
+ * of a {@link RelationshipComponent}.
+ * <br>
+ * A view has the same hash code as the {@link String} with the same characters, and computes it
+ * once. As with other {@link CharSequence}s, a view is only equal to another view; use
+ * {@link #contentEquals(CharSequence)} to compare it to a String. A view keeps the whole data reachable,
+ * and reflects it if it is mutable; {@link #toString()} copies the span when you need it on its own.
+ */
+public final class SpanText implements CharSequence, Comparable<SpanText> {
+    private final CharSequence data;
+    private final int start;
+    private final int end;
+    private int hash;
+
+    SpanText(CharSequence data, int start, int end) {
+        if (start < 0 || end < start || end > data.length()) {
+            throw new IndexOutOfBoundsException(String.format("Span %d-%d is not within data of length %d",
+                    start, end, data.length()));
+        }
+        this.data = data;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Returns a view of a span of some character data.
+     *
+     * @param data the data
+     * @param start the start offset, inclusive
+     * @param end the end offset, exclusive
+     * @return the view
+     * @throws IndexOutOfBoundsException if the span is not within the data
+     */
+    public static SpanText of(CharSequence data, int start, int end) {
+        return new SpanText(data, start, end);
+    }
+
+    /**
+     * Returns a view of the span of an attribute in some character data.
+     *
+     * @param data the data
+     * @param attribute the attribute
+     * @return the view
+     * @throws IndexOutOfBoundsException if the attribute is not within the data
+     */
+    public static SpanText of(CharSequence data, Attribute attribute) {
+        return new SpanText(data, attribute.getStartOffset(), attribute.getEndOffset());
+    }
+
+    /**
+     * Returns the start offset of the span in the data.
+     *
+     * @return the start offset
+     */
+    public int getStartOffset() {
+        return start;
+    }
+
+    /**
+     * Returns the end offset of the span in the data.
+     *
+     * @return the end offset
+     */
+    public int getEndOffset() {
+        return end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException(String.format("Index %d is not within a span of length %d",
+                    index, end - start));
+        }
+        return data.charAt(start + index);
+    }
+
+    /**
+     * Returns a view of part of this span; it does not copy the characters either.
+     */
+    @Override
+    public SpanText subSequence(int from, int to) {
+        if (from < 0 || to < from || to > end - start) {
+            throw new IndexOutOfBoundsException(String.format("Range %d-%d is not within a span of length %d",
+                    from, to, end - start));
+        }
+        return new SpanText(data, start + from, start + to);
+    }
+
+    /**
+     * Compares the characters of this span to some other characters.
+     *
+     * @param other the other characters, such as a {@link String}
+     * @return whether they are the same
+     */
+    public boolean contentEquals(CharSequence other) {
+        if (other == this) {
+            return true;
+        }
+        if (other == null || other.length() != end - start) {
+            return false;
+        }
+        if (other instanceof SpanText) {
+            SpanText span = (SpanText) other;
+            if (span.data == data && span.start == start) {
+                return true;
+            }
+            if (span.hash != 0 && hash != 0 && span.hash != hash) {
+                return false;
+            }
+        }
+        for (int x = 0; x < end - start; x++) {
+            if (data.charAt(start + x) != other.charAt(x)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int compareTo(SpanText other) {
+        int length = Math.min(length(), other.length());
+        for (int x = 0; x < length; x++) {
+            char c1 = data.charAt(start + x);
+            char c2 = other.data.charAt(other.start + x);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return length() - other.length();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof SpanText && contentEquals((SpanText) o);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            for (int x = start; x < end; x++) {
+                h = 31 * h + data.charAt(x);
+            }
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return data.subSequence(start, end).toString();
+    }
+}
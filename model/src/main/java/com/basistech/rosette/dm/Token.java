@@ -18,6 +18,7 @@ package com.basistech.rosette.dm;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.Lists;
 
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,8 @@ public class Token extends Attribute implements Serializable {
     private static final long serialVersionUID = 222L;
     // we don't want to have to go look at the parent {@link AnnotatedText}.
     private final String text;
+    // the document data, for a token whose text is derived from it; text is then null.
+    private final transient CharSequence data;
     private final List<String> normalized;
     private final List<MorphoAnalysis> analyses;
     private final String source;
@@ -41,8 +44,20 @@ public class Token extends Attribute implements Serializable {
                     String source,
                     List<MorphoAnalysis> analyses,
                     Map<String, Object> extendedProperties) {
+        this(startOffset, endOffset, text, null, normalized, source, analyses, extendedProperties);
+    }
+
+    protected Token(int startOffset,
+                    int endOffset,
+                    String text,
+                    CharSequence data,
+                    List<String> normalized,
+                    String source,
+                    List<MorphoAnalysis> analyses,
+                    Map<String, Object> extendedProperties) {
         super(startOffset, endOffset, extendedProperties);
-        this.text = text;
+        this.text = data == null ? text : null;
+        this.data = data;
         this.normalized = listOrNull(normalized);
         this.source = source;
         this.analyses = listOrNull(analyses);
@@ -56,10 +71,23 @@ public class Token extends Attribute implements Serializable {
      * to the next line.  The raw text would include the newline character, but
      * the token would not.
      *
+     * A token built with {@link Builder#textFromData(CharSequence)} does not hold its text,
+     * and this copies it from the data on each call.
+     *
      * @return the text of the token
      */
     public String getText() {
-        return text;
+        return data == null ? text : data.subSequence(startOffset, endOffset).toString();
+    }
+
+    /**
+     * Returns whether the text of this token is derived from the document data rather than held by the token.
+     *
+     * @return whether the text is derived from the data
+     * @adm.ignore
+     */
+    public boolean isTextFromData() {
+        return data != null;
     }
 
     /**
@@ -115,13 +143,53 @@ public class Token extends Attribute implements Serializable {
         if (source != null ? !source.equals(token.source) : token.source != null) {
             return false;
         }
-        return !(text != null ? !text.equals(token.text) : token.text != null);
+        return textEquals(token);
+    }
+
+    /* compares the text without copying it from the data. */
+    private boolean textEquals(Token other) {
+        if (data == null && other.data == null) {
+            return text != null ? text.equals(other.text) : other.text == null;
+        }
+        if (data == null && text == null || other.data == null && other.text == null) {
+            return false;
+        }
+        int length = textLength();
+        if (length != other.textLength()) {
+            return false;
+        }
+        for (int x = 0; x < length; x++) {
+            if (textAt(x) != other.textAt(x)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int textLength() {
+        return data == null ? text.length() : endOffset - startOffset;
+    }
+
+    private char textAt(int index) {
+        return data == null ? text.charAt(index) : data.charAt(startOffset + index);
+    }
+
+    /* the same as getText().hashCode(), without copying the text from the data. */
+    private int textHashCode() {
+        if (data == null) {
+            return text.hashCode();
+        }
+        int h = 0;
+        for (int x = startOffset; x < endOffset; x++) {
+            h = 31 * h + data.charAt(x);
+        }
+        return h;
     }
 
     @Override
     public int hashCode() {
         int result = super.hashCode();
-        result = 31 * result + text.hashCode();
+        result = 31 * result + textHashCode();
         if (normalized != null) {
             result = 31 * result + normalized.hashCode();
         }
@@ -137,17 +205,26 @@ public class Token extends Attribute implements Serializable {
     @Override
     protected MoreObjects.ToStringHelper toStringHelper() {
         return MoreObjects.toStringHelper(this)
-                .add("text", text)
+                .add("text", getText())
                 .add("normalized", normalized)
                 .add("analyses", analyses)
                 .add("source", source);
     }
 
+    /* a derived token is written with its own text, since the data is not part of it. */
+    private Object writeReplace() throws ObjectStreamException {
+        if (data == null) {
+            return this;
+        }
+        return new Token(startOffset, endOffset, getText(), normalized, source, analyses, getExtendedProperties());
+    }
+
     /**
      * Builder for tokens.
      */
     public static class Builder extends Attribute.Builder<Token, Token.Builder> {
         private String text;
+        private CharSequence data;
         private List<String> normalized;
         private List<MorphoAnalysis> analyses;
 
@@ -177,6 +254,7 @@ public class Token extends Attribute implements Serializable {
         public Builder(Token toCopy) {
             super(toCopy);
             text = toCopy.text;
+            data = toCopy.data;
             normalized = Lists.newArrayList();
             analyses = Lists.newArrayList();
             addAllToList(normalized, toCopy.normalized);
@@ -191,6 +269,22 @@ public class Token extends Attribute implements Serializable {
          */
         public Builder text(String text) {
             this.text = text;
+            this.data = null;
+            return this;
+        }
+
+        /**
+         * Specifies that the text is the span of the document data between the offsets, so that the token
+         * need not hold a copy of it. {@link Token#getText()} then copies it from the data on each call,
+         * which trades time for memory; pass the same data as the {@link AnnotatedText}, so that the token
+         * does not keep anything else reachable. Java serialization writes such a token with its text.
+         *
+         * @param data the document data
+         * @return this
+         */
+        public Builder textFromData(CharSequence data) {
+            this.data = data;
+            this.text = null;
             return this;
         }
 
@@ -253,7 +347,12 @@ public class Token extends Attribute implements Serializable {
          * @return the new token
          */
         public Token build() {
-            return new Token(startOffset, endOffset, text, normalized, source, analyses, buildExtendedProperties());
+            if (data != null && (startOffset < 0 || endOffset < startOffset || endOffset > data.length())) {
+                throw new IndexOutOfBoundsException(String.format("Token %d-%d is not within data of length %d",
+                        startOffset, endOffset, data.length()));
+            }
+            return new Token(startOffset, endOffset, text, data, normalized, source, analyses,
+                    buildExtendedProperties());
         }
 
         @Override
@@ -26,6 +26,7 @@ import java.util.List;
  */
 public class ComposingAnnotator implements Annotator {
     private final List<Annotator> annotators;
+    private final StageListener listener;
 
     /**
      * Construct a composing annotator from a list of annotators. Input is passed to the first annotator.
@@ -34,7 +35,18 @@ public class ComposingAnnotator implements Annotator {
      * @param annotators the annotators.
      */
     public ComposingAnnotator(List<Annotator> annotators) {
+        this(annotators, null);
+    }
+
+    /**
+     * Construct a composing annotator that reports each stage to a listener, for monitoring such as
+     * flight recorder events.
+     * @param annotators the annotators.
+     * @param listener the listener, or {@code null} for none.
+     */
+    public ComposingAnnotator(List<Annotator> annotators, StageListener listener) {
         this.annotators = annotators;
+        this.listener = listener;
     }
 
 
@@ -46,6 +58,13 @@ public class ComposingAnnotator implements Annotator {
      */
     @Override
     public AnnotatedText annotate(CharSequence input) {
+        if (listener != null) {
+            AnnotatedText at = runStage(annotators.get(0), null, input);
+            for (int x = 1; x < annotators.size(); x++) {
+                at = runStage(annotators.get(x), at, null);
+            }
+            return at;
+        }
         AnnotatedText at = annotators.get(0).annotate(input);
         for (int x = 1; x < annotators.size(); x++) {
             at = annotators.get(x).annotate(at);
@@ -57,8 +76,16 @@ public class ComposingAnnotator implements Annotator {
     public AnnotatedText annotate(AnnotatedText input) {
         AnnotatedText at = input;
         for (Annotator annotator : annotators) {
-            at = annotator.annotate(at);
+            at = listener == null ? annotator.annotate(at) : runStage(annotator, at, null);
         }
         return at;
     }
+
+    private AnnotatedText runStage(Annotator annotator, AnnotatedText input, CharSequence data) {
+        Object context = listener.beginStage(annotator, input);
+        long start = System.nanoTime();
+        AnnotatedText output = input == null ? annotator.annotate(data) : annotator.annotate(input);
+        listener.endStage(annotator, context, input, output, System.nanoTime() - start);
+        return output;
+    }
 }
@@ -0,0 +1,294 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.util;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The retained memory of one or more documents, as measured by {@link FootprintAnalyzer}.
+ * Each object is counted once, under the attribute key, class and field through which the analyzer
+ * first reached it, so each of the breakdowns adds up to {@link #getTotalBytes()}.
+ * Footprints are immutable; {@link #plus(Footprint)} combines them.
+ */
+public final class Footprint {
+    /**
+     * The key in {@link #getBytesByAttribute()} for the text of the document.
+     */
+    public static final String DATA = "data";
+    /**
+     * The key in {@link #getBytesByAttribute()} for the document metadata.
+     */
+    public static final String DOCUMENT_METADATA = "documentMetadata";
+    /**
+     * The key in {@link #getBytesByAttribute()} for the document object itself and its attribute map.
+     */
+    public static final String DOCUMENT = "(document)";
+
+    private final long totalBytes;
+    private final long objectCount;
+    private final int tokenCount;
+    private final Map<String, Long> bytesByAttribute;
+    private final Map<String, Long> bytesByClass;
+    private final Map<String, Long> countByClass;
+    private final Map<String, Long> bytesByField;
+    private final long stringBytes;
+    private final long stringCount;
+    private final long boxedDoubleBytes;
+    private final long boxedDoubleCount;
+    private final long emptyCollectionBytes;
+    private final long emptyCollectionCount;
+
+    Footprint(Builder builder) {
+        this.totalBytes = builder.totalBytes;
+        this.objectCount = builder.objectCount;
+        this.tokenCount = builder.tokenCount;
+        this.bytesByAttribute = ImmutableMap.copyOf(builder.bytesByAttribute);
+        this.bytesByClass = ImmutableMap.copyOf(builder.bytesByClass);
+        this.countByClass = ImmutableMap.copyOf(builder.countByClass);
+        this.bytesByField = ImmutableMap.copyOf(builder.bytesByField);
+        this.stringBytes = builder.stringBytes;
+        this.stringCount = builder.stringCount;
+        this.boxedDoubleBytes = builder.boxedDoubleBytes;
+        this.boxedDoubleCount = builder.boxedDoubleCount;
+        this.emptyCollectionBytes = builder.emptyCollectionBytes;
+        this.emptyCollectionCount = builder.emptyCollectionCount;
+    }
+
+    /**
+     * @return the estimated bytes retained, including object headers and alignment padding.
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return the number of distinct objects retained.
+     */
+    public long getObjectCount() {
+        return objectCount;
+    }
+
+    /**
+     * @return the number of tokens in the documents, for {@link #getBytesPerToken()}.
+     */
+    public int getTokenCount() {
+        return tokenCount;
+    }
+
+    /**
+     * @return the retained bytes per token, or 0 if there are no tokens.
+     */
+    public double getBytesPerToken() {
+        return tokenCount == 0 ? 0 : (double) totalBytes / tokenCount;
+    }
+
+    /**
+     * Returns the bytes by attribute key, as in {@link com.basistech.rosette.dm.AnnotatedText#getAttributes()},
+     * plus {@link #DATA}, {@link #DOCUMENT_METADATA} and {@link #DOCUMENT}.
+     * @return bytes by key.
+     */
+    public Map<String, Long> getBytesByAttribute() {
+        return bytesByAttribute;
+    }
+
+    /**
+     * @return bytes by the name of the class of each object; arrays are named as in {@code int[]}.
+     */
+    public Map<String, Long> getBytesByClass() {
+        return bytesByClass;
+    }
+
+    /**
+     * @return the number of objects by the name of their class.
+     */
+    public Map<String, Long> getCountByClass() {
+        return countByClass;
+    }
+
+    /**
+     * Returns the bytes by the field that refers to each object, named as {@code Class.field}. The contents of
+     * collections and arrays are counted under the field that refers to the collection.
+     * @return bytes by field.
+     */
+    public Map<String, Long> getBytesByField() {
+        return bytesByField;
+    }
+
+    /**
+     * @return the bytes in strings, including their character arrays.
+     */
+    public long getStringBytes() {
+        return stringBytes;
+    }
+
+    public long getStringCount() {
+        return stringCount;
+    }
+
+    /**
+     * @return the bytes in boxed {@link Double}s, such as confidences.
+     */
+    public long getBoxedDoubleBytes() {
+        return boxedDoubleBytes;
+    }
+
+    public long getBoxedDoubleCount() {
+        return boxedDoubleCount;
+    }
+
+    /**
+     * @return the bytes in empty collections and maps that are not shared singletons.
+     */
+    public long getEmptyCollectionBytes() {
+        return emptyCollectionBytes;
+    }
+
+    public long getEmptyCollectionCount() {
+        return emptyCollectionCount;
+    }
+
+    /**
+     * Add two footprints, as for the documents of a corpus. Objects shared between the documents
+     * are counted in both.
+     * @param other the other footprint.
+     * @return the sum.
+     */
+    public Footprint plus(Footprint other) {
+        Builder builder = new Builder();
+        builder.add(this);
+        builder.add(other);
+        return builder.build();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Total %,d bytes in %,d objects", totalBytes, objectCount));
+        if (tokenCount > 0) {
+            sb.append(String.format(", %,.1f bytes per token", getBytesPerToken()));
+        }
+        sb.append('\n');
+        sb.append(String.format("Strings %,d bytes in %,d; boxed doubles %,d bytes in %,d; empty collections %,d bytes in %,d\n",
+                stringBytes, stringCount, boxedDoubleBytes, boxedDoubleCount, emptyCollectionBytes, emptyCollectionCount));
+        appendTable(sb, "By attribute", bytesByAttribute, null);
+        appendTable(sb, "By class", bytesByClass, countByClass);
+        appendTable(sb, "By field", bytesByField, null);
+        return sb.toString();
+    }
+
+    private void appendTable(StringBuilder sb, String title, Map<String, Long> bytes, Map<String, Long> counts) {
+        sb.append(title).append('\n');
+        List<Map.Entry<String, Long>> entries = Lists.newArrayList(bytes.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+            @Override
+            public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
+                return Long.compare(o2.getValue(), o1.getValue());
+            }
+        });
+        for (Map.Entry<String, Long> entry : entries) {
+            sb.append(String.format("  %,14d %5.1f%%  %s", entry.getValue(), 100.0 * entry.getValue() / Math.max(1, totalBytes), entry.getKey()));
+            if (counts != null) {
+                sb.append(String.format(" (%,d)", counts.get(entry.getKey())));
+            }
+            sb.append('\n');
+        }
+    }
+
+    /**
+     * Accumulates a footprint.
+     */
+    static class Builder {
+        private long totalBytes;
+        private long objectCount;
+        private int tokenCount;
+        private final Map<String, Long> bytesByAttribute = Maps.newLinkedHashMap();
+        private final Map<String, Long> bytesByClass = Maps.newLinkedHashMap();
+        private final Map<String, Long> countByClass = Maps.newLinkedHashMap();
+        private final Map<String, Long> bytesByField = Maps.newLinkedHashMap();
+        private long stringBytes;
+        private long stringCount;
+        private long boxedDoubleBytes;
+        private long boxedDoubleCount;
+        private long emptyCollectionBytes;
+        private long emptyCollectionCount;
+
+        void object(String attribute, String className, String field, long bytes) {
+            totalBytes += bytes;
+            objectCount++;
+            increment(bytesByAttribute, attribute, bytes);
+            increment(bytesByClass, className, bytes);
+            increment(countByClass, className, 1);
+            increment(bytesByField, field, bytes);
+        }
+
+        void string(long bytes) {
+            stringBytes += bytes;
+            stringCount++;
+        }
+
+        void boxedDouble(long bytes) {
+            boxedDoubleBytes += bytes;
+            boxedDoubleCount++;
+        }
+
+        void emptyCollection(long bytes) {
+            emptyCollectionBytes += bytes;
+            emptyCollectionCount++;
+        }
+
+        void tokens(int count) {
+            tokenCount += count;
+        }
+
+        void add(Footprint footprint) {
+            totalBytes += footprint.totalBytes;
+            objectCount += footprint.objectCount;
+            tokenCount += footprint.tokenCount;
+            addAll(bytesByAttribute, footprint.bytesByAttribute);
+            addAll(bytesByClass, footprint.bytesByClass);
+            addAll(countByClass, footprint.countByClass);
+            addAll(bytesByField, footprint.bytesByField);
+            stringBytes += footprint.stringBytes;
+            stringCount += footprint.stringCount;
+            boxedDoubleBytes += footprint.boxedDoubleBytes;
+            boxedDoubleCount += footprint.boxedDoubleCount;
+            emptyCollectionBytes += footprint.emptyCollectionBytes;
+            emptyCollectionCount += footprint.emptyCollectionCount;
+        }
+
+        private static void addAll(Map<String, Long> to, Map<String, Long> from) {
+            for (Map.Entry<String, Long> entry : from.entrySet()) {
+                increment(to, entry.getKey(), entry.getValue());
+            }
+        }
+
+        private static void increment(Map<String, Long> map, String key, long value) {
+            Long current = map.get(key);
+            map.put(key, current == null ? value : current + value);
+        }
+
+        Footprint build() {
+            return new Footprint(this);
+        }
+    }
+}
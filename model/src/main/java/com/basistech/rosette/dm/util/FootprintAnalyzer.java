@@ -0,0 +1,401 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.util;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.BaseAttribute;
+import com.basistech.rosette.dm.ListAttribute;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Estimates how much heap an {@link AnnotatedText} retains, for sizing JVMs and for watching the cost of
+ * changes to the model. The analyzer walks the object graph from the document, counting each object once
+ * however many references reach it, and reports the bytes by attribute key, by class and by field
+ * in a {@link Footprint}.
+ * <pre>
+ * Footprint footprint = new FootprintAnalyzer().analyze(text);
+ * System.out.println(footprint);
+ * </pre>
+ * Sizes are computed from the HotSpot object layout rather than measured: 8-byte alignment, 12 or 16 byte
+ * object headers and 4 or 8 byte references with or without compressed oops, and Latin-1 strings in one
+ * byte per character where the JVM has compact strings. The estimate ignores the padding between fields.
+ * Enum constants, classes, cached boxed values and the shared empty collections belong to the JVM, not
+ * the document, and are not counted. On JVMs that do not allow reflection into {@code java.util},
+ * the internals of JDK collections are estimated from their sizes.
+ * <br>
+ * Analyzers are thread-safe and cache the layout of each class they see.
+ */
+public final class FootprintAnalyzer {
+    /* above this heap size, HotSpot turns off compressed oops. */
+    private static final long COMPRESSED_OOPS_LIMIT = 32L << 30;
+    private static final float HASH_LOAD_FACTOR = 0.75f;
+    private static final int HASH_MINIMUM_CAPACITY = 16;
+
+    private static final Set<Object> SHARED_EMPTY_COLLECTIONS;
+    static {
+        Set<Object> shared = Sets.newIdentityHashSet();
+        shared.add(ImmutableList.of());
+        shared.add(ImmutableSet.of());
+        shared.add(ImmutableMap.of());
+        shared.add(Collections.emptyList());
+        shared.add(Collections.emptySet());
+        shared.add(Collections.emptyMap());
+        SHARED_EMPTY_COLLECTIONS = Collections.unmodifiableSet(shared);
+    }
+
+    private final boolean compactStrings;
+    private final int objectHeader;
+    private final int arrayHeader;
+    private final int referenceSize;
+    private final ConcurrentMap<Class<?>, ClassLayout> layouts = new ConcurrentHashMap<>();
+
+    /**
+     * Construct an analyzer for the layout of the running JVM.
+     */
+    public FootprintAnalyzer() {
+        this(Runtime.getRuntime().maxMemory() < COMPRESSED_OOPS_LIMIT,
+                !System.getProperty("java.specification.version").startsWith("1."));
+    }
+
+    /**
+     * Construct an analyzer for a particular layout, so that results do not depend on the JVM that runs it.
+     * @param compressedOops whether the JVM uses 4-byte references and 12-byte object headers.
+     * @param compactStrings whether the JVM stores Latin-1 strings in one byte per character, as Java 9 and later do.
+     */
+    public FootprintAnalyzer(boolean compressedOops, boolean compactStrings) {
+        this.compactStrings = compactStrings;
+        objectHeader = compressedOops ? 12 : 16;
+        arrayHeader = compressedOops ? 16 : 20;
+        referenceSize = compressedOops ? 4 : 8;
+    }
+
+    /**
+     * Measure one document.
+     * @param text the document.
+     * @return its footprint.
+     */
+    public Footprint analyze(AnnotatedText text) {
+        return measure(new Walk(), text);
+    }
+
+    /**
+     * Measure what a document retains beyond another object, such as what an annotator added to its input.
+     * Objects that are reachable from the other object are not counted.
+     * @param text the document.
+     * @param base the other object, such as the input document or text, or {@code null}.
+     * @return the footprint of the objects only reachable from the document.
+     */
+    public Footprint analyze(AnnotatedText text, Object base) {
+        Walk walk = new Walk();
+        if (base != null) {
+            Walk excluded = new Walk();
+            excluded.root(base, Footprint.DOCUMENT, "(root)");
+            walk.visited.addAll(excluded.visited);
+        }
+        return measure(walk, text);
+    }
+
+    private Footprint measure(Walk walk, AnnotatedText text) {
+        // attribute shared objects to the most specific owner: the text, then each attribute, and then the document.
+        walk.root(text.getData(), Footprint.DATA, "AnnotatedText.data");
+        for (Map.Entry<String, BaseAttribute> entry : text.getAttributes().entrySet()) {
+            walk.root(entry.getValue(), entry.getKey(), "AnnotatedText.attributes");
+        }
+        walk.root(text.getDocumentMetadata(), Footprint.DOCUMENT_METADATA, "AnnotatedText.documentMetadata");
+        walk.root(text, Footprint.DOCUMENT, "(root)");
+        ListAttribute<?> tokens = text.getTokens();
+        if (tokens != null) {
+            walk.builder.tokens(tokens.size());
+        }
+        return walk.builder.build();
+    }
+
+    /**
+     * Measure a corpus as the sum of its documents. An object shared between documents is counted for each of them.
+     * @param texts the documents.
+     * @return the total footprint.
+     */
+    public Footprint analyze(Iterable<AnnotatedText> texts) {
+        Footprint.Builder builder = new Footprint.Builder();
+        for (AnnotatedText text : texts) {
+            builder.add(analyze(text));
+        }
+        return builder.build();
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    private long arraySize(int elementSize, int length) {
+        // elements start at their natural alignment after the header and length.
+        long base = (arrayHeader + elementSize - 1) / elementSize * elementSize;
+        return align(base + (long) elementSize * length);
+    }
+
+    private int fieldSize(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return referenceSize;
+        } else if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private long stringSize(String string) {
+        // value, hash, and with compact strings the coder.
+        long shell = align(objectHeader + referenceSize + 4 + (compactStrings ? 1 : 0));
+        int bytesPerChar = 2;
+        if (compactStrings) {
+            bytesPerChar = 1;
+            for (int x = 0; x < string.length(); x++) {
+                if (string.charAt(x) > 0xff) {
+                    bytesPerChar = 2;
+                    break;
+                }
+            }
+        }
+        return shell + arraySize(bytesPerChar, string.length());
+    }
+
+    private ClassLayout layout(Class<?> cls) {
+        ClassLayout layout = layouts.get(cls);
+        if (layout == null) {
+            layout = new ClassLayout(cls);
+            layouts.putIfAbsent(cls, layout);
+        }
+        return layout;
+    }
+
+    private static String className(Class<?> cls) {
+        if (cls.isArray()) {
+            return className(cls.getComponentType()) + "[]";
+        }
+        String name = cls.getName();
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    private static boolean isContainer(Object object) {
+        return (object instanceof Collection || object instanceof Map) && !(object instanceof BaseAttribute);
+    }
+
+    private static boolean isEmptyContainer(Object object) {
+        if (object instanceof Collection) {
+            return ((Collection<?>) object).isEmpty();
+        }
+        return ((Map<?, ?>) object).isEmpty();
+    }
+
+    /* objects that belong to the JVM rather than to any document. */
+    private static boolean isShared(Object object) {
+        if (object instanceof Enum || object instanceof Class || object instanceof Boolean || object instanceof Byte) {
+            return true;
+        } else if (object instanceof Integer) {
+            return object == Integer.valueOf((Integer) object);
+        } else if (object instanceof Long) {
+            return object == Long.valueOf((Long) object);
+        } else if (object instanceof Short) {
+            return object == Short.valueOf((Short) object);
+        } else if (object instanceof Character) {
+            return object == Character.valueOf((Character) object);
+        }
+        return SHARED_EMPTY_COLLECTIONS.contains(object);
+    }
+
+    /**
+     * The size of a class's instances, and the fields to follow from them.
+     */
+    private final class ClassLayout {
+        private final long size;
+        private final List<Field> references;
+        private final List<String> labels;
+        // the JVM would not let us read some of the reference fields.
+        private final boolean opaque;
+
+        ClassLayout(Class<?> cls) {
+            long fieldBytes = 0;
+            references = Lists.newArrayList();
+            labels = Lists.newArrayList();
+            boolean readable = true;
+            for (Class<?> c = cls; c != null; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    fieldBytes += fieldSize(field.getType());
+                    if (!field.getType().isPrimitive()) {
+                        try {
+                            field.setAccessible(true);
+                            references.add(field);
+                            labels.add(className(c) + "." + field.getName());
+                        } catch (RuntimeException e) {
+                            // InaccessibleObjectException or SecurityException.
+                            readable = false;
+                        }
+                    }
+                }
+            }
+            size = align(objectHeader + fieldBytes);
+            opaque = !readable;
+        }
+    }
+
+    private static final class Pending {
+        final Object object;
+        final String field;
+
+        Pending(Object object, String field) {
+            this.object = object;
+            this.field = field;
+        }
+    }
+
+    /**
+     * The state of one analysis.
+     */
+    private final class Walk {
+        final Footprint.Builder builder = new Footprint.Builder();
+        final Set<Object> visited = Sets.newIdentityHashSet();
+        final Deque<Pending> pending = new ArrayDeque<>();
+
+        void root(Object object, String attribute, String field) {
+            push(object, field);
+            while (!pending.isEmpty()) {
+                Pending next = pending.pop();
+                visit(next.object, attribute, next.field);
+            }
+        }
+
+        void push(Object object, String field) {
+            if (object != null && !isShared(object) && visited.add(object)) {
+                pending.push(new Pending(object, field));
+            }
+        }
+
+        void visit(Object object, String attribute, String field) {
+            Class<?> cls = object.getClass();
+            if (cls.isArray()) {
+                visitArray(object, attribute, field);
+                return;
+            }
+            if (object instanceof String) {
+                long size = stringSize((String) object);
+                builder.object(attribute, "String", field, size);
+                builder.string(size);
+                return;
+            }
+            ClassLayout layout = layout(cls);
+            builder.object(attribute, className(cls), field, layout.size);
+            if (object instanceof Double) {
+                builder.boxedDouble(layout.size);
+            }
+            boolean container = isContainer(object);
+            if (container && isEmptyContainer(object)) {
+                builder.emptyCollection(layout.size);
+            }
+            if (layout.opaque && container) {
+                visitOpaqueContainer(object, attribute, field);
+                return;
+            }
+            for (int x = 0; x < layout.references.size(); x++) {
+                Object value;
+                try {
+                    value = layout.references.get(x).get(object);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Failed to read " + layout.labels.get(x), e);
+                }
+                // the contents of a collection belong to the field that refers to it.
+                push(value, container ? field : layout.labels.get(x));
+            }
+        }
+
+        void visitArray(Object array, String attribute, String field) {
+            Class<?> componentType = array.getClass().getComponentType();
+            int length = Array.getLength(array);
+            builder.object(attribute, className(array.getClass()), field, arraySize(fieldSize(componentType), length));
+            if (!componentType.isPrimitive()) {
+                for (Object element : (Object[]) array) {
+                    push(element, field);
+                }
+            }
+        }
+
+        /* follow the contents through the public API, and estimate the table, nodes or array that hold them. */
+        void visitOpaqueContainer(Object container, String attribute, String field) {
+            int size;
+            if (container instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) container;
+                size = map.size();
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    push(entry.getKey(), field);
+                    push(entry.getValue(), field);
+                }
+            } else {
+                Collection<?> collection = (Collection<?>) container;
+                size = collection.size();
+                for (Object element : collection) {
+                    push(element, field);
+                }
+            }
+            long internals;
+            if (container instanceof SortedMap || container instanceof SortedSet) {
+                // key, value, left, right, parent and color.
+                internals = size * align(objectHeader + 5L * referenceSize + 1);
+            } else if (container instanceof Map || container instanceof Set) {
+                // hash, key, value and next, plus before and after when linked.
+                boolean linked = container instanceof LinkedHashMap || container instanceof LinkedHashSet;
+                long node = align(objectHeader + 4 + (linked ? 5L : 3L) * referenceSize);
+                internals = size == 0 ? 0 : arraySize(referenceSize, hashCapacity(size)) + size * node;
+            } else {
+                internals = size == 0 ? 0 : arraySize(referenceSize, size);
+            }
+            if (internals > 0) {
+                builder.object(attribute, className(container.getClass()) + " (internals)", field, internals);
+            }
+        }
+    }
+
+    private static int hashCapacity(int size) {
+        int needed = (int) Math.ceil(size / HASH_LOAD_FACTOR);
+        int capacity = Integer.highestOneBit(Math.max(needed, HASH_MINIMUM_CAPACITY));
+        return capacity < needed ? capacity << 1 : capacity;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.util;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * What one stage of a pipeline added to the documents that passed through it, as measured by
+ * {@link StageMemoryProfiler}. Footprints are immutable snapshots.
+ */
+public final class StageFootprint {
+    private final String name;
+    private final long documents;
+    private final Footprint added;
+    private final Map<String, Long> addedKeys;
+    private final Map<String, Long> replacedKeys;
+    private final Map<String, Long> removedKeys;
+    private final Map<String, Long> items;
+
+    StageFootprint(String name, long documents, Footprint added, Map<String, Long> addedKeys,
+                   Map<String, Long> replacedKeys, Map<String, Long> removedKeys, Map<String, Long> items) {
+        this.name = name;
+        this.documents = documents;
+        this.added = added;
+        this.addedKeys = ImmutableMap.copyOf(addedKeys);
+        this.replacedKeys = ImmutableMap.copyOf(replacedKeys);
+        this.removedKeys = ImmutableMap.copyOf(removedKeys);
+        this.items = ImmutableMap.copyOf(items);
+    }
+
+    /**
+     * @return the position of the stage and the class of its annotator.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of documents that the stage annotated.
+     */
+    public long getDocuments() {
+        return documents;
+    }
+
+    /**
+     * @return the total footprint of the objects that the stage added to its documents: those that its output
+     * retains and its input did not.
+     */
+    public Footprint getAdded() {
+        return added;
+    }
+
+    /**
+     * @return the average number of bytes that the stage added to each document.
+     */
+    public double getBytesPerDocument() {
+        return documents == 0 ? 0 : (double) added.getTotalBytes() / documents;
+    }
+
+    /**
+     * @return for each attribute key, the number of documents in which the stage added it.
+     */
+    public Map<String, Long> getAddedKeys() {
+        return addedKeys;
+    }
+
+    /**
+     * @return for each attribute key, the number of documents in which the stage replaced it with another value.
+     */
+    public Map<String, Long> getReplacedKeys() {
+        return replacedKeys;
+    }
+
+    /**
+     * @return for each attribute key, the number of documents in which the stage removed it.
+     */
+    public Map<String, Long> getRemovedKeys() {
+        return removedKeys;
+    }
+
+    /**
+     * @return for each attribute key that the stage added or replaced, the total number of items in the
+     * new values; an attribute that is not a list counts as one item.
+     */
+    public Map<String, Long> getItems() {
+        return items;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%s: %,d documents, %,d bytes in %,d objects added, %,.1f bytes per document%n",
+                name, documents, added.getTotalBytes(), added.getObjectCount(), getBytesPerDocument()));
+        TreeSet<String> keys = new TreeSet<>(addedKeys.keySet());
+        keys.addAll(replacedKeys.keySet());
+        keys.addAll(removedKeys.keySet());
+        for (String key : keys) {
+            Long bytes = added.getBytesByAttribute().get(key);
+            sb.append(String.format("  %-24s added %,d replaced %,d removed %,d items %,d bytes %,d%n", key,
+                    count(addedKeys, key), count(replacedKeys, key), count(removedKeys, key), count(items, key),
+                    bytes == null ? 0 : bytes));
+        }
+        return sb.toString();
+    }
+
+    private static long count(Map<String, Long> counts, String key) {
+        Long count = counts.get(key);
+        return count == null ? 0 : count;
+    }
+}
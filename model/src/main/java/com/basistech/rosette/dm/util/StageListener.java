@@ -0,0 +1,49 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.util;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.Annotator;
+
+/**
+ * Observes the stages of a {@link ComposingAnnotator}, for monitoring such as flight recorder events.
+ * Install one with {@link ComposingAnnotator#ComposingAnnotator(java.util.List, StageListener)}. The methods do nothing;
+ * override the ones you need. Listeners are called on the threads that run the annotators, so they must be
+ * thread-safe, and they should be quick.
+ */
+public abstract class StageListener {
+    /**
+     * Called before an annotator runs.
+     * @param annotator the annotator.
+     * @param input its input, or {@code null} when it is the first stage and annotates plain text.
+     * @return an object to pass to {@link #endStage}, or {@code null}.
+     */
+    public Object beginStage(Annotator annotator, AnnotatedText input) {
+        return null;
+    }
+
+    /**
+     * Called after an annotator returns. It is not called if the annotator throws.
+     * @param annotator the annotator.
+     * @param context the object from {@link #beginStage}.
+     * @param input its input, or {@code null} when it is the first stage and annotates plain text.
+     * @param output its output.
+     * @param nanos how long it took.
+     */
+    public void endStage(Annotator annotator, Object context, AnnotatedText input, AnnotatedText output, long nanos) {
+        //
+    }
+}
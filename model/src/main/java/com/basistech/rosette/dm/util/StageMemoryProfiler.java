@@ -0,0 +1,198 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.util;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.Annotator;
+import com.basistech.rosette.dm.BaseAttribute;
+import com.basistech.rosette.dm.ListAttribute;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the stages of a pipeline that make documents big. The profiler wraps each annotator, and after each call
+ * measures, with a {@link FootprintAnalyzer}, the objects that the output retains and the input did not, and
+ * notes the attribute keys that the annotator added, replaced or removed and how many items they hold. It adds
+ * these up for each stage over a run into a {@link StageFootprint}.
+ * <pre>
+ * StageMemoryProfiler profiler = new StageMemoryProfiler();
+ * Annotator pipeline = profiler.compose(ImmutableList.of(tokenizer, tagger, linker));
+ * // annotate a representative corpus with the pipeline
+ * System.out.println(profiler.report());
+ * </pre>
+ * Measuring walks every object of every document twice, so this is for profiling runs, not production.
+ * Profilers are thread-safe.
+ */
+public final class StageMemoryProfiler {
+    private final FootprintAnalyzer analyzer;
+    private final List<ProfiledAnnotator> stages = Lists.newArrayList();
+
+    /**
+     * Construct a profiler for the layout of the running JVM.
+     */
+    public StageMemoryProfiler() {
+        this(new FootprintAnalyzer());
+    }
+
+    /**
+     * Construct a profiler that measures with a particular analyzer.
+     * @param analyzer the analyzer.
+     */
+    public StageMemoryProfiler(FootprintAnalyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * Wrap an annotator as the next stage to profile.
+     * @param annotator the annotator.
+     * @return an annotator that calls it and records what it adds.
+     */
+    public Annotator wrap(Annotator annotator) {
+        synchronized (stages) {
+            ProfiledAnnotator stage = new ProfiledAnnotator(String.format("%d %s", stages.size() + 1, name(annotator)), annotator);
+            stages.add(stage);
+            return stage;
+        }
+    }
+
+    /**
+     * Wrap each of a list of annotators, and compose them.
+     * @param annotators the annotators.
+     * @return a {@link ComposingAnnotator} that runs the wrapped annotators in order.
+     */
+    public ComposingAnnotator compose(List<Annotator> annotators) {
+        List<Annotator> wrapped = Lists.newArrayList();
+        for (Annotator annotator : annotators) {
+            wrapped.add(wrap(annotator));
+        }
+        return new ComposingAnnotator(wrapped);
+    }
+
+    /**
+     * @return what each stage has added so far, in the order they were wrapped.
+     */
+    public List<StageFootprint> getStages() {
+        List<StageFootprint> footprints = Lists.newArrayList();
+        synchronized (stages) {
+            for (ProfiledAnnotator stage : stages) {
+                footprints.add(stage.snapshot());
+            }
+        }
+        return footprints;
+    }
+
+    /**
+     * @return a report of what each stage has added so far, and of where the bytes of the biggest stage went.
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        StageFootprint biggest = null;
+        for (StageFootprint stage : getStages()) {
+            sb.append(stage);
+            if (biggest == null || stage.getAdded().getTotalBytes() > biggest.getAdded().getTotalBytes()) {
+                biggest = stage;
+            }
+        }
+        if (biggest != null) {
+            sb.append(String.format("%nThe biggest stage, %s%n", biggest.getName()));
+            sb.append(biggest.getAdded());
+        }
+        return sb.toString();
+    }
+
+    private static String name(Annotator annotator) {
+        String name = annotator.getClass().getSimpleName();
+        return name.isEmpty() ? annotator.getClass().getName() : name;
+    }
+
+    private static long itemCount(BaseAttribute attribute) {
+        return attribute instanceof ListAttribute ? ((ListAttribute<?>) attribute).size() : 1;
+    }
+
+    private static void increment(Map<String, Long> counts, String key, long amount) {
+        Long count = counts.get(key);
+        counts.put(key, count == null ? amount : count + amount);
+    }
+
+    /**
+     * One stage, and what it has added so far.
+     */
+    private final class ProfiledAnnotator implements Annotator {
+        private final String name;
+        private final Annotator delegate;
+        private long documents;
+        private Footprint added = new Footprint.Builder().build();
+        private final Map<String, Long> addedKeys = Maps.newHashMap();
+        private final Map<String, Long> replacedKeys = Maps.newHashMap();
+        private final Map<String, Long> removedKeys = Maps.newHashMap();
+        private final Map<String, Long> items = Maps.newHashMap();
+
+        ProfiledAnnotator(String name, Annotator delegate) {
+            this.name = name;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public AnnotatedText annotate(CharSequence input) {
+            AnnotatedText output = delegate.annotate(input);
+            record(input, null, output);
+            return output;
+        }
+
+        @Override
+        public AnnotatedText annotate(AnnotatedText input) {
+            AnnotatedText output = delegate.annotate(input);
+            record(input, input, output);
+            return output;
+        }
+
+        private void record(Object base, AnnotatedText input, AnnotatedText output) {
+            // measure outside the lock; it is the slow part.
+            Footprint footprint = analyzer.analyze(output, base);
+            Map<String, BaseAttribute> before = input == null ? null : input.getAttributes();
+            Map<String, BaseAttribute> after = output.getAttributes();
+            synchronized (this) {
+                documents++;
+                added = added.plus(footprint);
+                for (Map.Entry<String, BaseAttribute> entry : after.entrySet()) {
+                    BaseAttribute previous = before == null ? null : before.get(entry.getKey());
+                    if (previous == null) {
+                        increment(addedKeys, entry.getKey(), 1);
+                    } else if (previous != entry.getValue()) {
+                        increment(replacedKeys, entry.getKey(), 1);
+                    } else {
+                        continue;
+                    }
+                    increment(items, entry.getKey(), itemCount(entry.getValue()));
+                }
+                if (before != null) {
+                    for (String key : before.keySet()) {
+                        if (!after.containsKey(key)) {
+                            increment(removedKeys, key, 1);
+                        }
+                    }
+                }
+            }
+        }
+
+        synchronized StageFootprint snapshot() {
+            return new StageFootprint(name, documents, added, addedKeys, replacedKeys, removedKeys, items);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+* Copyright 2014 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm;
+
+import com.basistech.util.ISO15924;
+import com.basistech.util.LanguageCode;
+import com.google.common.io.ByteStreams;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The compact serialized forms of {@link AnnotatedText} and {@link ListAttribute}.
+ */
+public class CompactSerializationTest {
+    private boolean wasEnabled;
+
+    @Before
+    public void enable() {
+        wasEnabled = CompactAnnotatedText.enabled;
+        CompactAnnotatedText.enabled = true;
+    }
+
+    @After
+    public void restore() {
+        CompactAnnotatedText.enabled = wasEnabled;
+    }
+
+    static class SpecialToken extends Token {
+        SpecialToken(int startOffset, int endOffset, String text) {
+            super(startOffset, endOffset, text, null, null, null, null);
+        }
+    }
+
+    static AnnotatedText document(int sentenceCount) {
+        String[] words = {"The", "terrier", "was", "shot", "to", "Boston", "."};
+        StringBuilder data = new StringBuilder();
+        ListAttribute.Builder<Token> tokens = new ListAttribute.Builder<>(Token.class);
+        tokens.extendedProperty("tokenizer", "test");
+        ListAttribute.Builder<Sentence> sentences = new ListAttribute.Builder<>(Sentence.class);
+        for (int s = 0; s < sentenceCount; s++) {
+            int sentenceStart = data.length();
+            for (int w = 0; w < words.length; w++) {
+                int start = data.length();
+                data.append(words[w]);
+                Token.Builder token = new Token.Builder(start, data.length(), words[w]);
+                if (w == 1) {
+                    token.addNormalized("terrier").addNormalized("dog");
+                    token.addAnalysis(new MorphoAnalysis.Builder().partOfSpeech("NOUN").lemma("terrier").build());
+                }
+                if (w == 5) {
+                    token.source("gazetteer");
+                    token.extendedProperty("capitalized", true);
+                }
+                tokens.add(token.build());
+                data.append(' ');
+            }
+            sentences.add(new Sentence.Builder(sentenceStart, data.length()).build());
+        }
+        ListAttribute.Builder<Entity> entities = new ListAttribute.Builder<>(Entity.class);
+        entities.add(new Entity.Builder().mention(new Mention.Builder(21, 27).build()).type("LOCATION").build());
+        LanguageDetection.DetectionResult detection = new LanguageDetection.DetectionResult.Builder(LanguageCode.ENGLISH)
+            .script(ISO15924.Latn).confidence(0.75).build();
+        return new AnnotatedText.Builder()
+            .data(data.toString())
+            .tokens(tokens.build())
+            .sentences(sentences.build())
+            .entities(entities.build())
+            .wholeDocumentLanguageDetection(new LanguageDetection.Builder(0, data.length(), Arrays.asList(detection)).build())
+            .documentMetadata("source", Arrays.asList("test", "compact"))
+            .build();
+    }
+
+    private static byte[] serialize(Object object) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(InputStream input) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(input)) {
+            return in.readObject();
+        }
+    }
+
+    @Test
+    public void roundTrip() throws Exception {
+        AnnotatedText text = document(50);
+        AnnotatedText read = (AnnotatedText) deserialize(new ByteArrayInputStream(serialize(text)));
+        assertEquals(text.getData().toString(), read.getData().toString());
+        assertEquals(text.getAttributes(), read.getAttributes());
+        assertEquals(text.getDocumentMetadata(), read.getDocumentMetadata());
+        assertEquals("test", read.getTokens().getExtendedProperties().get("tokenizer"));
+        assertEquals(Boolean.TRUE, read.getTokens().get(5).getExtendedProperties().get("capitalized"));
+        assertEquals(Arrays.asList("terrier", "dog"), read.getTokens().get(1).getNormalized());
+        assertNull(read.getTokens().get(0).getNormalized());
+        assertEquals("NOUN", read.getTokens().get(1).getAnalyses().get(0).getPartOfSpeech());
+    }
+
+    @Test
+    public void mixedItems() throws Exception {
+        // a list of tokens that holds a subclass takes the general path.
+        ListAttribute.Builder<Token> builder = new ListAttribute.Builder<>(Token.class);
+        builder.add(new Token.Builder(0, 1, "a").build());
+        builder.add(new SpecialToken(1, 2, "b"));
+        ListAttribute<Token> list = builder.build();
+        assertEquals(list, deserialize(new ByteArrayInputStream(serialize(list))));
+        ListAttribute<Token> empty = new ListAttribute.Builder<Token>(Token.class).build();
+        assertEquals(empty, deserialize(new ByteArrayInputStream(serialize(empty))));
+    }
+
+    @Test
+    public void smaller() throws Exception {
+        AnnotatedText text = document(500);
+        byte[] compact = serialize(text);
+        byte[] old;
+        try (InputStream input = getClass().getResourceAsStream("annotated-text-222.ser")) {
+            old = ByteStreams.toByteArray(input);
+        }
+        // the resource holds document(500), written with the default form.
+        assertTrue(compact.length + " vs " + old.length, compact.length * 3 < old.length);
+    }
+
+    /* unless it is turned on, the default form is written, so that older readers can read it. */
+    @Test
+    public void defaultFormByDefault() throws Exception {
+        CompactAnnotatedText.enabled = false;
+        AnnotatedText text = document(500);
+        byte[] bytes = serialize(text);
+        String stream = new String(bytes, StandardCharsets.ISO_8859_1);
+        assertFalse(stream.contains(CompactAnnotatedText.class.getName()));
+        assertFalse(stream.contains(CompactListAttribute.class.getName()));
+        AnnotatedText read = (AnnotatedText) deserialize(new ByteArrayInputStream(bytes));
+        assertEquals(text.getAttributes(), read.getAttributes());
+        // the same classes as the old stream; the bytes depend on the JDK that wrote them.
+        Set<String> old;
+        try (InputStream input = getClass().getResourceAsStream("annotated-text-222.ser")) {
+            old = classNames(input);
+        }
+        assertEquals(old, classNames(new ByteArrayInputStream(bytes)));
+    }
+
+    /* the classes described in a stream. */
+    private static Set<String> classNames(InputStream input) throws Exception {
+        final Set<String> names = new TreeSet<>();
+        try (ObjectInputStream in = new ObjectInputStream(input) {
+            @Override
+            protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                names.add(desc.getName());
+                return super.resolveClass(desc);
+            }
+        }) {
+            in.readObject();
+        }
+        return names;
+    }
+
+    @Test
+    public void readDefaultForm() throws Exception {
+        AnnotatedText expected = document(500);
+        AnnotatedText read;
+        try (InputStream input = getClass().getResourceAsStream("annotated-text-222.ser")) {
+            read = (AnnotatedText) deserialize(input);
+        }
+        assertEquals(expected.getData().toString(), read.getData().toString());
+        assertEquals(expected.getAttributes(), read.getAttributes());
+        assertEquals(expected.getDocumentMetadata(), read.getDocumentMetadata());
+    }
+}
@@ -0,0 +1,138 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm;
+
+import com.basistech.rosette.dm.util.FootprintAnalyzer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SpanTextTest {
+    //                                  0123456789012345678
+    private static final String DATA = "Hello world. Hello.";
+
+    private static AnnotatedText document(boolean textFromData) {
+        ListAttribute.Builder<Token> tokens = new ListAttribute.Builder<>(Token.class);
+        int[] offsets = {0, 5, 6, 11, 11, 12, 13, 18, 18, 19};
+        for (int x = 0; x < offsets.length; x += 2) {
+            String tokenText = DATA.substring(offsets[x], offsets[x + 1]);
+            Token.Builder builder = new Token.Builder(offsets[x], offsets[x + 1], tokenText);
+            if (textFromData) {
+                builder.textFromData(DATA);
+            }
+            tokens.add(builder.build());
+        }
+        return new AnnotatedText.Builder().data(DATA).tokens(tokens.build()).build();
+    }
+
+    @Test
+    public void spans() {
+        AnnotatedText text = document(false);
+        SpanText world = text.span(text.getTokens().get(1));
+        assertEquals(5, world.length());
+        assertEquals('w', world.charAt(0));
+        assertEquals("world", world.toString());
+        assertTrue(world.contentEquals("world"));
+        assertFalse(world.contentEquals("World"));
+        assertFalse(world.contentEquals("worlds"));
+        assertEquals("world".hashCode(), world.hashCode());
+        assertEquals("orl", world.subSequence(1, 4).toString());
+        assertEquals(7, world.subSequence(1, 4).getStartOffset());
+
+        Sentence sentence = new Sentence.Builder(0, 12).build();
+        assertEquals("Hello world.", text.span(sentence).toString());
+        assertEquals("Hello world.", text.span(0, 12).toString());
+        assertEquals(0, text.span(5, 5).length());
+    }
+
+    @Test
+    public void equality() {
+        AnnotatedText text = document(false);
+        SpanText first = text.span(text.getTokens().get(0));
+        SpanText second = text.span(text.getTokens().get(3));
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertTrue(first.contentEquals(second));
+        assertEquals(0, first.compareTo(second));
+        assertNotEquals(first, text.span(text.getTokens().get(1)));
+        assertTrue(first.compareTo(text.span(text.getTokens().get(1))) < 0);
+        // like other CharSequences, a view is not equal to a String.
+        assertNotEquals(first, "Hello");
+        assertEquals(SpanText.of(new StringBuilder(DATA), 0, 5), first);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfData() {
+        document(false).span(15, 20);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfSpan() {
+        document(false).span(0, 5).charAt(5);
+    }
+
+    @Test
+    public void tokenTextFromData() throws Exception {
+        AnnotatedText held = document(false);
+        AnnotatedText derived = document(true);
+        for (int x = 0; x < held.getTokens().size(); x++) {
+            Token token = derived.getTokens().get(x);
+            assertTrue(token.isTextFromData());
+            assertFalse(held.getTokens().get(x).isTextFromData());
+            assertEquals(held.getTokens().get(x).getText(), token.getText());
+            assertEquals(held.getTokens().get(x), token);
+            assertEquals(token, held.getTokens().get(x));
+            assertEquals(held.getTokens().get(x).hashCode(), token.hashCode());
+        }
+        // the same span of other data.
+        Token hello = new Token.Builder(0, 5, null).textFromData(DATA).build();
+        assertEquals(hello, new Token.Builder(0, 5, null).textFromData(new StringBuilder(DATA)).build());
+        assertNotEquals(hello, new Token.Builder(0, 5, null).textFromData("Jello" + DATA.substring(5)).build());
+        assertNotEquals(hello, new Token.Builder(0, 5, "Hell").build());
+        Token copy = new Token.Builder(derived.getTokens().get(1)).build();
+        assertTrue(copy.isTextFromData());
+        assertFalse(new Token.Builder(copy).text("World").build().isTextFromData());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new Token.Builder(6, 11, null).textFromData(DATA).source("test").build());
+        }
+        Token read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (Token) in.readObject();
+        }
+        assertFalse(read.isTextFromData());
+        assertEquals("world", read.getText());
+        assertEquals("test", read.getSource());
+
+        // the tokens no longer hold their own strings.
+        FootprintAnalyzer analyzer = new FootprintAnalyzer(true, false);
+        assertTrue(analyzer.analyze(derived).getStringCount() < analyzer.analyze(held).getStringCount());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void tokenOutOfData() {
+        new Token.Builder(15, 20, null).textFromData(DATA).build();
+    }
+}
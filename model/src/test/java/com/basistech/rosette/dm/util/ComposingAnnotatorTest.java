@@ -0,0 +1,103 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.util;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.Annotator;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.Sentence;
+import com.basistech.rosette.dm.Token;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class ComposingAnnotatorTest {
+
+    /* one token for the whole text. */
+    private static class Tokenizer implements Annotator {
+        @Override
+        public AnnotatedText annotate(CharSequence input) {
+            ListAttribute.Builder<Token> tokens = new ListAttribute.Builder<>(Token.class);
+            tokens.add(new Token.Builder(0, input.length(), input.toString()).build());
+            return new AnnotatedText.Builder().data(input).tokens(tokens.build()).build();
+        }
+
+        @Override
+        public AnnotatedText annotate(AnnotatedText input) {
+            return annotate(input.getData());
+        }
+    }
+
+    /* one sentence for the whole text. */
+    private static class SentenceBreaker implements Annotator {
+        @Override
+        public AnnotatedText annotate(CharSequence input) {
+            return annotate(new AnnotatedText.Builder().data(input).build());
+        }
+
+        @Override
+        public AnnotatedText annotate(AnnotatedText input) {
+            ListAttribute.Builder<Sentence> sentences = new ListAttribute.Builder<>(Sentence.class);
+            sentences.add(new Sentence.Builder(0, input.getData().length()).build());
+            return new AnnotatedText.Builder(input).sentences(sentences.build()).build();
+        }
+    }
+
+    private static class RecordingListener extends StageListener {
+        final List<String> stages = Lists.newArrayList();
+
+        @Override
+        public Object beginStage(Annotator annotator, AnnotatedText input) {
+            return annotator.getClass().getSimpleName();
+        }
+
+        @Override
+        public void endStage(Annotator annotator, Object context, AnnotatedText input, AnnotatedText output, long nanos) {
+            stages.add(String.format("%s %s %s", context, input == null ? null : keys(input), keys(output)));
+        }
+
+        private static Set<String> keys(AnnotatedText text) {
+            return Sets.newTreeSet(text.getAttributes().keySet());
+        }
+    }
+
+    @Test
+    public void compose() {
+        ComposingAnnotator annotator = new ComposingAnnotator(ImmutableList.<Annotator>of(new Tokenizer(), new SentenceBreaker()));
+        AnnotatedText text = annotator.annotate("Hello");
+        assertEquals(1, text.getTokens().size());
+        assertEquals(1, text.getSentences().size());
+    }
+
+    @Test
+    public void listener() {
+        List<Annotator> annotators = ImmutableList.<Annotator>of(new Tokenizer(), new SentenceBreaker());
+        RecordingListener listener = new RecordingListener();
+        ComposingAnnotator annotator = new ComposingAnnotator(annotators, listener);
+        annotator.annotate("Hello");
+        annotator.annotate(new AnnotatedText.Builder().data("Hello").build());
+        // other annotators over the same stages do not report to it.
+        new ComposingAnnotator(annotators).annotate("Hello");
+        assertEquals(Lists.newArrayList("Tokenizer null [token]", "SentenceBreaker [token] [sentence, token]",
+            "Tokenizer [] [token]", "SentenceBreaker [token] [sentence, token]"), listener.stages);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.util;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.Entity;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.Mention;
+import com.basistech.rosette.dm.Sentence;
+import com.basistech.rosette.dm.Token;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FootprintAnalyzerTest {
+    // a Java 8 layout with compressed oops, so the numbers do not depend on the JVM running the test.
+    private final FootprintAnalyzer analyzer = new FootprintAnalyzer(true, false);
+
+    private static AnnotatedText document(boolean shareTokenText) {
+        //             0123456789012
+        String data = "Hello. Hello.";
+        String hello = "Hello";
+        ListAttribute.Builder<Token> tokens = new ListAttribute.Builder<>(Token.class);
+        tokens.add(new Token.Builder(0, 5, hello).build());
+        tokens.add(new Token.Builder(5, 6, ".").build());
+        tokens.add(new Token.Builder(7, 12, shareTokenText ? hello : new String(hello)).build());
+        tokens.add(new Token.Builder(12, 13, ".").build());
+        ListAttribute.Builder<Sentence> sentences = new ListAttribute.Builder<>(Sentence.class);
+        sentences.add(new Sentence.Builder(0, 6).build());
+        sentences.add(new Sentence.Builder(7, 13).build());
+        ListAttribute.Builder<Entity> entities = new ListAttribute.Builder<>(Entity.class);
+        entities.add(new Entity.Builder().mention(new Mention.Builder(0, 5).build()).confidence(0.25).build());
+        return new AnnotatedText.Builder().data(data)
+            .tokens(tokens.build())
+            .sentences(sentences.build())
+            .entities(entities.build())
+            .documentMetadata("id", ImmutableList.of("doc-1"))
+            .build();
+    }
+
+    private static long sum(Map<String, Long> map) {
+        long total = 0;
+        for (long value : map.values()) {
+            total += value;
+        }
+        return total;
+    }
+
+    @Test
+    public void breakdownsAddUp() {
+        AnnotatedText text = document(true);
+        Footprint footprint = analyzer.analyze(text);
+        assertTrue(footprint.getTotalBytes() > 0);
+        assertEquals(footprint.getTotalBytes(), sum(footprint.getBytesByAttribute()));
+        assertEquals(footprint.getTotalBytes(), sum(footprint.getBytesByClass()));
+        assertEquals(footprint.getTotalBytes(), sum(footprint.getBytesByField()));
+        assertEquals(footprint.getObjectCount(), sum(footprint.getCountByClass()));
+        for (String key : text.getAttributes().keySet()) {
+            assertTrue(key, footprint.getBytesByAttribute().get(key) > 0);
+        }
+        assertTrue(footprint.getBytesByAttribute().containsKey(Footprint.DATA));
+        assertTrue(footprint.getBytesByAttribute().containsKey(Footprint.DOCUMENT_METADATA));
+        assertTrue(footprint.getBytesByAttribute().containsKey(Footprint.DOCUMENT));
+        assertEquals(4, footprint.getTokenCount());
+        assertEquals(footprint.getTotalBytes() / 4.0, footprint.getBytesPerToken(), 0.0);
+        assertEquals(4L, (long) footprint.getCountByClass().get("Token"));
+        assertTrue(footprint.getBytesByField().containsKey("Token.text"));
+        assertTrue(footprint.getBytesByField().containsKey("ListAttribute.items"));
+    }
+
+    @Test
+    public void layout() {
+        Footprint footprint = analyzer.analyze(document(true));
+        // at least the data, "Hello", ".", "id" and "doc-1".
+        assertTrue(footprint.getStringCount() >= 5);
+        // 12 byte header, padding, and the value.
+        assertEquals(1, footprint.getBoxedDoubleCount());
+        assertEquals(24, footprint.getBoxedDoubleBytes());
+        assertEquals(0, footprint.getTotalBytes() % 8);
+    }
+
+    @Test
+    public void sharedObjectsCountOnce() {
+        Footprint shared = analyzer.analyze(document(true));
+        Footprint copied = analyzer.analyze(document(false));
+        // a 24 byte String and its 5 chars in a 16 byte array header, aligned.
+        assertEquals(24 + 32, copied.getTotalBytes() - shared.getTotalBytes());
+        assertEquals(1, copied.getStringCount() - shared.getStringCount());
+    }
+
+    @Test
+    public void compressedOops() {
+        AnnotatedText text = document(true);
+        long compressed = analyzer.analyze(text).getTotalBytes();
+        long uncompressed = new FootprintAnalyzer(false, false).analyze(text).getTotalBytes();
+        assertTrue(uncompressed > compressed);
+        long compact = new FootprintAnalyzer(true, true).analyze(text).getTotalBytes();
+        assertTrue(compact < compressed);
+    }
+
+    @Test
+    public void corpus() {
+        Footprint one = analyzer.analyze(document(true));
+        Footprint two = analyzer.analyze(ImmutableList.of(document(true), document(true)));
+        assertEquals(2 * one.getTotalBytes(), two.getTotalBytes());
+        assertEquals(8, two.getTokenCount());
+        assertEquals(one.getBytesPerToken(), two.getBytesPerToken(), 0.0);
+        assertEquals(two.getTotalBytes(), one.plus(one).getTotalBytes());
+        assertTrue(two.toString().startsWith("Total"));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.util;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.Annotator;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.Sentence;
+import com.basistech.rosette.dm.Token;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StageMemoryProfilerTest {
+    // a Java 8 layout with compressed oops, so the numbers do not depend on the JVM running the test.
+    private final StageMemoryProfiler profiler = new StageMemoryProfiler(new FootprintAnalyzer(true, false));
+
+    /* one token per character. */
+    private static class Tokenizer implements Annotator {
+        @Override
+        public AnnotatedText annotate(CharSequence input) {
+            ListAttribute.Builder<Token> tokens = new ListAttribute.Builder<>(Token.class);
+            for (int x = 0; x < input.length(); x++) {
+                tokens.add(new Token.Builder(x, x + 1, input.subSequence(x, x + 1).toString()).build());
+            }
+            return new AnnotatedText.Builder().data(input).tokens(tokens.build()).build();
+        }
+
+        @Override
+        public AnnotatedText annotate(AnnotatedText input) {
+            return annotate(input.getData());
+        }
+    }
+
+    /* one sentence for the whole text, replacing the tokens with the same ones. */
+    private static class SentenceBreaker implements Annotator {
+        @Override
+        public AnnotatedText annotate(CharSequence input) {
+            return annotate(new AnnotatedText.Builder().data(input).build());
+        }
+
+        @Override
+        public AnnotatedText annotate(AnnotatedText input) {
+            ListAttribute.Builder<Sentence> sentences = new ListAttribute.Builder<>(Sentence.class);
+            sentences.add(new Sentence.Builder(0, input.getData().length()).build());
+            ListAttribute.Builder<Token> tokens = new ListAttribute.Builder<>(Token.class);
+            for (Token token : input.getTokens()) {
+                tokens.add(token);
+            }
+            return new AnnotatedText.Builder(input).sentences(sentences.build()).tokens(tokens.build()).build();
+        }
+    }
+
+    /* changes nothing. */
+    private static class Identity implements Annotator {
+        @Override
+        public AnnotatedText annotate(CharSequence input) {
+            return new AnnotatedText.Builder().data(input).build();
+        }
+
+        @Override
+        public AnnotatedText annotate(AnnotatedText input) {
+            return input;
+        }
+    }
+
+    @Test
+    public void stages() {
+        Annotator pipeline = profiler.compose(ImmutableList.<Annotator>of(new Tokenizer(), new SentenceBreaker(), new Identity()));
+        pipeline.annotate("Hello");
+        pipeline.annotate("Hi");
+        List<StageFootprint> stages = profiler.getStages();
+        assertEquals(3, stages.size());
+
+        StageFootprint tokenizer = stages.get(0);
+        assertEquals("1 Tokenizer", tokenizer.getName());
+        assertEquals(2, tokenizer.getDocuments());
+        assertEquals(ImmutableMap.of("token", 2L), tokenizer.getAddedKeys());
+        assertEquals(ImmutableMap.of("token", 7L), tokenizer.getItems());
+        assertTrue(tokenizer.getReplacedKeys().isEmpty());
+        // the data was the input, so it is not counted.
+        assertTrue(tokenizer.getAdded().getTotalBytes() > 0);
+        assertEquals(null, tokenizer.getAdded().getBytesByAttribute().get(Footprint.DATA));
+
+        StageFootprint breaker = stages.get(1);
+        assertEquals(ImmutableMap.of("sentence", 2L), breaker.getAddedKeys());
+        assertEquals(ImmutableMap.of("token", 2L), breaker.getReplacedKeys());
+        assertEquals(ImmutableMap.of("sentence", 2L, "token", 7L), breaker.getItems());
+        // the tokens themselves are shared with the input; only the new lists and the sentences are added.
+        assertTrue(breaker.getAdded().getTotalBytes() < tokenizer.getAdded().getTotalBytes());
+        assertEquals(null, breaker.getAdded().getCountByClass().get("Token"));
+
+        StageFootprint identity = stages.get(2);
+        assertEquals("3 Identity", identity.getName());
+        assertEquals(0, identity.getAdded().getTotalBytes());
+        assertEquals(0.0, identity.getBytesPerDocument(), 0.0);
+        assertTrue(identity.getAddedKeys().isEmpty());
+        assertTrue(identity.getItems().isEmpty());
+    }
+
+    @Test
+    public void removed() {
+        Annotator stage = profiler.wrap(new Annotator() {
+            @Override
+            public AnnotatedText annotate(CharSequence input) {
+                return new AnnotatedText.Builder().data(input).build();
+            }
+
+            @Override
+            public AnnotatedText annotate(AnnotatedText input) {
+                return annotate(input.getData());
+            }
+        });
+        stage.annotate(new Tokenizer().annotate("Hello"));
+        StageFootprint footprint = profiler.getStages().get(0);
+        assertTrue(footprint.getName(), footprint.getName().startsWith("1 "));
+        assertEquals(ImmutableMap.of("token", 1L), footprint.getRemovedKeys());
+    }
+
+    @Test
+    public void report() {
+        Annotator pipeline = profiler.compose(ImmutableList.<Annotator>of(new Tokenizer(), new SentenceBreaker()));
+        pipeline.annotate("Hello");
+        String report = profiler.report();
+        assertTrue(report, report.startsWith("1 Tokenizer: 1 documents"));
+        assertTrue(report, report.contains("2 SentenceBreaker: 1 documents"));
+        assertTrue(report, report.contains("The biggest stage, 1 Tokenizer"));
+    }
+}
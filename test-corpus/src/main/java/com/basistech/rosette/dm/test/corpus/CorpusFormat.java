@@ -0,0 +1,140 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.test.corpus;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.binary.CorpusReader;
+import com.basistech.rosette.dm.binary.CorpusWriter;
+import com.basistech.rosette.dm.jackson.AdmCodec;
+import com.basistech.rosette.dm.jackson.CborMappers;
+import com.basistech.rosette.dm.jackson.SmileMappers;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.google.common.collect.Lists;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The formats a corpus can be written in. The Jackson formats write the documents one after another as a
+ * sequence of root values; {@link #BINARY} writes a {@link CorpusWriter} file.
+ * <pre>
+ * CorpusFormat.SMILE.write(new CorpusGenerator(spec), Paths.get("corpus.sml"));
+ * </pre>
+ */
+public enum CorpusFormat {
+    JSON(AdmCodec.Shape.PLAIN),
+    JSON_ARRAY(AdmCodec.Shape.ARRAY),
+    SMILE(AdmCodec.Shape.PLAIN),
+    SMILE_ARRAY(AdmCodec.Shape.ARRAY),
+    CBOR(AdmCodec.Shape.PLAIN),
+    CBOR_ARRAY(AdmCodec.Shape.ARRAY),
+    BINARY(null);
+
+    private final AdmCodec.Shape shape;
+
+    CorpusFormat(AdmCodec.Shape shape) {
+        this.shape = shape;
+    }
+
+    /**
+     * @return a codec for this format, or {@code null} for {@link #BINARY}.
+     */
+    public AdmCodec newCodec() {
+        if (shape == null) {
+            return null;
+        }
+        JsonFactory factory;
+        switch (this) {
+        case SMILE:
+        case SMILE_ARRAY:
+            factory = SmileMappers.newSmileFactory();
+            break;
+        case CBOR:
+        case CBOR_ARRAY:
+            factory = CborMappers.newCborFactory();
+            break;
+        default:
+            factory = new JsonFactory();
+            break;
+        }
+        return new AdmCodec(shape, factory);
+    }
+
+    /**
+     * Write a corpus, replacing any existing file.
+     * @param documents the documents.
+     * @param file the file.
+     * @return the number of documents written.
+     * @throws IOException for errors writing.
+     */
+    public int write(Iterable<AnnotatedText> documents, Path file) throws IOException {
+        int count = 0;
+        if (this == BINARY) {
+            try (CorpusWriter writer = new CorpusWriter(file)) {
+                for (AnnotatedText text : documents) {
+                    writer.add(text);
+                    count++;
+                }
+            }
+            return count;
+        }
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+             SequenceWriter writer = newCodec().writer().writeValues(output)) {
+            for (AnnotatedText text : documents) {
+                writer.write(text);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Read a whole corpus into memory.
+     * @param file the file.
+     * @return the documents.
+     * @throws IOException for errors reading.
+     */
+    public List<AnnotatedText> read(Path file) throws IOException {
+        List<AnnotatedText> documents = Lists.newArrayList();
+        if (this == BINARY) {
+            try (CorpusReader reader = new CorpusReader(file)) {
+                for (int x = 0; x < reader.size(); x++) {
+                    documents.add(reader.read(x));
+                }
+            }
+            return documents;
+        }
+        // not ObjectReader.readValues, which would take the first array-shaped document for a wrapper.
+        ObjectReader reader = newCodec().reader();
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+             JsonParser parser = reader.getFactory().createParser(input)) {
+            while (parser.nextToken() != null) {
+                documents.add(reader.<AnnotatedText>readValue(parser));
+            }
+        }
+        return documents;
+    }
+}
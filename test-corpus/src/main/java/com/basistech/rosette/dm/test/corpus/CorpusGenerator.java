@@ -0,0 +1,371 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.test.corpus;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.BaseAttribute;
+import com.basistech.rosette.dm.Dependency;
+import com.basistech.rosette.dm.EmbeddingCollection;
+import com.basistech.rosette.dm.Embeddings;
+import com.basistech.rosette.dm.Entity;
+import com.basistech.rosette.dm.Extent;
+import com.basistech.rosette.dm.LanguageDetection;
+import com.basistech.rosette.dm.ListAttribute;
+import com.basistech.rosette.dm.Mention;
+import com.basistech.rosette.dm.RelationshipComponent;
+import com.basistech.rosette.dm.RelationshipMention;
+import com.basistech.rosette.dm.Sentence;
+import com.basistech.rosette.dm.Token;
+import com.basistech.util.LanguageCode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Makes synthetic {@link AnnotatedText} documents from a {@link CorpusSpec}. Documents are made from small
+ * vocabularies in English, Chinese, Arabic and Korean, with analyses of the types that real analyzers produce
+ * for each, entities whose mentions corefer, relationships between them, dependency parses, embeddings and
+ * extended properties, as the specification asks. Each document depends only on the seed and its index, so
+ * {@link #document(int)} is repeatable and corpora can be regenerated anywhere rather than shipped.
+ * Decimal values have four digits below the point, so documents round-trip exactly through every format.
+ * <pre>
+ * CorpusGenerator generator = new CorpusGenerator(new CorpusSpec.Builder().seed(7).documentCount(1000).build());
+ * for (AnnotatedText text : generator) {
+ *     ...
+ * }
+ * </pre>
+ * Generators are immutable and thread-safe.
+ */
+public final class CorpusGenerator implements Iterable<AnnotatedText> {
+    private static final String[] ENTITY_TYPES = {"PERSON", "LOCATION", "ORGANIZATION"};
+    private static final String[] PREDICATES = {"employs", "located in", "met with", "founded"};
+    private static final String[] DEPENDENCY_LABELS = {"nsubj", "obj", "amod", "det", "case", "nmod", "advmod"};
+    private static final long MIX = 0x9E3779B97F4A7C15L;
+
+    private final CorpusSpec spec;
+    private final CorpusLanguage[] languages;
+    private final double[] cumulativeWeights;
+
+    public CorpusGenerator(CorpusSpec spec) {
+        this.spec = spec;
+        Map<LanguageCode, Double> weights = spec.getLanguages();
+        languages = new CorpusLanguage[weights.size()];
+        cumulativeWeights = new double[weights.size()];
+        double total = 0;
+        int index = 0;
+        for (Map.Entry<LanguageCode, Double> me : weights.entrySet()) {
+            total += me.getValue();
+            languages[index] = CorpusLanguage.forLanguage(me.getKey());
+            cumulativeWeights[index] = total;
+            index++;
+        }
+    }
+
+    public CorpusSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * @return the number of documents in the corpus.
+     */
+    public int size() {
+        return spec.getDocumentCount();
+    }
+
+    @Override
+    public Iterator<AnnotatedText> iterator() {
+        return new Iterator<AnnotatedText>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < spec.getDocumentCount();
+            }
+
+            @Override
+            public AnnotatedText next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return document(index++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Make one document of the corpus.
+     * @param index the index of the document; any index may be used, even past {@link #size()}.
+     * @return the document.
+     */
+    public AnnotatedText document(int index) {
+        Random random = new Random(scramble(spec.getSeed() * MIX + index));
+        return new DocumentMaker(random, chooseLanguage(random), tokenCount(random)).make(index);
+    }
+
+    /* The SplitMix64 finalizer; Random's first values from nearby seeds are nearly the same. */
+    private static long scramble(long seed) {
+        long z = seed;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private CorpusLanguage chooseLanguage(Random random) {
+        double pick = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+        for (int x = 0; x < languages.length; x++) {
+            if (pick < cumulativeWeights[x]) {
+                return languages[x];
+            }
+        }
+        return languages[languages.length - 1];
+    }
+
+    private int tokenCount(Random random) {
+        double length = spec.getMedianTokens() * Math.exp(spec.getTokenSpread() * random.nextGaussian());
+        return (int) Math.max(1, Math.min(spec.getMaxTokens(), Math.round(length)));
+    }
+
+    /* four digits below the point, which every format keeps exactly. */
+    private static double decimal(Random random) {
+        return Math.round(random.nextDouble() * 10000) / 10000.0;
+    }
+
+    /* The state of making one document. */
+    private final class DocumentMaker {
+        private final Random random;
+        private final CorpusLanguage language;
+        private final int tokenCount;
+        private final StringBuilder data;
+        private final List<Token> tokens;
+        private final List<Sentence> sentences = Lists.newArrayList();
+        private final List<List<Mention>> entityMentions = Lists.newArrayList();
+        private final List<String> entityNames = Lists.newArrayList();
+        private final List<String> entityTypes = Lists.newArrayList();
+        private final int[] sentenceOfToken;
+
+        DocumentMaker(Random random, CorpusLanguage language, int tokenCount) {
+            this.random = random;
+            this.language = language;
+            this.tokenCount = tokenCount;
+            this.data = new StringBuilder(tokenCount * 6);
+            this.tokens = Lists.newArrayListWithCapacity(tokenCount);
+            this.sentenceOfToken = new int[tokenCount];
+        }
+
+        AnnotatedText make(int index) {
+            double nameChance = spec.getEntityDensity() / 100;
+            int sentenceStart = 0;
+            for (int x = 0; x < tokenCount; x++) {
+                boolean name = random.nextDouble() < nameChance;
+                String word = name ? pick(language.names) : pick(language.words);
+                if (x > 0) {
+                    data.append(language.separator);
+                }
+                int start = data.length();
+                data.append(word);
+                int end = data.length();
+                tokens.add(token(start, end, word, name));
+                if (name) {
+                    mention(start, end, word);
+                }
+                sentenceOfToken[x] = sentences.size();
+                if (spec.getSentenceLength() > 0 && ((x + 1) % spec.getSentenceLength() == 0 || x == tokenCount - 1)) {
+                    sentences.add(new Sentence.Builder(sentenceStart, end).build());
+                    sentenceStart = end + language.separator.length();
+                }
+            }
+
+            AnnotatedText.Builder builder = new AnnotatedText.Builder().data(data.toString());
+            builder.tokens(list(Token.class, tokens));
+            if (!sentences.isEmpty()) {
+                builder.sentences(list(Sentence.class, sentences));
+            }
+            List<Entity> entities = entities();
+            if (!entities.isEmpty()) {
+                builder.entities(list(Entity.class, entities));
+                List<RelationshipMention> relationships = relationships(entities);
+                if (!relationships.isEmpty()) {
+                    builder.relationshipMentions(list(RelationshipMention.class, relationships));
+                }
+            }
+            if (spec.isDependencies()) {
+                builder.dependencies(list(Dependency.class, dependencies()));
+            }
+            if (spec.getEmbeddingDimensions() > 0) {
+                builder.embeddings(embeddings());
+            }
+            if (spec.isLanguageDetection()) {
+                LanguageDetection.DetectionResult result = new LanguageDetection.DetectionResult.Builder(language.language)
+                    .script(language.script).confidence(decimal(random)).build();
+                builder.wholeDocumentLanguageDetection(
+                    new LanguageDetection.Builder(0, data.length(), ImmutableList.of(result)).build());
+            }
+            builder.documentMetadata("id", "doc-" + index);
+            return builder.build();
+        }
+
+        private String pick(String[] choices) {
+            return choices[random.nextInt(choices.length)];
+        }
+
+        private Token token(int start, int end, String word, boolean name) {
+            Token.Builder token = new Token.Builder(start, end, word);
+            for (int a = 0; a < spec.getAnalysesPerToken(); a++) {
+                String partOfSpeech = name && a == 0 ? "PROP" : pick(language.partsOfSpeech);
+                token.addAnalysis(language.analysis(random, word, partOfSpeech, a));
+            }
+            extendedProperties(token);
+            return token.build();
+        }
+
+        /* a name either starts an entity or, by the coreference chance, is another mention of an earlier one. */
+        private void mention(int start, int end, String word) {
+            Mention mention = new Mention.Builder(start, end).normalized(word).confidence(decimal(random)).build();
+            if (!entityMentions.isEmpty() && random.nextDouble() < spec.getCoreference()) {
+                int earlier = entityNames.indexOf(word);
+                if (earlier < 0) {
+                    earlier = random.nextInt(entityMentions.size());
+                }
+                entityMentions.get(earlier).add(mention);
+            } else {
+                List<Mention> mentions = Lists.newArrayList();
+                mentions.add(mention);
+                entityMentions.add(mentions);
+                entityNames.add(word);
+                entityTypes.add(pick(ENTITY_TYPES));
+            }
+        }
+
+        private List<Entity> entities() {
+            List<Entity> entities = Lists.newArrayListWithCapacity(entityMentions.size());
+            for (int x = 0; x < entityMentions.size(); x++) {
+                Entity.Builder entity = new Entity.Builder().type(entityTypes.get(x)).headMentionIndex(0)
+                    .entityId("Q" + random.nextInt(1000000)).confidence(decimal(random));
+                for (Mention mention : entityMentions.get(x)) {
+                    entity.mention(mention);
+                }
+                extendedProperties(entity);
+                entities.add(entity.build());
+            }
+            return entities;
+        }
+
+        private List<RelationshipMention> relationships(List<Entity> entities) {
+            List<RelationshipMention> relationships = Lists.newArrayList();
+            if (entities.size() < 2) {
+                return relationships;
+            }
+            int count = (int) Math.round(tokenCount * spec.getRelationshipDensity() / 100);
+            for (int x = 0; x < count; x++) {
+                Entity first = entities.get(random.nextInt(entities.size()));
+                Entity second = entities.get(random.nextInt(entities.size()));
+                if (first == second) {
+                    continue;
+                }
+                Mention firstMention = first.getMentions().get(0);
+                Mention secondMention = second.getMentions().get(0);
+                int start = Math.min(firstMention.getStartOffset(), secondMention.getStartOffset());
+                int end = Math.max(firstMention.getEndOffset(), secondMention.getEndOffset());
+                relationships.add(new RelationshipMention.Builder(start, end)
+                    .predicate(new RelationshipComponent.Builder().phrase(pick(PREDICATES)).build())
+                    .arg1(component(first, firstMention))
+                    .arg2(component(second, secondMention))
+                    .confidence(decimal(random))
+                    .source("synthetic")
+                    .build());
+            }
+            return relationships;
+        }
+
+        private RelationshipComponent component(Entity entity, Mention mention) {
+            return new RelationshipComponent.Builder()
+                .phrase(mention.getNormalized())
+                .identifier(entity.getEntityId())
+                .extents(ImmutableList.of(new Extent.Builder(mention.getStartOffset(), mention.getEndOffset()).build()))
+                .build();
+        }
+
+        /* each sentence is a chain from its first token, which is the root. */
+        private List<Dependency> dependencies() {
+            List<Dependency> dependencies = Lists.newArrayListWithCapacity(tokenCount);
+            for (int x = 0; x < tokenCount; x++) {
+                if (x == 0 || sentenceOfToken[x] != sentenceOfToken[x - 1]) {
+                    dependencies.add(new Dependency.Builder("root", -1, x).build());
+                } else {
+                    dependencies.add(new Dependency.Builder(pick(DEPENDENCY_LABELS), x - 1, x).build());
+                }
+            }
+            return dependencies;
+        }
+
+        private Embeddings embeddings() {
+            EmbeddingCollection.Builder text = new EmbeddingCollection.Builder();
+            text.put(0, vector());
+            EmbeddingCollection.Builder tokenVectors = new EmbeddingCollection.Builder();
+            for (int x = 0; x < tokenCount; x++) {
+                tokenVectors.put(x, vector());
+            }
+            return new Embeddings.Builder()
+                .put(Embeddings.Name.TEXT, text.build())
+                .put(Embeddings.Name.TOKENS, tokenVectors.build())
+                .build();
+        }
+
+        private float[] vector() {
+            float[] vector = new float[spec.getEmbeddingDimensions()];
+            for (int x = 0; x < vector.length; x++) {
+                vector[x] = (float) random.nextGaussian();
+            }
+            return vector;
+        }
+
+        /* a mix of value types, as applications put on attributes. */
+        private void extendedProperties(BaseAttribute.Builder<?, ?> builder) {
+            for (int x = 0; x < spec.getExtendedProperties(); x++) {
+                String key = "ext" + x;
+                switch (x % 4) {
+                case 0:
+                    builder.extendedProperty(key, pick(language.words));
+                    break;
+                case 1:
+                    builder.extendedProperty(key, random.nextInt(1000));
+                    break;
+                case 2:
+                    builder.extendedProperty(key, decimal(random));
+                    break;
+                default:
+                    builder.extendedProperty(key, random.nextBoolean());
+                    break;
+                }
+            }
+        }
+    }
+
+    private static <T extends BaseAttribute> ListAttribute<T> list(Class<T> itemClass, List<T> items) {
+        return new ListAttribute.Builder<T>(itemClass).setItems(items).build();
+    }
+}
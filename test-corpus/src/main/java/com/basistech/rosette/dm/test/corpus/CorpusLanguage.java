@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.test.corpus;
+
+import com.basistech.rosette.dm.ArabicMorphoAnalysis;
+import com.basistech.rosette.dm.HanMorphoAnalysis;
+import com.basistech.rosette.dm.KoreanMorphoAnalysis;
+import com.basistech.rosette.dm.MorphoAnalysis;
+import com.basistech.util.ISO15924;
+import com.basistech.util.LanguageCode;
+
+import java.util.Random;
+
+/**
+ * The vocabulary and analyses of each language a corpus can be in.
+ */
+enum CorpusLanguage {
+    ENGLISH(LanguageCode.ENGLISH, ISO15924.Latn, " ",
+        new String[] {"the", "of", "and", "to", "in", "a", "is", "that", "for", "it", "was", "on", "with", "as", "by",
+            "report", "market", "government", "company", "year", "people", "city", "said", "announced", "would"},
+        new String[] {"Smith", "Boston", "Acme", "Paris", "Tanaka", "Reuters", "Geneva", "Okafor"},
+        new String[] {"DET", "ADP", "CONJ", "NOUN", "VERB", "ADJ", "ADV", "PRON"}) {
+        @Override
+        MorphoAnalysis analysis(Random random, String word, String partOfSpeech, int index) {
+            return new MorphoAnalysis.Builder().partOfSpeech(partOfSpeech).lemma(word.toLowerCase()).build();
+        }
+    },
+    CHINESE(LanguageCode.SIMPLIFIED_CHINESE, ISO15924.Hani, "",
+        new String[] {"我们", "今天", "公司", "市场", "政府", "发展", "经济", "宣布", "报告", "人民", "表示", "问题"},
+        new String[] {"北京", "上海", "李明", "王芳", "华为", "广州"},
+        new String[] {"NC", "V", "A", "D", "PR", "U"}) {
+        @Override
+        MorphoAnalysis analysis(Random random, String word, String partOfSpeech, int index) {
+            return new HanMorphoAnalysis.Builder().partOfSpeech(partOfSpeech).lemma(word)
+                .addReading("r" + Math.abs(word.hashCode() % 1000) + "_" + index).build();
+        }
+    },
+    ARABIC(LanguageCode.ARABIC, ISO15924.Arab, " ",
+        new String[] {"في", "من", "على", "الحكومة", "السوق", "الشركة", "قال", "اليوم", "تقرير", "مدينة", "الناس", "عام"},
+        new String[] {"القاهرة", "محمد", "دبي", "بغداد", "فاطمة", "عمان"},
+        new String[] {"NOUN", "VERB", "PREP", "ADJ", "DET+NOUN"}) {
+        @Override
+        MorphoAnalysis analysis(Random random, String word, String partOfSpeech, int index) {
+            boolean article = word.startsWith("ال") && word.length() > 2;
+            String stem = article ? word.substring(2) : word;
+            ArabicMorphoAnalysis.Builder builder = new ArabicMorphoAnalysis.Builder();
+            builder.partOfSpeech(partOfSpeech).lemma(stem);
+            builder.lengths(article ? 2 : 0, stem.length());
+            builder.root(stem.substring(0, Math.min(3, stem.length())));
+            builder.definiteArticle(article);
+            if (article) {
+                builder.addPrefix("ال", "DET");
+            }
+            builder.addStem(stem, partOfSpeech);
+            return builder.build();
+        }
+    },
+    KOREAN(LanguageCode.KOREAN, ISO15924.Hang, " ",
+        new String[] {"회사", "시장", "정부", "오늘", "발표", "경제", "보고서", "사람", "올해", "문제", "했다", "있다"},
+        new String[] {"서울", "김민수", "삼성", "부산", "이지은", "인천"},
+        new String[] {"NNG", "VV", "VA", "MAG", "NNB"}) {
+        @Override
+        MorphoAnalysis analysis(Random random, String word, String partOfSpeech, int index) {
+            KoreanMorphoAnalysis.Builder builder = new KoreanMorphoAnalysis.Builder();
+            builder.partOfSpeech(partOfSpeech).lemma(word);
+            if (word.length() > 1 && random.nextBoolean()) {
+                builder.addMorpheme(word.substring(0, word.length() - 1), partOfSpeech);
+                builder.addMorpheme(word.substring(word.length() - 1), "JKS");
+            } else {
+                builder.addMorpheme(word, partOfSpeech);
+            }
+            return builder.build();
+        }
+    };
+
+    final LanguageCode language;
+    final ISO15924 script;
+    final String separator;
+    final String[] words;
+    final String[] names;
+    final String[] partsOfSpeech;
+
+    CorpusLanguage(LanguageCode language, ISO15924 script, String separator, String[] words, String[] names,
+                   String[] partsOfSpeech) {
+        this.language = language;
+        this.script = script;
+        this.separator = separator;
+        this.words = words;
+        this.names = names;
+        this.partsOfSpeech = partsOfSpeech;
+    }
+
+    /**
+     * Make one analysis of a word.
+     * @param random the random source of the document.
+     * @param word the word.
+     * @param partOfSpeech the part of speech.
+     * @param index which analysis of the word this is.
+     * @return the analysis.
+     */
+    abstract MorphoAnalysis analysis(Random random, String word, String partOfSpeech, int index);
+
+    static CorpusLanguage forLanguage(LanguageCode language) {
+        if (language == LanguageCode.CHINESE) {
+            return CHINESE;
+        }
+        for (CorpusLanguage corpusLanguage : values()) {
+            if (corpusLanguage.language == language) {
+                return corpusLanguage;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.basistech.rosette.dm.test.corpus;
+
+import com.basistech.util.LanguageCode;
+import com.google.common.collect.ImmutableSortedMap;
+
+import java.util.Map;
+
+/**
+ * What a {@link CorpusGenerator} makes: how many documents, how long, in which languages, and how densely
+ * they are annotated. Densities are per hundred tokens. A specification is immutable; make one with
+ * {@link Builder}.
+ */
+public final class CorpusSpec {
+    private final long seed;
+    private final int documentCount;
+    private final int medianTokens;
+    private final double tokenSpread;
+    private final int maxTokens;
+    private final Map<LanguageCode, Double> languages;
+    private final int analysesPerToken;
+    private final int sentenceLength;
+    private final double entityDensity;
+    private final double coreference;
+    private final double relationshipDensity;
+    private final boolean dependencies;
+    private final int embeddingDimensions;
+    private final boolean languageDetection;
+    private final int extendedProperties;
+
+    private CorpusSpec(Builder builder) {
+        this.seed = builder.seed;
+        this.documentCount = builder.documentCount;
+        this.medianTokens = builder.medianTokens;
+        this.tokenSpread = builder.tokenSpread;
+        this.maxTokens = builder.maxTokens;
+        this.languages = builder.languages;
+        this.analysesPerToken = builder.analysesPerToken;
+        this.sentenceLength = builder.sentenceLength;
+        this.entityDensity = builder.entityDensity;
+        this.coreference = builder.coreference;
+        this.relationshipDensity = builder.relationshipDensity;
+        this.dependencies = builder.dependencies;
+        this.embeddingDimensions = builder.embeddingDimensions;
+        this.languageDetection = builder.languageDetection;
+        this.extendedProperties = builder.extendedProperties;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    public int getMedianTokens() {
+        return medianTokens;
+    }
+
+    public double getTokenSpread() {
+        return tokenSpread;
+    }
+
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    public Map<LanguageCode, Double> getLanguages() {
+        return languages;
+    }
+
+    public int getAnalysesPerToken() {
+        return analysesPerToken;
+    }
+
+    public int getSentenceLength() {
+        return sentenceLength;
+    }
+
+    public double getEntityDensity() {
+        return entityDensity;
+    }
+
+    public double getCoreference() {
+        return coreference;
+    }
+
+    public double getRelationshipDensity() {
+        return relationshipDensity;
+    }
+
+    public boolean isDependencies() {
+        return dependencies;
+    }
+
+    public int getEmbeddingDimensions() {
+        return embeddingDimensions;
+    }
+
+    public boolean isLanguageDetection() {
+        return languageDetection;
+    }
+
+    public int getExtendedProperties() {
+        return extendedProperties;
+    }
+
+    /**
+     * Builder for corpus specifications. The defaults make 100 English documents of about 200 tokens with
+     * sentences, entities, some relationships and a language detection.
+     */
+    public static class Builder {
+        private long seed = 1;
+        private int documentCount = 100;
+        private int medianTokens = 200;
+        private double tokenSpread = 0.5;
+        private int maxTokens = 100000;
+        private ImmutableSortedMap<LanguageCode, Double> languages = ImmutableSortedMap.of(LanguageCode.ENGLISH, 1.0);
+        private int analysesPerToken = 1;
+        private int sentenceLength = 20;
+        private double entityDensity = 8;
+        private double coreference = 0.3;
+        private double relationshipDensity = 1;
+        private boolean dependencies;
+        private int embeddingDimensions;
+        private boolean languageDetection = true;
+        private int extendedProperties;
+
+        /**
+         * @param seed the seed; the same specification always makes the same documents.
+         * @return this
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * @param documentCount the number of documents in the corpus.
+         * @return this
+         */
+        public Builder documentCount(int documentCount) {
+            checkArgument(documentCount >= 0, "documentCount");
+            this.documentCount = documentCount;
+            return this;
+        }
+
+        /**
+         * Set the distribution of document lengths. Lengths are log-normal around the median; a spread of
+         * 0 makes every document the same length.
+         * @param medianTokens the median number of tokens.
+         * @param tokenSpread the standard deviation of the log of the length.
+         * @param maxTokens the longest document.
+         * @return this
+         */
+        public Builder tokens(int medianTokens, double tokenSpread, int maxTokens) {
+            checkArgument(medianTokens > 0, "medianTokens");
+            checkArgument(tokenSpread >= 0, "tokenSpread");
+            checkArgument(maxTokens >= medianTokens, "maxTokens");
+            this.medianTokens = medianTokens;
+            this.tokenSpread = tokenSpread;
+            this.maxTokens = maxTokens;
+            return this;
+        }
+
+        /**
+         * Set the languages of the documents. Each document is in one language, chosen with the given weights.
+         * The supported languages are English, Chinese, Arabic and Korean; each has its own analyses.
+         * The order of the map does not matter.
+         * @param languages the languages and their weights, which must be positive and finite.
+         * @return this
+         */
+        public Builder languages(Map<LanguageCode, Double> languages) {
+            checkArgument(!languages.isEmpty(), "languages");
+            for (Map.Entry<LanguageCode, Double> me : languages.entrySet()) {
+                checkArgument(CorpusLanguage.forLanguage(me.getKey()) != null, "language " + me.getKey());
+                Double weight = me.getValue();
+                checkArgument(weight != null && weight > 0 && !weight.isInfinite(), "weight " + weight + " for " + me.getKey());
+            }
+            // in a fixed order, so that the same seed chooses the same languages whatever map the caller passes.
+            this.languages = ImmutableSortedMap.copyOf(languages);
+            return this;
+        }
+
+        /**
+         * @param analysesPerToken the number of analyses for each token.
+         * @return this
+         */
+        public Builder analysesPerToken(int analysesPerToken) {
+            checkArgument(analysesPerToken >= 0, "analysesPerToken");
+            this.analysesPerToken = analysesPerToken;
+            return this;
+        }
+
+        /**
+         * @param sentenceLength tokens per sentence, or 0 for no sentences.
+         * @return this
+         */
+        public Builder sentenceLength(int sentenceLength) {
+            checkArgument(sentenceLength >= 0, "sentenceLength");
+            this.sentenceLength = sentenceLength;
+            return this;
+        }
+
+        /**
+         * @param entityDensity entity mentions per hundred tokens.
+         * @return this
+         */
+        public Builder entityDensity(double entityDensity) {
+            checkArgument(entityDensity >= 0 && entityDensity <= 100, "entityDensity");
+            this.entityDensity = entityDensity;
+            return this;
+        }
+
+        /**
+         * @param coreference the chance that a mention refers to an entity that was already mentioned.
+         * @return this
+         */
+        public Builder coreference(double coreference) {
+            checkArgument(coreference >= 0 && coreference <= 1, "coreference");
+            this.coreference = coreference;
+            return this;
+        }
+
+        /**
+         * @param relationshipDensity relationship mentions per hundred tokens.
+         * @return this
+         */
+        public Builder relationshipDensity(double relationshipDensity) {
+            checkArgument(relationshipDensity >= 0, "relationshipDensity");
+            this.relationshipDensity = relationshipDensity;
+            return this;
+        }
+
+        /**
+         * @param dependencies whether to add a dependency parse.
+         * @return this
+         */
+        public Builder dependencies(boolean dependencies) {
+            this.dependencies = dependencies;
+            return this;
+        }
+
+        /**
+         * @param embeddingDimensions the length of the document and token embeddings, or 0 for none.
+         * @return this
+         */
+        public Builder embeddingDimensions(int embeddingDimensions) {
+            checkArgument(embeddingDimensions >= 0, "embeddingDimensions");
+            this.embeddingDimensions = embeddingDimensions;
+            return this;
+        }
+
+        /**
+         * @param languageDetection whether to add a whole-document language detection.
+         * @return this
+         */
+        public Builder languageDetection(boolean languageDetection) {
+            this.languageDetection = languageDetection;
+            return this;
+        }
+
+        /**
+         * @param extendedProperties the number of extended properties on each token and entity.
+         * @return this
+         */
+        public Builder extendedProperties(int extendedProperties) {
+            checkArgument(extendedProperties >= 0, "extendedProperties");
+            this.extendedProperties = extendedProperties;
+            return this;
+        }
+
+        public CorpusSpec build() {
+            return new CorpusSpec(this);
+        }
+
+        private static void checkArgument(boolean ok, String what) {
+            if (!ok) {
+                throw new IllegalArgumentException("Invalid " + what);
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+/*
+ * Copyright 2018 Basis Technology Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+/**
+ * Seeded synthetic corpora of {@link com.basistech.rosette.dm.AnnotatedText} for benchmarks, load and soak tests,
+ * so that none of them need real documents. Describe a corpus with a
+ * {@link com.basistech.rosette.dm.test.corpus.CorpusSpec}, make its documents with a
+ * {@link com.basistech.rosette.dm.test.corpus.CorpusGenerator}, and write them in any supported form with
+ * {@link com.basistech.rosette.dm.test.corpus.CorpusFormat}.
+ */
+package com.basistech.rosette.dm.test.corpus;
@@ -0,0 +1,196 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package com.basistech.rosette.dm.test.corpus;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.ArabicMorphoAnalysis;
+import com.basistech.rosette.dm.Embeddings;
+import com.basistech.rosette.dm.Entity;
+import com.basistech.rosette.dm.HanMorphoAnalysis;
+import com.basistech.rosette.dm.KoreanMorphoAnalysis;
+import com.basistech.rosette.dm.MorphoAnalysis;
+import com.basistech.rosette.dm.Token;
+import com.basistech.rosette.dm.jackson.AdmCodec;
+import com.basistech.util.LanguageCode;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CorpusGeneratorTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static CorpusSpec.Builder rich() {
+        return new CorpusSpec.Builder()
+            .seed(42)
+            .documentCount(40)
+            .tokens(150, 0.8, 1000)
+            .languages(ImmutableMap.of(LanguageCode.ENGLISH, 1.0, LanguageCode.SIMPLIFIED_CHINESE, 1.0,
+                LanguageCode.ARABIC, 1.0, LanguageCode.KOREAN, 1.0))
+            .analysesPerToken(2)
+            .entityDensity(10)
+            .coreference(0.5)
+            .relationshipDensity(2)
+            .dependencies(true)
+            .embeddingDimensions(8)
+            .extendedProperties(4);
+    }
+
+    private static String json(AnnotatedText text) throws Exception {
+        return AdmCodec.plain().writeValueAsString(text);
+    }
+
+    private static void assertSameDocument(AnnotatedText expected, AnnotatedText actual) {
+        assertEquals(expected.getData().toString(), actual.getData().toString());
+        assertEquals(expected.getAttributes(), actual.getAttributes());
+        assertEquals(expected.getDocumentMetadata(), actual.getDocumentMetadata());
+    }
+
+    @Test
+    public void repeatable() throws Exception {
+        CorpusGenerator first = new CorpusGenerator(rich().build());
+        CorpusGenerator second = new CorpusGenerator(rich().build());
+        int count = 0;
+        for (AnnotatedText text : first) {
+            assertSameDocument(text, second.document(count));
+            assertEquals(json(text), json(second.document(count)));
+            count++;
+        }
+        assertEquals(40, count);
+        CorpusGenerator other = new CorpusGenerator(rich().seed(43).build());
+        assertNotEquals(json(first.document(0)), json(other.document(0)));
+    }
+
+    @Test
+    public void contents() throws Exception {
+        Set<Class<?>> analysisClasses = Sets.newHashSet();
+        boolean coreferent = false;
+        boolean relationships = false;
+        for (AnnotatedText text : new CorpusGenerator(rich().build())) {
+            assertTrue(text.getTokens().size() <= 1000);
+            for (Token token : text.getTokens()) {
+                assertEquals(2, token.getAnalyses().size());
+                assertEquals(4, token.getExtendedProperties().size());
+                assertEquals(token.getText(), text.getData().subSequence(token.getStartOffset(), token.getEndOffset()).toString());
+                for (MorphoAnalysis analysis : token.getAnalyses()) {
+                    analysisClasses.add(analysis.getClass());
+                }
+            }
+            if (text.getEntities() != null) {
+                for (Entity entity : text.getEntities()) {
+                    coreferent |= entity.getMentions().size() > 1;
+                }
+            }
+            relationships |= text.getRelationshipMentions() != null && !text.getRelationshipMentions().isEmpty();
+            assertEquals(text.getTokens().size(), text.getDependencies().size());
+            assertEquals(text.getTokens().size(), text.getEmbeddings().get(Embeddings.Name.TOKENS).getEmbeddings().size());
+            assertNotNull(text.getWholeTextLanguageDetection());
+        }
+        assertEquals(Sets.<Class<?>>newHashSet(MorphoAnalysis.class, HanMorphoAnalysis.class,
+            ArabicMorphoAnalysis.class, KoreanMorphoAnalysis.class), analysisClasses);
+        assertTrue(coreferent);
+        assertTrue(relationships);
+    }
+
+    @Test
+    public void sizes() throws Exception {
+        CorpusSpec spec = new CorpusSpec.Builder().documentCount(20).tokens(50, 0, 50).entityDensity(0)
+            .sentenceLength(0).languageDetection(false).build();
+        for (AnnotatedText text : new CorpusGenerator(spec)) {
+            assertEquals(50, text.getTokens().size());
+            assertEquals(null, text.getEntities());
+            assertEquals(null, text.getSentences());
+            assertEquals(null, text.getWholeTextLanguageDetection());
+        }
+        List<Integer> lengths = Lists.newArrayList();
+        for (AnnotatedText text : new CorpusGenerator(new CorpusSpec.Builder().tokens(100, 1.0, 300).build())) {
+            lengths.add(text.getTokens().size());
+        }
+        assertTrue(lengths.contains(300));
+        assertFalse(Sets.newHashSet(lengths).size() < 10);
+    }
+
+    @Test
+    public void formats() throws Exception {
+        CorpusGenerator generator = new CorpusGenerator(rich().documentCount(10).build());
+        for (CorpusFormat format : CorpusFormat.values()) {
+            Path file = temporaryFolder.newFile("corpus-" + format).toPath();
+            assertEquals(10, format.write(generator, file));
+            List<AnnotatedText> read = format.read(file);
+            assertEquals(format.toString(), 10, read.size());
+            for (int x = 0; x < read.size(); x++) {
+                assertSameDocument(generator.document(x), read.get(x));
+            }
+        }
+    }
+
+    @Test
+    public void estimatedSizes() throws Exception {
+        CorpusGenerator generator = new CorpusGenerator(rich().documentCount(10).build());
+        for (CorpusFormat format : CorpusFormat.values()) {
+            AdmCodec codec = format.newCodec();
+            if (codec == null) {
+                continue;
+            }
+            for (AnnotatedText text : generator) {
+                assertEquals(format.toString(), codec.writeValueAsBytes(text).length, codec.estimateSize(text));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedLanguage() {
+        new CorpusSpec.Builder().languages(ImmutableMap.of(LanguageCode.FRENCH, 1.0));
+    }
+
+    /* the same languages in another order make the same corpus. */
+    @Test
+    public void languageOrder() throws Exception {
+        CorpusGenerator first = new CorpusGenerator(rich().build());
+        CorpusGenerator second = new CorpusGenerator(rich().languages(ImmutableMap.of(LanguageCode.KOREAN, 1.0,
+            LanguageCode.ARABIC, 1.0, LanguageCode.SIMPLIFIED_CHINESE, 1.0, LanguageCode.ENGLISH, 1.0)).build());
+        for (int x = 0; x < 40; x++) {
+            assertEquals(json(first.document(x)), json(second.document(x)));
+        }
+    }
+
+    @Test
+    public void badWeights() {
+        for (double weight : new double[] {0, -1, Double.NaN, Double.POSITIVE_INFINITY}) {
+            try {
+                new CorpusSpec.Builder().languages(ImmutableMap.of(LanguageCode.ENGLISH, weight));
+                fail(Double.toString(weight));
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+* Copyright 2018 Basis Technology Corp.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package com.basistech.rosette.dm.test.corpus;
+
+import com.basistech.rosette.dm.AnnotatedText;
+import com.basistech.rosette.dm.jackson.AdmCodec;
+import com.basistech.rosette.dm.util.Footprint;
+import com.basistech.rosette.dm.util.FootprintAnalyzer;
+import com.basistech.util.LanguageCode;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fails when the model starts to retain more memory per token for a reference corpus.
+ * The limits are about 10% above the footprint when they were set; if a change to the model
+ * really needs more memory, raise them in the same change and say why. If a change saves memory,
+ * lower them, so that the saving is kept.
+ */
+public class FootprintRegressionTest {
+    // measured at 345 and 728 bytes per token.
+    private static final double BUILT_LIMIT = 380;
+    private static final double READ_LIMIT = 800;
+
+    // a Java 8 layout with compressed oops, so the numbers do not depend on the JVM running the test.
+    private final FootprintAnalyzer analyzer = new FootprintAnalyzer(true, false);
+
+    private static CorpusGenerator reference() {
+        return new CorpusGenerator(new CorpusSpec.Builder()
+            .seed(2018)
+            .documentCount(20)
+            .tokens(300, 0.5, 2000)
+            .languages(ImmutableMap.of(LanguageCode.ENGLISH, 2.0, LanguageCode.SIMPLIFIED_CHINESE, 1.0,
+                LanguageCode.ARABIC, 1.0, LanguageCode.KOREAN, 1.0))
+            .analysesPerToken(1)
+            .entityDensity(8)
+            .coreference(0.3)
+            .relationshipDensity(1)
+            .dependencies(true)
+            .extendedProperties(1)
+            .build());
+    }
+
+    private static void assertWithin(String what, Footprint footprint, double limit) {
+        assertTrue(String.format("%s: %.1f bytes per token is over the limit of %.1f%n%s", what,
+                footprint.getBytesPerToken(), limit, footprint), footprint.getBytesPerToken() <= limit);
+    }
+
+    @Test
+    public void built() {
+        assertWithin("built", analyzer.analyze(reference()), BUILT_LIMIT);
+    }
+
+    /* documents read from Json do not share strings the way the generator does. */
+    @Test
+    public void read() throws Exception {
+        AdmCodec codec = AdmCodec.plain();
+        List<AnnotatedText> texts = Lists.newArrayList();
+        for (AnnotatedText text : reference()) {
+            texts.add(codec.read(codec.writeValueAsBytes(text)));
+        }
+        assertWithin("read", analyzer.analyze(texts), READ_LIMIT);
+    }
+}